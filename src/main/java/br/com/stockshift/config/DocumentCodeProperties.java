@@ -0,0 +1,23 @@
+package br.com.stockshift.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stockshift.document-codes")
+@Data
+public class DocumentCodeProperties {
+
+    /**
+     * How many sequence numbers a node reserves from the database at once.
+     * Larger blocks mean fewer round trips; unused numbers are lost on restart.
+     */
+    private int blockSize = 20;
+
+    /**
+     * Connections of the separate pool that reserves blocks, so a sale or movement
+     * holding an application connection never waits for a second one.
+     */
+    private int poolSize = 2;
+}
@@ -0,0 +1,23 @@
+package br.com.stockshift.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stockshift.ledger-partition")
+@Data
+public class LedgerPartitionProperties {
+
+    /** Monthly inventory_ledger partitions kept created ahead of the current month. */
+    private int monthsAhead = 3;
+
+    /**
+     * Months kept in the live inventory_ledger, the current one included; older months
+     * move to inventory_ledger_archive. 0 keeps everything live.
+     */
+    private int archiveAfterMonths = 24;
+
+    /** Schedule of the partition maintenance. */
+    private String cron = "0 30 3 * * *";
+}
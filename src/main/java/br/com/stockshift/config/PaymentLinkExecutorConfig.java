@@ -0,0 +1,23 @@
+package br.com.stockshift.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class PaymentLinkExecutorConfig {
+
+    public static final String PAYMENT_LINK_EXECUTOR = "paymentLinkExecutor";
+
+    @Bean(name = PAYMENT_LINK_EXECUTOR)
+    public ThreadPoolTaskExecutor paymentLinkExecutor(PaymentLinkProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getConcurrency());
+        executor.setMaxPoolSize(properties.getConcurrency());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setThreadNamePrefix("payment-link-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
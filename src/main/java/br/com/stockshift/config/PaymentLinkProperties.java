@@ -0,0 +1,28 @@
+package br.com.stockshift.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stockshift.payment-link")
+@Data
+public class PaymentLinkProperties {
+
+    /** Concurrent calls to the InfinitePay checkout API per node. */
+    private int concurrency = 4;
+
+    /** Link requests waiting for a worker; beyond this the link is marked FAILED. */
+    private int queueCapacity = 200;
+
+    /** Checkout API calls per link before giving up. */
+    private int maxAttempts = 3;
+
+    /** Wait before the second attempt; doubles on every further attempt. */
+    private Duration retryBackoff = Duration.ofSeconds(1);
+
+    /** A PENDING link older than this may be retried (e.g. the node restarted mid-request). */
+    private Duration staleAfter = Duration.ofMinutes(2);
+}
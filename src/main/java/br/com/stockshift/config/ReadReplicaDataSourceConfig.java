@@ -0,0 +1,88 @@
+package br.com.stockshift.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+import javax.sql.DataSource;
+
+/**
+ * Replaces the auto-configured pool with a primary pool and a replica pool behind a
+ * routing data source: read-only transactions ({@code @Transactional(readOnly = true)},
+ * Spring Data finders) read from the replica, everything else runs on the primary.
+ * See {@link ReadReplicaRouter} for when a read-only transaction still uses the primary.
+ *
+ * <p>The primary pool keeps the {@code spring.datasource.*} settings. Both pools publish
+ * Hikari metrics tagged {@code pool=primary} and {@code pool=replica}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "stockshift.read-replica", name = "enabled", havingValue = "true")
+public class ReadReplicaDataSourceConfig {
+
+    public static final String PRIMARY_POOL = "primary";
+    public static final String REPLICA_POOL = "replica";
+
+    @Bean
+    public ReadReplicaRouter readReplicaRouter(Environment environment, ReadReplicaProperties properties,
+                                               StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        HikariConfig primary = new HikariConfig();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setJdbcUrl(environment.getRequiredProperty("spring.datasource.url"));
+        primary.setUsername(environment.getProperty("spring.datasource.username"));
+        primary.setPassword(environment.getProperty("spring.datasource.password"));
+        primary.setPoolName(PRIMARY_POOL);
+        primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+
+        HikariConfig replica = new HikariConfig();
+        replica.setJdbcUrl(properties.getUrl());
+        replica.setUsername(properties.getUsername());
+        replica.setPassword(properties.getPassword());
+        replica.setMaximumPoolSize(properties.getMaximumPoolSize());
+        replica.setReadOnly(true);
+        replica.setPoolName(REPLICA_POOL);
+        replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        // Start even when the replica is down; the lag check keeps it out of rotation until it answers
+        replica.setInitializationFailTimeout(-1);
+
+        return new ReadReplicaRouter(new HikariDataSource(primary), new HikariDataSource(replica),
+                redisTemplate, properties, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadReplicaRouter readReplicaRouter) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(readReplicaRouter));
+    }
+
+    /**
+     * Hibernate holds a session's connection until the session closes by default; a
+     * session spanning several transactions (open-in-view, off in application.yml) would
+     * then stay pinned to the replica after a read-only one. Releasing the connection
+     * after each transaction lets every transaction be routed on its own.
+     */
+    @Bean
+    public static BeanPostProcessor releaseConnectionAfterTransaction() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof LocalContainerEntityManagerFactoryBean entityManagerFactory) {
+                    entityManagerFactory.getJpaPropertyMap().put("hibernate.connection.handling_mode",
+                            "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+                }
+                return bean;
+            }
+        };
+    }
+}
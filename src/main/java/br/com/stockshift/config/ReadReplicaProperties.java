@@ -0,0 +1,38 @@
+package br.com.stockshift.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stockshift.read-replica")
+@Data
+public class ReadReplicaProperties {
+
+    /** When false every transaction runs on the primary ({@code spring.datasource.*}). */
+    private boolean enabled = false;
+
+    /** JDBC URL of the PostgreSQL streaming replica. */
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    /** Connections in the replica pool; the primary pool keeps {@code spring.datasource.hikari.*}. */
+    private int maximumPoolSize = 10;
+
+    /**
+     * How long a tenant's reads stay on the primary after it commits a write, so it reads
+     * its own writes. Keep it above {@link #maxLag}.
+     */
+    private Duration recentWriteWindow = Duration.ofSeconds(5);
+
+    /** Replication lag above which every read goes to the primary until the replica catches up. */
+    private Duration maxLag = Duration.ofSeconds(2);
+
+    /** How often the replica lag is measured. */
+    private Duration lagCheckInterval = Duration.ofSeconds(5);
+}
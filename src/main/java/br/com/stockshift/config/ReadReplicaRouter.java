@@ -0,0 +1,239 @@
+package br.com.stockshift.config;
+
+import br.com.stockshift.security.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether the connection of the current transaction comes from the primary or
+ * from the read replica, and owns both connection pools.
+ *
+ * <p>A connection goes to the replica only when the transaction is read-only, runs for
+ * a tenant, the replica was last measured within {@link ReadReplicaProperties#getMaxLag()}
+ * no more than {@value #STALE_AFTER_CHECKS} check intervals ago, and the tenant has not committed a write within
+ * {@link ReadReplicaProperties#getRecentWriteWindow()}; everything else runs on the
+ * primary. Recent writes are kept in node-local memory and in Redis, so a write
+ * committed on one node also pins the tenant's reads on the others. If Redis cannot be
+ * read the tenant is assumed to have written (fail-safe towards the primary).
+ */
+@Slf4j
+public class ReadReplicaRouter implements Closeable {
+
+    public enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private static final String RECENT_WRITE_KEY_PREFIX = "replica:recent-write:";
+    private static final int LOCAL_MAX_TENANTS = 10_000;
+
+    /**
+     * A measurement older than this many check intervals no longer counts: the scheduler
+     * thread running the checks may be stuck behind other jobs.
+     */
+    static final int STALE_AFTER_CHECKS = 3;
+
+    /**
+     * Zero while the replica has replayed all it received; otherwise the age of the last
+     * replayed commit. Null when the WAL receiver is not streaming: a replica cut off from
+     * the primary has replayed all it received too.
+     */
+    static final String LAG_QUERY = """
+            SELECT CASE
+                       WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE status = 'streaming') THEN NULL
+                       WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+                   END
+            """;
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final StringRedisTemplate redisTemplate;
+    private final ReadReplicaProperties properties;
+    private final Map<UUID, Long> recentWrites = new ConcurrentHashMap<>();
+    private final AtomicLong lagMillis = new AtomicLong(-1);
+    private final Counter primaryCounter;
+    private final Counter replicaCounter;
+
+    /** Stays false until the first lag check succeeds, so a misconfigured replica is never used. */
+    private volatile boolean replicaAvailable;
+
+    /** {@link System#nanoTime()} of the last successful lag check. */
+    private volatile long lagMeasuredAt;
+
+    public ReadReplicaRouter(DataSource primary, DataSource replica, StringRedisTemplate redisTemplate,
+                             ReadReplicaProperties properties, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+
+        Gauge.builder("stockshift.read.replica.lag", lagMillis, lag -> lag.get() / 1000.0)
+                .description("Replication lag measured on the read replica (-1 when unreachable)")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("stockshift.read.replica.available", this, router -> router.isReplicaAvailable() ? 1 : 0)
+                .description("Whether read-only transactions may currently use the replica")
+                .register(meterRegistry);
+        this.primaryCounter = routedCounter(meterRegistry, Target.PRIMARY);
+        this.replicaCounter = routedCounter(meterRegistry, Target.REPLICA);
+    }
+
+    public DataSource primary() {
+        return primary;
+    }
+
+    public DataSource replica() {
+        return replica;
+    }
+
+    public boolean isReplicaAvailable() {
+        long staleAfter = properties.getLagCheckInterval().toNanos() * STALE_AFTER_CHECKS;
+        return replicaAvailable && System.nanoTime() - lagMeasuredAt <= staleAfter;
+    }
+
+    /**
+     * Target for a connection requested now. Called when the transaction first needs a
+     * connection, after its read-only flag is known. A read-write transaction of a tenant
+     * also records the tenant's write once it commits.
+     */
+    public Target route() {
+        Target target = decide();
+        (target == Target.REPLICA ? replicaCounter : primaryCounter).increment();
+        return target;
+    }
+
+    private Target decide() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Target.PRIMARY;
+        }
+        UUID tenantId = TenantContext.getTenantId();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (tenantId != null) {
+                recordWriteAfterCommit(tenantId);
+            }
+            return Target.PRIMARY;
+        }
+        if (tenantId == null || !isReplicaAvailable() || hasRecentWrite(tenantId)) {
+            return Target.PRIMARY;
+        }
+        return Target.REPLICA;
+    }
+
+    /** The replica refused a connection: use the primary until the next lag check succeeds. */
+    public void markReplicaUnavailable(Exception cause) {
+        if (replicaAvailable) {
+            log.warn("Read replica unavailable, reads fall back to the primary. Error: {}", cause.getMessage());
+        }
+        replicaAvailable = false;
+        lagMillis.set(-1);
+    }
+
+    /** Measures the replica lag and enables or disables the replica accordingly. */
+    public void checkLag() {
+        Double lagSeconds;
+        try {
+            lagSeconds = new JdbcTemplate(replica).queryForObject(LAG_QUERY, Double.class);
+        } catch (Exception e) {
+            markReplicaUnavailable(e);
+            return;
+        }
+        if (lagSeconds == null) {
+            markReplicaUnavailable(new IllegalStateException("WAL receiver is not streaming"));
+            return;
+        }
+        applyLag(lagSeconds);
+    }
+
+    void applyLag(double lagSeconds) {
+        applyLag(lagSeconds, System.nanoTime());
+    }
+
+    void applyLag(double lagSeconds, long measuredAt) {
+        long lag = Math.round(lagSeconds * 1000);
+        lagMillis.set(lag);
+        lagMeasuredAt = measuredAt;
+        boolean available = lag <= properties.getMaxLag().toMillis();
+        if (available != replicaAvailable) {
+            log.info("Read replica {} (lag {} ms)", available ? "enabled" : "disabled", lag);
+        }
+        replicaAvailable = available;
+    }
+
+    void recordWrite(UUID tenantId) {
+        long window = properties.getRecentWriteWindow().toMillis();
+        long now = System.nanoTime();
+        if (recentWrites.size() >= LOCAL_MAX_TENANTS) {
+            recentWrites.values().removeIf(until -> until - now <= 0);
+        }
+        recentWrites.put(tenantId, now + TimeUnit.MILLISECONDS.toNanos(window));
+        try {
+            redisTemplate.opsForValue().set(RECENT_WRITE_KEY_PREFIX + tenantId, "1", window, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("Failed to record recent write for tenant {}. Error: {}", tenantId, e.getMessage());
+        }
+    }
+
+    boolean hasRecentWrite(UUID tenantId) {
+        Long until = recentWrites.get(tenantId);
+        if (until != null && until - System.nanoTime() > 0) {
+            return true;
+        }
+        try {
+            return redisTemplate.opsForValue().get(RECENT_WRITE_KEY_PREFIX + tenantId) != null;
+        } catch (Exception e) {
+            log.warn("Failed to read recent writes for tenant {}. Reading from the primary. Error: {}",
+                    tenantId, e.getMessage());
+            return true;
+        }
+    }
+
+    private void recordWriteAfterCommit(UUID tenantId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recordWrite(tenantId);
+            }
+        });
+    }
+
+    private Counter routedCounter(MeterRegistry meterRegistry, Target target) {
+        return Counter.builder("stockshift.read.replica.routed")
+                .description("Connections handed out by the routing data source, by target")
+                .tag("target", target.name().toLowerCase())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(replica);
+        closeQuietly(primary);
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Failed to close data source. Error: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package br.com.stockshift.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ReconciliationExecutorConfig {
+
+    public static final String RECONCILIATION_EXECUTOR = "reconciliationExecutor";
+
+    @Bean(name = RECONCILIATION_EXECUTOR)
+    public ThreadPoolTaskExecutor reconciliationExecutor(ReconciliationProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getConcurrency());
+        executor.setMaxPoolSize(properties.getConcurrency());
+        // Every tenant of a run is queued up front; the pool size bounds the parallelism
+        executor.setThreadNamePrefix("reconciliation-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
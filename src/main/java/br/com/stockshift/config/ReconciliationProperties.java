@@ -0,0 +1,32 @@
+package br.com.stockshift.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stockshift.reconciliation")
+@Data
+public class ReconciliationProperties {
+
+    /**
+     * Tenants reconciled at once by the reconciliation job, each holding a connection for its
+     * queries. Keep it well below the datasource pool size.
+     */
+    private int concurrency = 4;
+
+    /** Schedule of the incremental run, which checks the batches touched since the last one. */
+    private String incrementalCron = "0 15 * * * *";
+
+    /** Schedule of the full run, which rebuilds the checkpoints from the whole ledger. */
+    private String fullCron = "0 0 2 * * SUN";
+
+    /**
+     * Ledger entries younger than this are not yet folded into the checkpoints: a
+     * transaction that wrote one may still be running. Must exceed the longest write
+     * transaction; an entry committed later than this is only caught by the full run.
+     */
+    private Duration settleWindow = Duration.ofMinutes(5);
+}
@@ -0,0 +1,22 @@
+package br.com.stockshift.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stockshift.reference-names")
+@Data
+public class ReferenceNameProperties {
+
+    /**
+     * How long a resolved warehouse/user name is served from memory. Renames on this
+     * node evict immediately; other nodes pick them up once the entry expires.
+     */
+    private Duration ttl = Duration.ofSeconds(60);
+
+    /** Upper bound on cached names per node; the cache is cleared when it is exceeded. */
+    private int maxEntries = 10_000;
+}
@@ -0,0 +1,48 @@
+package br.com.stockshift.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Hands out primary or replica connections as decided by {@link ReadReplicaRouter}.
+ *
+ * <p>Must sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}:
+ * the transaction manager opens its connection before the read-only flag of the
+ * transaction is published, and the proxy defers the lookup to the first statement.
+ * If the replica refuses a connection the request falls back to the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReadReplicaRouter router;
+
+    public ReplicaRoutingDataSource(ReadReplicaRouter router) {
+        this.router = router;
+        setTargetDataSources(Map.of(
+                ReadReplicaRouter.Target.PRIMARY, router.primary(),
+                ReadReplicaRouter.Target.REPLICA, router.replica()));
+        setDefaultTargetDataSource(router.primary());
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return router.route();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (router.route() != ReadReplicaRouter.Target.REPLICA) {
+            return router.primary().getConnection();
+        }
+        try {
+            return router.replica().getConnection();
+        } catch (SQLException e) {
+            router.markReplicaUnavailable(e);
+            return router.primary().getConnection();
+        }
+    }
+}
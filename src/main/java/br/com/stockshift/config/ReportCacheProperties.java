@@ -0,0 +1,26 @@
+package br.com.stockshift.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stockshift.report-cache")
+@Data
+public class ReportCacheProperties {
+
+    /** When false every dashboard request is computed from the database. */
+    private boolean enabled = true;
+
+    /**
+     * How long a dashboard response is served, locally and from Redis, while no stock
+     * change is committed for the tenant. Bounds staleness for changes that do not bump
+     * the tenant version (warehouse renames, permission changes).
+     */
+    private Duration ttl = Duration.ofSeconds(60);
+
+    /** Upper bound on responses held in memory per node; the local tier is cleared when exceeded. */
+    private int localMaxEntries = 2_000;
+}
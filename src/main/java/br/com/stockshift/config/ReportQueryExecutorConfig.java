@@ -0,0 +1,22 @@
+package br.com.stockshift.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ReportQueryExecutorConfig {
+
+    public static final String REPORT_QUERY_EXECUTOR = "reportQueryExecutor";
+
+    @Bean(name = REPORT_QUERY_EXECUTOR)
+    public ThreadPoolTaskExecutor reportQueryExecutor(ReportQueryProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getConcurrency());
+        executor.setMaxPoolSize(properties.getConcurrency());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setThreadNamePrefix("report-query-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
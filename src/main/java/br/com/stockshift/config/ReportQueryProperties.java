@@ -0,0 +1,25 @@
+package br.com.stockshift.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stockshift.report-query")
+@Data
+public class ReportQueryProperties {
+
+    /**
+     * Report sub-queries running at once per node, each on its own connection. Keep it
+     * well below the datasource pool size so commands still get connections.
+     */
+    private int concurrency = 6;
+
+    /** Sub-queries waiting for a worker; beyond this they run on the request thread. */
+    private int queueCapacity = 200;
+
+    /** Time a report has to gather all its sub-queries before the request fails. */
+    private Duration deadline = Duration.ofSeconds(10);
+}
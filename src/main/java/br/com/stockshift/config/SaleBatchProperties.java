@@ -0,0 +1,17 @@
+package br.com.stockshift.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stockshift.sale-batch")
+@Data
+public class SaleBatchProperties {
+
+    /** Sales accepted by one POST /api/sales/batch call. */
+    private int maxSales = 500;
+
+    /** Sales committed together; a failing chunk is replayed one sale per transaction. */
+    private int chunkSize = 50;
+}
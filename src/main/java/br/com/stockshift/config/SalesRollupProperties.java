@@ -0,0 +1,14 @@
+package br.com.stockshift.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stockshift.sales-rollup")
+@Data
+public class SalesRollupProperties {
+
+    /** Days (including today) recomputed from the sales table by the nightly backfill. */
+    private int backfillDays = 3;
+}
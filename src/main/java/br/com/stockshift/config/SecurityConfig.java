@@ -57,6 +57,8 @@ public class SecurityConfig {
             .permitAll()
             // Health check
             .requestMatchers("/actuator/health/**").permitAll()
+            // Metrics are process-wide, not per tenant
+            .requestMatchers("/actuator/metrics/**").hasAnyRole("ADMIN", "SUPER_ADMIN")
             // Auth endpoints
             .requestMatchers(HttpMethod.POST, "/api/auth/login", "/api/auth/refresh", "/api/auth/register").permitAll()
             // InfinitePay sends approved payment notifications to this tokenized public endpoint.
@@ -0,0 +1,28 @@
+package br.com.stockshift.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stockshift.stock-deduction")
+@Data
+public class StockDeductionProperties {
+
+    /**
+     * How sales and outgoing stock movements take stock from batches.
+     * PESSIMISTIC locks the candidate batches up front (SELECT ... FOR UPDATE);
+     * CONDITIONAL reads them without locks and deducts with a guarded UPDATE,
+     * moving on to the next FIFO batch when another transaction got there first.
+     */
+    private Mode mode = Mode.PESSIMISTIC;
+
+    public boolean isConditional() {
+        return mode == Mode.CONDITIONAL;
+    }
+
+    public enum Mode {
+        PESSIMISTIC,
+        CONDITIONAL
+    }
+}
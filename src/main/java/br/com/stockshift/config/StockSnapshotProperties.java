@@ -0,0 +1,21 @@
+package br.com.stockshift.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stockshift.stock-snapshot")
+@Data
+public class StockSnapshotProperties {
+
+    /**
+     * Days for which every daily stock snapshot is kept; older days keep only their
+     * month-end snapshot, so as-of reads there add at most a month of ledger. 0 keeps
+     * every day.
+     */
+    private int dailyRetentionDays = 90;
+
+    /** Schedule of the nightly snapshot of the days that ended since the last one. */
+    private String cron = "0 40 0 * * *";
+}
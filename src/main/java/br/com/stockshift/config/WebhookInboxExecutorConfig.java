@@ -0,0 +1,24 @@
+package br.com.stockshift.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class WebhookInboxExecutorConfig {
+
+    public static final String WEBHOOK_INBOX_EXECUTOR = "webhookInboxExecutor";
+
+    @Bean(name = WEBHOOK_INBOX_EXECUTOR)
+    public ThreadPoolTaskExecutor webhookInboxExecutor(WebhookInboxProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getConcurrency());
+        executor.setMaxPoolSize(properties.getConcurrency());
+        // A poll never claims more rows than there are workers
+        executor.setQueueCapacity(properties.getConcurrency());
+        executor.setThreadNamePrefix("webhook-inbox-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,40 @@
+package br.com.stockshift.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stockshift.webhook-inbox")
+@Data
+public class WebhookInboxProperties {
+
+    /** Whether this node polls the inbox. Webhooks are still accepted when disabled. */
+    private boolean workerEnabled = true;
+
+    /** Inbox rows processed concurrently per node (and claimed per poll). */
+    private int concurrency = 4;
+
+    /** Delay between the end of one poll and the start of the next. */
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    /**
+     * Longest a poll keeps polling again while polls come back full. The scheduler thread
+     * is shared with the other jobs; the rest of a burst waits for the next poll.
+     */
+    private Duration maxDrainTime = Duration.ofSeconds(10);
+
+    /** A claimed row not finished within this time may be claimed again by another worker. */
+    private Duration lease = Duration.ofMinutes(2);
+
+    /** Processing attempts per webhook before it is marked FAILED. */
+    private int maxAttempts = 8;
+
+    /** Wait before the second attempt; doubles on every further attempt. */
+    private Duration retryBackoff = Duration.ofSeconds(5);
+
+    /** Processed (DONE) rows older than this are purged. */
+    private Duration retention = Duration.ofDays(7);
+}
@@ -0,0 +1,52 @@
+package br.com.stockshift.controller;
+
+import br.com.stockshift.dto.ApiResponse;
+import br.com.stockshift.exception.BadRequestException;
+import br.com.stockshift.security.TenantContext;
+import br.com.stockshift.service.stockmovement.MovementRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+@RestController
+@RequestMapping("/api/admin/movement-rollup")
+@RequiredArgsConstructor
+public class AdminMovementRollupController {
+
+    // The tenant's movements wait for the rebuild, so one call covers at most a quarter
+    static final long MAX_REBUILD_DAYS = 92;
+
+    private final MovementRollupService movementRollupService;
+
+    /**
+     * Recomputes the current tenant's daily movement rollup from the movement tables, e.g.
+     * {@code POST /api/admin/movement-rollup/rebuild?from=2026-01-01&to=2026-01-31} after
+     * movements were fixed by hand. Returns the number of rollup rows written. Longer
+     * periods are rebuilt in several calls of at most {@value #MAX_REBUILD_DAYS} days.
+     *
+     * @param from first day to rebuild (inclusive)
+     * @param to   last day to rebuild (inclusive)
+     */
+    @PostMapping("/rebuild")
+    @PreAuthorize("@permissionGuard.isAdmin()")
+    public ResponseEntity<ApiResponse<Integer>> rebuild(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new BadRequestException("from must not be after to");
+        }
+        if (ChronoUnit.DAYS.between(from, to) + 1 > MAX_REBUILD_DAYS) {
+            throw new BadRequestException("At most " + MAX_REBUILD_DAYS + " days can be rebuilt at once");
+        }
+        int rows = movementRollupService.rebuild(TenantContext.getTenantId(), from, to);
+        return ResponseEntity.ok(ApiResponse.success("Movement rollup rebuilt", rows));
+    }
+}
@@ -0,0 +1,31 @@
+package br.com.stockshift.controller;
+
+import br.com.stockshift.dto.ApiResponse;
+import br.com.stockshift.security.TenantContext;
+import br.com.stockshift.service.StockBalanceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/stock-balance")
+@RequiredArgsConstructor
+public class AdminStockBalanceController {
+
+    private final StockBalanceService stockBalanceService;
+
+    /**
+     * Recomputes the current tenant's stock balances from its live batches, e.g. after the
+     * nightly check reported a mismatch. Returns the number of balance rows written.
+     * The tenant's batch writes wait for it, hence platform admins only.
+     */
+    @PostMapping("/rebuild")
+    @PreAuthorize("@permissionGuard.isPlatformAdmin()")
+    public ResponseEntity<ApiResponse<Integer>> rebuild() {
+        int rows = stockBalanceService.rebuild(TenantContext.getTenantId());
+        return ResponseEntity.ok(ApiResponse.success("Stock balance rebuilt", rows));
+    }
+}
@@ -101,16 +101,20 @@ public class BatchController {
     @GetMapping("/expiring/{daysAhead}")
     @PreAuthorize("@permissionGuard.hasAny('batches:read')")
     @Operation(summary = "Get batches expiring in next N days")
-    public ResponseEntity<ApiResponse<List<BatchResponse>>> findExpiringBatches(@PathVariable Integer daysAhead) {
-        List<BatchResponse> batches = batchService.findExpiringBatches(daysAhead);
+    public ResponseEntity<ApiResponse<List<BatchResponse>>> findExpiringBatches(
+            @PathVariable Integer daysAhead,
+            @RequestParam(required = false) Integer limit) {
+        List<BatchResponse> batches = batchService.findExpiringBatches(daysAhead, limit);
         return ResponseEntity.ok(ApiResponse.success(batches));
     }
 
     @GetMapping("/low-stock/{threshold}")
     @PreAuthorize("@permissionGuard.hasAny('batches:read')")
     @Operation(summary = "Get batches with quantity below threshold")
-    public ResponseEntity<ApiResponse<List<BatchResponse>>> findLowStock(@PathVariable Integer threshold) {
-        List<BatchResponse> batches = batchService.findLowStock(threshold);
+    public ResponseEntity<ApiResponse<List<BatchResponse>>> findLowStock(
+            @PathVariable Integer threshold,
+            @RequestParam(required = false) Integer limit) {
+        List<BatchResponse> batches = batchService.findLowStock(threshold, limit);
         return ResponseEntity.ok(ApiResponse.success(batches));
     }
 
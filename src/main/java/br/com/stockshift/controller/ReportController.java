@@ -6,16 +6,28 @@ import br.com.stockshift.dto.report.DashboardKpisResponse;
 import br.com.stockshift.dto.report.DashboardResponse;
 import br.com.stockshift.dto.report.DashboardSummaryResponse;
 import br.com.stockshift.dto.report.MovementTrendResponse;
+import br.com.stockshift.dto.report.StockReportPageResponse;
 import br.com.stockshift.dto.report.StockReportResponse;
+import br.com.stockshift.exception.BadRequestException;
+import br.com.stockshift.service.CachedReportService;
 import br.com.stockshift.service.ReportService;
+import br.com.stockshift.service.StockReportStreamWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 @RestController
@@ -25,24 +37,75 @@ import java.util.List;
 @SecurityRequirement(name = "Bearer Authentication")
 public class ReportController {
 
+    private static final DateTimeFormatter FILE_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final MediaType CSV_MEDIA_TYPE = MediaType.parseMediaType("text/csv; charset=UTF-8");
+    private static final MediaType XLSX_MEDIA_TYPE = MediaType.parseMediaType(
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
     private final ReportService reportService;
+    private final CachedReportService cachedReportService;
+    private final StockReportStreamWriter stockReportStreamWriter;
 
     @GetMapping("/dashboard")
     @PreAuthorize("@permissionGuard.hasAny('reports:read')")
     @Operation(summary = "Get dashboard summary")
     public ResponseEntity<ApiResponse<DashboardResponse>> getDashboard() {
-        DashboardResponse response = reportService.getDashboard();
+        DashboardResponse response = cachedReportService.getDashboard();
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
     @GetMapping("/stock")
     @PreAuthorize("@permissionGuard.hasAny('reports:read')")
-    @Operation(summary = "Get complete stock report")
-    public ResponseEntity<ApiResponse<List<StockReportResponse>>> getStockReport() {
-        List<StockReportResponse> report = reportService.getStockReport();
+    @Operation(summary = "Get complete stock report, one page at a time")
+    public ResponseEntity<ApiResponse<StockReportPageResponse>> getStockReport(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        StockReportPageResponse report = reportService.getStockReport(cursor, limit);
         return ResponseEntity.ok(ApiResponse.success(report));
     }
 
+    @GetMapping("/stock/as-of")
+    @PreAuthorize("@permissionGuard.hasAny('reports:read')")
+    @Operation(summary = "Get the stock report as of the end of a past date")
+    public ResponseEntity<ApiResponse<List<StockReportResponse>>> getStockReportAsOf(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        List<StockReportResponse> report = reportService.getStockReportAsOf(date);
+        return ResponseEntity.ok(ApiResponse.success(report));
+    }
+
+    @GetMapping("/stock/stream")
+    @PreAuthorize("@permissionGuard.hasAny('reports:read')")
+    @Operation(summary = "Stream the complete stock report as NDJSON or CSV")
+    public ResponseEntity<StreamingResponseBody> streamStockReport(
+            @RequestParam(defaultValue = "ndjson") String format) {
+        if (!"ndjson".equals(format) && !"csv".equals(format)) {
+            throw new BadRequestException("Unsupported stock report format: " + format);
+        }
+        Iterable<StockReportResponse> rows = reportService.streamStockReport();
+        if ("csv".equals(format)) {
+            return ResponseEntity.ok()
+                    .contentType(CSV_MEDIA_TYPE)
+                    .body(output -> stockReportStreamWriter.writeCsv(rows, output));
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(output -> stockReportStreamWriter.writeNdjson(rows, output));
+    }
+
+    @GetMapping("/stock/export.csv")
+    @PreAuthorize("@permissionGuard.hasAny('reports:read')")
+    @Operation(summary = "Export the complete stock report as CSV")
+    public ResponseEntity<StreamingResponseBody> exportStockReportCsv() {
+        return csvExport(reportService.streamStockReport(), "stock-report");
+    }
+
+    @GetMapping("/stock/export.xlsx")
+    @PreAuthorize("@permissionGuard.hasAny('reports:read')")
+    @Operation(summary = "Export the complete stock report as XLSX")
+    public ResponseEntity<StreamingResponseBody> exportStockReportXlsx() {
+        return xlsxExport(reportService.streamStockReport(), "stock-report", "Estoque");
+    }
+
     @GetMapping("/stock/low-stock")
     @PreAuthorize("@permissionGuard.hasAny('reports:read')")
     @Operation(summary = "Get low stock report")
@@ -53,6 +116,22 @@ public class ReportController {
         return ResponseEntity.ok(ApiResponse.success(report));
     }
 
+    @GetMapping("/stock/low-stock/export.csv")
+    @PreAuthorize("@permissionGuard.hasAny('reports:read')")
+    @Operation(summary = "Export the low stock report as CSV")
+    public ResponseEntity<StreamingResponseBody> exportLowStockReportCsv(
+            @RequestParam(defaultValue = "10") Integer threshold) {
+        return csvExport(reportService.streamLowStockReport(threshold), "low-stock-report");
+    }
+
+    @GetMapping("/stock/low-stock/export.xlsx")
+    @PreAuthorize("@permissionGuard.hasAny('reports:read')")
+    @Operation(summary = "Export the low stock report as XLSX")
+    public ResponseEntity<StreamingResponseBody> exportLowStockReportXlsx(
+            @RequestParam(defaultValue = "10") Integer threshold) {
+        return xlsxExport(reportService.streamLowStockReport(threshold), "low-stock-report", "Estoque baixo");
+    }
+
     @GetMapping("/stock/expiring")
     @PreAuthorize("@permissionGuard.hasAny('reports:read')")
     @Operation(summary = "Get expiring products report")
@@ -63,11 +142,27 @@ public class ReportController {
         return ResponseEntity.ok(ApiResponse.success(report));
     }
 
+    @GetMapping("/stock/expiring/export.csv")
+    @PreAuthorize("@permissionGuard.hasAny('reports:read')")
+    @Operation(summary = "Export the expiring products report as CSV")
+    public ResponseEntity<StreamingResponseBody> exportExpiringProductsReportCsv(
+            @RequestParam(defaultValue = "30") Integer daysAhead) {
+        return csvExport(reportService.streamExpiringProductsReport(daysAhead), "expiring-report");
+    }
+
+    @GetMapping("/stock/expiring/export.xlsx")
+    @PreAuthorize("@permissionGuard.hasAny('reports:read')")
+    @Operation(summary = "Export the expiring products report as XLSX")
+    public ResponseEntity<StreamingResponseBody> exportExpiringProductsReportXlsx(
+            @RequestParam(defaultValue = "30") Integer daysAhead) {
+        return xlsxExport(reportService.streamExpiringProductsReport(daysAhead), "expiring-report", "Vencimentos");
+    }
+
     @GetMapping("/dashboard/summary")
     @PreAuthorize("@permissionGuard.hasAny('reports:read')")
     @Operation(summary = "Get dashboard quick summary")
     public ResponseEntity<ApiResponse<DashboardSummaryResponse>> getDashboardSummary() {
-        DashboardSummaryResponse response = reportService.getSummary();
+        DashboardSummaryResponse response = cachedReportService.getSummary();
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
@@ -75,7 +170,7 @@ public class ReportController {
     @PreAuthorize("@permissionGuard.hasAny('reports:read')")
     @Operation(summary = "Get dashboard financial KPIs with month comparison")
     public ResponseEntity<ApiResponse<DashboardKpisResponse>> getDashboardKpis() {
-        DashboardKpisResponse response = reportService.getKpis();
+        DashboardKpisResponse response = cachedReportService.getKpis();
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
@@ -83,7 +178,7 @@ public class ReportController {
     @PreAuthorize("@permissionGuard.hasAny('reports:read')")
     @Operation(summary = "Get dashboard operational alerts")
     public ResponseEntity<ApiResponse<DashboardAlertsResponse>> getDashboardAlerts() {
-        DashboardAlertsResponse response = reportService.getAlerts();
+        DashboardAlertsResponse response = cachedReportService.getAlerts();
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
@@ -92,7 +187,27 @@ public class ReportController {
     @Operation(summary = "Get movement trend for chart")
     public ResponseEntity<ApiResponse<MovementTrendResponse>> getMovementTrend(
             @RequestParam(defaultValue = "30") Integer days) {
-        MovementTrendResponse response = reportService.getMovementTrend(days);
+        MovementTrendResponse response = cachedReportService.getMovementTrend(days);
         return ResponseEntity.ok(ApiResponse.success(response));
     }
+
+    private ResponseEntity<StreamingResponseBody> csvExport(Iterable<StockReportResponse> rows, String name) {
+        return ResponseEntity.ok()
+                .contentType(CSV_MEDIA_TYPE)
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment(name, "csv"))
+                .body(output -> stockReportStreamWriter.writeCsv(rows, output));
+    }
+
+    private ResponseEntity<StreamingResponseBody> xlsxExport(
+            Iterable<StockReportResponse> rows, String name, String sheetName) {
+        return ResponseEntity.ok()
+                .contentType(XLSX_MEDIA_TYPE)
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment(name, "xlsx"))
+                .body(output -> stockReportStreamWriter.writeXlsx(rows, sheetName, output));
+    }
+
+    private String attachment(String name, String extension) {
+        String filename = name + "-" + LocalDateTime.now().format(FILE_DATE_FORMAT) + "." + extension;
+        return ContentDisposition.attachment().filename(filename).build().toString();
+    }
 }
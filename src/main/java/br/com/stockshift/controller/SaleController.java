@@ -3,10 +3,14 @@ package br.com.stockshift.controller;
 import br.com.stockshift.dto.ApiResponse;
 import br.com.stockshift.dto.sale.*;
 import br.com.stockshift.dto.sale.InfinitePayWebhookRequest;
+import br.com.stockshift.exception.BadRequestException;
+import br.com.stockshift.exception.ResourceNotFoundException;
 import br.com.stockshift.model.enums.PaymentMethod;
 import br.com.stockshift.model.enums.SaleStatus;
+import br.com.stockshift.service.sale.SaleBatchService;
 import br.com.stockshift.service.sale.SaleService;
 import br.com.stockshift.service.sale.SalesDashboardService;
+import br.com.stockshift.service.sale.WebhookInboxService;
 
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
@@ -34,7 +38,9 @@ import java.util.UUID;
 public class SaleController {
 
     private final SaleService saleService;
+    private final SaleBatchService saleBatchService;
     private final SalesDashboardService salesDashboardService;
+    private final WebhookInboxService webhookInboxService;
 
     @Value("${app.frontend-url:http://localhost:3000}")
     private String frontendUrl;
@@ -48,6 +54,14 @@ public class SaleController {
                 .body(ApiResponse.success("Sale created successfully", response));
     }
 
+    @PostMapping("/batch")
+    @PreAuthorize("@permissionGuard.hasAny('sales:create')")
+    public ResponseEntity<ApiResponse<BatchSaleResponse>> createBatch(
+            @Valid @RequestBody BatchSaleRequest request) {
+        BatchSaleResponse response = saleBatchService.ingest(request);
+        return ResponseEntity.ok(ApiResponse.success("Sale batch processed", response));
+    }
+
     @GetMapping
     @PreAuthorize("@permissionGuard.hasAny('sales:read')")
     public ResponseEntity<ApiResponse<Page<SaleSummaryResponse>>> list(
@@ -84,6 +98,21 @@ public class SaleController {
         return ResponseEntity.ok(ApiResponse.success("Sale retrieved successfully", response));
     }
 
+    @GetMapping("/{id}/payment-link")
+    @PreAuthorize("@permissionGuard.hasAny('sales:read')")
+    public ResponseEntity<ApiResponse<PaymentLinkResponse>> getPaymentLink(@PathVariable UUID id) {
+        PaymentLinkResponse response = saleService.getPaymentLink(id);
+        return ResponseEntity.ok(ApiResponse.success("Payment link retrieved successfully", response));
+    }
+
+    @PostMapping("/{id}/payment-link/retry")
+    @PreAuthorize("@permissionGuard.hasAny('sales:create')")
+    public ResponseEntity<ApiResponse<PaymentLinkResponse>> retryPaymentLink(@PathVariable UUID id) {
+        PaymentLinkResponse response = saleService.retryPaymentLink(id);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Payment link requested", response));
+    }
+
     @PutMapping("/{id}/cancel")
     @PreAuthorize("@permissionGuard.hasAny('sales:cancel')")
     public ResponseEntity<ApiResponse<SaleResponse>> cancel(
@@ -169,15 +198,17 @@ public class SaleController {
         try {
             log.info("InfinitePay webhook received for order {} - capture_method: {}",
                     request.getOrder_nsu(), request.getCapture_method());
-            saleService.confirmInfinitePayWebhook(token, request);
+            // Verified and applied asynchronously by the webhook inbox workers
+            webhookInboxService.enqueueInfinitePay(token, request);
             return ResponseEntity.ok().build();
-        } catch (IllegalArgumentException e) {
-            log.warn("Invalid order_nsu from InfinitePay webhook: {}", request.getOrder_nsu());
+        } catch (IllegalArgumentException | BadRequestException | ResourceNotFoundException e) {
+            log.warn("Invalid InfinitePay webhook for order {}: {}", request.getOrder_nsu(), e.getMessage());
             return ResponseEntity.badRequest().build();
         } catch (Exception e) {
-            log.error("Error processing InfinitePay webhook for order {}: {}",
+            // Not stored: ask InfinitePay to redeliver
+            log.error("Error queueing InfinitePay webhook for order {}: {}",
                     request.getOrder_nsu(), e.getMessage());
-            return ResponseEntity.badRequest().build();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         }
     }
 }
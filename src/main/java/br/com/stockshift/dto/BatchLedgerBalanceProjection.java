@@ -0,0 +1,11 @@
+package br.com.stockshift.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public interface BatchLedgerBalanceProjection {
+    UUID getBatchId();
+    String getBatchCode();
+    BigDecimal getMaterializedQuantity();
+    BigDecimal getCalculatedQuantity();
+}
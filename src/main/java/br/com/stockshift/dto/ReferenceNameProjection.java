@@ -0,0 +1,8 @@
+package br.com.stockshift.dto;
+
+import java.util.UUID;
+
+public interface ReferenceNameProjection {
+    UUID getId();
+    String getName();
+}
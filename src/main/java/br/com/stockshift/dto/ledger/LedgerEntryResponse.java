@@ -0,0 +1,25 @@
+package br.com.stockshift.dto.ledger;
+
+import br.com.stockshift.model.enums.LedgerEntryType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Built by the ledger queries themselves (JPQL constructor expression), so browsing and
+// exports never put InventoryLedger entities in the persistence context
+public record LedgerEntryResponse(
+    UUID id,
+    UUID productId,
+    UUID warehouseId,
+    UUID batchId,
+    UUID transferItemId,
+    String referenceType,
+    UUID referenceId,
+    LedgerEntryType entryType,
+    BigDecimal quantity,
+    BigDecimal balanceAfter,
+    String notes,
+    UUID createdBy,
+    LocalDateTime createdAt
+) {}
@@ -0,0 +1,17 @@
+package br.com.stockshift.dto.ledger;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerPageResponse {
+    private List<LedgerEntryResponse> items;
+    private String nextCursor;
+}
@@ -0,0 +1,12 @@
+package br.com.stockshift.dto.report;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public interface CategoryStockValueProjection {
+    UUID getCategoryId();
+    String getCategoryName();
+    long getProductCount();
+    long getBatchCount();
+    BigDecimal getStockValue();
+}
@@ -0,0 +1,12 @@
+package br.com.stockshift.dto.report;
+
+import java.math.BigDecimal;
+
+public interface DashboardStockTotalsProjection {
+    long getTotalProducts();
+    long getActiveProducts();
+    long getTotalBatches();
+    BigDecimal getStockValue();
+    long getLowStockProducts();
+    long getExpiringProducts();
+}
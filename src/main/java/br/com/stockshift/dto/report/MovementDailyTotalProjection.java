@@ -0,0 +1,13 @@
+package br.com.stockshift.dto.report;
+
+import br.com.stockshift.model.enums.MovementDirection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public interface MovementDailyTotalProjection {
+    LocalDate getDay();
+    MovementDirection getDirection();
+    BigDecimal getItemQuantity();
+    Long getMovementCount();
+}
@@ -0,0 +1,13 @@
+package br.com.stockshift.dto.report;
+
+import br.com.stockshift.model.enums.MovementDirection;
+import br.com.stockshift.model.enums.StockMovementType;
+
+import java.math.BigDecimal;
+
+public interface MovementTypeTotalProjection {
+    StockMovementType getType();
+    MovementDirection getDirection();
+    BigDecimal getItemQuantity();
+    Long getMovementCount();
+}
@@ -0,0 +1,14 @@
+package br.com.stockshift.dto.report;
+
+import br.com.stockshift.model.enums.StockMovementType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public interface RecentLossProjection {
+    StockMovementType getMovementType();
+    String getProductName();
+    BigDecimal getQuantity();
+    LocalDateTime getCreatedAt();
+    BigDecimal getLossValue();
+}
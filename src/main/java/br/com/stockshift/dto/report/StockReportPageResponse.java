@@ -0,0 +1,17 @@
+package br.com.stockshift.dto.report;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReportPageResponse {
+    private List<StockReportResponse> items;
+    private String nextCursor;
+}
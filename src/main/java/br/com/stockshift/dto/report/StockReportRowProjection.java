@@ -0,0 +1,16 @@
+package br.com.stockshift.dto.report;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+public interface StockReportRowProjection {
+    UUID getProductId();
+    String getProductName();
+    UUID getWarehouseId();
+    String getWarehouseName();
+    BigDecimal getTotalQuantity();
+    BigDecimal getTotalValue();
+    LocalDate getNearestExpiration();
+    long getBatchCount();
+}
@@ -0,0 +1,7 @@
+package br.com.stockshift.dto.report;
+
+import java.util.UUID;
+
+public interface WarehouseMovementTypeTotalProjection extends MovementTypeTotalProjection {
+    UUID getWarehouseId();
+}
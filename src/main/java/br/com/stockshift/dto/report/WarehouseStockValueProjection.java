@@ -0,0 +1,11 @@
+package br.com.stockshift.dto.report;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public interface WarehouseStockValueProjection {
+    UUID getWarehouseId();
+    long getProductCount();
+    long getBatchCount();
+    BigDecimal getStockValue();
+}
@@ -0,0 +1,21 @@
+package br.com.stockshift.dto.sale;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchSaleEntryRequest {
+    @NotBlank(message = "Idempotency key is required")
+    @Size(max = 100, message = "Idempotency key must have at most 100 characters")
+    private String idempotencyKey;
+
+    @NotNull(message = "Sale is required")
+    @Valid
+    private CreateSaleRequest sale;
+}
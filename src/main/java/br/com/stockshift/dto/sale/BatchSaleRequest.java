@@ -0,0 +1,17 @@
+package br.com.stockshift.dto.sale;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchSaleRequest {
+    @NotEmpty(message = "At least one sale is required")
+    @Valid
+    private List<BatchSaleEntryRequest> sales;
+}
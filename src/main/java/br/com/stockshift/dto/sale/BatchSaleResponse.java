@@ -0,0 +1,16 @@
+package br.com.stockshift.dto.sale;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchSaleResponse {
+    private int created;
+    private int duplicates;
+    private int failed;
+    private List<BatchSaleResult> results;
+}
@@ -0,0 +1,18 @@
+package br.com.stockshift.dto.sale;
+
+import br.com.stockshift.model.enums.BatchSaleResultStatus;
+import lombok.*;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchSaleResult {
+    private String idempotencyKey;
+    private BatchSaleResultStatus status;
+    private UUID saleId;
+    private String code;
+    private String error;
+}
@@ -0,0 +1,18 @@
+package br.com.stockshift.dto.sale;
+
+import br.com.stockshift.model.enums.PaymentLinkStatus;
+import lombok.*;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentLinkResponse {
+    private UUID saleId;
+    private PaymentLinkStatus status;
+    private String paymentLink;
+    private Integer attempts;
+    private String error;
+}
@@ -0,0 +1,9 @@
+package br.com.stockshift.dto.sale;
+
+import java.util.UUID;
+
+public interface SaleIdempotencyKeyProjection {
+    String getIdempotencyKey();
+    UUID getId();
+    String getCode();
+}
@@ -1,5 +1,6 @@
 package br.com.stockshift.dto.sale;
 
+import br.com.stockshift.model.enums.PaymentLinkStatus;
 import br.com.stockshift.model.enums.PaymentMethod;
 import br.com.stockshift.model.enums.PaymentMode;
 import br.com.stockshift.model.enums.SaleStatus;
@@ -37,4 +38,5 @@ public class SaleResponse {
     private String infinitepayCardBrand;
     private PaymentMode paymentMode;
     private String paymentLink;
+    private PaymentLinkStatus paymentLinkStatus;
 }
@@ -0,0 +1,9 @@
+package br.com.stockshift.dto.sale;
+
+import java.time.LocalDate;
+
+public interface SalesDailyTotalProjection {
+    LocalDate getDay();
+    Long getSaleCount();
+    Long getRevenue();
+}
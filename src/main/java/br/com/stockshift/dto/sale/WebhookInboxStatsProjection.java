@@ -0,0 +1,8 @@
+package br.com.stockshift.dto.sale;
+
+import java.time.LocalDateTime;
+
+public interface WebhookInboxStatsProjection {
+    Long getDepth();
+    LocalDateTime getOldestReceivedAt();
+}
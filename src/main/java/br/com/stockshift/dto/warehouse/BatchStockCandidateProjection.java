@@ -0,0 +1,15 @@
+package br.com.stockshift.dto.warehouse;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public interface BatchStockCandidateProjection {
+    UUID getId();
+    String getBatchCode();
+    BigDecimal getQuantity();
+    Long getSellingPrice();
+    LocalDate getExpirationDate();
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,17 @@
+package br.com.stockshift.dto.warehouse;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public interface StockBalanceMismatchProjection {
+    UUID getWarehouseId();
+    UUID getProductId();
+    BigDecimal getBalanceOnHand();
+    BigDecimal getBatchOnHand();
+    BigDecimal getBalanceInTransit();
+    BigDecimal getBatchInTransit();
+    BigDecimal getBalanceValueAtCost();
+    BigDecimal getBatchValueAtCost();
+    long getBalanceBatchCount();
+    long getBatchCount();
+}
@@ -0,0 +1,8 @@
+package br.com.stockshift.dto.warehouse;
+
+import java.math.BigDecimal;
+
+public interface StockBalanceTotalsProjection {
+    long getProductCount();
+    BigDecimal getTotalQuantity();
+}
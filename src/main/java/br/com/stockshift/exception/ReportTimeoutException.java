@@ -0,0 +1,7 @@
+package br.com.stockshift.exception;
+
+public class ReportTimeoutException extends RuntimeException {
+    public ReportTimeoutException(String message) {
+        super(message);
+    }
+}
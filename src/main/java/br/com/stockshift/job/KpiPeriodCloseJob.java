@@ -0,0 +1,48 @@
+package br.com.stockshift.job;
+
+import br.com.stockshift.model.entity.Tenant;
+import br.com.stockshift.model.entity.Warehouse;
+import br.com.stockshift.repository.TenantRepository;
+import br.com.stockshift.repository.WarehouseRepository;
+import br.com.stockshift.service.KpiSnapshotService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class KpiPeriodCloseJob {
+
+    private final TenantRepository tenantRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final KpiSnapshotService kpiSnapshotService;
+
+    // Snapshots the month that just ended, tenant-wide and per warehouse, while stock and
+    // transit values are still those of the month end. Months this misses are
+    // snapshotted lazily by the first dashboard read.
+    @Scheduled(cron = "0 5 0 1 * *") // Monthly, on the 1st at 0:05 AM
+    public void closePreviousMonth() {
+        YearMonth month = YearMonth.now().minusMonths(1);
+        log.info("Closing KPI period {}", month);
+
+        List<Tenant> tenants = tenantRepository.findAll();
+
+        for (Tenant tenant : tenants) {
+            try {
+                kpiSnapshotService.close(tenant.getId(), null, month);
+                for (Warehouse warehouse : warehouseRepository.findAllByTenantId(tenant.getId())) {
+                    kpiSnapshotService.close(tenant.getId(), warehouse.getId(), month);
+                }
+            } catch (Exception e) {
+                log.error("Error closing KPI period {} for tenant {}: {}", month, tenant.getId(), e.getMessage(), e);
+            }
+        }
+
+        log.info("KPI period {} closed", month);
+    }
+}
@@ -0,0 +1,31 @@
+package br.com.stockshift.job;
+
+import br.com.stockshift.service.LedgerPartitionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerPartitionJob {
+
+    private final LedgerPartitionService ledgerPartitionService;
+
+    // Daily, although a month needs it only once: a missed run leaves months ahead to
+    // spare, and rows of a month without a partition wait in the default one until then.
+    @Scheduled(cron = "${stockshift.ledger-partition.cron:0 30 3 * * *}")
+    public void maintainPartitions() {
+        try {
+            ledgerPartitionService.ensureFuturePartitions();
+        } catch (Exception e) {
+            log.error("Error creating inventory ledger partitions: {}", e.getMessage(), e);
+        }
+        try {
+            ledgerPartitionService.archiveExpiredPartitions();
+        } catch (Exception e) {
+            log.error("Error archiving inventory ledger partitions: {}", e.getMessage(), e);
+        }
+    }
+}
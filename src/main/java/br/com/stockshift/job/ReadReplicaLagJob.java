@@ -0,0 +1,21 @@
+package br.com.stockshift.job;
+
+import br.com.stockshift.config.ReadReplicaRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "stockshift.read-replica", name = "enabled", havingValue = "true")
+public class ReadReplicaLagJob {
+
+    private final ReadReplicaRouter readReplicaRouter;
+
+    // Runs right after startup too: the replica serves no reads until its lag is known
+    @Scheduled(fixedDelayString = "${stockshift.read-replica.lag-check-interval:5s}")
+    public void checkLag() {
+        readReplicaRouter.checkLag();
+    }
+}
@@ -1,50 +1,101 @@
 package br.com.stockshift.job;
 
+import br.com.stockshift.config.ReconciliationExecutorConfig;
 import br.com.stockshift.dto.ReconciliationResult;
+import br.com.stockshift.dto.warehouse.StockBalanceMismatchProjection;
 import br.com.stockshift.model.entity.Tenant;
 import br.com.stockshift.repository.TenantRepository;
 import br.com.stockshift.service.AlertService;
 import br.com.stockshift.service.ReconciliationService;
-import lombok.RequiredArgsConstructor;
+import br.com.stockshift.service.StockBalanceService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class ReconciliationJob {
 
     private final TenantRepository tenantRepository;
     private final ReconciliationService reconciliationService;
     private final AlertService alertService;
+    private final StockBalanceService stockBalanceService;
+    private final TaskExecutor reconciliationExecutor;
 
-    @Scheduled(cron = "0 0 2 * * *") // Daily at 2 AM
-    public void runDailyReconciliation() {
-        log.info("Starting daily batch quantity reconciliation");
+    public ReconciliationJob(
+            TenantRepository tenantRepository,
+            ReconciliationService reconciliationService,
+            AlertService alertService,
+            StockBalanceService stockBalanceService,
+            @Qualifier(ReconciliationExecutorConfig.RECONCILIATION_EXECUTOR) TaskExecutor reconciliationExecutor) {
+        this.tenantRepository = tenantRepository;
+        this.reconciliationService = reconciliationService;
+        this.alertService = alertService;
+        this.stockBalanceService = stockBalanceService;
+        this.reconciliationExecutor = reconciliationExecutor;
+    }
+
+    // Hourly by default: cost follows the ledger activity since the previous run
+    @Scheduled(cron = "${stockshift.reconciliation.incremental-cron:0 15 * * * *}")
+    public void runIncrementalReconciliation() {
+        runForAllTenants("incremental", tenant ->
+            alertOnDiscrepancies(tenant, reconciliationService.reconcileTenantIncremental(tenant.getId())));
+    }
+
+    // Weekly by default: re-checks every batch and rebuilds the checkpoints from the whole ledger
+    @Scheduled(cron = "${stockshift.reconciliation.full-cron:0 0 2 * * SUN}")
+    public void runFullReconciliation() {
+        runForAllTenants("full", tenant -> {
+            alertOnDiscrepancies(tenant, reconciliationService.rebuildCheckpoint(tenant.getId()));
+
+            List<StockBalanceMismatchProjection> balanceMismatches =
+                stockBalanceService.verify(tenant.getId());
+
+            if (!balanceMismatches.isEmpty()) {
+                alertService.sendStockBalanceAlert(
+                    "Stock balance mismatch detected",
+                    balanceMismatches
+                );
+            }
+        });
+    }
+
+    private void runForAllTenants(String kind, Consumer<Tenant> reconcile) {
+        log.info("Starting {} batch quantity reconciliation", kind);
+        long start = System.nanoTime();
 
         List<Tenant> tenants = tenantRepository.findAll();
 
-        for (Tenant tenant : tenants) {
-            try {
-                List<ReconciliationResult> discrepancies =
-                    reconciliationService.reconcileTenant(tenant.getId());
-
-                if (!discrepancies.isEmpty()) {
-                    log.warn("Found {} discrepancies for tenant {}",
-                        discrepancies.size(), tenant.getBusinessName());
-                    alertService.sendCriticalAlert(
-                        "Batch quantity mismatch detected",
-                        discrepancies
-                    );
+        // Tenants are independent: run them side by side, at most the pool size at once
+        CompletableFuture.allOf(tenants.stream()
+            .map(tenant -> CompletableFuture.runAsync(() -> {
+                try {
+                    reconcile.accept(tenant);
+                } catch (Exception e) {
+                    log.error("Error reconciling tenant {}: {}", tenant.getId(), e.getMessage(), e);
                 }
-            } catch (Exception e) {
-                log.error("Error reconciling tenant {}: {}", tenant.getId(), e.getMessage(), e);
-            }
-        }
+            }, reconciliationExecutor))
+            .toArray(CompletableFuture[]::new))
+            .join();
 
-        log.info("Daily batch quantity reconciliation completed");
+        log.info("Batch quantity reconciliation ({}) of {} tenants completed in {} s",
+            kind, tenants.size(), (System.nanoTime() - start) / 1_000_000_000);
+    }
+
+    private void alertOnDiscrepancies(Tenant tenant, List<ReconciliationResult> discrepancies) {
+        if (!discrepancies.isEmpty()) {
+            log.warn("Found {} discrepancies for tenant {}",
+                discrepancies.size(), tenant.getBusinessName());
+            alertService.sendCriticalAlert(
+                "Batch quantity mismatch detected",
+                discrepancies
+            );
+        }
     }
 }
@@ -0,0 +1,44 @@
+package br.com.stockshift.job;
+
+import br.com.stockshift.config.SalesRollupProperties;
+import br.com.stockshift.model.entity.Tenant;
+import br.com.stockshift.repository.TenantRepository;
+import br.com.stockshift.service.sale.SalesRollupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SalesRollupBackfillJob {
+
+    private final TenantRepository tenantRepository;
+    private final SalesRollupService salesRollupService;
+    private final SalesRollupProperties properties;
+
+    // The rollup is maintained transactionally; this only heals drift (e.g. rows edited
+    // by hand) in the most recent days. History is backfilled by the V27 migration.
+    @Scheduled(cron = "0 15 2 * * *") // Daily at 2:15 AM
+    public void backfillRecentDays() {
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusDays(Math.max(1, properties.getBackfillDays()) - 1L);
+        log.info("Starting sales rollup backfill from {} to {}", from, to);
+
+        List<Tenant> tenants = tenantRepository.findAll();
+
+        for (Tenant tenant : tenants) {
+            try {
+                salesRollupService.rebuild(tenant.getId(), from, to);
+            } catch (Exception e) {
+                log.error("Error backfilling sales rollup for tenant {}: {}", tenant.getId(), e.getMessage(), e);
+            }
+        }
+
+        log.info("Sales rollup backfill completed");
+    }
+}
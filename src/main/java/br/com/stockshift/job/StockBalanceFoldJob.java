@@ -0,0 +1,26 @@
+package br.com.stockshift.job;
+
+import br.com.stockshift.service.StockBalanceService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StockBalanceFoldJob {
+
+    private final StockBalanceService stockBalanceService;
+
+    // Readers add the unfolded deltas themselves; folding only keeps that tail short
+    @Scheduled(fixedDelayString = "${stockshift.stock-balance.fold-interval:2s}")
+    public void fold() {
+        try {
+            int rows = stockBalanceService.fold();
+            log.debug("Folded stock balance deltas into {} balance rows", rows);
+        } catch (Exception e) {
+            log.error("Error folding stock balance deltas: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package br.com.stockshift.job;
+
+import br.com.stockshift.model.entity.Tenant;
+import br.com.stockshift.repository.TenantRepository;
+import br.com.stockshift.service.StockSnapshotService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StockSnapshotJob {
+
+    private final TenantRepository tenantRepository;
+    private final StockSnapshotService stockSnapshotService;
+
+    // Nightly, once yesterday's ledger has settled. Days a failed or missed run skipped
+    // are caught up by the next one.
+    @Scheduled(cron = "${stockshift.stock-snapshot.cron:0 40 0 * * *}")
+    public void snapshotStock() {
+        for (Tenant tenant : tenantRepository.findAll()) {
+            try {
+                stockSnapshotService.snapshotTenant(tenant.getId());
+            } catch (Exception e) {
+                log.error("Error snapshotting stock for tenant {}: {}", tenant.getId(), e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package br.com.stockshift.job;
+
+import br.com.stockshift.config.WebhookInboxProperties;
+import br.com.stockshift.service.sale.WebhookInboxService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(prefix = "stockshift.webhook-inbox", name = "worker-enabled", havingValue = "true",
+        matchIfMissing = true)
+public class WebhookInboxJob {
+
+    private final WebhookInboxService webhookInboxService;
+    private final WebhookInboxProperties properties;
+
+    @Scheduled(fixedDelayString = "${stockshift.webhook-inbox.poll-interval:1s}")
+    public void processInbox() {
+        try {
+            // Keep draining while polls come back full, so a burst is not paced by the poll interval,
+            // but only up to the drain time, so the other jobs sharing the scheduler still run
+            long deadline = System.nanoTime() + properties.getMaxDrainTime().toNanos();
+            while (webhookInboxService.processDue() >= webhookInboxService.getBatchSize()
+                    && System.nanoTime() - deadline < 0) {
+                log.debug("Webhook inbox poll was full, polling again");
+            }
+        } catch (Exception e) {
+            log.error("Error processing webhook inbox: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "0 30 3 * * *") // Daily at 3:30 AM
+    public void purgeProcessedWebhooks() {
+        int deleted = webhookInboxService.purgeProcessed();
+        log.info("Purged {} processed webhook inbox entries", deleted);
+    }
+}
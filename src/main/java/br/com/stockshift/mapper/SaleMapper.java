@@ -35,6 +35,7 @@ public class SaleMapper {
                 .infinitepayCardBrand(sale.getInfinitepayCardBrand())
                 .paymentMode(sale.getPaymentMode())
                 .paymentLink(sale.getPaymentLink())
+                .paymentLinkStatus(sale.getPaymentLinkStatus())
                 .build();
     }
 
@@ -0,0 +1,40 @@
+package br.com.stockshift.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Net ledger quantity of one batch through its tenant's
+ * {@link ReconciliationCheckpoint#getLedgerHighWater() high-water mark}.
+ */
+@Entity
+@Table(name = "batch_balance_checkpoint")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchBalanceCheckpoint {
+
+    @Id
+    @Column(name = "batch_id", nullable = false)
+    private UUID batchId;
+
+    @Column(name = "tenant_id", nullable = false)
+    private UUID tenantId;
+
+    @Column(name = "ledger_quantity", nullable = false)
+    private BigDecimal ledgerQuantity;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
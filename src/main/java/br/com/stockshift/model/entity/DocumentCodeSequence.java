@@ -0,0 +1,52 @@
+package br.com.stockshift.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "document_code_sequences")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(DocumentCodeSequence.DocumentCodeSequenceId.class)
+public class DocumentCodeSequence {
+
+    @Id
+    @Column(name = "tenant_id", nullable = false)
+    private UUID tenantId;
+
+    @Id
+    @Column(name = "prefix", nullable = false, length = 10)
+    private String prefix;
+
+    @Id
+    @Column(name = "period", nullable = false, length = 8)
+    private String period;
+
+    @Column(name = "last_value", nullable = false)
+    private Long lastValue;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DocumentCodeSequenceId implements Serializable {
+        private UUID tenantId;
+        private String prefix;
+        private String period;
+    }
+}
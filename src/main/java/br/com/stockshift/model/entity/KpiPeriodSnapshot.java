@@ -0,0 +1,75 @@
+package br.com.stockshift.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "kpi_period_snapshot")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(KpiPeriodSnapshot.KpiPeriodSnapshotId.class)
+public class KpiPeriodSnapshot {
+
+    @Id
+    @Column(name = "tenant_id", nullable = false)
+    private UUID tenantId;
+
+    @Id
+    @Column(name = "warehouse_id", nullable = false)
+    private UUID warehouseId;
+
+    @Id
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Column(name = "stock_value", nullable = false)
+    private BigDecimal stockValue;
+
+    @Column(name = "purchases_value", nullable = false)
+    private BigDecimal purchasesValue;
+
+    @Column(name = "losses_value", nullable = false)
+    private BigDecimal lossesValue;
+
+    @Column(name = "damage_value", nullable = false)
+    private BigDecimal damageValue;
+
+    @Column(name = "gift_value", nullable = false)
+    private BigDecimal giftValue;
+
+    @Column(name = "adjustment_value", nullable = false)
+    private BigDecimal adjustmentValue;
+
+    @Column(name = "transit_value", nullable = false)
+    private BigDecimal transitValue;
+
+    @Column(name = "stock_turnover_rate", nullable = false)
+    private BigDecimal stockTurnoverRate;
+
+    @Column(name = "closed_at", nullable = false)
+    private LocalDateTime closedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class KpiPeriodSnapshotId implements Serializable {
+        private UUID tenantId;
+        private UUID warehouseId;
+        private LocalDate periodStart;
+    }
+}
@@ -0,0 +1,71 @@
+package br.com.stockshift.model.entity;
+
+import br.com.stockshift.model.enums.MovementDirection;
+import br.com.stockshift.model.enums.StockMovementType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "movement_daily_rollup")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(MovementDailyRollup.MovementDailyRollupId.class)
+public class MovementDailyRollup {
+
+    @Id
+    @Column(name = "tenant_id", nullable = false)
+    private UUID tenantId;
+
+    @Id
+    @Column(name = "warehouse_id", nullable = false)
+    private UUID warehouseId;
+
+    @Id
+    @Column(name = "day", nullable = false)
+    private LocalDate day;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 30)
+    private StockMovementType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "direction", nullable = false, length = 10)
+    private MovementDirection direction;
+
+    @Column(name = "item_quantity", nullable = false, precision = 19, scale = 4)
+    private BigDecimal itemQuantity;
+
+    @Column(name = "movement_count", nullable = false)
+    private Long movementCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MovementDailyRollupId implements Serializable {
+        private UUID tenantId;
+        private UUID warehouseId;
+        private LocalDate day;
+        private StockMovementType type;
+    }
+}
@@ -0,0 +1,36 @@
+package br.com.stockshift.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * How far a tenant's ledger has been summed into {@link BatchBalanceCheckpoint}: every
+ * entry created before {@code ledgerHighWater} is included there.
+ */
+@Entity
+@Table(name = "reconciliation_checkpoint")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationCheckpoint {
+
+    @Id
+    @Column(name = "tenant_id", nullable = false)
+    private UUID tenantId;
+
+    @Column(name = "ledger_high_water", nullable = false)
+    private LocalDateTime ledgerHighWater;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -1,5 +1,6 @@
 package br.com.stockshift.model.entity;
 
+import br.com.stockshift.model.enums.PaymentLinkStatus;
 import br.com.stockshift.model.enums.PaymentMethod;
 import br.com.stockshift.model.enums.PaymentMode;
 import br.com.stockshift.model.enums.SaleStatus;
@@ -89,6 +90,23 @@ public class Sale extends TenantAwareEntity {
     @Column(name = "infinitepay_webhook_token_hash", length = 64)
     private String infinitepayWebhookTokenHash;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_link_status", length = 20)
+    private PaymentLinkStatus paymentLinkStatus;
+
+    @Column(name = "payment_link_attempts", nullable = false)
+    @Builder.Default
+    private Integer paymentLinkAttempts = 0;
+
+    @Column(name = "payment_link_error", length = 500)
+    private String paymentLinkError;
+
+    @Column(name = "payment_link_requested_at")
+    private Instant paymentLinkRequestedAt;
+
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
     @OneToMany(mappedBy = "sale", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @Builder.Default
     private List<SaleItem> items = new ArrayList<>();
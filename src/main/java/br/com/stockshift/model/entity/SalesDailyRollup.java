@@ -0,0 +1,65 @@
+package br.com.stockshift.model.entity;
+
+import br.com.stockshift.model.enums.PaymentMethod;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "sales_daily_rollup")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(SalesDailyRollup.SalesDailyRollupId.class)
+public class SalesDailyRollup {
+
+    @Id
+    @Column(name = "tenant_id", nullable = false)
+    private UUID tenantId;
+
+    @Id
+    @Column(name = "warehouse_id", nullable = false)
+    private UUID warehouseId;
+
+    @Id
+    @Column(name = "day", nullable = false)
+    private LocalDate day;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_method", nullable = false, length = 30)
+    private PaymentMethod paymentMethod;
+
+    @Column(name = "sale_count", nullable = false)
+    private Long saleCount;
+
+    @Column(name = "revenue", nullable = false)
+    private Long revenue;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SalesDailyRollupId implements Serializable {
+        private UUID tenantId;
+        private UUID warehouseId;
+        private LocalDate day;
+        private PaymentMethod paymentMethod;
+    }
+}
@@ -0,0 +1,69 @@
+package br.com.stockshift.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Stock of one product in one warehouse, summed over its live batches. Mapped to the
+ * {@code stock_balance_current} view: the folded balance plus the deltas the
+ * {@code batches} triggers appended since (see V33 and V40), hence immutable here.
+ */
+@Entity
+@Immutable
+@Table(name = "stock_balance_current")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(StockBalance.StockBalanceId.class)
+public class StockBalance {
+
+    @Id
+    @Column(name = "tenant_id", nullable = false)
+    private UUID tenantId;
+
+    @Id
+    @Column(name = "warehouse_id", nullable = false)
+    private UUID warehouseId;
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private UUID productId;
+
+    @Column(name = "on_hand", nullable = false, precision = 19, scale = 4)
+    private BigDecimal onHand;
+
+    @Column(name = "in_transit", nullable = false, precision = 19, scale = 4)
+    private BigDecimal inTransit;
+
+    @Column(name = "value_at_cost", nullable = false, precision = 24, scale = 4)
+    private BigDecimal valueAtCost;
+
+    @Column(name = "batch_count", nullable = false)
+    private Integer batchCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StockBalanceId implements Serializable {
+        private UUID tenantId;
+        private UUID warehouseId;
+        private UUID productId;
+    }
+}
@@ -0,0 +1,52 @@
+package br.com.stockshift.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A day whose end-of-day batch balances of one tenant are in {@code stock_snapshot_batch}.
+ * Written with its balances by native inserts (see V38__stock_snapshot.sql), hence
+ * immutable here.
+ */
+@Entity
+@Immutable
+@Table(name = "stock_snapshot")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(StockSnapshot.StockSnapshotId.class)
+public class StockSnapshot {
+
+    @Id
+    @Column(name = "tenant_id", nullable = false)
+    private UUID tenantId;
+
+    @Id
+    @Column(name = "snapshot_date", nullable = false)
+    private LocalDate snapshotDate;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StockSnapshotId implements Serializable {
+        private UUID tenantId;
+        private LocalDate snapshotDate;
+    }
+}
@@ -0,0 +1,7 @@
+package br.com.stockshift.model.enums;
+
+public enum BatchSaleResultStatus {
+    CREATED,
+    DUPLICATE,
+    FAILED
+}
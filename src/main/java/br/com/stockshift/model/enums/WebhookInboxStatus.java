@@ -0,0 +1,8 @@
+package br.com.stockshift.model.enums;
+
+public enum WebhookInboxStatus {
+    PENDING,
+    PROCESSING,
+    DONE,
+    FAILED
+}
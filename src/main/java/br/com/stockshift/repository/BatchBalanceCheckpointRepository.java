@@ -0,0 +1,81 @@
+package br.com.stockshift.repository;
+
+import br.com.stockshift.dto.BatchLedgerBalanceProjection;
+import br.com.stockshift.model.entity.BatchBalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface BatchBalanceCheckpointRepository extends JpaRepository<BatchBalanceCheckpoint, UUID> {
+
+    // Adds the net of the tenant's ledger entries created in [since, through) to the
+    // checkpoint of each batch they belong to; reads archived months too, for rebuilds
+    @Modifying
+    @Query(value = """
+            INSERT INTO batch_balance_checkpoint (batch_id, tenant_id, ledger_quantity, updated_at)
+            SELECT batch_id, :tenantId,
+                   SUM(CASE WHEN entry_type IN (:debitTypes) THEN -quantity ELSE quantity END),
+                   CURRENT_TIMESTAMP
+            FROM inventory_ledger_history
+            WHERE tenant_id = :tenantId
+              AND created_at >= :since
+              AND created_at < :through
+              AND batch_id IS NOT NULL
+            GROUP BY batch_id
+            ON CONFLICT (batch_id) DO UPDATE
+                SET ledger_quantity = batch_balance_checkpoint.ledger_quantity + EXCLUDED.ledger_quantity,
+                    updated_at = CURRENT_TIMESTAMP
+            """, nativeQuery = true)
+    int addLedgerDelta(
+            @Param("tenantId") UUID tenantId,
+            @Param("since") LocalDateTime since,
+            @Param("through") LocalDateTime through,
+            @Param("debitTypes") Collection<String> debitTypes);
+
+    // Live batches with ledger entries or a batch update since `since` whose quantity
+    // differs from their checkpoint plus the entries created from `through` on
+    @Query(value = """
+            WITH touched AS (
+                SELECT batch_id FROM inventory_ledger
+                WHERE tenant_id = :tenantId AND created_at >= :since AND batch_id IS NOT NULL
+                UNION
+                SELECT id FROM batches
+                WHERE tenant_id = :tenantId AND updated_at >= :since
+            ), tail AS (
+                SELECT batch_id,
+                       SUM(CASE WHEN entry_type IN (:debitTypes) THEN -quantity ELSE quantity END) AS quantity
+                FROM inventory_ledger
+                WHERE tenant_id = :tenantId AND created_at >= :through AND batch_id IS NOT NULL
+                GROUP BY batch_id
+            )
+            SELECT b.id AS "batchId",
+                   b.batch_code AS "batchCode",
+                   b.quantity AS "materializedQuantity",
+                   COALESCE(c.ledger_quantity, 0) + COALESCE(t.quantity, 0) AS "calculatedQuantity"
+            FROM touched
+            JOIN batches b ON b.id = touched.batch_id
+                          AND b.tenant_id = :tenantId
+                          AND b.deleted_at IS NULL
+            LEFT JOIN batch_balance_checkpoint c ON c.batch_id = b.id
+            LEFT JOIN tail t ON t.batch_id = b.id
+            WHERE b.quantity <> COALESCE(c.ledger_quantity, 0) + COALESCE(t.quantity, 0)
+            ORDER BY b.batch_code, b.id
+            """, nativeQuery = true)
+    List<BatchLedgerBalanceProjection> findMismatchesTouchedSince(
+            @Param("tenantId") UUID tenantId,
+            @Param("since") LocalDateTime since,
+            @Param("through") LocalDateTime through,
+            @Param("debitTypes") Collection<String> debitTypes);
+
+    @Modifying
+    @Query(value = "DELETE FROM batch_balance_checkpoint WHERE tenant_id = :tenantId", nativeQuery = true)
+    int deleteByTenant(@Param("tenantId") UUID tenantId);
+}
@@ -1,7 +1,11 @@
 package br.com.stockshift.repository;
 
-import br.com.stockshift.dto.warehouse.ProductWithStockProjection;
-import br.com.stockshift.dto.warehouse.WarehouseStockSummaryProjection;
+import br.com.stockshift.dto.report.BatchReportRowProjection;
+import br.com.stockshift.dto.report.CategoryStockValueProjection;
+import br.com.stockshift.dto.report.DashboardStockTotalsProjection;
+import br.com.stockshift.dto.report.StockReportRowProjection;
+import br.com.stockshift.dto.report.WarehouseStockValueProjection;
+import br.com.stockshift.dto.warehouse.BatchStockCandidateProjection;
 import br.com.stockshift.model.entity.Batch;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
@@ -12,6 +16,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -27,6 +32,12 @@ public interface BatchRepository extends JpaRepository<Batch, UUID> {
   @Query("SELECT b FROM Batch b WHERE b.id = :id")
   Optional<Batch> findByIdForUpdate(@Param("id") UUID id);
 
+  // Rows are locked in primary key order, the global lock order shared by every
+  // stock-mutating command (see BatchLockManager).
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT b FROM Batch b WHERE b.id IN :ids ORDER BY b.id")
+  List<Batch> findAllByIdInForUpdate(@Param("ids") Collection<UUID> ids);
+
   @Query("SELECT b FROM Batch b WHERE b.warehouse.id = :warehouseId AND b.batchCode = :batchCode")
   Optional<Batch> findByWarehouseIdAndBatchCode(@Param("warehouseId") UUID warehouseId,
       @Param("batchCode") String batchCode);
@@ -56,60 +67,68 @@ public interface BatchRepository extends JpaRepository<Batch, UUID> {
   @Query("SELECT b FROM Batch b WHERE b.product.id = :productId AND b.warehouse.id = :warehouseId AND b.tenantId = :tenantId")
   List<Batch> findByProductIdAndWarehouseIdAndTenantId(UUID productId, UUID warehouseId, UUID tenantId);
 
-  @Query("SELECT b FROM Batch b WHERE b.expirationDate IS NOT NULL AND b.expirationDate BETWEEN :startDate AND :endDate AND b.tenantId = :tenantId ORDER BY b.expirationDate ASC")
-  List<Batch> findExpiringBatches(LocalDate startDate, LocalDate endDate, UUID tenantId);
-
-  @Query("SELECT b FROM Batch b WHERE b.quantity <= :threshold AND b.tenantId = :tenantId")
-  List<Batch> findLowStock(Integer threshold, UUID tenantId);
-
-  @Query(value = """
-      SELECT p.id as id,
-             p.name as name,
-             p.sku as sku,
-             p.barcode as barcode,
-             p.barcodeType as barcodeType,
-             p.description as description,
-             p.category as category,
-             p.brand as brand,
-             p.isKit as isKit,
-             p.attributes as attributes,
-             p.hasExpiration as hasExpiration,
-             p.active as active,
-             COALESCE(SUM(b.quantity), 0) as totalQuantity,
-             p.createdAt as createdAt,
-             p.updatedAt as updatedAt
-      FROM Batch b
-      JOIN b.product p
-      LEFT JOIN p.category
-      LEFT JOIN p.brand
-      WHERE b.warehouse.id = :warehouseId
-        AND b.tenantId = :tenantId
-        AND p.tenantId = :tenantId
-        AND p.deletedAt IS NULL
-        AND (:search = '' OR LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%'))
-             OR LOWER(p.sku) LIKE LOWER(CONCAT('%', :search, '%'))
-             OR LOWER(p.barcode) LIKE LOWER(CONCAT('%', :search, '%')))
-      GROUP BY p.id, p.name, p.sku, p.barcode, p.barcodeType,
-               p.description, p.category, p.brand, p.isKit,
-               p.attributes, p.hasExpiration, p.active,
-               p.createdAt, p.updatedAt
-      """, countQuery = """
-      SELECT COUNT(DISTINCT p.id)
-      FROM Batch b
-      JOIN b.product p
-      WHERE b.warehouse.id = :warehouseId
-        AND b.tenantId = :tenantId
-        AND p.tenantId = :tenantId
-        AND p.deletedAt IS NULL
-        AND (:search = '' OR LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%'))
-             OR LOWER(p.sku) LIKE LOWER(CONCAT('%', :search, '%'))
-             OR LOWER(p.barcode) LIKE LOWER(CONCAT('%', :search, '%')))
-      """)
-  Page<ProductWithStockProjection> findProductsWithStockByWarehouse(
-      @Param("warehouseId") UUID warehouseId,
-      @Param("tenantId") UUID tenantId,
-      @Param("search") String search,
-      Pageable pageable);
+  // Soonest-expiring batches first; walks idx_batches_tenant_expiration and stops after
+  // the page, so a widget reads only the rows it shows.
+  @Query("""
+        SELECT b FROM Batch b
+        JOIN FETCH b.product
+        JOIN FETCH b.warehouse
+        WHERE b.tenantId = :tenantId
+          AND b.expirationDate BETWEEN :startDate AND :endDate
+        ORDER BY b.expirationDate ASC, b.id ASC
+        """)
+  List<Batch> findExpiringBatches(
+        @Param("tenantId") UUID tenantId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate,
+        Pageable pageable);
+
+  // Same for one warehouse, on idx_batches_tenant_warehouse_expiration
+  @Query("""
+        SELECT b FROM Batch b
+        JOIN FETCH b.product
+        JOIN FETCH b.warehouse
+        WHERE b.tenantId = :tenantId
+          AND b.warehouse.id = :warehouseId
+          AND b.expirationDate BETWEEN :startDate AND :endDate
+        ORDER BY b.expirationDate ASC, b.id ASC
+        """)
+  List<Batch> findExpiringBatchesByWarehouse(
+        @Param("tenantId") UUID tenantId,
+        @Param("warehouseId") UUID warehouseId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate,
+        Pageable pageable);
+
+  // Lowest-quantity batches first; walks idx_batches_tenant_quantity and stops after the page.
+  @Query("""
+        SELECT b FROM Batch b
+        JOIN FETCH b.product
+        JOIN FETCH b.warehouse
+        WHERE b.tenantId = :tenantId
+          AND b.quantity <= :threshold
+        ORDER BY b.quantity ASC, b.id ASC
+        """)
+  List<Batch> findLowStock(
+        @Param("tenantId") UUID tenantId,
+        @Param("threshold") BigDecimal threshold,
+        Pageable pageable);
+
+  // Same for one warehouse, on idx_batches_tenant_warehouse_quantity
+  @Query("""
+        SELECT b FROM Batch b
+        JOIN FETCH b.product
+        JOIN FETCH b.warehouse
+        WHERE b.tenantId = :tenantId
+          AND b.warehouse.id = :warehouseId
+          AND b.quantity <= :threshold
+        ORDER BY b.quantity ASC, b.id ASC
+        """)
+  List<Batch> findLowStockByWarehouse(
+        @Param("tenantId") UUID tenantId,
+        @Param("warehouseId") UUID warehouseId,
+        @Param("threshold") BigDecimal threshold,
+        Pageable pageable);
 
   @Modifying
   @Query("UPDATE Batch b SET b.deletedAt = CURRENT_TIMESTAMP " +
@@ -151,6 +170,48 @@ public interface BatchRepository extends JpaRepository<Batch, UUID> {
       @Param("warehouseId") UUID warehouseId,
       @Param("tenantId") UUID tenantId);
 
+  // Locks, in one statement, every batch a checkout can draw from: the batches picked
+  // manually plus all in-stock batches of the products allocated by FIFO. Manual picks
+  // are not filtered by tenant/warehouse so the caller can report why they are invalid.
+  // Rows are locked in primary key order so concurrent checkouts over overlapping
+  // baskets always acquire their locks in the same order and cannot deadlock.
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT b FROM Batch b WHERE b.id IN :batchIds " +
+      "OR (b.tenantId = :tenantId AND b.warehouse.id = :warehouseId " +
+      "AND b.product.id IN :fifoProductIds AND b.quantity > 0) " +
+      "ORDER BY b.id")
+  List<Batch> findForCheckoutForUpdate(
+      @Param("tenantId") UUID tenantId,
+      @Param("warehouseId") UUID warehouseId,
+      @Param("batchIds") Collection<UUID> batchIds,
+      @Param("fifoProductIds") Collection<UUID> fifoProductIds);
+
+  // Unlocked FIFO candidates for the conditional deduction mode. A projection rather
+  // than entities so that a retry inside the same transaction sees the current
+  // quantities instead of the copies cached in the persistence context.
+  @Query("SELECT b.id as id, b.batchCode as batchCode, b.quantity as quantity, " +
+      "b.sellingPrice as sellingPrice, b.expirationDate as expirationDate, b.createdAt as createdAt " +
+      "FROM Batch b WHERE b.product.id = :productId AND b.warehouse.id = :warehouseId " +
+      "AND b.tenantId = :tenantId AND b.quantity > 0 ORDER BY b.createdAt ASC")
+  List<BatchStockCandidateProjection> findFifoCandidates(
+      @Param("productId") UUID productId,
+      @Param("warehouseId") UUID warehouseId,
+      @Param("tenantId") UUID tenantId);
+
+  // Guarded decrement: only succeeds while the batch still holds the quantity, so
+  // concurrent sellers can never drive it negative. Returns the remaining quantity,
+  // or empty when the guard failed (another transaction took the stock first).
+  // Not @Modifying, which cannot return rows: callers refresh a batch entity they
+  // already loaded (see ConditionalStockDeductionService).
+  @Transactional
+  @Query(value = "UPDATE batches SET quantity = quantity - :quantity, version = version + 1, " +
+      "updated_at = CURRENT_TIMESTAMP " +
+      "WHERE id = :id AND quantity >= :quantity AND deleted_at IS NULL " +
+      "RETURNING quantity", nativeQuery = true)
+  Optional<BigDecimal> deductIfAvailable(
+      @Param("id") UUID id,
+      @Param("quantity") BigDecimal quantity);
+
   @Query("SELECT COALESCE(SUM(CAST(b.costPrice AS bigdecimal) * b.quantity), 0) FROM Batch b " +
         "WHERE b.tenantId = :tenantId AND b.deletedAt IS NULL " +
         "AND (:warehouseId IS NULL OR b.warehouse.id = :warehouseId)")
@@ -158,19 +219,211 @@ public interface BatchRepository extends JpaRepository<Batch, UUID> {
         @Param("tenantId") UUID tenantId,
         @Param("warehouseId") UUID warehouseId);
 
+  // Dashboard figures aggregated in the database so the dashboard never materializes
+  // the tenant's batches; each query returns one row per warehouse/category at most.
+  @Query("""
+        SELECT COUNT(DISTINCT p.id) as totalProducts,
+               COUNT(DISTINCT p.id) FILTER (WHERE p.active = true) as activeProducts,
+               COUNT(b.id) as totalBatches,
+               COALESCE(SUM(CAST(b.costPrice AS bigdecimal) * b.quantity), 0) as stockValue,
+               COUNT(DISTINCT p.id) FILTER (WHERE b.quantity <= :lowStockThreshold) as lowStockProducts,
+               COUNT(DISTINCT p.id) FILTER (WHERE b.expirationDate BETWEEN :today AND :expirationLimit)
+                   as expiringProducts
+        FROM Batch b
+        JOIN b.product p
+        WHERE b.tenantId = :tenantId
+          AND b.warehouse.id IN :warehouseIds
+        """)
+  DashboardStockTotalsProjection findDashboardStockTotals(
+        @Param("tenantId") UUID tenantId,
+        @Param("warehouseIds") Collection<UUID> warehouseIds,
+        @Param("lowStockThreshold") BigDecimal lowStockThreshold,
+        @Param("today") LocalDate today,
+        @Param("expirationLimit") LocalDate expirationLimit);
+
   @Query("""
         SELECT b.warehouse.id as warehouseId,
                COUNT(DISTINCT b.product.id) as productCount,
                COUNT(b.id) as batchCount,
-               COALESCE(SUM(b.quantity), 0) as totalQuantity
+               COALESCE(SUM(CAST(b.costPrice AS bigdecimal) * b.quantity), 0) as stockValue
         FROM Batch b
         WHERE b.tenantId = :tenantId
           AND b.warehouse.id IN :warehouseIds
         GROUP BY b.warehouse.id
         """)
-  List<WarehouseStockSummaryProjection> findStockSummaryByWarehouseIds(
+  List<WarehouseStockValueProjection> findStockValueByWarehouse(
         @Param("tenantId") UUID tenantId,
-        @Param("warehouseIds") java.util.Collection<UUID> warehouseIds);
+        @Param("warehouseIds") Collection<UUID> warehouseIds);
+
+  @Query("""
+        SELECT c.id as categoryId,
+               c.name as categoryName,
+               COUNT(DISTINCT p.id) as productCount,
+               COUNT(b.id) as batchCount,
+               COALESCE(SUM(CAST(b.costPrice AS bigdecimal) * b.quantity), 0) as stockValue
+        FROM Batch b
+        JOIN b.product p
+        LEFT JOIN p.category c
+        WHERE b.tenantId = :tenantId
+          AND b.warehouse.id IN :warehouseIds
+        GROUP BY c.id, c.name
+        """)
+  List<CategoryStockValueProjection> findStockValueByCategory(
+        @Param("tenantId") UUID tenantId,
+        @Param("warehouseIds") Collection<UUID> warehouseIds);
+
+  // Stock report rows (product x warehouse) aggregated in the database and read in
+  // keyset order (product name, product id, warehouse id): a page starts right after
+  // the last row of the previous one instead of skipping an OFFSET.
+  @Query("""
+        SELECT p.id as productId,
+               p.name as productName,
+               w.id as warehouseId,
+               w.name as warehouseName,
+               COALESCE(SUM(b.quantity), 0) as totalQuantity,
+               COALESCE(SUM(CAST(b.costPrice AS bigdecimal) * b.quantity), 0) as totalValue,
+               MIN(b.expirationDate) as nearestExpiration,
+               COUNT(b.id) as batchCount
+        FROM Batch b
+        JOIN b.product p
+        JOIN b.warehouse w
+        WHERE b.tenantId = :tenantId
+          AND (:warehouseId IS NULL OR w.id = :warehouseId)
+        GROUP BY p.id, p.name, w.id, w.name
+        ORDER BY p.name, p.id, w.id
+        """)
+  List<StockReportRowProjection> findStockReportFirstPage(
+        @Param("tenantId") UUID tenantId,
+        @Param("warehouseId") UUID warehouseId,
+        Pageable pageable);
+
+  @Query("""
+        SELECT p.id as productId,
+               p.name as productName,
+               w.id as warehouseId,
+               w.name as warehouseName,
+               COALESCE(SUM(b.quantity), 0) as totalQuantity,
+               COALESCE(SUM(CAST(b.costPrice AS bigdecimal) * b.quantity), 0) as totalValue,
+               MIN(b.expirationDate) as nearestExpiration,
+               COUNT(b.id) as batchCount
+        FROM Batch b
+        JOIN b.product p
+        JOIN b.warehouse w
+        WHERE b.tenantId = :tenantId
+          AND (:warehouseId IS NULL OR w.id = :warehouseId)
+          AND (p.name, p.id, w.id) > (:afterProductName, :afterProductId, :afterWarehouseId)
+        GROUP BY p.id, p.name, w.id, w.name
+        ORDER BY p.name, p.id, w.id
+        """)
+  List<StockReportRowProjection> findStockReportPageAfter(
+        @Param("tenantId") UUID tenantId,
+        @Param("warehouseId") UUID warehouseId,
+        @Param("afterProductName") String afterProductName,
+        @Param("afterProductId") UUID afterProductId,
+        @Param("afterWarehouseId") UUID afterWarehouseId,
+        Pageable pageable);
+
+  // Low-stock batches in keyset order (product name, batch id), read in chunks by exports.
+  @Query("""
+        SELECT b.id as batchId,
+               p.id as productId,
+               p.name as productName,
+               w.id as warehouseId,
+               w.name as warehouseName,
+               b.quantity as quantity,
+               COALESCE(CAST(b.costPrice AS bigdecimal) * b.quantity, 0) as totalValue,
+               b.expirationDate as expirationDate
+        FROM Batch b
+        JOIN b.product p
+        JOIN b.warehouse w
+        WHERE b.tenantId = :tenantId
+          AND (:warehouseId IS NULL OR w.id = :warehouseId)
+          AND b.quantity <= :threshold
+        ORDER BY p.name, b.id
+        """)
+  List<BatchReportRowProjection> findLowStockReportFirstPage(
+        @Param("tenantId") UUID tenantId,
+        @Param("warehouseId") UUID warehouseId,
+        @Param("threshold") BigDecimal threshold,
+        Pageable pageable);
+
+  @Query("""
+        SELECT b.id as batchId,
+               p.id as productId,
+               p.name as productName,
+               w.id as warehouseId,
+               w.name as warehouseName,
+               b.quantity as quantity,
+               COALESCE(CAST(b.costPrice AS bigdecimal) * b.quantity, 0) as totalValue,
+               b.expirationDate as expirationDate
+        FROM Batch b
+        JOIN b.product p
+        JOIN b.warehouse w
+        WHERE b.tenantId = :tenantId
+          AND (:warehouseId IS NULL OR w.id = :warehouseId)
+          AND b.quantity <= :threshold
+          AND (p.name, b.id) > (:afterProductName, :afterBatchId)
+        ORDER BY p.name, b.id
+        """)
+  List<BatchReportRowProjection> findLowStockReportPageAfter(
+        @Param("tenantId") UUID tenantId,
+        @Param("warehouseId") UUID warehouseId,
+        @Param("threshold") BigDecimal threshold,
+        @Param("afterProductName") String afterProductName,
+        @Param("afterBatchId") UUID afterBatchId,
+        Pageable pageable);
+
+  // Batches expiring in [startDate, endDate] in keyset order (expiration date, batch id).
+  @Query("""
+        SELECT b.id as batchId,
+               p.id as productId,
+               p.name as productName,
+               w.id as warehouseId,
+               w.name as warehouseName,
+               b.quantity as quantity,
+               COALESCE(CAST(b.costPrice AS bigdecimal) * b.quantity, 0) as totalValue,
+               b.expirationDate as expirationDate
+        FROM Batch b
+        JOIN b.product p
+        JOIN b.warehouse w
+        WHERE b.tenantId = :tenantId
+          AND (:warehouseId IS NULL OR w.id = :warehouseId)
+          AND b.expirationDate BETWEEN :startDate AND :endDate
+        ORDER BY b.expirationDate, b.id
+        """)
+  List<BatchReportRowProjection> findExpiringReportFirstPage(
+        @Param("tenantId") UUID tenantId,
+        @Param("warehouseId") UUID warehouseId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate,
+        Pageable pageable);
+
+  @Query("""
+        SELECT b.id as batchId,
+               p.id as productId,
+               p.name as productName,
+               w.id as warehouseId,
+               w.name as warehouseName,
+               b.quantity as quantity,
+               COALESCE(CAST(b.costPrice AS bigdecimal) * b.quantity, 0) as totalValue,
+               b.expirationDate as expirationDate
+        FROM Batch b
+        JOIN b.product p
+        JOIN b.warehouse w
+        WHERE b.tenantId = :tenantId
+          AND (:warehouseId IS NULL OR w.id = :warehouseId)
+          AND b.expirationDate BETWEEN :startDate AND :endDate
+          AND (b.expirationDate, b.id) > (:afterExpirationDate, :afterBatchId)
+        ORDER BY b.expirationDate, b.id
+        """)
+  List<BatchReportRowProjection> findExpiringReportPageAfter(
+        @Param("tenantId") UUID tenantId,
+        @Param("warehouseId") UUID warehouseId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate,
+        @Param("afterExpirationDate") LocalDate afterExpirationDate,
+        @Param("afterBatchId") UUID afterBatchId,
+        Pageable pageable);
 
   @Query("SELECT COALESCE(SUM(b.transitQuantity), 0) FROM Batch b " +
         "WHERE b.tenantId = :tenantId AND b.deletedAt IS NULL " +
@@ -179,6 +432,13 @@ public interface BatchRepository extends JpaRepository<Batch, UUID> {
         @Param("tenantId") UUID tenantId,
         @Param("warehouseId") UUID warehouseId);
 
+  @Query("SELECT COALESCE(SUM(CAST(b.costPrice AS bigdecimal) * b.transitQuantity), 0) FROM Batch b " +
+        "WHERE b.tenantId = :tenantId AND b.deletedAt IS NULL AND b.transitQuantity > 0 " +
+        "AND (:warehouseId IS NULL OR b.warehouse.id = :warehouseId)")
+  BigDecimal sumTransitValue(
+        @Param("tenantId") UUID tenantId,
+        @Param("warehouseId") UUID warehouseId);
+
   @Query("SELECT COUNT(b) FROM Batch b " +
         "WHERE b.tenantId = :tenantId AND b.deletedAt IS NULL " +
         "AND (:warehouseId IS NULL OR b.warehouse.id = :warehouseId)")
@@ -22,17 +22,17 @@ public interface BotProductSearchRepository extends JpaRepository<Batch, UUID> {
                    p.sku AS "sku",
                    w.id AS "warehouseId",
                    w.name AS "warehouseName",
-                   COALESCE(SUM(b.quantity), 0) AS "totalQuantity",
+                   sb.on_hand AS "totalQuantity",
                    latest.selling_price AS "latestBatchSellingPrice",
                    latest.batch_code AS "latestBatchCode",
                    latest.created_at AS "latestBatchCreatedAt"
             FROM products p
             LEFT JOIN categories c ON c.id = p.category_id AND c.tenant_id = :tenantId
-            JOIN batches b ON b.product_id = p.id
-                          AND b.warehouse_id = :warehouseId
-                          AND b.tenant_id = :tenantId
-                          AND b.deleted_at IS NULL
-            JOIN warehouses w ON w.id = b.warehouse_id
+            JOIN stock_balance_current sb ON sb.tenant_id = :tenantId
+                                         AND sb.warehouse_id = :warehouseId
+                                         AND sb.product_id = p.id
+                                         AND sb.batch_count > 0
+            JOIN warehouses w ON w.id = sb.warehouse_id
                              AND w.tenant_id = :tenantId
                              AND w.is_active = true
             LEFT JOIN LATERAL (
@@ -50,9 +50,6 @@ public interface BotProductSearchRepository extends JpaRepository<Batch, UUID> {
               AND (LOWER(p.name) LIKE LOWER(CONCAT('%', CAST(:query AS text), '%'))
                    OR LOWER(p.sku) LIKE LOWER(CONCAT('%', CAST(:query AS text), '%'))
                    OR LOWER(p.barcode) LIKE LOWER(CONCAT('%', CAST(:query AS text), '%')))
-            GROUP BY p.id, p.name, c.name, p.image_url, p.barcode, p.sku,
-                     w.id, w.name,
-                     latest.selling_price, latest.batch_code, latest.created_at
             ORDER BY p.name ASC, p.id ASC
             LIMIT :limitPlusOne
             """, nativeQuery = true)
@@ -71,17 +68,17 @@ public interface BotProductSearchRepository extends JpaRepository<Batch, UUID> {
                    p.sku AS "sku",
                    w.id AS "warehouseId",
                    w.name AS "warehouseName",
-                   COALESCE(SUM(b.quantity), 0) AS "totalQuantity",
+                   sb.on_hand AS "totalQuantity",
                    latest.selling_price AS "latestBatchSellingPrice",
                    latest.batch_code AS "latestBatchCode",
                    latest.created_at AS "latestBatchCreatedAt"
             FROM products p
             LEFT JOIN categories c ON c.id = p.category_id AND c.tenant_id = :tenantId
-            JOIN batches b ON b.product_id = p.id
-                          AND b.warehouse_id = :warehouseId
-                          AND b.tenant_id = :tenantId
-                          AND b.deleted_at IS NULL
-            JOIN warehouses w ON w.id = b.warehouse_id
+            JOIN stock_balance_current sb ON sb.tenant_id = :tenantId
+                                         AND sb.warehouse_id = :warehouseId
+                                         AND sb.product_id = p.id
+                                         AND sb.batch_count > 0
+            JOIN warehouses w ON w.id = sb.warehouse_id
                              AND w.tenant_id = :tenantId
                              AND w.is_active = true
             LEFT JOIN LATERAL (
@@ -97,9 +94,6 @@ public interface BotProductSearchRepository extends JpaRepository<Batch, UUID> {
             WHERE p.tenant_id = :tenantId
               AND p.deleted_at IS NULL
               AND word_similarity(LOWER(CAST(:query AS text)), LOWER(p.name)) > 0.3
-            GROUP BY p.id, p.name, c.name, p.image_url, p.barcode, p.sku,
-                     w.id, w.name,
-                     latest.selling_price, latest.batch_code, latest.created_at
             ORDER BY word_similarity(LOWER(CAST(:query AS text)), LOWER(p.name)) DESC, p.name ASC
             LIMIT :limitPlusOne
             """, nativeQuery = true)
@@ -118,17 +112,17 @@ public interface BotProductSearchRepository extends JpaRepository<Batch, UUID> {
                    p.sku AS "sku",
                    w.id AS "warehouseId",
                    w.name AS "warehouseName",
-                   COALESCE(SUM(b.quantity), 0) AS "totalQuantity",
+                   sb.on_hand AS "totalQuantity",
                    latest.selling_price AS "latestBatchSellingPrice",
                    latest.batch_code AS "latestBatchCode",
                    latest.created_at AS "latestBatchCreatedAt"
             FROM products p
             LEFT JOIN categories c ON c.id = p.category_id AND c.tenant_id = :tenantId
-            JOIN batches b ON b.product_id = p.id
-                          AND b.warehouse_id = :warehouseId
-                          AND b.tenant_id = :tenantId
-                          AND b.deleted_at IS NULL
-            JOIN warehouses w ON w.id = b.warehouse_id
+            JOIN stock_balance_current sb ON sb.tenant_id = :tenantId
+                                         AND sb.warehouse_id = :warehouseId
+                                         AND sb.product_id = p.id
+                                         AND sb.batch_count > 0
+            JOIN warehouses w ON w.id = sb.warehouse_id
                              AND w.tenant_id = :tenantId
                              AND w.is_active = true
             LEFT JOIN LATERAL (
@@ -144,9 +138,6 @@ public interface BotProductSearchRepository extends JpaRepository<Batch, UUID> {
             WHERE p.tenant_id = :tenantId
               AND p.deleted_at IS NULL
               AND word_similarity(LOWER(CAST(:token AS text)), LOWER(p.name)) > 0.3
-            GROUP BY p.id, p.name, c.name, p.image_url, p.barcode, p.sku,
-                     w.id, w.name,
-                     latest.selling_price, latest.batch_code, latest.created_at
             ORDER BY word_similarity(LOWER(CAST(:token AS text)), LOWER(p.name)) DESC, p.name ASC
             LIMIT :limitPlusOne
             """, nativeQuery = true)
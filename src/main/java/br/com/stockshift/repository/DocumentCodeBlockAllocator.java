@@ -0,0 +1,12 @@
+package br.com.stockshift.repository;
+
+import java.util.UUID;
+
+public interface DocumentCodeBlockAllocator {
+
+    /**
+     * Reserves the next {@code blockSize} numbers for (tenant, prefix, period) and
+     * returns the highest number of the reserved block.
+     */
+    Long allocateBlock(UUID tenantId, String prefix, String period, long blockSize);
+}
@@ -0,0 +1,61 @@
+package br.com.stockshift.repository;
+
+import br.com.stockshift.config.DocumentCodeProperties;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+
+/**
+ * Reserves code blocks on a small pool of its own, in auto-commit. The counter row lock
+ * is released as soon as the statement returns, and the caller, already inside its
+ * sale/movement transaction, never waits for a second connection of the application
+ * pool: with that pool exhausted by such callers, none of them could get one.
+ * Concurrent nodes serialize on the counter row, so every block is disjoint; a
+ * rolled-back caller only leaves a gap in the numbering.
+ */
+public class DocumentCodeBlockAllocatorImpl implements DocumentCodeBlockAllocator, DisposableBean {
+
+    public static final String POOL_NAME = "document-codes";
+
+    private static final String ALLOCATE_BLOCK = """
+            INSERT INTO document_code_sequences (tenant_id, prefix, period, last_value, updated_at)
+            VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)
+            ON CONFLICT (tenant_id, prefix, period)
+            DO UPDATE SET last_value = document_code_sequences.last_value + EXCLUDED.last_value,
+                          updated_at = CURRENT_TIMESTAMP
+            RETURNING last_value
+            """;
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public DocumentCodeBlockAllocatorImpl(Environment environment, DocumentCodeProperties properties,
+                                          MeterRegistry meterRegistry) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(environment.getRequiredProperty("spring.datasource.url"));
+        config.setUsername(environment.getProperty("spring.datasource.username"));
+        config.setPassword(environment.getProperty("spring.datasource.password"));
+        config.setMaximumPoolSize(Math.max(1, properties.getPoolSize()));
+        config.setMinimumIdle(1);
+        config.setPoolName(POOL_NAME);
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        this.dataSource = new HikariDataSource(config);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public Long allocateBlock(UUID tenantId, String prefix, String period, long blockSize) {
+        return jdbcTemplate.queryForObject(ALLOCATE_BLOCK, Long.class, tenantId, prefix, period, blockSize);
+    }
+
+    @Override
+    public void destroy() {
+        dataSource.close();
+    }
+}
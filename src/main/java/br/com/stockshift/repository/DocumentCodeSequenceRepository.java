@@ -0,0 +1,23 @@
+package br.com.stockshift.repository;
+
+import br.com.stockshift.model.entity.DocumentCodeSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface DocumentCodeSequenceRepository
+        extends JpaRepository<DocumentCodeSequence, DocumentCodeSequence.DocumentCodeSequenceId>,
+        DocumentCodeBlockAllocator {
+
+    @Query("SELECT s.lastValue FROM DocumentCodeSequence s "
+            + "WHERE s.tenantId = :tenantId AND s.prefix = :prefix AND s.period = :period")
+    Optional<Long> findLastValue(
+            @Param("tenantId") UUID tenantId,
+            @Param("prefix") String prefix,
+            @Param("period") String period);
+}
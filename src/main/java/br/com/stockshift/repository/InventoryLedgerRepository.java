@@ -1,16 +1,26 @@
 package br.com.stockshift.repository;
 
+import br.com.stockshift.dto.BatchLedgerBalanceProjection;
+import br.com.stockshift.dto.ledger.LedgerEntryResponse;
 import br.com.stockshift.model.entity.InventoryLedger;
 import br.com.stockshift.model.enums.LedgerEntryType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface InventoryLedgerRepository extends JpaRepository<InventoryLedger, UUID> {
@@ -19,14 +29,142 @@ public interface InventoryLedgerRepository extends JpaRepository<InventoryLedger
 
     List<InventoryLedger> findByBatchId(UUID batchId);
 
-    List<InventoryLedger> findByBatchIdOrderByCreatedAtDesc(UUID batchId);
-
-    List<InventoryLedger> findByWarehouseIdOrderByCreatedAtDesc(UUID warehouseId);
+    @Query(value = """
+            SELECT COALESCE(SUM(CASE WHEN entry_type IN (:debitTypes) THEN -quantity ELSE quantity END), 0)
+            FROM inventory_ledger_history
+            WHERE batch_id = :batchId
+            """, nativeQuery = true)
+    BigDecimal sumQuantityByBatchId(
+        @Param("batchId") UUID batchId,
+        @Param("debitTypes") Collection<String> debitTypes
+    );
 
-    List<InventoryLedger> findByProductIdOrderByCreatedAtDesc(UUID productId);
+    // Live batches of the tenant whose quantity differs from the net of their ledger
+    // entries (archived months included), in one pass over the batch_id indexes
+    @Query(value = """
+            SELECT b.id AS "batchId",
+                   b.batch_code AS "batchCode",
+                   b.quantity AS "materializedQuantity",
+                   COALESCE(SUM(CASE WHEN l.entry_type IN (:debitTypes) THEN -l.quantity ELSE l.quantity END), 0)
+                       AS "calculatedQuantity"
+            FROM batches b
+            LEFT JOIN inventory_ledger_history l ON l.batch_id = b.id
+            WHERE b.tenant_id = :tenantId
+              AND b.deleted_at IS NULL
+            GROUP BY b.id, b.batch_code, b.quantity
+            HAVING b.quantity <> COALESCE(SUM(CASE WHEN l.entry_type IN (:debitTypes) THEN -l.quantity ELSE l.quantity END), 0)
+            ORDER BY b.batch_code, b.id
+            """, nativeQuery = true)
+    List<BatchLedgerBalanceProjection> findLedgerMismatchesByTenant(
+        @Param("tenantId") UUID tenantId,
+        @Param("debitTypes") Collection<String> debitTypes
+    );
 
     List<InventoryLedger> findByTenantIdAndBatchId(UUID tenantId, UUID batchId);
 
+    // Keyset pages, newest first: entries created at or after `from` that come before
+    // (beforeCreatedAt, beforeId) in (created_at, id) order. A first page passes the end
+    // of the range with the smallest UUID, so the end itself is excluded.
+    @Query("""
+            SELECT new br.com.stockshift.dto.ledger.LedgerEntryResponse(
+                       l.id, l.productId, l.warehouseId, l.batchId, l.transferItemId, l.referenceType,
+                       l.referenceId, l.entryType, l.quantity, l.balanceAfter, l.notes, l.createdBy, l.createdAt)
+            FROM InventoryLedger l
+            WHERE l.tenantId = :tenantId
+              AND l.batchId = :batchId
+              AND l.createdAt >= :from
+              AND (l.createdAt, l.id) < (:beforeCreatedAt, :beforeId)
+            ORDER BY l.createdAt DESC, l.id DESC
+            """)
+    List<LedgerEntryResponse> findPageByBatchId(
+        @Param("tenantId") UUID tenantId,
+        @Param("batchId") UUID batchId,
+        @Param("from") LocalDateTime from,
+        @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+        @Param("beforeId") UUID beforeId,
+        Pageable pageable
+    );
+
+    @Query("""
+            SELECT new br.com.stockshift.dto.ledger.LedgerEntryResponse(
+                       l.id, l.productId, l.warehouseId, l.batchId, l.transferItemId, l.referenceType,
+                       l.referenceId, l.entryType, l.quantity, l.balanceAfter, l.notes, l.createdBy, l.createdAt)
+            FROM InventoryLedger l
+            WHERE l.tenantId = :tenantId
+              AND l.warehouseId = :warehouseId
+              AND l.createdAt >= :from
+              AND (l.createdAt, l.id) < (:beforeCreatedAt, :beforeId)
+            ORDER BY l.createdAt DESC, l.id DESC
+            """)
+    List<LedgerEntryResponse> findPageByWarehouseId(
+        @Param("tenantId") UUID tenantId,
+        @Param("warehouseId") UUID warehouseId,
+        @Param("from") LocalDateTime from,
+        @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+        @Param("beforeId") UUID beforeId,
+        Pageable pageable
+    );
+
+    @Query("""
+            SELECT new br.com.stockshift.dto.ledger.LedgerEntryResponse(
+                       l.id, l.productId, l.warehouseId, l.batchId, l.transferItemId, l.referenceType,
+                       l.referenceId, l.entryType, l.quantity, l.balanceAfter, l.notes, l.createdBy, l.createdAt)
+            FROM InventoryLedger l
+            WHERE l.tenantId = :tenantId
+              AND l.productId = :productId
+              AND l.createdAt >= :from
+              AND (l.createdAt, l.id) < (:beforeCreatedAt, :beforeId)
+            ORDER BY l.createdAt DESC, l.id DESC
+            """)
+    List<LedgerEntryResponse> findPageByProductId(
+        @Param("tenantId") UUID tenantId,
+        @Param("productId") UUID productId,
+        @Param("from") LocalDateTime from,
+        @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+        @Param("beforeId") UUID beforeId,
+        Pageable pageable
+    );
+
+    // Whole ranges for exports, read through a server-side cursor 500 rows at a time.
+    // The caller must hold a transaction and close the stream.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            SELECT new br.com.stockshift.dto.ledger.LedgerEntryResponse(
+                       l.id, l.productId, l.warehouseId, l.batchId, l.transferItemId, l.referenceType,
+                       l.referenceId, l.entryType, l.quantity, l.balanceAfter, l.notes, l.createdBy, l.createdAt)
+            FROM InventoryLedger l
+            WHERE l.tenantId = :tenantId
+              AND l.warehouseId = :warehouseId
+              AND l.createdAt >= :from
+              AND l.createdAt < :to
+            ORDER BY l.createdAt DESC, l.id DESC
+            """)
+    Stream<LedgerEntryResponse> streamByWarehouseId(
+        @Param("tenantId") UUID tenantId,
+        @Param("warehouseId") UUID warehouseId,
+        @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to
+    );
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            SELECT new br.com.stockshift.dto.ledger.LedgerEntryResponse(
+                       l.id, l.productId, l.warehouseId, l.batchId, l.transferItemId, l.referenceType,
+                       l.referenceId, l.entryType, l.quantity, l.balanceAfter, l.notes, l.createdBy, l.createdAt)
+            FROM InventoryLedger l
+            WHERE l.tenantId = :tenantId
+              AND l.productId = :productId
+              AND l.createdAt >= :from
+              AND l.createdAt < :to
+            ORDER BY l.createdAt DESC, l.id DESC
+            """)
+    Stream<LedgerEntryResponse> streamByProductId(
+        @Param("tenantId") UUID tenantId,
+        @Param("productId") UUID productId,
+        @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to
+    );
+
     Page<InventoryLedger> findByTenantIdAndWarehouseId(UUID tenantId, UUID warehouseId, Pageable pageable);
 
     @Query("SELECT l FROM InventoryLedger l WHERE l.tenantId = :tenantId " +
@@ -46,4 +184,11 @@ public interface InventoryLedgerRepository extends JpaRepository<InventoryLedger
         @Param("referenceId") UUID referenceId,
         @Param("entryType") LedgerEntryType entryType
     );
+
+    // Partition maintenance, see V36__partition_inventory_ledger.sql
+    @Query(value = "SELECT inventory_ledger_ensure_partition(:month)", nativeQuery = true)
+    boolean ensurePartition(@Param("month") LocalDate month);
+
+    @Query(value = "SELECT inventory_ledger_archive_before(:cutoff)", nativeQuery = true)
+    int archivePartitionsBefore(@Param("cutoff") LocalDate cutoff);
 }
@@ -0,0 +1,42 @@
+package br.com.stockshift.repository;
+
+import br.com.stockshift.model.entity.KpiPeriodSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Repository
+public interface KpiPeriodSnapshotRepository
+        extends JpaRepository<KpiPeriodSnapshot, KpiPeriodSnapshot.KpiPeriodSnapshotId> {
+
+    // First writer wins: the closer job and a lazy backfill may close the same month
+    // concurrently, and both compute the same movement figures.
+    @Modifying
+    @Query(value = """
+            INSERT INTO kpi_period_snapshot (tenant_id, warehouse_id, period_start, stock_value, purchases_value,
+                                             losses_value, damage_value, gift_value, adjustment_value,
+                                             transit_value, stock_turnover_rate, closed_at)
+            VALUES (:tenantId, :warehouseId, :periodStart, :stockValue, :purchasesValue, :lossesValue,
+                    :damageValue, :giftValue, :adjustmentValue, :transitValue, :stockTurnoverRate,
+                    CURRENT_TIMESTAMP)
+            ON CONFLICT (tenant_id, warehouse_id, period_start) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(
+            @Param("tenantId") UUID tenantId,
+            @Param("warehouseId") UUID warehouseId,
+            @Param("periodStart") LocalDate periodStart,
+            @Param("stockValue") BigDecimal stockValue,
+            @Param("purchasesValue") BigDecimal purchasesValue,
+            @Param("lossesValue") BigDecimal lossesValue,
+            @Param("damageValue") BigDecimal damageValue,
+            @Param("giftValue") BigDecimal giftValue,
+            @Param("adjustmentValue") BigDecimal adjustmentValue,
+            @Param("transitValue") BigDecimal transitValue,
+            @Param("stockTurnoverRate") BigDecimal stockTurnoverRate);
+}
@@ -0,0 +1,135 @@
+package br.com.stockshift.repository;
+
+import br.com.stockshift.dto.report.MovementDailyTotalProjection;
+import br.com.stockshift.dto.report.MovementTypeTotalProjection;
+import br.com.stockshift.dto.report.WarehouseMovementTypeTotalProjection;
+import br.com.stockshift.model.entity.MovementDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface MovementDailyRollupRepository
+        extends JpaRepository<MovementDailyRollup, MovementDailyRollup.MovementDailyRollupId> {
+
+    // Adds a movement to the day's totals. Runs in the caller's transaction, so the
+    // rollup commits or rolls back together with the movement.
+    @Modifying
+    @Query(value = """
+            INSERT INTO movement_daily_rollup (tenant_id, warehouse_id, day, type, direction, item_quantity,
+                                               movement_count, updated_at)
+            VALUES (:tenantId, :warehouseId, :day, :type, :direction, :quantityDelta, :countDelta, CURRENT_TIMESTAMP)
+            ON CONFLICT (tenant_id, warehouse_id, day, type)
+            DO UPDATE SET item_quantity = movement_daily_rollup.item_quantity + EXCLUDED.item_quantity,
+                          movement_count = movement_daily_rollup.movement_count + EXCLUDED.movement_count,
+                          updated_at = CURRENT_TIMESTAMP
+            """, nativeQuery = true)
+    int applyDelta(
+            @Param("tenantId") UUID tenantId,
+            @Param("warehouseId") UUID warehouseId,
+            @Param("day") LocalDate day,
+            @Param("type") String type,
+            @Param("direction") String direction,
+            @Param("quantityDelta") BigDecimal quantityDelta,
+            @Param("countDelta") long countDelta);
+
+    @Query("SELECT r.day as day, r.direction as direction, " +
+           "COALESCE(SUM(r.itemQuantity), 0) as itemQuantity, COALESCE(SUM(r.movementCount), 0) as movementCount " +
+           "FROM MovementDailyRollup r " +
+           "WHERE r.tenantId = :tenantId " +
+           "AND (:warehouseId IS NULL OR r.warehouseId = :warehouseId) " +
+           "AND r.day >= :from AND r.day <= :to " +
+           "GROUP BY r.day, r.direction " +
+           "ORDER BY r.day ASC")
+    List<MovementDailyTotalProjection> dailyTotals(
+            @Param("tenantId") UUID tenantId,
+            @Param("warehouseId") UUID warehouseId,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
+
+    @Query("SELECT r.type as type, r.direction as direction, " +
+           "COALESCE(SUM(r.itemQuantity), 0) as itemQuantity, COALESCE(SUM(r.movementCount), 0) as movementCount " +
+           "FROM MovementDailyRollup r " +
+           "WHERE r.tenantId = :tenantId " +
+           "AND (:warehouseId IS NULL OR r.warehouseId = :warehouseId) " +
+           "AND r.day >= :from AND r.day <= :to " +
+           "GROUP BY r.type, r.direction")
+    List<MovementTypeTotalProjection> typeTotals(
+            @Param("tenantId") UUID tenantId,
+            @Param("warehouseId") UUID warehouseId,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
+
+    @Query("SELECT r.type as type, r.direction as direction, " +
+           "COALESCE(SUM(r.itemQuantity), 0) as itemQuantity, COALESCE(SUM(r.movementCount), 0) as movementCount " +
+           "FROM MovementDailyRollup r " +
+           "WHERE r.tenantId = :tenantId " +
+           "AND r.warehouseId IN :warehouseIds " +
+           "AND r.day >= :from AND r.day <= :to " +
+           "GROUP BY r.type, r.direction")
+    List<MovementTypeTotalProjection> typeTotalsByWarehouseIds(
+            @Param("tenantId") UUID tenantId,
+            @Param("warehouseIds") Collection<UUID> warehouseIds,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
+
+    @Query("SELECT r.warehouseId as warehouseId, r.type as type, r.direction as direction, " +
+           "COALESCE(SUM(r.itemQuantity), 0) as itemQuantity, COALESCE(SUM(r.movementCount), 0) as movementCount " +
+           "FROM MovementDailyRollup r " +
+           "WHERE r.tenantId = :tenantId " +
+           "AND r.warehouseId IN :warehouseIds " +
+           "AND (CAST(:from AS string) IS NULL OR r.day >= :from) " +
+           "AND (CAST(:to AS string) IS NULL OR r.day <= :to) " +
+           "GROUP BY r.warehouseId, r.type, r.direction")
+    List<WarehouseMovementTypeTotalProjection> typeTotalsPerWarehouse(
+            @Param("tenantId") UUID tenantId,
+            @Param("warehouseIds") Collection<UUID> warehouseIds,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
+
+    // Transaction-scoped lock on the tenant's rollup: shared by the movements adding
+    // their delta, exclusive for a rebuild, so neither sees the other half-done
+    @Query(value = """
+            SELECT 1 FROM pg_advisory_xact_lock_shared(
+                hashtextextended('movement_daily_rollup:' || CAST(:tenantId AS text), 0))
+            """, nativeQuery = true)
+    int lockTenantShared(@Param("tenantId") UUID tenantId);
+
+    @Query(value = """
+            SELECT 1 FROM pg_advisory_xact_lock(
+                hashtextextended('movement_daily_rollup:' || CAST(:tenantId AS text), 0))
+            """, nativeQuery = true)
+    int lockTenantExclusive(@Param("tenantId") UUID tenantId);
+
+    @Modifying
+    @Query(value = "DELETE FROM movement_daily_rollup WHERE tenant_id = :tenantId AND day >= :from AND day <= :to",
+            nativeQuery = true)
+    int deleteDays(@Param("tenantId") UUID tenantId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Recomputes the given days from the movement tables (used by the rebuild command)
+    @Modifying
+    @Query(value = """
+            INSERT INTO movement_daily_rollup (tenant_id, warehouse_id, day, type, direction, item_quantity,
+                                               movement_count, updated_at)
+            SELECT sm.tenant_id, sm.warehouse_id, CAST(sm.created_at AS DATE), sm.type, sm.direction,
+                   COALESCE(SUM(smi.quantity), 0), COUNT(DISTINCT sm.id), CURRENT_TIMESTAMP
+            FROM stock_movements sm
+            JOIN stock_movement_items smi ON smi.stock_movement_id = sm.id
+            WHERE sm.tenant_id = :tenantId
+              AND sm.created_at >= :fromTime AND sm.created_at < :toTime
+            GROUP BY sm.tenant_id, sm.warehouse_id, CAST(sm.created_at AS DATE), sm.type, sm.direction
+            """, nativeQuery = true)
+    int insertFromMovements(
+            @Param("tenantId") UUID tenantId,
+            @Param("fromTime") LocalDateTime fromTime,
+            @Param("toTime") LocalDateTime toTime);
+}
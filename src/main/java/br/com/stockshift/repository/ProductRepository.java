@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -19,6 +20,9 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
     @Query("SELECT p FROM Product p WHERE p.tenantId = :tenantId AND p.id = :id AND p.deletedAt IS NULL")
     Optional<Product> findByTenantIdAndId(UUID tenantId, UUID id);
 
+    @Query("SELECT p FROM Product p WHERE p.tenantId = :tenantId AND p.id IN :ids AND p.deletedAt IS NULL")
+    List<Product> findByTenantIdAndIdIn(@Param("tenantId") UUID tenantId, @Param("ids") Collection<UUID> ids);
+
     @Query("SELECT p FROM Product p WHERE p.tenantId = :tenantId AND p.active = :active AND p.deletedAt IS NULL")
     List<Product> findByTenantIdAndActive(UUID tenantId, Boolean active);
 
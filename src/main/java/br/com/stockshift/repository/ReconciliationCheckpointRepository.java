@@ -0,0 +1,32 @@
+package br.com.stockshift.repository;
+
+import br.com.stockshift.model.entity.ReconciliationCheckpoint;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ReconciliationCheckpointRepository extends JpaRepository<ReconciliationCheckpoint, UUID> {
+
+    // A tenant without a checkpoint starts from the beginning of its ledger
+    @Modifying
+    @Query(value = """
+            INSERT INTO reconciliation_checkpoint (tenant_id, ledger_high_water, updated_at)
+            VALUES (:tenantId, :highWater, CURRENT_TIMESTAMP)
+            ON CONFLICT (tenant_id) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("tenantId") UUID tenantId, @Param("highWater") LocalDateTime highWater);
+
+    // Serialises runs on the same tenant across threads and nodes
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM ReconciliationCheckpoint c WHERE c.tenantId = :tenantId")
+    Optional<ReconciliationCheckpoint> findByTenantIdForUpdate(@Param("tenantId") UUID tenantId);
+}
@@ -0,0 +1,87 @@
+package br.com.stockshift.repository;
+
+import br.com.stockshift.dto.sale.SalesDailyTotalProjection;
+import br.com.stockshift.model.entity.SalesDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface SalesDailyRollupRepository
+        extends JpaRepository<SalesDailyRollup, SalesDailyRollup.SalesDailyRollupId> {
+
+    // Adds a (possibly negative) delta to the day's totals. Runs in the caller's
+    // transaction, so the rollup commits or rolls back together with the sale.
+    @Modifying
+    @Query(value = """
+            INSERT INTO sales_daily_rollup (tenant_id, warehouse_id, day, payment_method, sale_count, revenue, updated_at)
+            VALUES (:tenantId, :warehouseId, :day, :paymentMethod, :countDelta, :revenueDelta, CURRENT_TIMESTAMP)
+            ON CONFLICT (tenant_id, warehouse_id, day, payment_method)
+            DO UPDATE SET sale_count = sales_daily_rollup.sale_count + EXCLUDED.sale_count,
+                          revenue = sales_daily_rollup.revenue + EXCLUDED.revenue,
+                          updated_at = CURRENT_TIMESTAMP
+            """, nativeQuery = true)
+    int applyDelta(
+            @Param("tenantId") UUID tenantId,
+            @Param("warehouseId") UUID warehouseId,
+            @Param("day") LocalDate day,
+            @Param("paymentMethod") String paymentMethod,
+            @Param("countDelta") long countDelta,
+            @Param("revenueDelta") long revenueDelta);
+
+    @Query("SELECT r.day as day, SUM(r.saleCount) as saleCount, SUM(r.revenue) as revenue " +
+           "FROM SalesDailyRollup r " +
+           "WHERE r.tenantId = :tenantId " +
+           "AND (:warehouseId IS NULL OR r.warehouseId = :warehouseId) " +
+           "AND r.day >= :from AND r.day <= :to " +
+           "GROUP BY r.day " +
+           "ORDER BY r.day ASC")
+    List<SalesDailyTotalProjection> dailyTotals(
+            @Param("tenantId") UUID tenantId,
+            @Param("warehouseId") UUID warehouseId,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
+
+    // Transaction-scoped lock on the tenant's rollup: shared by the sales adding their
+    // delta, exclusive for a rebuild, so neither sees the other half-done
+    @Query(value = """
+            SELECT 1 FROM pg_advisory_xact_lock_shared(
+                hashtextextended('sales_daily_rollup:' || CAST(:tenantId AS text), 0))
+            """, nativeQuery = true)
+    int lockTenantShared(@Param("tenantId") UUID tenantId);
+
+    @Query(value = """
+            SELECT 1 FROM pg_advisory_xact_lock(
+                hashtextextended('sales_daily_rollup:' || CAST(:tenantId AS text), 0))
+            """, nativeQuery = true)
+    int lockTenantExclusive(@Param("tenantId") UUID tenantId);
+
+    @Modifying
+    @Query(value = "DELETE FROM sales_daily_rollup WHERE tenant_id = :tenantId AND day >= :from AND day <= :to",
+            nativeQuery = true)
+    int deleteDays(@Param("tenantId") UUID tenantId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Recomputes the given days from the sales table (used by the backfill job)
+    @Modifying
+    @Query(value = """
+            INSERT INTO sales_daily_rollup (tenant_id, warehouse_id, day, payment_method, sale_count, revenue, updated_at)
+            SELECT tenant_id, warehouse_id, CAST(created_at AS DATE), payment_method, COUNT(*),
+                   COALESCE(SUM(total), 0), CURRENT_TIMESTAMP
+            FROM sales
+            WHERE tenant_id = :tenantId
+              AND status = 'COMPLETED'
+              AND created_at >= :fromTime AND created_at < :toTime
+            GROUP BY tenant_id, warehouse_id, CAST(created_at AS DATE), payment_method
+            """, nativeQuery = true)
+    int insertFromSales(
+            @Param("tenantId") UUID tenantId,
+            @Param("fromTime") LocalDateTime fromTime,
+            @Param("toTime") LocalDateTime toTime);
+}
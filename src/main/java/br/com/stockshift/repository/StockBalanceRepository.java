@@ -0,0 +1,204 @@
+package br.com.stockshift.repository;
+
+import br.com.stockshift.dto.warehouse.ProductWithStockProjection;
+import br.com.stockshift.dto.warehouse.StockBalanceMismatchProjection;
+import br.com.stockshift.dto.warehouse.StockBalanceTotalsProjection;
+import br.com.stockshift.dto.warehouse.WarehouseStockSummaryProjection;
+import br.com.stockshift.model.entity.StockBalance;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface StockBalanceRepository extends JpaRepository<StockBalance, StockBalance.StockBalanceId> {
+
+    Optional<StockBalance> findByTenantIdAndWarehouseIdAndProductId(UUID tenantId, UUID warehouseId, UUID productId);
+
+    // One row per product: the balance primary key range of the warehouse joined to products
+    @Query(value = """
+            SELECT p.id as id,
+                   p.name as name,
+                   p.sku as sku,
+                   p.barcode as barcode,
+                   p.barcodeType as barcodeType,
+                   p.description as description,
+                   p.category as category,
+                   p.brand as brand,
+                   p.isKit as isKit,
+                   p.attributes as attributes,
+                   p.hasExpiration as hasExpiration,
+                   p.active as active,
+                   sb.onHand as totalQuantity,
+                   p.createdAt as createdAt,
+                   p.updatedAt as updatedAt
+            FROM StockBalance sb
+            JOIN Product p ON p.id = sb.productId
+            LEFT JOIN p.category
+            LEFT JOIN p.brand
+            WHERE sb.tenantId = :tenantId
+              AND sb.warehouseId = :warehouseId
+              AND sb.batchCount > 0
+              AND p.tenantId = :tenantId
+              AND p.deletedAt IS NULL
+              AND (:search = '' OR LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%'))
+                   OR LOWER(p.sku) LIKE LOWER(CONCAT('%', :search, '%'))
+                   OR LOWER(p.barcode) LIKE LOWER(CONCAT('%', :search, '%')))
+            """, countQuery = """
+            SELECT COUNT(sb)
+            FROM StockBalance sb
+            JOIN Product p ON p.id = sb.productId
+            WHERE sb.tenantId = :tenantId
+              AND sb.warehouseId = :warehouseId
+              AND sb.batchCount > 0
+              AND p.tenantId = :tenantId
+              AND p.deletedAt IS NULL
+              AND (:search = '' OR LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%'))
+                   OR LOWER(p.sku) LIKE LOWER(CONCAT('%', :search, '%'))
+                   OR LOWER(p.barcode) LIKE LOWER(CONCAT('%', :search, '%')))
+            """)
+    Page<ProductWithStockProjection> findProductsWithStockByWarehouse(
+            @Param("warehouseId") UUID warehouseId,
+            @Param("tenantId") UUID tenantId,
+            @Param("search") String search,
+            Pageable pageable);
+
+    @Query("""
+            SELECT sb.warehouseId as warehouseId,
+                   COUNT(sb) as productCount,
+                   COALESCE(SUM(sb.batchCount), 0) as batchCount,
+                   COALESCE(SUM(sb.onHand), 0) as totalQuantity
+            FROM StockBalance sb
+            WHERE sb.tenantId = :tenantId
+              AND sb.warehouseId IN :warehouseIds
+              AND sb.batchCount > 0
+            GROUP BY sb.warehouseId
+            """)
+    List<WarehouseStockSummaryProjection> findStockSummaryByWarehouseIds(
+            @Param("tenantId") UUID tenantId,
+            @Param("warehouseIds") Collection<UUID> warehouseIds);
+
+    // Products with live batches and their stock on hand, over the tenant's balance rows
+    @Query("""
+            SELECT COUNT(DISTINCT sb.productId) as productCount,
+                   COALESCE(SUM(sb.onHand), 0) as totalQuantity
+            FROM StockBalance sb
+            WHERE sb.tenantId = :tenantId
+              AND sb.batchCount > 0
+            """)
+    StockBalanceTotalsProjection sumByTenant(@Param("tenantId") UUID tenantId);
+
+    // Same for one warehouse: a primary key range
+    @Query("""
+            SELECT COUNT(DISTINCT sb.productId) as productCount,
+                   COALESCE(SUM(sb.onHand), 0) as totalQuantity
+            FROM StockBalance sb
+            WHERE sb.tenantId = :tenantId
+              AND sb.warehouseId = :warehouseId
+              AND sb.batchCount > 0
+            """)
+    StockBalanceTotalsProjection sumByWarehouse(
+            @Param("tenantId") UUID tenantId,
+            @Param("warehouseId") UUID warehouseId);
+
+    // Balances that differ from the sums of the tenant's live batches, in either
+    // direction: a missing balance row shows up with zero balance figures.
+    @Query(value = """
+            SELECT COALESCE(sb.warehouse_id, b.warehouse_id) AS "warehouseId",
+                   COALESCE(sb.product_id, b.product_id) AS "productId",
+                   COALESCE(sb.on_hand, 0) AS "balanceOnHand",
+                   COALESCE(b.on_hand, 0) AS "batchOnHand",
+                   COALESCE(sb.in_transit, 0) AS "balanceInTransit",
+                   COALESCE(b.in_transit, 0) AS "batchInTransit",
+                   COALESCE(sb.value_at_cost, 0) AS "balanceValueAtCost",
+                   COALESCE(b.value_at_cost, 0) AS "batchValueAtCost",
+                   COALESCE(sb.batch_count, 0) AS "balanceBatchCount",
+                   COALESCE(b.batch_count, 0) AS "batchCount"
+            FROM (SELECT * FROM stock_balance_current WHERE tenant_id = :tenantId) sb
+            FULL OUTER JOIN (
+                SELECT warehouse_id, product_id,
+                       SUM(quantity) AS on_hand,
+                       SUM(transit_quantity) AS in_transit,
+                       SUM(quantity * COALESCE(cost_price, 0)) AS value_at_cost,
+                       COUNT(*) AS batch_count
+                FROM batches
+                WHERE tenant_id = :tenantId AND deleted_at IS NULL
+                GROUP BY warehouse_id, product_id
+            ) b ON b.warehouse_id = sb.warehouse_id AND b.product_id = sb.product_id
+            WHERE COALESCE(sb.on_hand, 0) <> COALESCE(b.on_hand, 0)
+               OR COALESCE(sb.in_transit, 0) <> COALESCE(b.in_transit, 0)
+               OR COALESCE(sb.value_at_cost, 0) <> COALESCE(b.value_at_cost, 0)
+               OR COALESCE(sb.batch_count, 0) <> COALESCE(b.batch_count, 0)
+            ORDER BY 1, 2
+            """, nativeQuery = true)
+    List<StockBalanceMismatchProjection> findMismatches(@Param("tenantId") UUID tenantId);
+
+    // Taken in shared mode by every batch write of the tenant (stock_balance_add, V40), so
+    // no delta of the tenant lands between a rebuild's delete and its re-insert
+    @Query(value = """
+            SELECT 1 FROM pg_advisory_xact_lock(
+                hashtextextended('stock_balance:' || CAST(:tenantId AS text), 0))
+            """, nativeQuery = true)
+    int lockTenantExclusive(@Param("tenantId") UUID tenantId);
+
+    // One fold at a time: two folds deleting the same deltas in different orders would deadlock
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtextextended('stock_balance_fold', 0))",
+            nativeQuery = true)
+    boolean tryLockFold();
+
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtextextended('stock_balance_fold', 0))",
+            nativeQuery = true)
+    int lockFold();
+
+    // Moves the committed deltas into stock_balance, one upsert per key, in key order
+    @Modifying
+    @Query(value = """
+            WITH folded AS (
+                DELETE FROM stock_balance_delta
+                RETURNING tenant_id, warehouse_id, product_id, on_hand, in_transit, value_at_cost, batch_count
+            )
+            INSERT INTO stock_balance AS sb (tenant_id, warehouse_id, product_id, on_hand, in_transit,
+                                             value_at_cost, batch_count, updated_at)
+            SELECT tenant_id, warehouse_id, product_id,
+                   SUM(on_hand), SUM(in_transit), SUM(value_at_cost), SUM(batch_count), CURRENT_TIMESTAMP
+            FROM folded
+            GROUP BY tenant_id, warehouse_id, product_id
+            ORDER BY tenant_id, warehouse_id, product_id
+            ON CONFLICT (tenant_id, warehouse_id, product_id)
+            DO UPDATE SET on_hand = sb.on_hand + EXCLUDED.on_hand,
+                          in_transit = sb.in_transit + EXCLUDED.in_transit,
+                          value_at_cost = sb.value_at_cost + EXCLUDED.value_at_cost,
+                          batch_count = sb.batch_count + EXCLUDED.batch_count,
+                          updated_at = CURRENT_TIMESTAMP
+            """, nativeQuery = true)
+    int foldDeltas();
+
+    @Modifying
+    @Query(value = "DELETE FROM stock_balance_delta WHERE tenant_id = :tenantId", nativeQuery = true)
+    int deleteDeltasByTenant(@Param("tenantId") UUID tenantId);
+
+    @Modifying
+    @Query(value = "DELETE FROM stock_balance WHERE tenant_id = :tenantId", nativeQuery = true)
+    int deleteByTenant(@Param("tenantId") UUID tenantId);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO stock_balance (tenant_id, warehouse_id, product_id, on_hand, in_transit,
+                                       value_at_cost, batch_count, updated_at)
+            SELECT tenant_id, warehouse_id, product_id,
+                   SUM(quantity), SUM(transit_quantity), SUM(quantity * COALESCE(cost_price, 0)), COUNT(*),
+                   CURRENT_TIMESTAMP
+            FROM batches
+            WHERE tenant_id = :tenantId AND deleted_at IS NULL
+            GROUP BY tenant_id, warehouse_id, product_id
+            """, nativeQuery = true)
+    int insertFromBatches(@Param("tenantId") UUID tenantId);
+}
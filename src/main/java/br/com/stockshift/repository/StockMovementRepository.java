@@ -1,5 +1,6 @@
 package br.com.stockshift.repository;
 
+import br.com.stockshift.dto.report.RecentLossProjection;
 import br.com.stockshift.model.entity.StockMovement;
 import br.com.stockshift.model.enums.StockMovementType;
 import org.springframework.data.domain.Page;
@@ -55,22 +56,6 @@ public interface StockMovementRepository extends JpaRepository<StockMovement, UU
             @Param("dateTo") LocalDateTime dateTo,
             Pageable pageable);
 
-    @Query("SELECT sm FROM StockMovement sm LEFT JOIN FETCH sm.items WHERE sm.tenantId = :tenantId " +
-            "AND sm.warehouseId IN :warehouseIds " +
-            "AND (CAST(:dateFrom AS string) IS NULL OR sm.createdAt >= :dateFrom) " +
-            "AND (CAST(:dateTo AS string) IS NULL OR sm.createdAt <= :dateTo)")
-    List<StockMovement> findForWarehouseSummary(
-            @Param("tenantId") UUID tenantId,
-            @Param("warehouseIds") List<UUID> warehouseIds,
-            @Param("dateFrom") LocalDateTime dateFrom,
-            @Param("dateTo") LocalDateTime dateTo);
-
-    @Query("SELECT sm.code FROM StockMovement sm WHERE sm.tenantId = :tenantId AND sm.code LIKE :prefix% ORDER BY sm.code DESC LIMIT 1")
-    String findLatestCodeByTenantIdAndCodePrefix(@Param("tenantId") UUID tenantId, @Param("prefix") String prefix);
-
-    @Query("SELECT COUNT(sm) FROM StockMovement sm WHERE sm.tenantId = :tenantId AND sm.code LIKE :prefix%")
-    long countByTenantIdAndCodePrefix(@Param("tenantId") UUID tenantId, @Param("prefix") String prefix);
-
     @Query("SELECT sm FROM StockMovement sm JOIN FETCH sm.items i WHERE sm.tenantId = :tenantId " +
             "AND (:warehouseId IS NULL OR sm.warehouseId = :warehouseId) " +
             "AND (:productId IS NULL OR i.productId = :productId) " +
@@ -87,18 +72,6 @@ public interface StockMovementRepository extends JpaRepository<StockMovement, UU
             @Param("dateTo") LocalDateTime dateTo,
             Pageable pageable);
 
-    @Query("SELECT sm.type, sm.direction, COALESCE(SUM(smi.quantity), 0) " +
-            "FROM StockMovement sm JOIN sm.items smi " +
-            "WHERE sm.tenantId = :tenantId " +
-            "AND (:warehouseId IS NULL OR sm.warehouseId = :warehouseId) " +
-            "AND sm.createdAt >= :startDate AND sm.createdAt < :endDate " +
-            "GROUP BY sm.type, sm.direction")
-    List<Object[]> sumMovementsByTypeAndPeriod(
-            @Param("tenantId") UUID tenantId,
-            @Param("warehouseId") UUID warehouseId,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate);
-
     @Query("SELECT COUNT(sm) FROM StockMovement sm " +
             "WHERE sm.tenantId = :tenantId " +
             "AND (:warehouseId IS NULL OR sm.warehouseId = :warehouseId) " +
@@ -109,31 +82,25 @@ public interface StockMovementRepository extends JpaRepository<StockMovement, UU
             @Param("startOfDay") LocalDateTime startOfDay,
             @Param("endOfDay") LocalDateTime endOfDay);
 
-    @Query("SELECT CAST(sm.createdAt AS LocalDate), sm.direction, COALESCE(SUM(smi.quantity), 0), COUNT(DISTINCT sm) " +
-            "FROM StockMovement sm JOIN sm.items smi " +
-            "WHERE sm.tenantId = :tenantId " +
-            "AND (:warehouseId IS NULL OR sm.warehouseId = :warehouseId) " +
-            "AND sm.createdAt >= :startDate AND sm.createdAt < :endDate " +
-            "GROUP BY CAST(sm.createdAt AS LocalDate), sm.direction " +
-            "ORDER BY CAST(sm.createdAt AS LocalDate)")
-    List<Object[]> getDailyMovementTrend(
-            @Param("tenantId") UUID tenantId,
-            @Param("warehouseId") UUID warehouseId,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate);
-
-    @Query("SELECT sm.type, smi.productName, smi.quantity, sm.createdAt, smi.batchId " +
+    // Losses priced at the cost of the batch they came from, newest first. The batch is
+    // joined in the same statement and the page size becomes a LIMIT, so the alert widget
+    // costs one query however many losses were recorded.
+    @Query("SELECT sm.type as movementType, smi.productName as productName, smi.quantity as quantity, " +
+            "sm.createdAt as createdAt, " +
+            "COALESCE(CAST(b.costPrice AS bigdecimal) * smi.quantity, 0) as lossValue " +
             "FROM StockMovement sm JOIN sm.items smi " +
+            "LEFT JOIN Batch b ON b.id = smi.batchId " +
             "WHERE sm.tenantId = :tenantId " +
             "AND (:warehouseId IS NULL OR sm.warehouseId = :warehouseId) " +
             "AND sm.type IN :lossTypes " +
             "AND sm.createdAt >= :since " +
             "ORDER BY sm.createdAt DESC")
-    List<Object[]> findRecentLosses(
+    List<RecentLossProjection> findRecentLossesWithValue(
             @Param("tenantId") UUID tenantId,
             @Param("warehouseId") UUID warehouseId,
             @Param("lossTypes") List<StockMovementType> lossTypes,
-            @Param("since") LocalDateTime since);
+            @Param("since") LocalDateTime since,
+            Pageable pageable);
 
     @Query("SELECT COALESCE(SUM(smi.quantity), 0) FROM StockMovement sm JOIN sm.items smi " +
             "WHERE sm.tenantId = :tenantId " +
@@ -146,28 +113,6 @@ public interface StockMovementRepository extends JpaRepository<StockMovement, UU
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
 
-    @Query("SELECT sm.type, COUNT(sm) FROM StockMovement sm " +
-            "WHERE sm.tenantId = :tenantId " +
-            "AND (:warehouseId IS NULL OR sm.warehouseId = :warehouseId) " +
-            "AND sm.createdAt >= :startDate AND sm.createdAt < :endDate " +
-            "GROUP BY sm.type")
-    List<Object[]> countMovementsByTypeAndPeriod(
-            @Param("tenantId") UUID tenantId,
-            @Param("warehouseId") UUID warehouseId,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate);
-
-    @Query("SELECT sm.type, COUNT(sm) FROM StockMovement sm " +
-            "WHERE sm.tenantId = :tenantId " +
-            "AND sm.warehouseId IN :warehouseIds " +
-            "AND sm.createdAt >= :startDate AND sm.createdAt < :endDate " +
-            "GROUP BY sm.type")
-    List<Object[]> countMovementsByTypeAndPeriodByWarehouseIds(
-            @Param("tenantId") UUID tenantId,
-            @Param("warehouseIds") Collection<UUID> warehouseIds,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate);
-
     @Query("SELECT COUNT(DISTINCT sm.referenceId) FROM StockMovement sm " +
             "WHERE sm.tenantId = :tenantId " +
             "AND sm.referenceType = 'TRANSFER' " +
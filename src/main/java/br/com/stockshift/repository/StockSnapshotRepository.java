@@ -0,0 +1,122 @@
+package br.com.stockshift.repository;
+
+import br.com.stockshift.dto.report.StockReportRowProjection;
+import br.com.stockshift.model.entity.StockSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshot, StockSnapshot.StockSnapshotId> {
+
+    @Query("SELECT MAX(s.snapshotDate) FROM StockSnapshot s WHERE s.tenantId = :tenantId")
+    LocalDate findLatestDate(@Param("tenantId") UUID tenantId);
+
+    @Query("""
+            SELECT MAX(s.snapshotDate) FROM StockSnapshot s
+            WHERE s.tenantId = :tenantId AND s.snapshotDate <= :date
+            """)
+    LocalDate findLatestDateOnOrBefore(@Param("tenantId") UUID tenantId, @Param("date") LocalDate date);
+
+    // 0 when the day is already snapshotted; a concurrent writer of the same day waits
+    // here for the other to commit, then skips it
+    @Modifying
+    @Query(value = """
+            INSERT INTO stock_snapshot (tenant_id, snapshot_date, created_at)
+            VALUES (:tenantId, :snapshotDate, CURRENT_TIMESTAMP)
+            ON CONFLICT (tenant_id, snapshot_date) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("tenantId") UUID tenantId, @Param("snapshotDate") LocalDate snapshotDate);
+
+    // The balances of `previousDate` (none when null) plus the net of the ledger entries
+    // created in [since, until); reads archived months too, for a first snapshot
+    @Modifying
+    @Query(value = """
+            INSERT INTO stock_snapshot_batch (tenant_id, snapshot_date, batch_id, quantity)
+            SELECT :tenantId, :snapshotDate, batch_id, SUM(quantity)
+            FROM (
+                SELECT batch_id, quantity
+                FROM stock_snapshot_batch
+                WHERE tenant_id = :tenantId AND snapshot_date = CAST(:previousDate AS date)
+                UNION ALL
+                SELECT batch_id, CASE WHEN entry_type IN (:debitTypes) THEN -quantity ELSE quantity END
+                FROM inventory_ledger_history
+                WHERE tenant_id = :tenantId
+                  AND created_at >= :since
+                  AND created_at < :until
+                  AND batch_id IS NOT NULL
+            ) entries
+            GROUP BY batch_id
+            HAVING SUM(quantity) <> 0
+            """, nativeQuery = true)
+    int insertBatchBalances(
+            @Param("tenantId") UUID tenantId,
+            @Param("snapshotDate") LocalDate snapshotDate,
+            @Param("previousDate") LocalDate previousDate,
+            @Param("since") LocalDateTime since,
+            @Param("until") LocalDateTime until,
+            @Param("debitTypes") Collection<String> debitTypes);
+
+    // Days before `before` that are not the last of their month; their balances go with them
+    @Modifying
+    @Query(value = """
+            DELETE FROM stock_snapshot
+            WHERE tenant_id = :tenantId
+              AND snapshot_date < :before
+              AND EXTRACT(DAY FROM snapshot_date + 1) <> 1
+            """, nativeQuery = true)
+    int deleteDailyBefore(@Param("tenantId") UUID tenantId, @Param("before") LocalDate before);
+
+    // Stock report rows (product x warehouse) from the balances of `snapshotDate` (none
+    // when null) plus the ledger entries created in [since, until). Batches are read
+    // deleted or not: one deleted since still held its stock then.
+    @Query(value = """
+            WITH balances AS (
+                SELECT batch_id, SUM(quantity) AS quantity
+                FROM (
+                    SELECT batch_id, quantity
+                    FROM stock_snapshot_batch
+                    WHERE tenant_id = :tenantId AND snapshot_date = CAST(:snapshotDate AS date)
+                    UNION ALL
+                    SELECT batch_id, CASE WHEN entry_type IN (:debitTypes) THEN -quantity ELSE quantity END
+                    FROM inventory_ledger_history
+                    WHERE tenant_id = :tenantId
+                      AND created_at >= :since
+                      AND created_at < :until
+                      AND batch_id IS NOT NULL
+                ) entries
+                GROUP BY batch_id
+                HAVING SUM(quantity) <> 0
+            )
+            SELECT p.id AS "productId",
+                   p.name AS "productName",
+                   w.id AS "warehouseId",
+                   w.name AS "warehouseName",
+                   SUM(bal.quantity) AS "totalQuantity",
+                   SUM(bal.quantity * COALESCE(b.cost_price, 0)) AS "totalValue",
+                   MIN(b.expiration_date) AS "nearestExpiration",
+                   COUNT(*) AS "batchCount"
+            FROM balances bal
+            JOIN batches b ON b.id = bal.batch_id AND b.tenant_id = :tenantId
+            JOIN products p ON p.id = b.product_id
+            JOIN warehouses w ON w.id = b.warehouse_id
+            WHERE (CAST(:warehouseId AS uuid) IS NULL OR b.warehouse_id = CAST(:warehouseId AS uuid))
+            GROUP BY p.id, p.name, w.id, w.name
+            ORDER BY p.name, p.id, w.id
+            """, nativeQuery = true)
+    List<StockReportRowProjection> findStockAsOf(
+            @Param("tenantId") UUID tenantId,
+            @Param("warehouseId") UUID warehouseId,
+            @Param("snapshotDate") LocalDate snapshotDate,
+            @Param("since") LocalDateTime since,
+            @Param("until") LocalDateTime until,
+            @Param("debitTypes") Collection<String> debitTypes);
+}
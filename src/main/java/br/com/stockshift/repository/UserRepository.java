@@ -1,9 +1,12 @@
 package br.com.stockshift.repository;
 
+import br.com.stockshift.dto.ReferenceNameProjection;
 import br.com.stockshift.model.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,4 +17,7 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
     List<User> findAllByTenantId(UUID tenantId);
     Optional<User> findByTenantIdAndId(UUID tenantId, UUID id);
+
+    @Query("SELECT u.id as id, u.fullName as name FROM User u WHERE u.tenantId = :tenantId AND u.id IN :ids")
+    List<ReferenceNameProjection> findNamesByTenantIdAndIdIn(UUID tenantId, Collection<UUID> ids);
 }
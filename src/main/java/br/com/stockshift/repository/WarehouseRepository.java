@@ -1,10 +1,12 @@
 package br.com.stockshift.repository;
 
+import br.com.stockshift.dto.ReferenceNameProjection;
 import br.com.stockshift.model.entity.Warehouse;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -39,4 +41,7 @@ public interface WarehouseRepository extends JpaRepository<Warehouse, UUID> {
             ORDER BY w.name ASC
             """)
     List<Warehouse> searchActiveByTenantId(UUID tenantId, String query);
+
+    @Query("SELECT w.id as id, w.name as name FROM Warehouse w WHERE w.tenantId = :tenantId AND w.id IN :ids")
+    List<ReferenceNameProjection> findNamesByTenantIdAndIdIn(UUID tenantId, Collection<UUID> ids);
 }
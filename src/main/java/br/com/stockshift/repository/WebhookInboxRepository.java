@@ -0,0 +1,91 @@
+package br.com.stockshift.repository;
+
+import br.com.stockshift.dto.sale.WebhookInboxStatsProjection;
+import br.com.stockshift.model.entity.WebhookInboxEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface WebhookInboxRepository extends JpaRepository<WebhookInboxEntry, UUID> {
+
+    // Appends a delivery. A redelivery of a notification that already exists is a
+    // no-op, unless the earlier one gave up (FAILED), which puts it back in the queue.
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO webhook_inbox (id, source, webhook_token_hash, order_nsu, transaction_nsu, payload,
+                                       status, attempts, next_attempt_at, received_at)
+            VALUES (gen_random_uuid(), :source, :webhookTokenHash, :orderNsu, :transactionNsu, CAST(:payload AS jsonb),
+                    'PENDING', 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+            ON CONFLICT (source, webhook_token_hash, order_nsu, transaction_nsu)
+            DO UPDATE SET status = 'PENDING', attempts = 0, next_attempt_at = CURRENT_TIMESTAMP,
+                          payload = EXCLUDED.payload, last_error = NULL, processed_at = NULL
+            WHERE webhook_inbox.status = 'FAILED'
+            """, nativeQuery = true)
+    int enqueue(
+            @Param("source") String source,
+            @Param("webhookTokenHash") String webhookTokenHash,
+            @Param("orderNsu") String orderNsu,
+            @Param("transactionNsu") String transactionNsu,
+            @Param("payload") String payload);
+
+    // Claims up to :limit due rows for this worker. SKIP LOCKED lets concurrent pollers
+    // (threads or nodes) take disjoint rows without waiting on each other; the lease
+    // makes rows of a worker that died mid-processing claimable again.
+    @Transactional
+    @Query(value = """
+            WITH claimed AS (
+                UPDATE webhook_inbox
+                SET status = 'PROCESSING',
+                    attempts = attempts + 1,
+                    locked_until = CURRENT_TIMESTAMP + make_interval(secs => :leaseSeconds)
+                WHERE id IN (
+                    SELECT id FROM webhook_inbox
+                    WHERE (status = 'PENDING' AND next_attempt_at <= CURRENT_TIMESTAMP)
+                       OR (status = 'PROCESSING' AND locked_until < CURRENT_TIMESTAMP)
+                    ORDER BY next_attempt_at
+                    LIMIT :limit
+                    FOR UPDATE SKIP LOCKED
+                )
+                RETURNING *
+            )
+            SELECT * FROM claimed ORDER BY received_at
+            """, nativeQuery = true)
+    List<WebhookInboxEntry> claimDue(@Param("limit") int limit, @Param("leaseSeconds") long leaseSeconds);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE webhook_inbox SET status = 'DONE', processed_at = CURRENT_TIMESTAMP, " +
+            "locked_until = NULL, last_error = NULL WHERE id = :id", nativeQuery = true)
+    int markDone(@Param("id") UUID id);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE webhook_inbox SET status = 'PENDING', locked_until = NULL, last_error = :error, " +
+            "next_attempt_at = CURRENT_TIMESTAMP + make_interval(secs => :delaySeconds) WHERE id = :id",
+            nativeQuery = true)
+    int reschedule(@Param("id") UUID id, @Param("delaySeconds") long delaySeconds, @Param("error") String error);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE webhook_inbox SET status = 'FAILED', processed_at = CURRENT_TIMESTAMP, " +
+            "locked_until = NULL, last_error = :error WHERE id = :id", nativeQuery = true)
+    int markFailed(@Param("id") UUID id, @Param("error") String error);
+
+    @Query("SELECT COUNT(e) as depth, MIN(e.receivedAt) as oldestReceivedAt FROM WebhookInboxEntry e " +
+            "WHERE e.status IN ('PENDING', 'PROCESSING')")
+    WebhookInboxStatsProjection findQueueStats();
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM webhook_inbox WHERE status = 'DONE' AND processed_at < :cutoff", nativeQuery = true)
+    int deleteProcessedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -17,6 +17,11 @@ public class PermissionGuard {
         return authorities.contains("ROLE_ADMIN") || authorities.contains("ROLE_SUPER_ADMIN");
     }
 
+    // Operators of the whole installation; a tenant's ADMIN role does not qualify
+    public boolean isPlatformAdmin() {
+        return currentAuthorities().contains("ROLE_SUPER_ADMIN");
+    }
+
     public boolean has(String requiredAuthority) {
         return hasAny(requiredAuthority);
     }
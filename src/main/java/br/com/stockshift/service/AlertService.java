@@ -1,6 +1,7 @@
 package br.com.stockshift.service;
 
 import br.com.stockshift.dto.ReconciliationResult;
+import br.com.stockshift.dto.warehouse.StockBalanceMismatchProjection;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -22,4 +23,9 @@ public class AlertService {
         }
         // TODO: Integrate with actual alerting system (email, Slack, PagerDuty, etc.)
     }
+
+    // StockBalanceService.verify has already logged each mismatch at WARN
+    public void sendStockBalanceAlert(String subject, List<StockBalanceMismatchProjection> mismatches) {
+        log.error("CRITICAL ALERT: {} - {} mismatches found", subject, mismatches.size());
+    }
 }
@@ -0,0 +1,66 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.model.entity.Batch;
+import br.com.stockshift.repository.BatchRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Takes the batch row locks of a stock-mutating command.
+ *
+ * <p>Every batch the command touches is locked up front in a single
+ * {@code SELECT ... FOR UPDATE} ordered by id. Since all commands acquire their locks
+ * in that same order, two commands over overlapping batches queue behind each other
+ * instead of deadlocking, and a command pays one lock round trip instead of one per
+ * item. Must be called inside the command's transaction; the locks are held until it
+ * ends.
+ */
+@Component
+@RequiredArgsConstructor
+public class BatchLockManager {
+
+    private final BatchRepository batchRepository;
+
+    /**
+     * Locks the given batches and returns them by id, in lock order. Ids that do not
+     * exist are absent from the map; callers decide how to report them.
+     */
+    public Map<UUID, Batch> lock(Collection<UUID> batchIds) {
+        Set<UUID> ids = new HashSet<>();
+        for (UUID id : batchIds) {
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        Map<UUID, Batch> locked = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return locked;
+        }
+        for (Batch batch : batchRepository.findAllByIdInForUpdate(ids)) {
+            locked.put(batch.getId(), batch);
+        }
+        return locked;
+    }
+
+    /**
+     * Locks every batch a deduction can draw from: the given batches plus all in-stock
+     * batches of {@code fifoProductIds} in the warehouse. Returned in lock order.
+     */
+    public List<Batch> lockForDeduction(UUID tenantId, UUID warehouseId,
+                                        Collection<UUID> batchIds, Collection<UUID> fifoProductIds) {
+        if (batchIds.isEmpty() && fifoProductIds.isEmpty()) {
+            return List.of();
+        }
+        return batchRepository.findForCheckoutForUpdate(tenantId, warehouseId,
+                batchIds.stream().filter(Objects::nonNull).toList(), fifoProductIds);
+    }
+}
@@ -2,12 +2,13 @@ package br.com.stockshift.service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -51,22 +52,19 @@ public class BatchService {
     private final SecurityUtils securityUtils;
     private final AuditService auditService;
     private final AuditSnapshotService auditSnapshotService;
+    private final DocumentCodeSequencer documentCodeSequencer;
+    private final StockBalanceService stockBalanceService;
+    private final ReportCache reportCache;
 
     /**
      * Generates a unique batch code in the format: BATCH-YYYYMMDD-XXX
-     * where XXX is a sequential number for the day
+     * where XXX comes from the per-tenant daily sequence. A manually entered code
+     * may already use the next number, so skip over any code that is taken.
      */
     private String generateBatchCode(UUID tenantId) {
-        String datePrefix = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String baseCode = "BATCH-" + datePrefix;
-
-        int sequence = 1;
         String batchCode;
-
-        // Find next available sequence number
         do {
-            batchCode = String.format("%s-%03d", baseCode, sequence);
-            sequence++;
+            batchCode = documentCodeSequencer.nextBatchCode(tenantId);
         } while (batchRepository.findByTenantIdAndBatchCode(tenantId, batchCode).isPresent());
 
         return batchCode;
@@ -116,6 +114,7 @@ public class BatchService {
         Batch saved = batchRepository.save(batch);
         recordBatchAudit("BATCH_CREATED", null, auditSnapshotService.snapshot(saved), saved.getId());
         log.info("Created batch {} for tenant {}", saved.getId(), tenantId);
+        reportCache.invalidateAfterCommit(tenantId);
 
         return mapToResponse(saved);
     }
@@ -190,45 +189,48 @@ public class BatchService {
     }
 
     @Transactional(readOnly = true)
-    public List<BatchResponse> findExpiringBatches(Integer daysAhead) {
+    public List<BatchResponse> findExpiringBatches(Integer daysAhead, Integer limit) {
         UUID tenantId = TenantContext.getTenantId();
-        UUID currentWarehouseId = resolveCurrentWarehouseId();
+        UUID warehouseId = resolveAlertWarehouseId();
         LocalDate startDate = LocalDate.now();
         LocalDate endDate = startDate.plusDays(daysAhead);
 
-        List<Batch> batches = batchRepository.findExpiringBatches(startDate, endDate, tenantId);
-        if (currentWarehouseId != null) {
-            batches = batches.stream()
-                    .filter(batch -> currentWarehouseId.equals(batch.getWarehouse().getId()))
-                    .collect(Collectors.toList());
-        } else if (!warehouseAccessService.hasFullAccess()) {
-            throw new UnauthorizedException("No active warehouse context");
-        }
-
+        List<Batch> batches = warehouseId == null
+                ? batchRepository.findExpiringBatches(tenantId, startDate, endDate, firstRows(limit))
+                : batchRepository.findExpiringBatchesByWarehouse(tenantId, warehouseId, startDate, endDate,
+                        firstRows(limit));
         return batches.stream()
                 .map(this::mapToResponse)
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
-    public List<BatchResponse> findLowStock(Integer threshold) {
+    public List<BatchResponse> findLowStock(Integer threshold, Integer limit) {
         UUID tenantId = TenantContext.getTenantId();
-        UUID currentWarehouseId = resolveCurrentWarehouseId();
-
-        List<Batch> batches = batchRepository.findLowStock(threshold, tenantId);
-        if (currentWarehouseId != null) {
-            batches = batches.stream()
-                    .filter(batch -> currentWarehouseId.equals(batch.getWarehouse().getId()))
-                    .collect(Collectors.toList());
-        } else if (!warehouseAccessService.hasFullAccess()) {
-            throw new UnauthorizedException("No active warehouse context");
-        }
+        UUID warehouseId = resolveAlertWarehouseId();
 
+        BigDecimal maxQuantity = BigDecimal.valueOf(threshold);
+        List<Batch> batches = warehouseId == null
+                ? batchRepository.findLowStock(tenantId, maxQuantity, firstRows(limit))
+                : batchRepository.findLowStockByWarehouse(tenantId, warehouseId, maxQuantity, firstRows(limit));
         return batches.stream()
                 .map(this::mapToResponse)
                 .collect(Collectors.toList());
     }
 
+    /** The current warehouse, or null (whole tenant) for users with access to every warehouse. */
+    private UUID resolveAlertWarehouseId() {
+        UUID currentWarehouseId = resolveCurrentWarehouseId();
+        if (currentWarehouseId == null && !warehouseAccessService.hasFullAccess()) {
+            throw new UnauthorizedException("No active warehouse context");
+        }
+        return currentWarehouseId;
+    }
+
+    private Pageable firstRows(Integer limit) {
+        return limit != null ? PageRequest.of(0, Math.max(1, limit)) : Pageable.unpaged();
+    }
+
     @Transactional
     public BatchResponse update(UUID id, BatchRequest request) {
         UUID tenantId = TenantContext.getTenantId();
@@ -274,6 +276,7 @@ public class BatchService {
             var after = auditSnapshotService.snapshot(updated);
             recordBatchAudit("BATCH_UPDATED", before, after, updated.getId());
             log.info("Updated batch {} for tenant {}", id, tenantId);
+            reportCache.invalidateAfterCommit(tenantId);
             return mapToResponse(updated);
         } catch (ObjectOptimisticLockingFailureException e) {
             throw new BusinessException("Batch was modified by another transaction. Please retry.");
@@ -292,6 +295,7 @@ public class BatchService {
         batchRepository.delete(batch);
         recordBatchAudit("BATCH_DELETED", before, null, id);
         log.info("Deleted batch {} for tenant {}", id, tenantId);
+        reportCache.invalidateAfterCommit(tenantId);
     }
 
     @Transactional
@@ -327,6 +331,7 @@ public class BatchService {
 
         log.info("Soft deleted {} batches for product {} in warehouse {} for tenant {}",
             deletedCount, productId, warehouseId, tenantId);
+        reportCache.invalidateAfterCommit(tenantId);
 
         return new BatchDeletionResponse(
             "Successfully deleted " + deletedCount + " batches",
@@ -423,6 +428,7 @@ public class BatchService {
         recordBatchAudit("BATCH_CREATED", null, auditSnapshotService.snapshot(savedBatch), savedBatch.getId());
         log.info("Created product {} with batch {} for tenant {}",
                 productResponse.getId(), savedBatch.getId(), tenantId);
+        reportCache.invalidateAfterCommit(tenantId);
 
         return ProductBatchResponse.builder()
                 .product(productResponse)
@@ -526,12 +532,7 @@ public class BatchService {
     }
 
     public BigDecimal getAvailableQuantity(UUID productId, UUID warehouseId, UUID tenantId) {
-        List<Batch> batches = batchRepository.findByProductIdAndWarehouseIdAndTenantId(
-            productId, warehouseId, tenantId);
-
-        return batches.stream()
-            .map(Batch::getQuantity)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return stockBalanceService.getOnHand(tenantId, warehouseId, productId);
     }
 
     private void recordBatchAudit(String action, Map<String, Object> before, Map<String, Object> after, UUID batchId) {
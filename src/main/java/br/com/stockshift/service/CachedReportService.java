@@ -0,0 +1,89 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.dto.report.DashboardAlertsResponse;
+import br.com.stockshift.dto.report.DashboardKpisResponse;
+import br.com.stockshift.dto.report.DashboardResponse;
+import br.com.stockshift.dto.report.DashboardSummaryResponse;
+import br.com.stockshift.dto.report.MovementTrendResponse;
+import br.com.stockshift.exception.UnauthorizedException;
+import br.com.stockshift.security.SecurityUtils;
+import br.com.stockshift.security.TenantContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Serves the polled dashboard endpoints through {@link ReportCache}.
+ *
+ * <p>The cache key scope is derived from the security context only, so a hit never
+ * touches the database: the current warehouse for the warehouse-scoped endpoints, and
+ * for the dashboard either the whole tenant (full access) or the calling user, whose
+ * accessible warehouses define the dashboard scope. Requests without a valid scope
+ * fall through to {@link ReportService}, which rejects them. Keys include the current
+ * date because every payload is relative to today.
+ */
+@Service
+@RequiredArgsConstructor
+public class CachedReportService {
+
+    private static final String TENANT_SCOPE = "all";
+
+    private final ReportService reportService;
+    private final ReportCache reportCache;
+    private final SecurityUtils securityUtils;
+    private final WarehouseAccessService warehouseAccessService;
+
+    public DashboardResponse getDashboard() {
+        String scope = warehouseAccessService.hasFullAccess()
+                ? TENANT_SCOPE
+                : "user-" + securityUtils.getCurrentUserId();
+        return cached("dashboard", scope, "", DashboardResponse.class, reportService::getDashboard);
+    }
+
+    public DashboardSummaryResponse getSummary() {
+        return cachedForWarehouse("summary", "", DashboardSummaryResponse.class, reportService::getSummary);
+    }
+
+    public DashboardKpisResponse getKpis() {
+        return cachedForWarehouse("kpis", "", DashboardKpisResponse.class, reportService::getKpis);
+    }
+
+    public DashboardAlertsResponse getAlerts() {
+        return cachedForWarehouse("alerts", "", DashboardAlertsResponse.class, reportService::getAlerts);
+    }
+
+    public MovementTrendResponse getMovementTrend(Integer days) {
+        return cachedForWarehouse("movement-trend", String.valueOf(days), MovementTrendResponse.class,
+                () -> reportService.getMovementTrend(days));
+    }
+
+    private <T> T cachedForWarehouse(String endpoint, String params, Class<T> type,
+                                     Supplier<T> loader) {
+        UUID warehouseId = resolveCurrentWarehouseId();
+        if (warehouseId == null && !warehouseAccessService.hasFullAccess()) {
+            return loader.get();
+        }
+        String scope = warehouseId != null ? warehouseId.toString() : TENANT_SCOPE;
+        return cached(endpoint, scope, params, type, loader);
+    }
+
+    private <T> T cached(String endpoint, String scope, String params, Class<T> type,
+                         Supplier<T> loader) {
+        UUID tenantId = TenantContext.getTenantId();
+        if (tenantId == null) {
+            return loader.get();
+        }
+        return reportCache.get(tenantId, endpoint, scope, LocalDate.now() + ":" + params, type, loader);
+    }
+
+    private UUID resolveCurrentWarehouseId() {
+        try {
+            return securityUtils.getCurrentWarehouseId();
+        } catch (UnauthorizedException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.dto.warehouse.BatchStockCandidateProjection;
+import br.com.stockshift.exception.InsufficientStockException;
+import br.com.stockshift.model.entity.Batch;
+import br.com.stockshift.model.entity.Product;
+import br.com.stockshift.repository.BatchRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Deducts stock without locking batches up front (stock deduction mode CONDITIONAL).
+ *
+ * <p>Candidates are read without locks and every deduction is a guarded
+ * {@code UPDATE ... WHERE quantity >= :q}. When the guard fails because a concurrent
+ * transaction took the stock first, allocation moves on to the next FIFO batch, and
+ * re-reads the candidates if the whole list was consumed under it. The row lock taken
+ * by the UPDATE is still held until commit, but only for the batches actually used
+ * and only from the deduction onwards.
+ *
+ * <p>The guarded UPDATE is native and bypasses the persistence context, so a batch
+ * entity already loaded in the transaction is refreshed after each deduction; otherwise
+ * a later flush would write its stale quantity back or fail on its stale version.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConditionalStockDeductionService {
+
+    private static final int MAX_FIFO_ATTEMPTS = 5;
+
+    /** Oldest batch first. */
+    public static final Comparator<BatchStockCandidateProjection> CREATED_AT_ORDER = Comparator
+            .comparing(BatchStockCandidateProjection::getCreatedAt, Comparator.nullsLast(Comparator.<LocalDateTime>naturalOrder()));
+
+    /** Earliest expiration first (no expiration last), then oldest batch first. */
+    public static final Comparator<BatchStockCandidateProjection> EXPIRATION_ORDER = Comparator
+            .comparing(BatchStockCandidateProjection::getExpirationDate, Comparator.nullsLast(Comparator.<LocalDate>naturalOrder()))
+            .thenComparing(CREATED_AT_ORDER);
+
+    private final BatchRepository batchRepository;
+    private final EntityManager entityManager;
+
+    public List<StockDeduction> deductFifo(Product product, UUID warehouseId, UUID tenantId,
+                                           BigDecimal quantity,
+                                           Comparator<BatchStockCandidateProjection> order) {
+        List<StockDeduction> deductions = new ArrayList<>();
+        BigDecimal remaining = quantity;
+
+        for (int attempt = 1; attempt <= MAX_FIFO_ATTEMPTS && remaining.compareTo(BigDecimal.ZERO) > 0; attempt++) {
+            List<BatchStockCandidateProjection> candidates = new ArrayList<>(
+                    batchRepository.findFifoCandidates(product.getId(), warehouseId, tenantId));
+            candidates.sort(order);
+
+            BigDecimal totalAvailable = candidates.stream()
+                    .map(BatchStockCandidateProjection::getQuantity)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            if (totalAvailable.compareTo(remaining) < 0) {
+                throw new InsufficientStockException(
+                        "Insufficient stock for product '" + product.getName()
+                                + "'. Available: " + totalAvailable
+                                + ", Required: " + remaining);
+            }
+
+            for (BatchStockCandidateProjection candidate : candidates) {
+                if (remaining.compareTo(BigDecimal.ZERO) <= 0) break;
+
+                BigDecimal deductAmount = remaining.min(candidate.getQuantity());
+                BigDecimal balanceAfter = batchRepository.deductIfAvailable(candidate.getId(), deductAmount)
+                        .orElse(null);
+                if (balanceAfter == null) {
+                    // Taken by a concurrent transaction since it was read; try the next batch
+                    log.debug("Conditional deduction of {} from batch {} lost the race (attempt {})",
+                            deductAmount, candidate.getBatchCode(), attempt);
+                    continue;
+                }
+
+                refreshIfLoaded(candidate.getId());
+                deductions.add(new StockDeduction(candidate.getId(), candidate.getBatchCode(),
+                        candidate.getSellingPrice(), deductAmount, balanceAfter));
+                remaining = remaining.subtract(deductAmount);
+            }
+        }
+
+        if (remaining.compareTo(BigDecimal.ZERO) > 0) {
+            throw new InsufficientStockException(
+                    "Insufficient stock for product '" + product.getName()
+                            + "': stock kept changing under concurrent sales, "
+                            + remaining + " could not be reserved");
+        }
+        return deductions;
+    }
+
+    public StockDeduction deductFromBatch(Batch batch, Product product, BigDecimal quantity) {
+        BigDecimal balanceAfter = batchRepository.deductIfAvailable(batch.getId(), quantity)
+                .orElseThrow(() -> new InsufficientStockException(
+                        "Insufficient stock for product '" + product.getName()
+                                + "' in batch " + batch.getBatchCode()
+                                + ". Required: " + quantity));
+        refreshIfLoaded(batch.getId());
+        return new StockDeduction(batch.getId(), batch.getBatchCode(), batch.getSellingPrice(),
+                quantity, balanceAfter);
+    }
+
+    private void refreshIfLoaded(UUID batchId) {
+        // getReference returns the managed instance when there is one, else an unloaded proxy
+        Batch managed = entityManager.getReference(Batch.class, batchId);
+        if (Hibernate.isInitialized(managed)) {
+            entityManager.refresh(managed);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.config.DocumentCodeProperties;
+import br.com.stockshift.repository.DocumentCodeSequenceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Issues human-readable document codes ({@code VND-2026-0001}, {@code MOV-2026-0001},
+ * {@code TRF-2026-0001}, {@code BATCH-20260101-001}) per tenant.
+ *
+ * <p>Numbers come from the {@code document_code_sequences} counter table in blocks of
+ * {@link DocumentCodeProperties#getBlockSize()}; each node serves its block from memory
+ * with an atomic counter and only goes back to the database once the block is used up.
+ * Blocks handed to different nodes never overlap, so codes are collision-free across
+ * nodes. Codes are unique but not gap-free: numbers left in a block when a node stops,
+ * or consumed by a rolled-back transaction, are skipped.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentCodeSequencer {
+
+    public static final String SALE_PREFIX = "VND";
+    public static final String MOVEMENT_PREFIX = "MOV";
+    public static final String TRANSFER_PREFIX = "TRF";
+    public static final String BATCH_PREFIX = "BATCH";
+
+    private static final int YEARLY_CODE_PADDING = 4;
+    private static final int BATCH_CODE_PADDING = 3;
+    private static final DateTimeFormatter DAY_PERIOD = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final DocumentCodeSequenceRepository sequenceRepository;
+    private final DocumentCodeProperties properties;
+    private final Map<SequenceKey, Sequence> sequences = new ConcurrentHashMap<>();
+
+    public String nextSaleCode(UUID tenantId) {
+        return next(tenantId, SALE_PREFIX, yearPeriod(), YEARLY_CODE_PADDING);
+    }
+
+    public String nextMovementCode(UUID tenantId) {
+        return next(tenantId, MOVEMENT_PREFIX, yearPeriod(), YEARLY_CODE_PADDING);
+    }
+
+    public String nextTransferCode(UUID tenantId) {
+        return next(tenantId, TRANSFER_PREFIX, yearPeriod(), YEARLY_CODE_PADDING);
+    }
+
+    public String nextBatchCode(UUID tenantId) {
+        return next(tenantId, BATCH_PREFIX, LocalDate.now().format(DAY_PERIOD), BATCH_CODE_PADDING);
+    }
+
+    /**
+     * Best-effort preview of the next sale code without consuming it. Another terminal
+     * (or another node) may take that number before this client creates its sale.
+     */
+    public String peekSaleCode(UUID tenantId) {
+        String period = yearPeriod();
+        Sequence sequence = sequences.get(new SequenceKey(tenantId, SALE_PREFIX, period));
+        if (sequence != null) {
+            Block block = sequence.block;
+            long candidate = block.next.get();
+            if (candidate <= block.last) {
+                return format(SALE_PREFIX, period, candidate, YEARLY_CODE_PADDING);
+            }
+        }
+        long lastValue = sequenceRepository.findLastValue(tenantId, SALE_PREFIX, period).orElse(0L);
+        return format(SALE_PREFIX, period, lastValue + 1, YEARLY_CODE_PADDING);
+    }
+
+    private String next(UUID tenantId, String prefix, String period, int padding) {
+        SequenceKey key = new SequenceKey(tenantId, prefix, period);
+        Sequence sequence = sequences.get(key);
+        if (sequence == null) {
+            // A new period (year or day) started: drop the finished periods of this
+            // tenant/prefix so the map stays bounded by active tenants.
+            sequences.keySet().removeIf(existing -> existing.isPreviousPeriodOf(key));
+            sequence = sequences.computeIfAbsent(key, ignored -> new Sequence());
+        }
+        long value = sequence.next(() -> allocateBlock(key));
+        return format(prefix, period, value, padding);
+    }
+
+    private Block allocateBlock(SequenceKey key) {
+        int blockSize = Math.max(1, properties.getBlockSize());
+        Long last = sequenceRepository.allocateBlock(key.tenantId(), key.prefix(), key.period(), blockSize);
+        if (last == null) {
+            throw new IllegalStateException("Could not reserve " + key.prefix() + " codes for tenant "
+                    + key.tenantId() + " in period " + key.period());
+        }
+        log.debug("Reserved {} codes {}..{} for tenant {} period {}",
+                key.prefix(), last - blockSize + 1, last, key.tenantId(), key.period());
+        return new Block(last - blockSize + 1, last);
+    }
+
+    private String yearPeriod() {
+        return String.valueOf(LocalDate.now().getYear());
+    }
+
+    private String format(String prefix, String period, long value, int padding) {
+        return prefix + "-" + period + "-" + String.format("%0" + padding + "d", value);
+    }
+
+    private record SequenceKey(UUID tenantId, String prefix, String period) {
+
+        boolean isPreviousPeriodOf(SequenceKey other) {
+            return tenantId.equals(other.tenantId) && prefix.equals(other.prefix) && !period.equals(other.period);
+        }
+    }
+
+    private static final class Block {
+
+        private final AtomicLong next;
+        private final long last;
+
+        private Block(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+    }
+
+    private static final class Sequence {
+
+        // Starts exhausted so the first call reserves a block.
+        private volatile Block block = new Block(1, 0);
+
+        long next(Supplier<Block> refill) {
+            while (true) {
+                Block current = block;
+                long value = current.next.getAndIncrement();
+                if (value <= current.last) {
+                    return value;
+                }
+                synchronized (this) {
+                    // Only the first thread that sees the exhausted block refills it;
+                    // the others loop and draw from the new block.
+                    if (block == current) {
+                        block = refill.get();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.dto.report.KpiPeriodData;
+import br.com.stockshift.dto.report.MovementTypeTotalProjection;
+import br.com.stockshift.model.entity.KpiPeriodSnapshot;
+import br.com.stockshift.model.enums.StockMovementType;
+import br.com.stockshift.repository.BatchRepository;
+import br.com.stockshift.repository.KpiPeriodSnapshotRepository;
+import br.com.stockshift.repository.MovementDailyRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Monthly KPI figures of the dashboard ({@link ReportService#getKpis()}).
+ *
+ * <p>The open month is aggregated live from {@code movement_daily_rollup}. A closed month never
+ * changes, so it is aggregated once and kept in {@code kpi_period_snapshot}: by
+ * {@code KpiPeriodCloseJob} right after the month ends, or lazily the first time a month
+ * without snapshot is read (older history, new warehouses, a missed job run). Stock and
+ * transit values are point-in-time figures, so a snapshot holds the values of the moment
+ * it was taken.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class KpiSnapshotService {
+
+    /** Warehouse key of the tenant-wide figures (no current warehouse, full access). */
+    static final UUID ALL_WAREHOUSES = new UUID(0L, 0L);
+
+    private final BatchRepository batchRepository;
+    private final MovementDailyRollupRepository movementDailyRollupRepository;
+    private final KpiPeriodSnapshotRepository snapshotRepository;
+
+    /** Aggregates the figures of the days {@code [from, to]} from the daily movement rollup. */
+    public KpiPeriodData aggregate(UUID tenantId, UUID warehouseId, LocalDate from, LocalDate to) {
+        List<MovementTypeTotalProjection> typeRows = movementDailyRollupRepository.typeTotals(tenantId, warehouseId, from, to);
+
+        BigDecimal purchasesValue = BigDecimal.ZERO;
+        BigDecimal lossesValue = BigDecimal.ZERO;
+        BigDecimal damageValue = BigDecimal.ZERO;
+        BigDecimal giftValue = BigDecimal.ZERO;
+        BigDecimal adjustmentValue = BigDecimal.ZERO;
+        BigDecimal totalOutQuantity = BigDecimal.ZERO;
+
+        for (MovementTypeTotalProjection row : typeRows) {
+            StockMovementType type = row.getType();
+            BigDecimal quantity = row.getItemQuantity();
+            if (type == StockMovementType.PURCHASE_IN) purchasesValue = quantity;
+            if (type == StockMovementType.LOSS) lossesValue = quantity;
+            if (type == StockMovementType.DAMAGE) damageValue = quantity;
+            if (type == StockMovementType.GIFT) giftValue = quantity;
+            if (type == StockMovementType.ADJUSTMENT_IN || type == StockMovementType.ADJUSTMENT_OUT) {
+                adjustmentValue = adjustmentValue.add(quantity);
+            }
+            if (type.isDebit()) {
+                totalOutQuantity = totalOutQuantity.add(quantity);
+            }
+        }
+
+        BigDecimal currentStockValue = batchRepository.sumStockValue(tenantId, warehouseId);
+        BigDecimal transitValue = batchRepository.sumTransitQuantity(tenantId, warehouseId);
+
+        BigDecimal turnoverRate = BigDecimal.ZERO;
+        if (currentStockValue != null && currentStockValue.compareTo(BigDecimal.ZERO) > 0) {
+            turnoverRate = totalOutQuantity.divide(currentStockValue, 2, RoundingMode.HALF_UP);
+        }
+
+        return KpiPeriodData.builder()
+                .totalStockValue(currentStockValue)
+                .totalPurchasesValue(purchasesValue)
+                .totalLossesValue(lossesValue)
+                .totalDamageValue(damageValue)
+                .totalGiftValue(giftValue)
+                .totalAdjustmentValue(adjustmentValue)
+                .totalTransitValue(transitValue)
+                .stockTurnoverRate(turnoverRate)
+                .build();
+    }
+
+    /** The snapshot of a closed month, if it was taken already. */
+    @Transactional(readOnly = true)
+    public Optional<KpiPeriodData> findClosed(UUID tenantId, UUID warehouseId, YearMonth month) {
+        return snapshotRepository.findById(new KpiPeriodSnapshot.KpiPeriodSnapshotId(
+                        tenantId, warehouseKey(warehouseId), month.atDay(1)))
+                .map(this::toPeriodData);
+    }
+
+    /** Stores the figures of a closed month unless a snapshot exists already. */
+    @Transactional
+    public void store(UUID tenantId, UUID warehouseId, YearMonth month, KpiPeriodData data) {
+        if (!month.isBefore(YearMonth.now())) {
+            throw new IllegalArgumentException("Only closed months can be snapshotted: " + month);
+        }
+        snapshotRepository.insertIfAbsent(
+                tenantId,
+                warehouseKey(warehouseId),
+                month.atDay(1),
+                zeroIfNull(data.getTotalStockValue()),
+                zeroIfNull(data.getTotalPurchasesValue()),
+                zeroIfNull(data.getTotalLossesValue()),
+                zeroIfNull(data.getTotalDamageValue()),
+                zeroIfNull(data.getTotalGiftValue()),
+                zeroIfNull(data.getTotalAdjustmentValue()),
+                zeroIfNull(data.getTotalTransitValue()),
+                zeroIfNull(data.getStockTurnoverRate()));
+    }
+
+    /** Aggregates and stores a closed month that has no snapshot yet; used by the closer job. */
+    @Transactional
+    public boolean close(UUID tenantId, UUID warehouseId, YearMonth month) {
+        if (findClosed(tenantId, warehouseId, month).isPresent()) {
+            return false;
+        }
+        store(tenantId, warehouseId, month, aggregate(tenantId, warehouseId, month.atDay(1), month.atEndOfMonth()));
+        return true;
+    }
+
+    private KpiPeriodData toPeriodData(KpiPeriodSnapshot snapshot) {
+        return KpiPeriodData.builder()
+                .totalStockValue(snapshot.getStockValue())
+                .totalPurchasesValue(snapshot.getPurchasesValue())
+                .totalLossesValue(snapshot.getLossesValue())
+                .totalDamageValue(snapshot.getDamageValue())
+                .totalGiftValue(snapshot.getGiftValue())
+                .totalAdjustmentValue(snapshot.getAdjustmentValue())
+                .totalTransitValue(snapshot.getTransitValue())
+                .stockTurnoverRate(snapshot.getStockTurnoverRate())
+                .build();
+    }
+
+    private UUID warehouseKey(UUID warehouseId) {
+        return warehouseId != null ? warehouseId : ALL_WAREHOUSES;
+    }
+
+    private BigDecimal zeroIfNull(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,54 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.config.LedgerPartitionProperties;
+import br.com.stockshift.repository.InventoryLedgerRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+/**
+ * Keeps the monthly partitions of {@code inventory_ledger} ahead of the clock and moves
+ * months past the retention to {@code inventory_ledger_archive}. Both steps are
+ * idempotent; a run that fails is simply repeated by the next one.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerPartitionService {
+
+    private final InventoryLedgerRepository ledgerRepository;
+    private final LedgerPartitionProperties properties;
+
+    /** Creates the missing partitions from the current month on; returns how many were created. */
+    @Transactional
+    public int ensureFuturePartitions() {
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        int created = 0;
+        for (int i = 0; i <= properties.getMonthsAhead(); i++) {
+            if (ledgerRepository.ensurePartition(currentMonth.plusMonths(i))) {
+                created++;
+            }
+        }
+        if (created > 0) {
+            log.info("Created {} inventory ledger partitions", created);
+        }
+        return created;
+    }
+
+    /** Moves the months past the retention to the archive; returns how many were moved. */
+    @Transactional
+    public int archiveExpiredPartitions() {
+        if (properties.getArchiveAfterMonths() <= 0) {
+            return 0;
+        }
+        LocalDate cutoff = LocalDate.now().withDayOfMonth(1).minusMonths(properties.getArchiveAfterMonths() - 1L);
+        int moved = ledgerRepository.archivePartitionsBefore(cutoff);
+        if (moved > 0) {
+            log.info("Archived {} inventory ledger partitions before {}", moved, cutoff);
+        }
+        return moved;
+    }
+}
@@ -1,28 +1,155 @@
 package br.com.stockshift.service;
 
-import br.com.stockshift.model.entity.InventoryLedger;
+import br.com.stockshift.dto.ledger.LedgerEntryResponse;
+import br.com.stockshift.dto.ledger.LedgerPageResponse;
+import br.com.stockshift.exception.BadRequestException;
 import br.com.stockshift.repository.InventoryLedgerRepository;
+import br.com.stockshift.security.TenantContext;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+/**
+ * Reads the inventory ledger of the current tenant, newest first, for one batch,
+ * warehouse or product. Browsing goes page by page in keyset order; exports stream a
+ * whole date range through a database cursor. Neither holds more than a page or a fetch
+ * of entries in memory.
+ *
+ * <p>Date ranges are {@code [from, to)}; a null bound leaves that side open.
+ */
 @Service
 @RequiredArgsConstructor
 public class LedgerQueryService {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    // Open bounds, kept as values so the partitions outside a given range are still pruned
+    private static final LocalDateTime OPEN_FROM = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime OPEN_TO = LocalDateTime.of(9999, 1, 1, 0, 0);
+    // Smallest UUID: (to, MIN_ID) comes before every entry created at `to`
+    private static final UUID MIN_ID = new UUID(0L, 0L);
+
     private final InventoryLedgerRepository ledgerRepository;
 
-    public List<InventoryLedger> findByBatchId(UUID batchId) {
-        return ledgerRepository.findByBatchIdOrderByCreatedAtDesc(batchId);
+    /**
+     * One page of a batch's ledger. {@code cursor} is the {@code nextCursor} of the
+     * previous page (null for the first).
+     */
+    @Transactional(readOnly = true)
+    public LedgerPageResponse findByBatchId(UUID batchId, LocalDateTime from, LocalDateTime to,
+                                            String cursor, Integer limit) {
+        return page(to, cursor, limit, (before, pageRequest) -> ledgerRepository.findPageByBatchId(
+                TenantContext.getTenantId(), batchId, fromOrOpen(from), before.createdAt(), before.id(),
+                pageRequest));
+    }
+
+    /** One page of a warehouse's ledger, like {@link #findByBatchId}. */
+    @Transactional(readOnly = true)
+    public LedgerPageResponse findByWarehouseId(UUID warehouseId, LocalDateTime from, LocalDateTime to,
+                                                String cursor, Integer limit) {
+        return page(to, cursor, limit, (before, pageRequest) -> ledgerRepository.findPageByWarehouseId(
+                TenantContext.getTenantId(), warehouseId, fromOrOpen(from), before.createdAt(), before.id(),
+                pageRequest));
+    }
+
+    /** One page of a product's ledger, like {@link #findByBatchId}. */
+    @Transactional(readOnly = true)
+    public LedgerPageResponse findByProductId(UUID productId, LocalDateTime from, LocalDateTime to,
+                                              String cursor, Integer limit) {
+        return page(to, cursor, limit, (before, pageRequest) -> ledgerRepository.findPageByProductId(
+                TenantContext.getTenantId(), productId, fromOrOpen(from), before.createdAt(), before.id(),
+                pageRequest));
+    }
+
+    /**
+     * Passes every entry of a warehouse's ledger in the range to {@code consumer}, newest
+     * first, and returns how many there were. The consumer runs inside the read
+     * transaction, so it should write the entry out rather than keep it.
+     */
+    @Transactional(readOnly = true)
+    public long exportByWarehouseId(UUID warehouseId, LocalDateTime from, LocalDateTime to,
+                                    Consumer<LedgerEntryResponse> consumer) {
+        try (Stream<LedgerEntryResponse> entries = ledgerRepository.streamByWarehouseId(
+                TenantContext.getTenantId(), warehouseId, fromOrOpen(from), toOrOpen(to))) {
+            return export(entries, consumer);
+        }
+    }
+
+    /** Exports a product's ledger like {@link #exportByWarehouseId}. */
+    @Transactional(readOnly = true)
+    public long exportByProductId(UUID productId, LocalDateTime from, LocalDateTime to,
+                                  Consumer<LedgerEntryResponse> consumer) {
+        try (Stream<LedgerEntryResponse> entries = ledgerRepository.streamByProductId(
+                TenantContext.getTenantId(), productId, fromOrOpen(from), toOrOpen(to))) {
+            return export(entries, consumer);
+        }
+    }
+
+    private LedgerPageResponse page(LocalDateTime to, String cursor, Integer limit, PageQuery query) {
+        int pageSize = limit != null ? Math.max(1, Math.min(limit, MAX_PAGE_SIZE)) : DEFAULT_PAGE_SIZE;
+        LedgerCursor before = cursor == null || cursor.isBlank()
+                ? new LedgerCursor(toOrOpen(to), MIN_ID)
+                : decodeCursor(cursor);
+
+        // One extra row tells whether another page follows
+        List<LedgerEntryResponse> rows = query.find(before, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        List<LedgerEntryResponse> items = hasMore ? rows.subList(0, pageSize) : rows;
+
+        return LedgerPageResponse.builder()
+                .items(items)
+                .nextCursor(hasMore ? encodeCursor(items.get(items.size() - 1)) : null)
+                .build();
+    }
+
+    private static long export(Stream<LedgerEntryResponse> entries, Consumer<LedgerEntryResponse> consumer) {
+        long[] count = {0};
+        entries.forEach(entry -> {
+            consumer.accept(entry);
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    private static LocalDateTime fromOrOpen(LocalDateTime from) {
+        return from != null ? from : OPEN_FROM;
+    }
+
+    private static LocalDateTime toOrOpen(LocalDateTime to) {
+        return to != null ? to : OPEN_TO;
+    }
+
+    @FunctionalInterface
+    private interface PageQuery {
+        List<LedgerEntryResponse> find(LedgerCursor before, PageRequest pageRequest);
+    }
+
+    private record LedgerCursor(LocalDateTime createdAt, UUID id) {
     }
 
-    public List<InventoryLedger> findByWarehouseId(UUID warehouseId) {
-        return ledgerRepository.findByWarehouseIdOrderByCreatedAtDesc(warehouseId);
+    private static String encodeCursor(LedgerEntryResponse entry) {
+        String key = entry.createdAt() + "|" + entry.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
     }
 
-    public List<InventoryLedger> findByProductId(UUID productId) {
-        return ledgerRepository.findByProductIdOrderByCreatedAtDesc(productId);
+    private static LedgerCursor decodeCursor(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = key.split("\\|", 2);
+            return new LedgerCursor(LocalDateTime.parse(parts[0]), UUID.fromString(parts[1]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid ledger cursor");
+        }
     }
 }
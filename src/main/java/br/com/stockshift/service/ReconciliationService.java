@@ -1,17 +1,22 @@
 package br.com.stockshift.service;
 
+import br.com.stockshift.config.ReconciliationProperties;
+import br.com.stockshift.dto.BatchLedgerBalanceProjection;
 import br.com.stockshift.dto.ReconciliationResult;
-import br.com.stockshift.model.entity.Batch;
-import br.com.stockshift.model.entity.InventoryLedger;
-import br.com.stockshift.repository.BatchRepository;
+import br.com.stockshift.model.entity.ReconciliationCheckpoint;
+import br.com.stockshift.model.enums.LedgerEntryType;
+import br.com.stockshift.repository.BatchBalanceCheckpointRepository;
 import br.com.stockshift.repository.InventoryLedgerRepository;
+import br.com.stockshift.repository.ReconciliationCheckpointRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -20,51 +25,105 @@ import java.util.UUID;
 @Slf4j
 public class ReconciliationService {
 
-    private final BatchRepository batchRepository;
+    // Entry types that take stock out of a batch; the ledger queries subtract these
+    static final List<String> DEBIT_ENTRY_TYPES = Arrays.stream(LedgerEntryType.values())
+        .filter(LedgerEntryType::isDebit)
+        .map(Enum::name)
+        .toList();
+
+    // High-water mark of a tenant that has never been reconciled incrementally
+    static final LocalDateTime LEDGER_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
     private final InventoryLedgerRepository ledgerRepository;
+    private final ReconciliationCheckpointRepository checkpointRepository;
+    private final BatchBalanceCheckpointRepository batchCheckpointRepository;
+    private final ReconciliationProperties properties;
 
     @Transactional(readOnly = true)
     public List<ReconciliationResult> reconcileTenant(UUID tenantId) {
         log.info("Starting reconciliation for tenant {}", tenantId);
+        long start = System.nanoTime();
 
-        List<Batch> batches = batchRepository.findAllByTenantId(tenantId);
-        List<ReconciliationResult> discrepancies = new ArrayList<>();
+        List<ReconciliationResult> discrepancies =
+            toResults(ledgerRepository.findLedgerMismatchesByTenant(tenantId, DEBIT_ENTRY_TYPES));
 
-        for (Batch batch : batches) {
-            BigDecimal calculatedQuantity = calculateQuantityFromLedger(batch.getId());
-            BigDecimal materializedQuantity = batch.getQuantity();
-
-            if (calculatedQuantity.compareTo(materializedQuantity) != 0) {
-                BigDecimal difference = materializedQuantity.subtract(calculatedQuantity);
-                discrepancies.add(new ReconciliationResult(
-                    batch.getId(),
-                    batch.getBatchCode(),
-                    materializedQuantity,
-                    calculatedQuantity,
-                    difference
-                ));
-                log.warn("Discrepancy found in batch {}: materialized={}, calculated={}, diff={}",
-                    batch.getBatchCode(), materializedQuantity, calculatedQuantity, difference);
-            }
+        log.info("Reconciliation complete for tenant {} in {} ms. Found {} discrepancies",
+            tenantId, (System.nanoTime() - start) / 1_000_000, discrepancies.size());
+        return discrepancies;
+    }
+
+    /**
+     * Checks only the batches with ledger entries or updates since the tenant's last run.
+     * Ledger entries older than the settle window are added to the batch checkpoints and
+     * the high-water mark advances to the start of the window; newer ones are summed on
+     * top of the checkpoints and again on the next run, as they may still be committing.
+     */
+    @Transactional
+    public List<ReconciliationResult> reconcileTenantIncremental(UUID tenantId) {
+        long start = System.nanoTime();
+
+        checkpointRepository.insertIfAbsent(tenantId, LEDGER_START);
+        ReconciliationCheckpoint checkpoint = checkpointRepository.findByTenantIdForUpdate(tenantId)
+            .orElseThrow(() -> new IllegalStateException("Reconciliation checkpoint missing for tenant " + tenantId));
+        LocalDateTime since = checkpoint.getLedgerHighWater();
+        LocalDateTime through = LocalDateTime.now().minus(properties.getSettleWindow());
+
+        int updated = 0;
+        if (through.isAfter(since)) {
+            updated = batchCheckpointRepository.addLedgerDelta(tenantId, since, through, DEBIT_ENTRY_TYPES);
+            checkpoint.setLedgerHighWater(through);
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+        } else {
+            through = since;
         }
 
-        log.info("Reconciliation complete for tenant {}. Found {} discrepancies",
-            tenantId, discrepancies.size());
+        List<ReconciliationResult> discrepancies = toResults(
+            batchCheckpointRepository.findMismatchesTouchedSince(tenantId, since, through, DEBIT_ENTRY_TYPES));
+
+        log.info("Incremental reconciliation for tenant {} since {} in {} ms: {} checkpoints updated, "
+                + "{} discrepancies", tenantId, since, (System.nanoTime() - start) / 1_000_000, updated,
+            discrepancies.size());
         return discrepancies;
     }
 
+    /**
+     * Drops the tenant's checkpoints and rebuilds them from its whole ledger, checking
+     * every batch. Repairs checkpoints that missed an entry committed after its run.
+     */
+    @Transactional
+    public List<ReconciliationResult> rebuildCheckpoint(UUID tenantId) {
+        checkpointRepository.insertIfAbsent(tenantId, LEDGER_START);
+        ReconciliationCheckpoint checkpoint = checkpointRepository.findByTenantIdForUpdate(tenantId)
+            .orElseThrow(() -> new IllegalStateException("Reconciliation checkpoint missing for tenant " + tenantId));
+        batchCheckpointRepository.deleteByTenant(tenantId);
+        checkpoint.setLedgerHighWater(LEDGER_START);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointRepository.flush();
+
+        return reconcileTenantIncremental(tenantId);
+    }
+
+    @Transactional(readOnly = true)
     public BigDecimal calculateQuantityFromLedger(UUID batchId) {
-        List<InventoryLedger> entries = ledgerRepository.findByBatchId(batchId);
-
-        BigDecimal total = BigDecimal.ZERO;
-        for (InventoryLedger entry : entries) {
-            if (entry.getEntryType().isDebit()) {
-                total = total.subtract(entry.getQuantity());
-            } else {
-                total = total.add(entry.getQuantity());
-            }
-        }
+        return ledgerRepository.sumQuantityByBatchId(batchId, DEBIT_ENTRY_TYPES);
+    }
 
-        return total;
+    private List<ReconciliationResult> toResults(List<BatchLedgerBalanceProjection> batches) {
+        List<ReconciliationResult> discrepancies = new ArrayList<>();
+        for (BatchLedgerBalanceProjection batch : batches) {
+            BigDecimal materializedQuantity = batch.getMaterializedQuantity();
+            BigDecimal calculatedQuantity = batch.getCalculatedQuantity();
+            BigDecimal difference = materializedQuantity.subtract(calculatedQuantity);
+            discrepancies.add(new ReconciliationResult(
+                batch.getBatchId(),
+                batch.getBatchCode(),
+                materializedQuantity,
+                calculatedQuantity,
+                difference
+            ));
+            log.warn("Discrepancy found in batch {}: materialized={}, calculated={}, diff={}",
+                batch.getBatchCode(), materializedQuantity, calculatedQuantity, difference);
+        }
+        return discrepancies;
     }
 }
@@ -0,0 +1,116 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.config.ReferenceNameProperties;
+import br.com.stockshift.dto.ReferenceNameProjection;
+import br.com.stockshift.repository.UserRepository;
+import br.com.stockshift.repository.WarehouseRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Resolves the display names of warehouses and users referenced by list responses.
+ *
+ * <p>Callers pass every id referenced by a page at once; ids that are not cached are
+ * loaded with one {@code IN} query per entity type, so a page costs a constant number
+ * of queries instead of one lookup per row. Names are cached per tenant for
+ * {@link ReferenceNameProperties#getTtl()}; ids that do not resolve fall back to the
+ * same placeholders the services used before and are not cached.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReferenceNameResolver {
+
+    public static final String UNKNOWN_WAREHOUSE = "Unknown";
+    public static final String UNKNOWN_USER = "Desconhecido";
+
+    private final WarehouseRepository warehouseRepository;
+    private final UserRepository userRepository;
+    private final ReferenceNameProperties properties;
+    private final Map<CacheKey, CachedName> cache = new ConcurrentHashMap<>();
+
+    public Map<UUID, String> warehouseNames(UUID tenantId, Collection<UUID> warehouseIds) {
+        return resolve(ReferenceType.WAREHOUSE, tenantId, warehouseIds,
+                warehouseRepository::findNamesByTenantIdAndIdIn, UNKNOWN_WAREHOUSE);
+    }
+
+    public Map<UUID, String> userNames(UUID tenantId, Collection<UUID> userIds) {
+        return resolve(ReferenceType.USER, tenantId, userIds,
+                userRepository::findNamesByTenantIdAndIdIn, UNKNOWN_USER);
+    }
+
+    public String warehouseName(UUID tenantId, UUID warehouseId) {
+        if (warehouseId == null) {
+            return UNKNOWN_WAREHOUSE;
+        }
+        return warehouseNames(tenantId, List.of(warehouseId)).get(warehouseId);
+    }
+
+    public void evictWarehouse(UUID tenantId, UUID warehouseId) {
+        cache.remove(new CacheKey(ReferenceType.WAREHOUSE, tenantId, warehouseId));
+    }
+
+    public void evictUser(UUID tenantId, UUID userId) {
+        cache.remove(new CacheKey(ReferenceType.USER, tenantId, userId));
+    }
+
+    private Map<UUID, String> resolve(
+            ReferenceType type,
+            UUID tenantId,
+            Collection<UUID> ids,
+            BiFunction<UUID, Collection<UUID>, List<ReferenceNameProjection>> loader,
+            String fallback) {
+        Map<UUID, String> names = new HashMap<>();
+        Set<UUID> missing = new HashSet<>();
+        long now = System.nanoTime();
+
+        for (UUID id : ids) {
+            if (id == null || names.containsKey(id)) {
+                continue;
+            }
+            CachedName cached = cache.get(new CacheKey(type, tenantId, id));
+            if (cached != null && cached.expiresAt() - now > 0) {
+                names.put(id, cached.name());
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            if (cache.size() + missing.size() > properties.getMaxEntries()) {
+                cache.clear();
+            }
+            long expiresAt = now + properties.getTtl().toNanos();
+            for (ReferenceNameProjection row : loader.apply(tenantId, missing)) {
+                String name = Objects.requireNonNullElse(row.getName(), fallback);
+                names.put(row.getId(), name);
+                cache.put(new CacheKey(type, tenantId, row.getId()), new CachedName(name, expiresAt));
+            }
+            for (UUID id : missing) {
+                names.putIfAbsent(id, fallback);
+            }
+        }
+        return names;
+    }
+
+    private enum ReferenceType {
+        WAREHOUSE,
+        USER
+    }
+
+    private record CacheKey(ReferenceType type, UUID tenantId, UUID id) {
+    }
+
+    private record CachedName(String name, long expiresAt) {
+    }
+}
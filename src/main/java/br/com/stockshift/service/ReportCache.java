@@ -0,0 +1,134 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.config.ReportCacheProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier cache for dashboard responses: node-local memory in front of Redis.
+ *
+ * <p>Every key embeds the tenant's current version, a counter kept in Redis and bumped
+ * after each committed stock change ({@link #invalidateAfterCommit(UUID)}). Bumping the
+ * version makes every cached response of the tenant unreachable on all nodes at once;
+ * the orphaned entries simply expire. Reading the version costs one Redis round trip
+ * per request and no database access. If Redis is unavailable responses are computed
+ * directly (fail-open), since a node cannot tell whether its entries are still current.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReportCache {
+
+    private static final String VERSION_KEY_PREFIX = "report:version:";
+    private static final String ENTRY_KEY_PREFIX = "report:cache:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final ReportCacheProperties properties;
+    private final Map<String, CachedReport> local = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cached response for (tenant, endpoint, scope, params), computing and
+     * storing it with {@code loader} on a miss.
+     */
+    public <T> T get(UUID tenantId, String endpoint, String scope, String params,
+                     Class<T> type, Supplier<T> loader) {
+        if (!properties.isEnabled()) {
+            return loader.get();
+        }
+        String version = currentVersion(tenantId);
+        if (version == null) {
+            return loader.get();
+        }
+
+        String key = ENTRY_KEY_PREFIX + tenantId + ":" + version + ":" + endpoint + ":" + scope + ":" + params;
+        long now = System.nanoTime();
+        CachedReport cached = local.get(key);
+        if (cached != null && cached.expiresAt() - now > 0) {
+            return type.cast(cached.value());
+        }
+
+        T value = readShared(key, type);
+        if (value == null) {
+            value = loader.get();
+            writeShared(key, value);
+        }
+        if (local.size() >= properties.getLocalMaxEntries()) {
+            local.clear();
+        }
+        local.put(key, new CachedReport(value, now + properties.getTtl().toNanos()));
+        return value;
+    }
+
+    /**
+     * Bumps the tenant version once the surrounding transaction commits, so a rolled back
+     * command leaves the cache alone. Outside a transaction the version is bumped at once.
+     */
+    public void invalidateAfterCommit(UUID tenantId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(tenantId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(tenantId);
+            }
+        });
+    }
+
+    public void invalidate(UUID tenantId) {
+        if (tenantId == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().increment(VERSION_KEY_PREFIX + tenantId);
+        } catch (Exception e) {
+            log.error("Failed to bump report cache version for tenant {}. Error: {}", tenantId, e.getMessage());
+        }
+    }
+
+    private String currentVersion(UUID tenantId) {
+        try {
+            String version = redisTemplate.opsForValue().get(VERSION_KEY_PREFIX + tenantId);
+            return version != null ? version : "0";
+        } catch (Exception e) {
+            log.warn("Failed to read report cache version for tenant {}. Computing report (fail-open). Error: {}",
+                    tenantId, e.getMessage());
+            return null;
+        }
+    }
+
+    private <T> T readShared(String key, Class<T> type) {
+        try {
+            String json = redisTemplate.opsForValue().get(key);
+            return json != null ? objectMapper.readValue(json, type) : null;
+        } catch (Exception e) {
+            log.warn("Failed to read cached report {}. Error: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeShared(String key, Object value) {
+        try {
+            redisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(value),
+                    properties.getTtl().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("Failed to store cached report {}. Error: {}", key, e.getMessage());
+        }
+    }
+
+    private record CachedReport(Object value, long expiresAt) {
+    }
+}
@@ -0,0 +1,162 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.config.ReportQueryExecutorConfig;
+import br.com.stockshift.config.ReportQueryProperties;
+import br.com.stockshift.exception.ReportTimeoutException;
+import br.com.stockshift.security.TenantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs the independent read-only queries of a report in parallel.
+ *
+ * <p>A report opens a {@link Scope}, forks its queries and joins them; its latency is
+ * then bounded by the slowest query instead of the sum of all of them. Every query runs
+ * on a {@code report-query-} worker in its own read-only transaction, and so on its own
+ * connection, with the tenant of the calling thread. The whole scope shares one
+ * deadline ({@link ReportQueryProperties#getDeadline()}); when it passes, or a query
+ * fails, the remaining queries are cancelled and the report fails. When the pool is
+ * saturated a query runs on the calling thread instead of being rejected.
+ */
+@Component
+@Slf4j
+public class ReportQueryExecutor {
+
+    private final AsyncTaskExecutor executor;
+    private final PlatformTransactionManager transactionManager;
+    private final ReportQueryProperties properties;
+
+    public ReportQueryExecutor(
+            @Qualifier(ReportQueryExecutorConfig.REPORT_QUERY_EXECUTOR) AsyncTaskExecutor executor,
+            PlatformTransactionManager transactionManager,
+            ReportQueryProperties properties) {
+        this.executor = executor;
+        this.transactionManager = transactionManager;
+        this.properties = properties;
+    }
+
+    public Scope open() {
+        return new Scope(System.nanoTime() + properties.getDeadline().toNanos());
+    }
+
+    /**
+     * The queries of one report. Not thread-safe: fork and join from the request thread,
+     * and read results only after {@link #join()}.
+     */
+    public final class Scope implements AutoCloseable {
+
+        private final long deadline;
+        private final List<Future<?>> forked = new ArrayList<>();
+
+        private Scope(long deadline) {
+            this.deadline = deadline;
+        }
+
+        public <T> Supplier<T> fork(Supplier<T> query) {
+            UUID tenantId = TenantContext.getTenantId();
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            // Lets the JPA provider apply a statement timeout matching the remaining time
+            transactionTemplate.setTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining())));
+
+            Future<T> future;
+            try {
+                future = executor.submit(() -> {
+                    UUID previousTenantId = TenantContext.getTenantId();
+                    TenantContext.setTenantId(tenantId);
+                    try {
+                        return transactionTemplate.execute(status -> query.get());
+                    } finally {
+                        if (previousTenantId != null) {
+                            TenantContext.setTenantId(previousTenantId);
+                        } else {
+                            TenantContext.clear();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                log.debug("Report query pool saturated; running query on the request thread");
+                future = runInline(transactionTemplate, query);
+            }
+            forked.add(future);
+            Future<T> result = future;
+            return () -> {
+                try {
+                    return result.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ReportTimeoutException("Report interrupted");
+                } catch (ExecutionException e) {
+                    throw unwrap(e);
+                }
+            };
+        }
+
+        /** Waits for every forked query; fails fast on the first error or at the deadline. */
+        public void join() {
+            for (Future<?> future : forked) {
+                try {
+                    future.get(Math.max(0, remaining()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    cancelAll();
+                    throw new ReportTimeoutException("Report took longer than " + properties.getDeadline().toMillis()
+                            + " ms to assemble. Please try again in a few moments.");
+                } catch (InterruptedException e) {
+                    cancelAll();
+                    Thread.currentThread().interrupt();
+                    throw new ReportTimeoutException("Report interrupted");
+                } catch (ExecutionException e) {
+                    cancelAll();
+                    throw unwrap(e);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            cancelAll();
+        }
+
+        private long remaining() {
+            return deadline - System.nanoTime();
+        }
+
+        private void cancelAll() {
+            forked.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private <T> Future<T> runInline(TransactionTemplate transactionTemplate, Supplier<T> query) {
+        try {
+            return CompletableFuture.completedFuture(transactionTemplate.execute(status -> query.get()));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new RuntimeException(cause);
+    }
+}
@@ -1,16 +1,24 @@
 package br.com.stockshift.service;
 
+import br.com.stockshift.dto.report.BatchReportRowProjection;
 import br.com.stockshift.dto.report.DashboardAlertsResponse;
 import br.com.stockshift.dto.report.DashboardKpisResponse;
 import br.com.stockshift.dto.report.DashboardResponse;
+import br.com.stockshift.dto.report.DashboardStockTotalsProjection;
 import br.com.stockshift.dto.report.DashboardSummaryResponse;
 import br.com.stockshift.dto.report.DailyMovement;
 import br.com.stockshift.dto.report.KpiPeriodData;
 import br.com.stockshift.dto.report.KpiVariations;
+import br.com.stockshift.dto.report.MovementDailyTotalProjection;
 import br.com.stockshift.dto.report.MovementTotals;
 import br.com.stockshift.dto.report.MovementTrendResponse;
+import br.com.stockshift.dto.report.MovementTypeTotalProjection;
 import br.com.stockshift.dto.report.RecentMovementAlert;
+import br.com.stockshift.dto.report.StockReportPageResponse;
 import br.com.stockshift.dto.report.StockReportResponse;
+import br.com.stockshift.dto.report.StockReportRowProjection;
+import br.com.stockshift.dto.warehouse.StockBalanceTotalsProjection;
+import br.com.stockshift.exception.BadRequestException;
 import br.com.stockshift.exception.UnauthorizedException;
 import br.com.stockshift.model.entity.Batch;
 import br.com.stockshift.model.entity.StockMovement;
@@ -19,6 +27,8 @@ import br.com.stockshift.model.enums.MovementDirection;
 import br.com.stockshift.model.enums.StockMovementType;
 import br.com.stockshift.model.enums.TransferStatus;
 import br.com.stockshift.repository.BatchRepository;
+import br.com.stockshift.repository.MovementDailyRollupRepository;
+import br.com.stockshift.repository.StockBalanceRepository;
 import br.com.stockshift.repository.StockMovementRepository;
 import br.com.stockshift.repository.TransferRepository;
 import br.com.stockshift.repository.WarehouseRepository;
@@ -30,20 +40,29 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.DayOfWeek;
+import java.time.YearMonth;
 import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -53,107 +72,303 @@ public class ReportService {
 
     private static final int DASHBOARD_RECENT_MOVEMENTS_LIMIT = 5;
     private static final int DASHBOARD_RECENT_MOVEMENTS_FETCH_SIZE = 20;
+    private static final int DASHBOARD_RECENT_LOSSES_LIMIT = 10;
+    private static final BigDecimal DASHBOARD_LOW_STOCK_THRESHOLD = BigDecimal.TEN;
+    private static final int DASHBOARD_EXPIRING_DAYS_AHEAD = 30;
+    private static final int STOCK_REPORT_DEFAULT_PAGE_SIZE = 100;
+    private static final int STOCK_REPORT_MAX_PAGE_SIZE = 1000;
+    private static final int STOCK_REPORT_STREAM_CHUNK_SIZE = 500;
     private static final Set<StockMovementType> TRANSFER_MOVEMENT_TYPES = Set.of(
             StockMovementType.TRANSFER_IN,
             StockMovementType.TRANSFER_OUT
     );
 
     private final BatchRepository batchRepository;
+    private final StockBalanceRepository stockBalanceRepository;
     private final StockMovementRepository stockMovementRepository;
+    private final MovementDailyRollupRepository movementDailyRollupRepository;
     private final TransferRepository transferRepository;
     private final WarehouseRepository warehouseRepository;
     private final SecurityUtils securityUtils;
     private final WarehouseAccessService warehouseAccessService;
     private final PermissionResolverService permissionResolverService;
+    private final ReportQueryExecutor reportQueryExecutor;
+    private final KpiSnapshotService kpiSnapshotService;
+    private final StockSnapshotService stockSnapshotService;
 
-    @Transactional(readOnly = true)
     public DashboardResponse getDashboard() {
         UUID tenantId = TenantContext.getTenantId();
         DashboardWarehouseScope dashboardScope = resolveDashboardWarehouseScope(tenantId);
-        List<Batch> allBatches = resolveBatchesForDashboard(tenantId, dashboardScope);
         List<Warehouse> warehouses = dashboardScope.warehouses();
-
-        long totalProducts = allBatches.stream()
-                .map(batch -> batch.getProduct().getId())
-                .distinct()
-                .count();
-        long activeProducts = allBatches.stream()
-                .map(Batch::getProduct)
-                .filter(product -> Boolean.TRUE.equals(product.getActive()))
-                .map(br.com.stockshift.model.entity.Product::getId)
-                .distinct()
-                .count();
         long totalWarehouses = warehouses.size();
         long activeWarehouses = warehouses.stream()
                 .filter(warehouse -> Boolean.TRUE.equals(warehouse.getIsActive()))
                 .count();
-        long totalBatches = allBatches.size();
-
-        BigDecimal totalStockValue = toCurrencyValue(sumStockValue(allBatches));
 
-        long lowStockCount = filterLowStockBatches(allBatches, BigDecimal.TEN).stream()
-                .map(batch -> batch.getProduct().getId())
-                .distinct()
-                .count();
-        long expiringCount = filterExpiringBatches(allBatches, 30).stream()
-                .map(batch -> batch.getProduct().getId())
-                .distinct()
-                .count();
+        LocalDate today = LocalDate.now();
+        try (ReportQueryExecutor.Scope queries = reportQueryExecutor.open()) {
+            Supplier<DashboardStockTotalsProjection> totals = queries.fork(() ->
+                    batchRepository.findDashboardStockTotals(
+                            tenantId,
+                            dashboardScope.warehouseIds(),
+                            DASHBOARD_LOW_STOCK_THRESHOLD,
+                            today,
+                            today.plusDays(DASHBOARD_EXPIRING_DAYS_AHEAD)
+                    ));
+            Supplier<List<DashboardResponse.RecentMovement>> recentMovements =
+                    queries.fork(() -> buildRecentMovements(tenantId, dashboardScope));
+            Supplier<List<DashboardResponse.StockByWarehouse>> stockByWarehouse =
+                    queries.fork(() -> buildStockByWarehouse(tenantId, dashboardScope));
+            Supplier<List<DashboardResponse.StockByCategory>> stockByCategory =
+                    queries.fork(() -> buildStockByCategory(tenantId, dashboardScope));
+            Supplier<DashboardResponse.MovementStats> movementStats =
+                    queries.fork(() -> buildMovementStats(tenantId, dashboardScope));
+            queries.join();
+
+            return DashboardResponse.builder()
+                    .totalProducts(totals.get().getTotalProducts())
+                    .activeProducts(totals.get().getActiveProducts())
+                    .totalWarehouses(totalWarehouses)
+                    .activeWarehouses(activeWarehouses)
+                    .totalBatches(totals.get().getTotalBatches())
+                    .totalStockValue(toCurrencyValue(totals.get().getStockValue()))
+                    .lowStockCount(totals.get().getLowStockProducts())
+                    .expiringCount(totals.get().getExpiringProducts())
+                    .recentMovements(recentMovements.get())
+                    .stockByWarehouse(stockByWarehouse.get())
+                    .stockByCategory(stockByCategory.get())
+                    .movementStats(movementStats.get())
+                    .build();
+        }
+    }
 
-        return DashboardResponse.builder()
-                .totalProducts(totalProducts)
-                .activeProducts(activeProducts)
-                .totalWarehouses(totalWarehouses)
-                .activeWarehouses(activeWarehouses)
-                .totalBatches(totalBatches)
-                .totalStockValue(totalStockValue)
-                .lowStockCount(lowStockCount)
-                .expiringCount(expiringCount)
-                .recentMovements(buildRecentMovements(tenantId, dashboardScope))
-                .stockByWarehouse(buildStockByWarehouse(allBatches))
-                .stockByCategory(buildStockByCategory(allBatches))
-                .movementStats(buildMovementStats(tenantId, dashboardScope))
+    /**
+     * One page of the stock report, one row per product and warehouse, in keyset order.
+     * {@code cursor} is the {@code nextCursor} of the previous page (null for the first).
+     */
+    @Transactional(readOnly = true)
+    public StockReportPageResponse getStockReport(String cursor, Integer limit) {
+        UUID tenantId = TenantContext.getTenantId();
+        UUID warehouseId = resolveStockReportWarehouseId();
+        int pageSize = limit != null
+                ? Math.max(1, Math.min(limit, STOCK_REPORT_MAX_PAGE_SIZE))
+                : STOCK_REPORT_DEFAULT_PAGE_SIZE;
+
+        // One extra row tells whether another page follows
+        List<StockReportRowProjection> rows =
+                findStockReportRows(tenantId, warehouseId, decodeStockReportCursor(cursor), pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<StockReportRowProjection> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        return StockReportPageResponse.builder()
+                .items(page.stream().map(this::toStockReport).collect(Collectors.toList()))
+                .nextCursor(hasMore ? encodeStockReportCursor(page.get(page.size() - 1)) : null)
                 .build();
     }
 
-    @Transactional(readOnly = true)
-    public List<StockReportResponse> getStockReport() {
+    /**
+     * The stock report as of the end of {@code date}, same rows and scope as
+     * {@link #getStockReport(String, Integer)}, read from the nearest stock snapshot plus
+     * the ledger entries after it (see {@link StockSnapshotService#findStockAsOf}).
+     */
+    public List<StockReportResponse> getStockReportAsOf(LocalDate date) {
+        if (date.isAfter(LocalDate.now())) {
+            throw new BadRequestException("As-of date cannot be in the future");
+        }
+        UUID tenantId = TenantContext.getTenantId();
+        UUID warehouseId = resolveStockReportWarehouseId();
+        return stockSnapshotService.findStockAsOf(tenantId, warehouseId, date).stream()
+                .map(this::toStockReport)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The whole stock report as a lazy sequence for streaming responses. The scope is
+     * resolved now, on the request thread; rows are then read in keyset chunks of
+     * {@value #STOCK_REPORT_STREAM_CHUNK_SIZE} while the sequence is iterated, so only one
+     * chunk is held in memory. Each chunk is read in its own transaction; with
+     * open-in-view off no connection stays open between chunks.
+     */
+    public Iterable<StockReportResponse> streamStockReport() {
         UUID tenantId = TenantContext.getTenantId();
+        UUID warehouseId = resolveStockReportWarehouseId();
+        return () -> new ChunkedReportIterator<StockReportRowProjection>(tenantId,
+                last -> findStockReportRows(tenantId, warehouseId,
+                        last != null
+                                ? new StockReportCursor(last.getProductName(), last.getProductId(), last.getWarehouseId())
+                                : null,
+                        STOCK_REPORT_STREAM_CHUNK_SIZE),
+                this::toStockReport);
+    }
+
+    /**
+     * Every batch of the current scope with {@code quantity <= threshold}, by product name,
+     * as a lazy sequence read in chunks like {@link #streamStockReport()}.
+     */
+    public Iterable<StockReportResponse> streamLowStockReport(Integer threshold) {
+        UUID tenantId = TenantContext.getTenantId();
+        UUID warehouseId = resolveStockReportWarehouseId();
+        BigDecimal maxQuantity = BigDecimal.valueOf(threshold);
+        PageRequest chunk = PageRequest.of(0, STOCK_REPORT_STREAM_CHUNK_SIZE);
+        return () -> new ChunkedReportIterator<BatchReportRowProjection>(tenantId,
+                last -> last == null
+                        ? batchRepository.findLowStockReportFirstPage(tenantId, warehouseId, maxQuantity, chunk)
+                        : batchRepository.findLowStockReportPageAfter(tenantId, warehouseId, maxQuantity,
+                                last.getProductName(), last.getBatchId(), chunk),
+                this::batchRowToReport);
+    }
+
+    /**
+     * Every batch of the current scope expiring within {@code daysAhead} days, soonest
+     * first, as a lazy sequence read in chunks like {@link #streamStockReport()}.
+     */
+    public Iterable<StockReportResponse> streamExpiringProductsReport(Integer daysAhead) {
+        UUID tenantId = TenantContext.getTenantId();
+        UUID warehouseId = resolveStockReportWarehouseId();
+        LocalDate startDate = LocalDate.now();
+        LocalDate endDate = startDate.plusDays(daysAhead);
+        PageRequest chunk = PageRequest.of(0, STOCK_REPORT_STREAM_CHUNK_SIZE);
+        return () -> new ChunkedReportIterator<BatchReportRowProjection>(tenantId,
+                last -> last == null
+                        ? batchRepository.findExpiringReportFirstPage(tenantId, warehouseId, startDate, endDate, chunk)
+                        : batchRepository.findExpiringReportPageAfter(tenantId, warehouseId, startDate, endDate,
+                                last.getExpirationDate(), last.getBatchId(), chunk),
+                this::batchRowToReport);
+    }
+
+    private UUID resolveStockReportWarehouseId() {
         UUID currentWarehouseId = resolveCurrentWarehouseId();
-        List<Batch> batches;
-        if (currentWarehouseId != null) {
-            batches = batchRepository.findByWarehouseIdAndTenantId(currentWarehouseId, tenantId);
-        } else if (warehouseAccessService.hasFullAccess()) {
-            batches = batchRepository.findAllByTenantId(tenantId);
-        } else {
+        if (currentWarehouseId == null && !warehouseAccessService.hasFullAccess()) {
             throw new UnauthorizedException("No active warehouse context");
         }
+        return currentWarehouseId;
+    }
 
-        Map<String, List<Batch>> groupedBatches = batches.stream()
-                .collect(Collectors.groupingBy(b ->
-                    b.getProduct().getId().toString() + "_" + b.getWarehouse().getId().toString()
-                ));
+    private List<StockReportRowProjection> findStockReportRows(
+            UUID tenantId, UUID warehouseId, StockReportCursor after, int limit) {
+        PageRequest firstRows = PageRequest.of(0, limit);
+        if (after == null) {
+            return batchRepository.findStockReportFirstPage(tenantId, warehouseId, firstRows);
+        }
+        return batchRepository.findStockReportPageAfter(tenantId, warehouseId,
+                after.productName(), after.productId(), after.warehouseId(), firstRows);
+    }
 
-        return groupedBatches.values().stream()
-                .map(this::aggregateBatches)
-                .collect(Collectors.toList());
+    private StockReportResponse toStockReport(StockReportRowProjection row) {
+        return StockReportResponse.builder()
+                .productId(row.getProductId())
+                .productName(row.getProductName())
+                .warehouseId(row.getWarehouseId())
+                .warehouseName(row.getWarehouseName())
+                .totalQuantity(row.getTotalQuantity())
+                .totalValue(row.getTotalValue())
+                .nearestExpiration(row.getNearestExpiration())
+                .batchCount((int) row.getBatchCount())
+                .build();
+    }
+
+    private StockReportResponse batchRowToReport(BatchReportRowProjection row) {
+        return StockReportResponse.builder()
+                .productId(row.getProductId())
+                .productName(row.getProductName())
+                .warehouseId(row.getWarehouseId())
+                .warehouseName(row.getWarehouseName())
+                .totalQuantity(row.getQuantity())
+                .totalValue(row.getTotalValue())
+                .nearestExpiration(row.getExpirationDate())
+                .batchCount(1)
+                .build();
+    }
+
+    private record StockReportCursor(String productName, UUID productId, UUID warehouseId) {
+    }
+
+    private String encodeStockReportCursor(StockReportRowProjection row) {
+        String key = row.getProductId() + "|" + row.getWarehouseId() + "|" + row.getProductName();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private StockReportCursor decodeStockReportCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = key.split("\\|", 3);
+            return new StockReportCursor(parts[2], UUID.fromString(parts[0]), UUID.fromString(parts[1]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new BadRequestException("Invalid stock report cursor");
+        }
+    }
+
+    /**
+     * Iterates rows read in keyset chunks of {@value #STOCK_REPORT_STREAM_CHUNK_SIZE}:
+     * {@code nextChunk} receives the last row read (null at the start) and returns the
+     * rows that follow it. A short chunk ends the sequence. Chunks are read with the
+     * tenant of the request, since streaming responses are written from another thread.
+     */
+    private static final class ChunkedReportIterator<R> implements Iterator<StockReportResponse> {
+
+        private final UUID tenantId;
+        private final Function<R, List<R>> nextChunk;
+        private final Function<R, StockReportResponse> toResponse;
+        private List<R> chunk;
+        private int position;
+
+        private ChunkedReportIterator(UUID tenantId, Function<R, List<R>> nextChunk,
+                                      Function<R, StockReportResponse> toResponse) {
+            this.tenantId = tenantId;
+            this.nextChunk = nextChunk;
+            this.toResponse = toResponse;
+            this.chunk = fetch(null);
+        }
+
+        private List<R> fetch(R last) {
+            UUID previousTenantId = TenantContext.getTenantId();
+            TenantContext.setTenantId(tenantId);
+            try {
+                return nextChunk.apply(last);
+            } finally {
+                if (previousTenantId != null) {
+                    TenantContext.setTenantId(previousTenantId);
+                } else {
+                    TenantContext.clear();
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (position < chunk.size()) {
+                return true;
+            }
+            if (chunk.size() < STOCK_REPORT_STREAM_CHUNK_SIZE) {
+                return false;
+            }
+            chunk = fetch(chunk.get(chunk.size() - 1));
+            position = 0;
+            return !chunk.isEmpty();
+        }
+
+        @Override
+        public StockReportResponse next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return toResponse.apply(chunk.get(position++));
+        }
     }
 
     @Transactional(readOnly = true)
     public List<StockReportResponse> getLowStockReport(Integer threshold, Integer limit) {
         UUID tenantId = TenantContext.getTenantId();
-        UUID currentWarehouseId = resolveCurrentWarehouseId();
-        List<Batch> lowStockBatches = batchRepository.findLowStock(threshold, tenantId);
-        if (currentWarehouseId != null) {
-            lowStockBatches = lowStockBatches.stream()
-                    .filter(batch -> currentWarehouseId.equals(batch.getWarehouse().getId()))
-                    .collect(Collectors.toList());
-        } else if (!warehouseAccessService.hasFullAccess()) {
-            throw new UnauthorizedException("No active warehouse context");
-        }
+        UUID warehouseId = resolveStockReportWarehouseId();
 
-        return lowStockBatches.stream()
-                .limit(limit != null ? limit : Long.MAX_VALUE)
+        BigDecimal maxQuantity = BigDecimal.valueOf(threshold);
+        List<Batch> batches = warehouseId == null
+                ? batchRepository.findLowStock(tenantId, maxQuantity, firstRows(limit))
+                : batchRepository.findLowStockByWarehouse(tenantId, warehouseId, maxQuantity, firstRows(limit));
+        return batches.stream()
                 .map(this::batchToReport)
                 .collect(Collectors.toList());
     }
@@ -161,53 +376,21 @@ public class ReportService {
     @Transactional(readOnly = true)
     public List<StockReportResponse> getExpiringProductsReport(Integer daysAhead, Integer limit) {
         UUID tenantId = TenantContext.getTenantId();
-        UUID currentWarehouseId = resolveCurrentWarehouseId();
+        UUID warehouseId = resolveStockReportWarehouseId();
         LocalDate startDate = LocalDate.now();
         LocalDate endDate = startDate.plusDays(daysAhead);
 
-        List<Batch> expiringBatches = batchRepository.findExpiringBatches(startDate, endDate, tenantId);
-        if (currentWarehouseId != null) {
-            expiringBatches = expiringBatches.stream()
-                    .filter(batch -> currentWarehouseId.equals(batch.getWarehouse().getId()))
-                    .collect(Collectors.toList());
-        } else if (!warehouseAccessService.hasFullAccess()) {
-            throw new UnauthorizedException("No active warehouse context");
-        }
-
-        return expiringBatches.stream()
-                .limit(limit != null ? limit : Long.MAX_VALUE)
+        List<Batch> batches = warehouseId == null
+                ? batchRepository.findExpiringBatches(tenantId, startDate, endDate, firstRows(limit))
+                : batchRepository.findExpiringBatchesByWarehouse(tenantId, warehouseId, startDate, endDate,
+                        firstRows(limit));
+        return batches.stream()
                 .map(this::batchToReport)
                 .collect(Collectors.toList());
     }
 
-    private StockReportResponse aggregateBatches(List<Batch> batches) {
-        Batch first = batches.get(0);
-
-        BigDecimal totalQuantity = batches.stream()
-                .map(Batch::getQuantity)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalValue = batches.stream()
-                .filter(b -> b.getCostPrice() != null)
-                .map(b -> BigDecimal.valueOf(b.getCostPrice()).multiply(b.getQuantity()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        LocalDate nearestExpiration = batches.stream()
-                .map(Batch::getExpirationDate)
-                .filter(date -> date != null)
-                .min(LocalDate::compareTo)
-                .orElse(null);
-
-        return StockReportResponse.builder()
-                .productId(first.getProduct().getId())
-                .productName(first.getProduct().getName())
-                .warehouseId(first.getWarehouse().getId())
-                .warehouseName(first.getWarehouse().getName())
-                .totalQuantity(totalQuantity)
-                .totalValue(totalValue)
-                .nearestExpiration(nearestExpiration)
-                .batchCount(batches.size())
-                .build();
+    private Pageable firstRows(Integer limit) {
+        return limit != null ? PageRequest.of(0, Math.max(1, limit)) : Pageable.unpaged();
     }
 
     private StockReportResponse batchToReport(Batch batch) {
@@ -227,74 +410,77 @@ public class ReportService {
                 .build();
     }
 
-    @Transactional(readOnly = true)
     public DashboardSummaryResponse getSummary() {
         UUID tenantId = TenantContext.getTenantId();
         UUID warehouseId = resolveCurrentWarehouseId();
         resolveOrFail(warehouseId);
 
-        BigDecimal totalStockValue = batchRepository.sumStockValue(tenantId, warehouseId);
-        BigDecimal totalTransitQuantity = batchRepository.sumTransitQuantity(tenantId, warehouseId);
-
-        List<Batch> batches;
-        if (warehouseId != null) {
-            batches = batchRepository.findByWarehouseIdAndTenantId(warehouseId, tenantId);
-        } else {
-            batches = batchRepository.findAllByTenantId(tenantId);
-        }
-
-        long totalProducts = batches.stream()
-                .map(b -> b.getProduct().getId())
-                .distinct()
-                .count();
-
-        long totalWarehouses = warehouseId != null ? 1 :
-                warehouseRepository.findAllByTenantId(tenantId).size();
-
-        long totalActiveBatches = batchRepository.countActiveBatches(tenantId, warehouseId);
-
-        BigDecimal totalStockQuantity = batches.stream()
-                .map(Batch::getQuantity)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        long pendingTransfers = transferRepository.countPendingTransfers(
-                tenantId, warehouseId,
-                List.of(TransferStatus.DRAFT, TransferStatus.IN_TRANSIT, TransferStatus.PENDING_VALIDATION));
-
         LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
         LocalDateTime endOfDay = startOfDay.plusDays(1);
-        long todayMovements = stockMovementRepository.countTodayMovements(tenantId, warehouseId, startOfDay, endOfDay);
-
-        long criticalAlerts = batchRepository.countCriticalAlerts(tenantId, warehouseId,
-                BigDecimal.TEN, LocalDate.now().plusDays(7));
-
-        return DashboardSummaryResponse.builder()
-                .totalProducts(totalProducts)
-                .totalWarehouses(totalWarehouses)
-                .totalActiveBatches(totalActiveBatches)
-                .totalStockQuantity(totalStockQuantity)
-                .totalStockValue(totalStockValue)
-                .totalTransitQuantity(totalTransitQuantity)
-                .pendingTransfers(pendingTransfers)
-                .todayMovements(todayMovements)
-                .criticalAlerts(criticalAlerts)
-                .build();
+
+        try (ReportQueryExecutor.Scope queries = reportQueryExecutor.open()) {
+            Supplier<BigDecimal> totalStockValue = queries.fork(() ->
+                    batchRepository.sumStockValue(tenantId, warehouseId));
+            Supplier<BigDecimal> totalTransitQuantity = queries.fork(() ->
+                    batchRepository.sumTransitQuantity(tenantId, warehouseId));
+            Supplier<StockBalanceTotalsProjection> stockTotals = queries.fork(() -> warehouseId != null
+                    ? stockBalanceRepository.sumByWarehouse(tenantId, warehouseId)
+                    : stockBalanceRepository.sumByTenant(tenantId));
+            Supplier<Long> totalWarehouses = queries.fork(() -> warehouseId != null ? 1L :
+                    (long) warehouseRepository.findAllByTenantId(tenantId).size());
+            Supplier<Long> totalActiveBatches = queries.fork(() ->
+                    batchRepository.countActiveBatches(tenantId, warehouseId));
+            Supplier<Long> pendingTransfers = queries.fork(() -> transferRepository.countPendingTransfers(
+                    tenantId, warehouseId,
+                    List.of(TransferStatus.DRAFT, TransferStatus.IN_TRANSIT, TransferStatus.PENDING_VALIDATION)));
+            Supplier<Long> todayMovements = queries.fork(() ->
+                    stockMovementRepository.countTodayMovements(tenantId, warehouseId, startOfDay, endOfDay));
+            Supplier<Long> criticalAlerts = queries.fork(() -> batchRepository.countCriticalAlerts(tenantId,
+                    warehouseId, BigDecimal.TEN, LocalDate.now().plusDays(7)));
+            queries.join();
+
+            return DashboardSummaryResponse.builder()
+                    .totalProducts(stockTotals.get().getProductCount())
+                    .totalWarehouses(totalWarehouses.get())
+                    .totalActiveBatches(totalActiveBatches.get())
+                    .totalStockQuantity(stockTotals.get().getTotalQuantity())
+                    .totalStockValue(totalStockValue.get())
+                    .totalTransitQuantity(totalTransitQuantity.get())
+                    .pendingTransfers(pendingTransfers.get())
+                    .todayMovements(todayMovements.get())
+                    .criticalAlerts(criticalAlerts.get())
+                    .build();
+        }
     }
 
-    @Transactional(readOnly = true)
     public DashboardKpisResponse getKpis() {
         UUID tenantId = TenantContext.getTenantId();
         UUID warehouseId = resolveCurrentWarehouseId();
         resolveOrFail(warehouseId);
 
         LocalDate today = LocalDate.now();
-        LocalDateTime currentMonthStart = today.withDayOfMonth(1).atStartOfDay();
-        LocalDateTime currentMonthEnd = today.plusDays(1).atStartOfDay();
-        LocalDateTime previousMonthStart = currentMonthStart.minusMonths(1);
-        LocalDateTime previousMonthEnd = currentMonthStart;
-
-        KpiPeriodData currentMonthData = buildKpiPeriodData(tenantId, warehouseId, currentMonthStart, currentMonthEnd);
-        KpiPeriodData previousMonthData = buildKpiPeriodData(tenantId, warehouseId, previousMonthStart, previousMonthEnd);
+        YearMonth previousMonth = YearMonth.from(today).minusMonths(1);
+
+        // The previous month is closed: read its snapshot and aggregate it only once
+        Optional<KpiPeriodData> previousMonthSnapshot =
+                kpiSnapshotService.findClosed(tenantId, warehouseId, previousMonth);
+
+        KpiPeriodData currentMonthData;
+        KpiPeriodData previousMonthData;
+        try (ReportQueryExecutor.Scope queries = reportQueryExecutor.open()) {
+            Supplier<KpiPeriodData> currentMonth = queries.fork(() ->
+                    kpiSnapshotService.aggregate(tenantId, warehouseId, today.withDayOfMonth(1), today));
+            Supplier<KpiPeriodData> previousMonthFigures = previousMonthSnapshot.isPresent()
+                    ? previousMonthSnapshot::get
+                    : queries.fork(() -> kpiSnapshotService.aggregate(tenantId, warehouseId,
+                            previousMonth.atDay(1), previousMonth.atEndOfMonth()));
+            queries.join();
+            currentMonthData = currentMonth.get();
+            previousMonthData = previousMonthFigures.get();
+        }
+        if (previousMonthSnapshot.isEmpty()) {
+            storeKpiSnapshot(tenantId, warehouseId, previousMonth, previousMonthData);
+        }
 
         KpiVariations variations = null;
         if (previousMonthData != null) {
@@ -327,46 +513,25 @@ public class ReportService {
         List<StockReportResponse> expiringProducts = getExpiringProductsReport(30, 10);
 
         LocalDateTime since = LocalDateTime.now().minusDays(30);
-        List<Object[]> lossRows = stockMovementRepository.findRecentLosses(
-                tenantId, warehouseId,
-                List.of(StockMovementType.LOSS, StockMovementType.DAMAGE), since);
-
-        List<RecentMovementAlert> recentLosses = lossRows.stream()
-                .limit(10)
-                .map(row -> {
-                    UUID batchId = (UUID) row[4];
-                    BigDecimal lossValue = BigDecimal.ZERO;
-                    if (batchId != null) {
-                        Batch batch = batchRepository.findById(batchId).orElse(null);
-                        if (batch != null && batch.getCostPrice() != null) {
-                            lossValue = BigDecimal.valueOf(batch.getCostPrice()).multiply((BigDecimal) row[2]);
-                        }
-                    }
-                    return RecentMovementAlert.builder()
-                            .movementType((StockMovementType) row[0])
-                            .productName((String) row[1])
-                            .quantity((BigDecimal) row[2])
-                            .value(lossValue)
-                            .date(((java.time.Instant) row[3]).atZone(java.time.ZoneId.systemDefault()).toLocalDate())
-                            .build();
-                })
+        List<RecentMovementAlert> recentLosses = stockMovementRepository.findRecentLossesWithValue(
+                        tenantId, warehouseId,
+                        List.of(StockMovementType.LOSS, StockMovementType.DAMAGE), since,
+                        PageRequest.of(0, DASHBOARD_RECENT_LOSSES_LIMIT))
+                .stream()
+                .map(loss -> RecentMovementAlert.builder()
+                        .movementType(loss.getMovementType())
+                        .productName(loss.getProductName())
+                        .quantity(loss.getQuantity())
+                        .value(loss.getLossValue())
+                        .date(loss.getCreatedAt().toLocalDate())
+                        .build())
                 .collect(Collectors.toList());
 
         long pendingTransfers = transferRepository.countPendingTransfers(
                 tenantId, warehouseId,
                 List.of(TransferStatus.DRAFT, TransferStatus.IN_TRANSIT, TransferStatus.PENDING_VALIDATION));
 
-        List<Batch> allBatches;
-        if (warehouseId != null) {
-            allBatches = batchRepository.findByWarehouseIdAndTenantId(warehouseId, tenantId);
-        } else {
-            allBatches = batchRepository.findAllByTenantId(tenantId);
-        }
-        BigDecimal highTransitValue = allBatches.stream()
-                .filter(b -> b.getTransitQuantity() != null && b.getTransitQuantity().compareTo(BigDecimal.ZERO) > 0)
-                .filter(b -> b.getCostPrice() != null)
-                .map(b -> BigDecimal.valueOf(b.getCostPrice()).multiply(b.getTransitQuantity()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal highTransitValue = batchRepository.sumTransitValue(tenantId, warehouseId);
 
         return DashboardAlertsResponse.builder()
                 .lowStockProducts(lowStockProducts)
@@ -387,9 +552,8 @@ public class ReportService {
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(periodDays - 1);
 
-        List<Object[]> trendRows = stockMovementRepository.getDailyMovementTrend(
-                tenantId, warehouseId,
-                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+        List<MovementDailyTotalProjection> trendRows =
+                movementDailyRollupRepository.dailyTotals(tenantId, warehouseId, startDate, endDate);
 
         java.util.Map<LocalDate, DailyMovement> dailyMap = new java.util.LinkedHashMap<>();
         for (int i = 0; i < periodDays; i++) {
@@ -404,11 +568,11 @@ public class ReportService {
                     .build());
         }
 
-        for (Object[] row : trendRows) {
-            LocalDate date = (LocalDate) row[0];
-            MovementDirection direction = (MovementDirection) row[1];
-            BigDecimal quantity = (BigDecimal) row[2];
-            Long count = ((Number) row[3]).longValue();
+        for (MovementDailyTotalProjection row : trendRows) {
+            LocalDate date = row.getDay();
+            MovementDirection direction = row.getDirection();
+            BigDecimal quantity = row.getItemQuantity();
+            Long count = row.getMovementCount();
 
             DailyMovement existing = dailyMap.get(date);
             if (existing != null) {
@@ -452,50 +616,13 @@ public class ReportService {
                 .build();
     }
 
-    private KpiPeriodData buildKpiPeriodData(UUID tenantId, UUID warehouseId,
-                                              LocalDateTime start, LocalDateTime end) {
-        List<Object[]> typeRows = stockMovementRepository.sumMovementsByTypeAndPeriod(tenantId, warehouseId, start, end);
-
-        BigDecimal purchasesValue = BigDecimal.ZERO;
-        BigDecimal lossesValue = BigDecimal.ZERO;
-        BigDecimal damageValue = BigDecimal.ZERO;
-        BigDecimal giftValue = BigDecimal.ZERO;
-        BigDecimal adjustmentValue = BigDecimal.ZERO;
-        BigDecimal totalOutQuantity = BigDecimal.ZERO;
-
-        for (Object[] row : typeRows) {
-            StockMovementType type = (StockMovementType) row[0];
-            BigDecimal quantity = (BigDecimal) row[2];
-            if (type == StockMovementType.PURCHASE_IN) purchasesValue = quantity;
-            if (type == StockMovementType.LOSS) lossesValue = quantity;
-            if (type == StockMovementType.DAMAGE) damageValue = quantity;
-            if (type == StockMovementType.GIFT) giftValue = quantity;
-            if (type == StockMovementType.ADJUSTMENT_IN || type == StockMovementType.ADJUSTMENT_OUT) {
-                adjustmentValue = adjustmentValue.add(quantity);
-            }
-            if (type.isDebit()) {
-                totalOutQuantity = totalOutQuantity.add(quantity);
-            }
-        }
-
-        BigDecimal currentStockValue = batchRepository.sumStockValue(tenantId, warehouseId);
-        BigDecimal transitValue = batchRepository.sumTransitQuantity(tenantId, warehouseId);
-
-        BigDecimal turnoverRate = BigDecimal.ZERO;
-        if (currentStockValue != null && currentStockValue.compareTo(BigDecimal.ZERO) > 0) {
-            turnoverRate = totalOutQuantity.divide(currentStockValue, 2, RoundingMode.HALF_UP);
+    private void storeKpiSnapshot(UUID tenantId, UUID warehouseId, YearMonth month, KpiPeriodData data) {
+        try {
+            kpiSnapshotService.store(tenantId, warehouseId, month, data);
+        } catch (Exception e) {
+            // The month is aggregated live again on the next read
+            log.warn("Failed to store KPI snapshot of {} for tenant {}. Error: {}", month, tenantId, e.getMessage());
         }
-
-        return KpiPeriodData.builder()
-                .totalStockValue(currentStockValue)
-                .totalPurchasesValue(purchasesValue)
-                .totalLossesValue(lossesValue)
-                .totalDamageValue(damageValue)
-                .totalGiftValue(giftValue)
-                .totalAdjustmentValue(adjustmentValue)
-                .totalTransitValue(transitValue)
-                .stockTurnoverRate(turnoverRate)
-                .build();
     }
 
     private BigDecimal calcVariation(BigDecimal current, BigDecimal previous) {
@@ -550,40 +677,10 @@ public class ReportService {
                 .anyMatch(permission -> "*".equals(permission) || PermissionCodes.REPORTS_READ.equals(permission));
     }
 
-    private List<Batch> resolveBatchesForDashboard(UUID tenantId, DashboardWarehouseScope dashboardScope) {
-        if (dashboardScope.fullTenantAccess()) {
-            return batchRepository.findAllByTenantId(tenantId);
-        }
-        return batchRepository.findByTenantIdAndWarehouseIdIn(tenantId, dashboardScope.warehouseIds());
-    }
-
-    private BigDecimal sumStockValue(List<Batch> batches) {
-        return batches.stream()
-                .filter(batch -> batch.getCostPrice() != null)
-                .map(batch -> BigDecimal.valueOf(batch.getCostPrice()).multiply(batch.getQuantity()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
     private BigDecimal toCurrencyValue(BigDecimal centsValue) {
         return centsValue.divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
     }
 
-    private List<Batch> filterLowStockBatches(List<Batch> batches, BigDecimal threshold) {
-        return batches.stream()
-                .filter(batch -> batch.getQuantity() != null && batch.getQuantity().compareTo(threshold) <= 0)
-                .collect(Collectors.toList());
-    }
-
-    private List<Batch> filterExpiringBatches(List<Batch> batches, int daysAhead) {
-        LocalDate today = LocalDate.now();
-        LocalDate endDate = today.plusDays(daysAhead);
-
-        return batches.stream()
-                .filter(batch -> batch.getExpirationDate() != null)
-                .filter(batch -> !batch.getExpirationDate().isBefore(today) && !batch.getExpirationDate().isAfter(endDate))
-                .collect(Collectors.toList());
-    }
-
     private List<DashboardResponse.RecentMovement> buildRecentMovements(
             UUID tenantId,
             DashboardWarehouseScope dashboardScope
@@ -631,49 +728,38 @@ public class ReportService {
                 .toList();
     }
 
-    private List<DashboardResponse.StockByWarehouse> buildStockByWarehouse(List<Batch> batches) {
-        return batches.stream()
-                .collect(Collectors.groupingBy(Batch::getWarehouse))
-                .entrySet()
+    private List<DashboardResponse.StockByWarehouse> buildStockByWarehouse(
+            UUID tenantId,
+            DashboardWarehouseScope dashboardScope
+    ) {
+        Map<UUID, String> warehouseNames = dashboardScope.warehouses().stream()
+                .collect(Collectors.toMap(Warehouse::getId, Warehouse::getName));
+
+        return batchRepository.findStockValueByWarehouse(tenantId, dashboardScope.warehouseIds())
                 .stream()
-                .map(entry -> DashboardResponse.StockByWarehouse.builder()
-                        .warehouseId(entry.getKey().getId())
-                        .warehouseName(entry.getKey().getName())
-                        .batchCount((long) entry.getValue().size())
-                        .stockValue(toCurrencyValue(sumStockValue(entry.getValue())))
-                        .productCount(entry.getValue().stream()
-                                .map(batch -> batch.getProduct().getId())
-                                .distinct()
-                                .count())
+                .map(row -> DashboardResponse.StockByWarehouse.builder()
+                        .warehouseId(row.getWarehouseId())
+                        .warehouseName(warehouseNames.get(row.getWarehouseId()))
+                        .batchCount(row.getBatchCount())
+                        .stockValue(toCurrencyValue(row.getStockValue()))
+                        .productCount(row.getProductCount())
                         .build())
                 .sorted(Comparator.comparing(DashboardResponse.StockByWarehouse::getStockValue).reversed())
                 .collect(Collectors.toList());
     }
 
-    private List<DashboardResponse.StockByCategory> buildStockByCategory(List<Batch> batches) {
-        record CategoryKey(String id, String name) {}
-
-        return batches.stream()
-                .collect(Collectors.groupingBy(batch -> {
-                    if (batch.getProduct().getCategory() == null) {
-                        return new CategoryKey("uncategorized", "Sem categoria");
-                    }
-                    return new CategoryKey(
-                            batch.getProduct().getCategory().getId().toString(),
-                            batch.getProduct().getCategory().getName()
-                    );
-                }))
-                .entrySet()
+    private List<DashboardResponse.StockByCategory> buildStockByCategory(
+            UUID tenantId,
+            DashboardWarehouseScope dashboardScope
+    ) {
+        return batchRepository.findStockValueByCategory(tenantId, dashboardScope.warehouseIds())
                 .stream()
-                .map(entry -> DashboardResponse.StockByCategory.builder()
-                        .categoryId(entry.getKey().id())
-                        .categoryName(entry.getKey().name())
-                        .batchCount((long) entry.getValue().size())
-                        .stockValue(toCurrencyValue(sumStockValue(entry.getValue())))
-                        .productCount(entry.getValue().stream()
-                                .map(batch -> batch.getProduct().getId())
-                                .distinct()
-                                .count())
+                .map(row -> DashboardResponse.StockByCategory.builder()
+                        .categoryId(row.getCategoryId() == null ? "uncategorized" : row.getCategoryId().toString())
+                        .categoryName(row.getCategoryId() == null ? "Sem categoria" : row.getCategoryName())
+                        .batchCount(row.getBatchCount())
+                        .stockValue(toCurrencyValue(row.getStockValue()))
+                        .productCount(row.getProductCount())
                         .build())
                 .sorted(Comparator.comparing(DashboardResponse.StockByCategory::getStockValue).reversed())
                 .collect(Collectors.toList());
@@ -707,18 +793,21 @@ public class ReportService {
         long adjustments = 0L;
         long transfers = countTransferEvents(tenantId, dashboardScope, startDate, endDate);
 
-        List<Object[]> rows = dashboardScope.fullTenantAccess()
-                ? stockMovementRepository.countMovementsByTypeAndPeriod(tenantId, null, startDate, endDate)
-                : stockMovementRepository.countMovementsByTypeAndPeriodByWarehouseIds(
+        // Periods are whole days, so the counts come from the daily rollup
+        LocalDate firstDay = startDate.toLocalDate();
+        LocalDate lastDay = endDate.toLocalDate().minusDays(1);
+        List<MovementTypeTotalProjection> rows = dashboardScope.fullTenantAccess()
+                ? movementDailyRollupRepository.typeTotals(tenantId, null, firstDay, lastDay)
+                : movementDailyRollupRepository.typeTotalsByWarehouseIds(
                         tenantId,
                         dashboardScope.warehouseIds(),
-                        startDate,
-                        endDate
+                        firstDay,
+                        lastDay
                 );
 
-        for (Object[] row : rows) {
-            StockMovementType type = (StockMovementType) row[0];
-            long count = ((Number) row[1]).longValue();
+        for (MovementTypeTotalProjection row : rows) {
+            StockMovementType type = row.getType();
+            long count = row.getMovementCount();
 
             switch (type) {
                 case PURCHASE_IN -> entries += count;
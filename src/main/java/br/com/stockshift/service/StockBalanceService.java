@@ -0,0 +1,78 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.dto.warehouse.StockBalanceMismatchProjection;
+import br.com.stockshift.model.entity.StockBalance;
+import br.com.stockshift.repository.StockBalanceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads and checks {@code stock_balance}, the per product and warehouse sums of the live
+ * batches. Triggers on {@code batches} append each change to {@code stock_balance_delta}
+ * in the transaction of the batch write; this service folds those deltas into the table,
+ * verifies the result against the batches and rebuilds it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockBalanceService {
+
+    private final StockBalanceRepository stockBalanceRepository;
+
+    /** Quantity on hand of a product in a warehouse: one primary key lookup. */
+    @Transactional(readOnly = true)
+    public BigDecimal getOnHand(UUID tenantId, UUID warehouseId, UUID productId) {
+        return stockBalanceRepository.findByTenantIdAndWarehouseIdAndProductId(tenantId, warehouseId, productId)
+                .map(StockBalance::getOnHand)
+                .orElse(BigDecimal.ZERO);
+    }
+
+    /** Balances of the tenant that no longer match the sums of its batches; empty when consistent. */
+    @Transactional(readOnly = true)
+    public List<StockBalanceMismatchProjection> verify(UUID tenantId) {
+        List<StockBalanceMismatchProjection> mismatches = stockBalanceRepository.findMismatches(tenantId);
+        for (StockBalanceMismatchProjection mismatch : mismatches) {
+            log.warn("Stock balance mismatch for tenant {} warehouse {} product {}: on hand {} vs {} in batches, "
+                            + "in transit {} vs {}, value {} vs {}, batches {} vs {}",
+                    tenantId, mismatch.getWarehouseId(), mismatch.getProductId(),
+                    mismatch.getBalanceOnHand(), mismatch.getBatchOnHand(),
+                    mismatch.getBalanceInTransit(), mismatch.getBatchInTransit(),
+                    mismatch.getBalanceValueAtCost(), mismatch.getBatchValueAtCost(),
+                    mismatch.getBalanceBatchCount(), mismatch.getBatchCount());
+        }
+        return mismatches;
+    }
+
+    /**
+     * Folds the committed deltas into {@code stock_balance} and returns the balance rows
+     * written. Returns 0 without waiting while another node is folding.
+     */
+    @Transactional
+    public int fold() {
+        if (!stockBalanceRepository.tryLockFold()) {
+            return 0;
+        }
+        return stockBalanceRepository.foldDeltas();
+    }
+
+    /**
+     * Recomputes the tenant's balances from its batches. The tenant's batch writes wait
+     * for the rebuild to commit, so it is meant for repairs, not routine use.
+     */
+    @Transactional
+    public int rebuild(UUID tenantId) {
+        stockBalanceRepository.lockTenantExclusive(tenantId);
+        stockBalanceRepository.lockFold();
+        stockBalanceRepository.deleteDeltasByTenant(tenantId);
+        stockBalanceRepository.deleteByTenant(tenantId);
+        int rows = stockBalanceRepository.insertFromBatches(tenantId);
+        log.info("Rebuilt {} stock balance rows for tenant {}", rows, tenantId);
+        return rows;
+    }
+}
@@ -0,0 +1,22 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.model.entity.Batch;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Quantity taken from one batch, with the batch balance left after the deduction.
+ */
+public record StockDeduction(
+        UUID batchId,
+        String batchCode,
+        Long sellingPrice,
+        BigDecimal quantity,
+        BigDecimal balanceAfter) {
+
+    public static StockDeduction of(Batch batch, BigDecimal quantity) {
+        return new StockDeduction(batch.getId(), batch.getBatchCode(), batch.getSellingPrice(),
+                quantity, batch.getQuantity());
+    }
+}
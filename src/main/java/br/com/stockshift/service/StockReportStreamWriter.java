@@ -0,0 +1,143 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.dto.report.StockReportResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.RequiredArgsConstructor;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes stock report rows to a response stream as they are read, as NDJSON, CSV or
+ * XLSX. NDJSON and CSV accumulate nothing besides the writer buffer; XLSX keeps a window
+ * of {@value #XLSX_ROW_WINDOW} rows in memory and flushes older rows to a temporary file
+ * until the workbook is written out.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockReportStreamWriter {
+
+    private static final List<String> CSV_HEADERS = List.of(
+            "product_id",
+            "produto",
+            "warehouse_id",
+            "warehouse",
+            "quantidade_total",
+            "valor_total",
+            "vencimento_mais_proximo",
+            "lotes");
+
+    private static final int XLSX_ROW_WINDOW = 100;
+
+    private final ObjectMapper objectMapper;
+
+    public void writeNdjson(Iterable<StockReportResponse> rows, OutputStream output) throws IOException {
+        ObjectWriter rowWriter = objectMapper.writerFor(StockReportResponse.class);
+        Writer writer = writer(output);
+        for (StockReportResponse row : rows) {
+            writer.write(rowWriter.writeValueAsString(row));
+            writer.write("\n");
+        }
+        writer.flush();
+    }
+
+    public void writeCsv(Iterable<StockReportResponse> rows, OutputStream output) throws IOException {
+        Writer writer = writer(output);
+        writeCsvRow(writer, CSV_HEADERS);
+        for (StockReportResponse row : rows) {
+            writeCsvRow(writer, List.of(
+                    text(row.getProductId()),
+                    csvText(row.getProductName()),
+                    text(row.getWarehouseId()),
+                    csvText(row.getWarehouseName()),
+                    row.getTotalQuantity() != null ? row.getTotalQuantity().toPlainString() : "",
+                    row.getTotalValue() != null ? row.getTotalValue().toPlainString() : "",
+                    text(row.getNearestExpiration()),
+                    text(row.getBatchCount())));
+        }
+        writer.flush();
+    }
+
+    public void writeXlsx(Iterable<StockReportResponse> rows, String sheetName, OutputStream output)
+            throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(XLSX_ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            Sheet sheet = workbook.createSheet(sheetName);
+            Row header = sheet.createRow(0);
+            for (int index = 0; index < CSV_HEADERS.size(); index++) {
+                header.createCell(index).setCellValue(CSV_HEADERS.get(index));
+            }
+            int rowIndex = 1;
+            for (StockReportResponse row : rows) {
+                Row sheetRow = sheet.createRow(rowIndex++);
+                sheetRow.createCell(0).setCellValue(text(row.getProductId()));
+                sheetRow.createCell(1).setCellValue(text(row.getProductName()));
+                sheetRow.createCell(2).setCellValue(text(row.getWarehouseId()));
+                sheetRow.createCell(3).setCellValue(text(row.getWarehouseName()));
+                setNumber(sheetRow.createCell(4), row.getTotalQuantity());
+                setNumber(sheetRow.createCell(5), row.getTotalValue());
+                sheetRow.createCell(6).setCellValue(text(row.getNearestExpiration()));
+                sheetRow.createCell(7).setCellValue(row.getBatchCount() != null ? row.getBatchCount() : 0);
+            }
+            workbook.write(output);
+            output.flush();
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private void setNumber(Cell cell, BigDecimal value) {
+        if (value != null) {
+            cell.setCellValue(value.doubleValue());
+        }
+    }
+
+    private Writer writer(OutputStream output) {
+        return new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+    }
+
+    private void writeCsvRow(Writer writer, List<String> values) throws IOException {
+        for (int index = 0; index < values.size(); index++) {
+            if (index > 0) {
+                writer.write(",");
+            }
+            writer.write(escapeCsv(values.get(index)));
+        }
+        writer.write("\n");
+    }
+
+    private String escapeCsv(String value) {
+        if (!value.contains(",") && !value.contains("\"") && !value.contains("\n") && !value.contains("\r")) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    // Spreadsheets read a cell starting with one of these as a formula; quoting it keeps
+    // user-entered names inert (OWASP CSV injection). Numeric cells keep their minus sign.
+    private String csvText(String value) {
+        String text = text(value);
+        if (!text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            return "'" + text;
+        }
+        return text;
+    }
+
+    private String text(Object value) {
+        return value != null ? String.valueOf(value) : "";
+    }
+}
@@ -0,0 +1,81 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.config.ReconciliationProperties;
+import br.com.stockshift.config.StockSnapshotProperties;
+import br.com.stockshift.dto.report.StockReportRowProjection;
+import br.com.stockshift.repository.StockSnapshotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * End-of-day batch balances per tenant, and stock as of a past date read from the
+ * nearest of them plus the ledger entries created after it. Each day is snapshotted
+ * from the previous one and that day's entries, so only a tenant's first snapshot sums
+ * its whole ledger.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockSnapshotService {
+
+    private final StockSnapshotRepository snapshotRepository;
+    private final StockSnapshotProperties properties;
+    private final ReconciliationProperties reconciliationProperties;
+
+    /**
+     * Snapshots the days that ended since the tenant's latest snapshot (only the last of
+     * them for a tenant without one), then drops the daily snapshots past the retention.
+     * A day is taken only once the reconciliation settle window has passed its end, so
+     * entries of transactions still running at midnight are in it. Returns how many days
+     * were snapshotted.
+     */
+    @Transactional
+    public int snapshotTenant(UUID tenantId) {
+        LocalDate through = LocalDateTime.now().minus(reconciliationProperties.getSettleWindow())
+                .toLocalDate().minusDays(1);
+        LocalDate latest = snapshotRepository.findLatestDate(tenantId);
+        LocalDate previous = latest;
+        int snapshotted = 0;
+
+        for (LocalDate day = latest != null ? latest.plusDays(1) : through;
+                !day.isAfter(through); day = day.plusDays(1)) {
+            if (snapshotRepository.insertIfAbsent(tenantId, day) > 0) {
+                LocalDateTime since = previous != null ? day.atStartOfDay() : ReconciliationService.LEDGER_START;
+                snapshotRepository.insertBatchBalances(tenantId, day, previous,
+                        since, day.plusDays(1).atStartOfDay(), ReconciliationService.DEBIT_ENTRY_TYPES);
+                snapshotted++;
+            }
+            previous = day;
+        }
+
+        if (properties.getDailyRetentionDays() > 0) {
+            snapshotRepository.deleteDailyBefore(tenantId, through.minusDays(properties.getDailyRetentionDays()));
+        }
+        if (snapshotted > 0) {
+            log.info("Snapshotted stock of tenant {} through {} ({} days)", tenantId, through, snapshotted);
+        }
+        return snapshotted;
+    }
+
+    /**
+     * Stock report rows as of the end of {@code date}: the nearest snapshot on or before
+     * it plus the ledger entries created after it through that day. Dates before the
+     * tenant's first snapshot are summed from the start of the ledger.
+     */
+    @Transactional(readOnly = true)
+    public List<StockReportRowProjection> findStockAsOf(UUID tenantId, UUID warehouseId, LocalDate date) {
+        LocalDate snapshotDate = snapshotRepository.findLatestDateOnOrBefore(tenantId, date);
+        LocalDateTime since = snapshotDate != null
+                ? snapshotDate.plusDays(1).atStartOfDay()
+                : ReconciliationService.LEDGER_START;
+        return snapshotRepository.findStockAsOf(tenantId, warehouseId, snapshotDate,
+                since, date.plusDays(1).atStartOfDay(), ReconciliationService.DEBIT_ENTRY_TYPES);
+    }
+}
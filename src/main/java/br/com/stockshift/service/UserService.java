@@ -45,6 +45,7 @@ public class UserService {
     private final PasswordEncoder passwordEncoder;
     private final AuditService auditService;
     private final AuditSnapshotService auditSnapshotService;
+    private final ReferenceNameResolver referenceNameResolver;
 
     @Transactional
     public CreateUserResponse createUser(CreateUserRequest request) {
@@ -205,6 +206,7 @@ public class UserService {
         user.setWarehouses(warehouses);
 
         user = userRepository.save(user);
+        referenceNameResolver.evictUser(tenantId, id);
         syncRoleWarehouseAssignments(user, roles, warehouses);
         var after = auditSnapshotService.snapshot(user);
         recordUserAudit("USER_UPDATED", before, after, user.getId());
@@ -231,6 +233,7 @@ public class UserService {
 
         var before = auditSnapshotService.snapshot(user);
         userRepository.delete(user);
+        referenceNameResolver.evictUser(tenantId, id);
         recordUserAudit("USER_DELETED", before, null, id);
         log.info("Deleted user: {} for tenant: {}", id, tenantId);
     }
@@ -25,7 +25,7 @@ import java.util.stream.Collectors;
 import br.com.stockshift.dto.warehouse.ProductWithStockResponse;
 import br.com.stockshift.dto.warehouse.ProductWithStockProjection;
 import br.com.stockshift.dto.brand.BrandResponse;
-import br.com.stockshift.repository.BatchRepository;
+import br.com.stockshift.repository.StockBalanceRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -35,10 +35,11 @@ import org.springframework.data.domain.Pageable;
 public class WarehouseService {
 
     private final WarehouseRepository warehouseRepository;
-    private final BatchRepository batchRepository;
+    private final StockBalanceRepository stockBalanceRepository;
     private final WarehouseAccessService warehouseAccessService;
     private final AuditService auditService;
     private final AuditSnapshotService auditSnapshotService;
+    private final ReferenceNameResolver referenceNameResolver;
 
     @Transactional
     public WarehouseResponse create(WarehouseRequest request) {
@@ -113,7 +114,7 @@ public class WarehouseService {
             return List.of();
         }
 
-        return batchRepository.findStockSummaryByWarehouseIds(tenantId, accessibleWarehouseIds).stream()
+        return stockBalanceRepository.findStockSummaryByWarehouseIds(tenantId, accessibleWarehouseIds).stream()
                 .map(this::mapToStockSummaryResponse)
                 .collect(Collectors.toList());
     }
@@ -185,6 +186,7 @@ public class WarehouseService {
         warehouse.setIsActive(request.getIsActive() != null ? request.getIsActive() : true);
 
         Warehouse updated = warehouseRepository.save(warehouse);
+        referenceNameResolver.evictWarehouse(tenantId, id);
         var after = auditSnapshotService.snapshot(updated);
         recordWarehouseAudit("WAREHOUSE_UPDATED", before, after, updated.getId());
         log.info("Updated warehouse {} for tenant {}", id, tenantId);
@@ -202,6 +204,7 @@ public class WarehouseService {
 
         var before = auditSnapshotService.snapshot(warehouse);
         warehouseRepository.delete(warehouse);
+        referenceNameResolver.evictWarehouse(tenantId, id);
         recordWarehouseAudit("WAREHOUSE_DELETED", before, null, id);
         log.info("Deleted warehouse {} for tenant {}", id, tenantId);
     }
@@ -302,8 +305,8 @@ public class WarehouseService {
                 ? SanitizationUtil.sanitizeForHtml(search.trim())
                 : "";
 
-        // Fetch products with aggregated stock
-        Page<ProductWithStockProjection> projections = batchRepository.findProductsWithStockByWarehouse(warehouseId,
+        // Fetch products with their stock balance
+        Page<ProductWithStockProjection> projections = stockBalanceRepository.findProductsWithStockByWarehouse(warehouseId,
                 tenantId, sanitizedSearch, pageable);
 
         // Map to response DTO
@@ -0,0 +1,11 @@
+package br.com.stockshift.service.sale;
+
+/**
+ * Parameters of the InfinitePay payment_check call that verifies a webhook.
+ */
+public record InfinitePayPaymentCheck(
+        String handle,
+        String orderNsu,
+        String transactionNsu,
+        String invoiceSlug) {
+}
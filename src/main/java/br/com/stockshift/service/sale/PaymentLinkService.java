@@ -0,0 +1,235 @@
+package br.com.stockshift.service.sale;
+
+import br.com.stockshift.config.PaymentLinkExecutorConfig;
+import br.com.stockshift.config.PaymentLinkProperties;
+import br.com.stockshift.model.entity.Sale;
+import br.com.stockshift.model.entity.SaleItem;
+import br.com.stockshift.model.entity.Tenant;
+import br.com.stockshift.model.enums.PaymentLinkStatus;
+import br.com.stockshift.model.enums.SaleStatus;
+import br.com.stockshift.repository.SaleRepository;
+import br.com.stockshift.repository.TenantRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Generates InfinitePay payment links after the sale has committed.
+ *
+ * <p>The checkout API call used to run inside {@code SaleService.create}, while the
+ * deducted batches were still locked, so a slow provider stalled every other sale of
+ * those products. Links are now requested from a bounded worker pool once the sale
+ * transaction commits, retried with exponential backoff, and the outcome is stored on
+ * the sale ({@link PaymentLinkStatus}) for clients to poll.
+ */
+@Service
+@Slf4j
+public class PaymentLinkService {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final SaleRepository saleRepository;
+    private final TenantRepository tenantRepository;
+    private final InfinitePayCheckoutService infinitePayCheckoutService;
+    private final PaymentLinkProperties properties;
+    private final TaskExecutor paymentLinkExecutor;
+    private final TransactionTemplate transactionTemplate;
+
+    public PaymentLinkService(
+            SaleRepository saleRepository,
+            TenantRepository tenantRepository,
+            InfinitePayCheckoutService infinitePayCheckoutService,
+            PaymentLinkProperties properties,
+            @Qualifier(PaymentLinkExecutorConfig.PAYMENT_LINK_EXECUTOR) TaskExecutor paymentLinkExecutor,
+            PlatformTransactionManager transactionManager) {
+        this.saleRepository = saleRepository;
+        this.tenantRepository = tenantRepository;
+        this.infinitePayCheckoutService = infinitePayCheckoutService;
+        this.properties = properties;
+        this.paymentLinkExecutor = paymentLinkExecutor;
+        // Short transactions of their own: they also run from afterCommit callbacks,
+        // where the caller's transaction is finished but still bound to the thread.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Queues link generation for when the current transaction commits (immediately when
+     * there is none). {@code requestedAt} identifies this request: if the link is
+     * re-requested meanwhile, the older result is discarded.
+     */
+    public void generateAfterCommit(UUID saleId, String webhookToken, Instant requestedAt) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(saleId, webhookToken, requestedAt);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit(saleId, webhookToken, requestedAt);
+            }
+        });
+    }
+
+    /**
+     * Whether a new link may be requested: the last request failed, or it has been
+     * PENDING for longer than {@code stockshift.payment-link.stale-after}.
+     */
+    public boolean isRetryable(Sale sale) {
+        if (sale.getPaymentLinkStatus() == PaymentLinkStatus.FAILED) {
+            return true;
+        }
+        return sale.getPaymentLinkStatus() == PaymentLinkStatus.PENDING
+                && sale.getPaymentLinkRequestedAt() != null
+                && sale.getPaymentLinkRequestedAt().isBefore(Instant.now().minus(properties.getStaleAfter()));
+    }
+
+    private void submit(UUID saleId, String webhookToken, Instant requestedAt) {
+        try {
+            paymentLinkExecutor.execute(() -> generate(saleId, webhookToken, requestedAt));
+        } catch (TaskRejectedException e) {
+            log.warn("Payment link queue is full, link for sale {} not requested", saleId);
+            transactionTemplate.execute(status -> {
+                markFailed(saleId, requestedAt, 0, "Payment link queue is full, retry later");
+                return null;
+            });
+        }
+    }
+
+    void generate(UUID saleId, String webhookToken, Instant requestedAt) {
+        LinkRequest request = transactionTemplate.execute(status -> loadLinkRequest(saleId, requestedAt));
+        if (request == null) {
+            return;
+        }
+
+        int maxAttempts = Math.max(1, properties.getMaxAttempts());
+        String lastError = null;
+        int attempt = 0;
+        while (attempt < maxAttempts) {
+            attempt++;
+            try {
+                InfinitePayCheckoutService.CheckoutLinkResponse link = infinitePayCheckoutService.generatePaymentLink(
+                        request.handle(), request.items(), saleId.toString(), webhookToken);
+                int attempts = attempt;
+                transactionTemplate.execute(status -> {
+                    markReady(saleId, requestedAt, attempts, link);
+                    return null;
+                });
+                return;
+            } catch (RuntimeException e) {
+                lastError = e.getMessage();
+                log.warn("Payment link attempt {}/{} for sale {} failed: {}", attempt, maxAttempts, saleId, lastError);
+                if (attempt < maxAttempts && !sleepBeforeRetry(attempt)) {
+                    break;
+                }
+            }
+        }
+
+        int attempts = attempt;
+        String error = lastError;
+        transactionTemplate.execute(status -> {
+            markFailed(saleId, requestedAt, attempts, error);
+            return null;
+        });
+    }
+
+    private LinkRequest loadLinkRequest(UUID saleId, Instant requestedAt) {
+        Sale sale = saleRepository.findById(saleId).orElse(null);
+        if (sale == null || !isCurrentRequest(sale, requestedAt)) {
+            return null;
+        }
+
+        Tenant tenant = tenantRepository.findById(sale.getTenantId()).orElse(null);
+        if (tenant == null || tenant.getInfinitepayHandle() == null || tenant.getInfinitepayHandle().isBlank()) {
+            markFailed(sale, 0, "InfinitePay handle is not configured");
+            return null;
+        }
+
+        // Aggregate items by product name
+        Map<String, InfinitePayCheckoutService.CheckoutItem> aggregated = new HashMap<>();
+        for (SaleItem item : sale.getItems()) {
+            aggregated.merge(item.getProductName(),
+                    new InfinitePayCheckoutService.CheckoutItem(
+                            item.getQuantity().intValue(),
+                            item.getTotalPrice(),
+                            item.getProductName()),
+                    (existing, newItem) -> {
+                        existing.setQuantity(existing.getQuantity() + newItem.getQuantity());
+                        existing.setPrice(existing.getPrice() + newItem.getPrice());
+                        return existing;
+                    });
+        }
+        return new LinkRequest(tenant.getInfinitepayHandle(), aggregated.values().stream().toList());
+    }
+
+    private void markReady(UUID saleId, Instant requestedAt, int attempts,
+                           InfinitePayCheckoutService.CheckoutLinkResponse link) {
+        Sale sale = saleRepository.findById(saleId).orElse(null);
+        if (sale == null || !isCurrentRequest(sale, requestedAt)) {
+            log.info("Discarding payment link for sale {}: sale changed while the link was requested", saleId);
+            return;
+        }
+        sale.setPaymentLink(link.getUrl());
+        sale.setInfinitepayInvoiceSlug(link.getSlug());
+        sale.setPaymentLinkStatus(PaymentLinkStatus.READY);
+        sale.setPaymentLinkAttempts(sale.getPaymentLinkAttempts() + attempts);
+        sale.setPaymentLinkError(null);
+        saleRepository.save(sale);
+        log.info("Payment link ready for sale {} after {} attempt(s)", sale.getCode(), attempts);
+    }
+
+    private void markFailed(UUID saleId, Instant requestedAt, int attempts, String error) {
+        saleRepository.findById(saleId)
+                .filter(sale -> isCurrentRequest(sale, requestedAt))
+                .ifPresent(sale -> markFailed(sale, attempts, error));
+    }
+
+    private void markFailed(Sale sale, int attempts, String error) {
+        sale.setPaymentLinkStatus(PaymentLinkStatus.FAILED);
+        sale.setPaymentLinkAttempts(sale.getPaymentLinkAttempts() + attempts);
+        sale.setPaymentLinkError(truncate(error));
+        saleRepository.save(sale);
+        log.warn("Payment link for sale {} failed: {}", sale.getCode(), error);
+    }
+
+    private boolean isCurrentRequest(Sale sale, Instant requestedAt) {
+        return sale.getStatus() == SaleStatus.PENDING
+                && sale.getPaymentLinkStatus() == PaymentLinkStatus.PENDING
+                && Objects.equals(sale.getPaymentLinkRequestedAt(), requestedAt);
+    }
+
+    private boolean sleepBeforeRetry(int attempt) {
+        long backoffMillis = properties.getRetryBackoff().toMillis() << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(backoffMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private record LinkRequest(String handle, List<InfinitePayCheckoutService.CheckoutItem> items) {
+    }
+}
@@ -0,0 +1,193 @@
+package br.com.stockshift.service.sale;
+
+import br.com.stockshift.config.SaleBatchProperties;
+import br.com.stockshift.dto.sale.BatchSaleEntryRequest;
+import br.com.stockshift.dto.sale.BatchSaleRequest;
+import br.com.stockshift.dto.sale.BatchSaleResponse;
+import br.com.stockshift.dto.sale.BatchSaleResult;
+import br.com.stockshift.dto.sale.SaleIdempotencyKeyProjection;
+import br.com.stockshift.dto.sale.SaleResponse;
+import br.com.stockshift.exception.BadRequestException;
+import br.com.stockshift.exception.BusinessException;
+import br.com.stockshift.exception.ForbiddenException;
+import br.com.stockshift.exception.ResourceNotFoundException;
+import br.com.stockshift.model.enums.BatchSaleResultStatus;
+import br.com.stockshift.model.enums.PaymentMode;
+import br.com.stockshift.repository.SaleRepository;
+import br.com.stockshift.security.TenantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Replays sales queued by offline POS terminals.
+ *
+ * <p>Each sale carries a client-generated idempotency key stored on the sale (unique per
+ * tenant), so keys that were already applied, by an earlier replay or earlier in the
+ * same request, are reported as DUPLICATE instead of being sold twice. The remaining
+ * sales run in order through the regular {@code SaleService.create} allocation,
+ * {@link SaleBatchProperties#getChunkSize()} sales per transaction. When a chunk fails,
+ * it is rolled back and replayed one sale per transaction, so one rejected sale does not
+ * take its neighbours down with it.
+ */
+@Service
+@Slf4j
+public class SaleBatchService {
+
+    private final SaleService saleService;
+    private final SaleRepository saleRepository;
+    private final SaleBatchProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    public SaleBatchService(
+            SaleService saleService,
+            SaleRepository saleRepository,
+            SaleBatchProperties properties,
+            PlatformTransactionManager transactionManager) {
+        this.saleService = saleService;
+        this.saleRepository = saleRepository;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public BatchSaleResponse ingest(BatchSaleRequest request) {
+        List<BatchSaleEntryRequest> entries = request.getSales();
+        if (entries.size() > properties.getMaxSales()) {
+            throw new BadRequestException("A batch accepts at most " + properties.getMaxSales() + " sales");
+        }
+        UUID tenantId = TenantContext.getTenantId();
+        BatchSaleResult[] results = new BatchSaleResult[entries.size()];
+
+        Set<String> keys = new LinkedHashSet<>();
+        entries.forEach(entry -> keys.add(entry.getIdempotencyKey()));
+        Map<String, BatchSaleResult> applied = new HashMap<>();
+        for (SaleIdempotencyKeyProjection existing : saleRepository.findByTenantIdAndIdempotencyKeyIn(tenantId, keys)) {
+            applied.put(existing.getIdempotencyKey(), duplicate(existing.getIdempotencyKey(), existing.getId(),
+                    existing.getCode()));
+        }
+
+        // First occurrence of every key not applied yet, in request order
+        List<Integer> pending = new ArrayList<>();
+        Map<String, Integer> firstIndexByKey = new HashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            String key = entries.get(i).getIdempotencyKey();
+            if (applied.containsKey(key)) {
+                results[i] = applied.get(key);
+            } else if (firstIndexByKey.putIfAbsent(key, i) == null) {
+                pending.add(i);
+            }
+        }
+
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        for (int from = 0; from < pending.size(); from += chunkSize) {
+            processChunk(tenantId, entries, pending.subList(from, Math.min(from + chunkSize, pending.size())),
+                    results);
+        }
+
+        // Repeated keys within the request follow their first occurrence
+        for (int i = 0; i < entries.size(); i++) {
+            if (results[i] == null) {
+                BatchSaleResult first = results[firstIndexByKey.get(entries.get(i).getIdempotencyKey())];
+                results[i] = first.getStatus() == BatchSaleResultStatus.FAILED
+                        ? first
+                        : duplicate(first.getIdempotencyKey(), first.getSaleId(), first.getCode());
+            }
+        }
+
+        List<BatchSaleResult> resultList = Arrays.asList(results);
+        BatchSaleResponse response = BatchSaleResponse.builder()
+                .created(count(resultList, BatchSaleResultStatus.CREATED))
+                .duplicates(count(resultList, BatchSaleResultStatus.DUPLICATE))
+                .failed(count(resultList, BatchSaleResultStatus.FAILED))
+                .results(resultList)
+                .build();
+        log.info("Sale batch for tenant {}: {} created, {} duplicate(s), {} failed",
+                tenantId, response.getCreated(), response.getDuplicates(), response.getFailed());
+        return response;
+    }
+
+    private void processChunk(UUID tenantId, List<BatchSaleEntryRequest> entries, List<Integer> chunk,
+                              BatchSaleResult[] results) {
+        try {
+            List<BatchSaleResult> created = transactionTemplate.execute(status -> chunk.stream()
+                    .map(i -> create(entries.get(i)))
+                    .toList());
+            for (int i = 0; i < chunk.size(); i++) {
+                results[chunk.get(i)] = created.get(i);
+            }
+        } catch (RuntimeException e) {
+            if (chunk.size() > 1) {
+                log.info("Sale batch chunk of {} sales rolled back ({}); replaying one sale per transaction",
+                        chunk.size(), e.getMessage());
+                for (Integer index : chunk) {
+                    processChunk(tenantId, entries, List.of(index), results);
+                }
+                return;
+            }
+            int index = chunk.get(0);
+            results[index] = failure(tenantId, entries.get(index).getIdempotencyKey(), e);
+        }
+    }
+
+    private BatchSaleResult create(BatchSaleEntryRequest entry) {
+        PaymentMode paymentMode = entry.getSale().getPaymentMode();
+        if (paymentMode == PaymentMode.LINK) {
+            throw new BadRequestException("Payment links cannot be generated for offline sales");
+        }
+        SaleResponse sale = saleService.create(entry.getSale(), entry.getIdempotencyKey());
+        return BatchSaleResult.builder()
+                .idempotencyKey(entry.getIdempotencyKey())
+                .status(BatchSaleResultStatus.CREATED)
+                .saleId(sale.getId())
+                .code(sale.getCode())
+                .build();
+    }
+
+    private BatchSaleResult failure(UUID tenantId, String key, RuntimeException e) {
+        if (e instanceof DataIntegrityViolationException) {
+            // Most likely a concurrent replay of the same key committed first
+            List<SaleIdempotencyKeyProjection> existing =
+                    saleRepository.findByTenantIdAndIdempotencyKeyIn(tenantId, List.of(key));
+            if (!existing.isEmpty()) {
+                return duplicate(key, existing.get(0).getId(), existing.get(0).getCode());
+            }
+        }
+        String error;
+        if (e instanceof BusinessException || e instanceof BadRequestException
+                || e instanceof ResourceNotFoundException || e instanceof ForbiddenException) {
+            error = e.getMessage();
+        } else {
+            log.error("Unexpected error replaying sale {}: {}", key, e.getMessage(), e);
+            error = "Unexpected error while creating the sale";
+        }
+        return BatchSaleResult.builder()
+                .idempotencyKey(key)
+                .status(BatchSaleResultStatus.FAILED)
+                .error(error)
+                .build();
+    }
+
+    private BatchSaleResult duplicate(String key, UUID saleId, String code) {
+        return BatchSaleResult.builder()
+                .idempotencyKey(key)
+                .status(BatchSaleResultStatus.DUPLICATE)
+                .saleId(saleId)
+                .code(code)
+                .build();
+    }
+
+    private int count(List<BatchSaleResult> results, BatchSaleResultStatus status) {
+        return (int) results.stream().filter(result -> result.getStatus() == status).count();
+    }
+}
@@ -1,5 +1,6 @@
 package br.com.stockshift.service.sale;
 
+import br.com.stockshift.config.StockDeductionProperties;
 import br.com.stockshift.dto.sale.*;
 import br.com.stockshift.exception.BadRequestException;
 import br.com.stockshift.exception.InsufficientStockException;
@@ -7,13 +8,18 @@ import br.com.stockshift.exception.ResourceNotFoundException;
 import br.com.stockshift.mapper.SaleMapper;
 import br.com.stockshift.model.entity.*;
 import br.com.stockshift.model.enums.*;
-import br.com.stockshift.model.entity.User;
 import br.com.stockshift.repository.*;
-import br.com.stockshift.repository.UserRepository;
 import br.com.stockshift.security.SecurityUtils;
 import br.com.stockshift.security.TenantContext;
+import br.com.stockshift.service.BatchLockManager;
+import br.com.stockshift.service.ConditionalStockDeductionService;
+import br.com.stockshift.service.DocumentCodeSequencer;
+import br.com.stockshift.service.ReferenceNameResolver;
+import br.com.stockshift.service.ReportCache;
+import br.com.stockshift.service.StockDeduction;
 import br.com.stockshift.service.audit.AuditEventCreateRequest;
 import br.com.stockshift.service.audit.AuditService;
+import br.com.stockshift.service.stockmovement.MovementRollupService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -31,6 +37,7 @@ import java.math.RoundingMode;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -39,7 +46,6 @@ import java.util.stream.Collectors;
 @Slf4j
 public class SaleService {
 
-    private static final int CODE_SEQUENCE_PADDING = 4;
     private static final int WEBHOOK_TOKEN_BYTES = 32;
 
     private final SaleRepository saleRepository;
@@ -48,18 +54,34 @@ public class SaleService {
     private final WarehouseRepository warehouseRepository;
     private final InventoryLedgerRepository ledgerRepository;
     private final StockMovementRepository movementRepository;
-    private final UserRepository userRepository;
     private final SaleMapper mapper;
     private final SecurityUtils securityUtils;
-    private final InfinitePayCheckoutService infinitePayCheckoutService;
+    private final PaymentLinkService paymentLinkService;
+    private final SalesRollupService salesRollupService;
+    private final ReferenceNameResolver referenceNameResolver;
     private final TenantRepository tenantRepository;
     private final AuditService auditService;
+    private final DocumentCodeSequencer documentCodeSequencer;
+    private final StockDeductionProperties stockDeductionProperties;
+    private final ConditionalStockDeductionService conditionalStockDeductionService;
+    private final BatchLockManager batchLockManager;
+    private final ReportCache reportCache;
+    private final MovementRollupService movementRollupService;
     private final SecureRandom secureRandom = new SecureRandom();
 
     // ── Create sale ─────────────────────────────────────────────────────────
 
     @Transactional
     public SaleResponse create(CreateSaleRequest request) {
+        return create(request, null);
+    }
+
+    /**
+     * Creates a sale tagged with a client-generated idempotency key (unique per tenant).
+     * Used by the offline POS replay in {@link SaleBatchService}.
+     */
+    @Transactional
+    public SaleResponse create(CreateSaleRequest request, String idempotencyKey) {
         UUID tenantId = TenantContext.getTenantId();
         UUID userId = securityUtils.getCurrentUserId();
         UUID warehouseId = request.getWarehouseId();
@@ -68,7 +90,7 @@ public class SaleService {
         Warehouse warehouse = warehouseRepository.findByTenantIdAndId(tenantId, warehouseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Warehouse", "id", warehouseId));
 
-        String code = generateCode(tenantId);
+        String code = documentCodeSequencer.nextSaleCode(tenantId);
 
         // Calculate discountPercentage (default 0)
         BigDecimal discountPercentage = request.getDiscountPercentage() != null
@@ -88,6 +110,7 @@ public class SaleService {
                 .status(determineSaleStatus(request))
                 .paymentMode(resolvePaymentMode(request))
                 .createdByUserId(userId)
+                .idempotencyKey(idempotencyKey)
                 .build();
         sale.setTenantId(tenantId);
 
@@ -95,7 +118,7 @@ public class SaleService {
         Sale savedSale = saleRepository.save(sale);
 
         // Generate stock movement code
-        String movementCode = generateMovementCode(tenantId);
+        String movementCode = documentCodeSequencer.nextMovementCode(tenantId);
 
         StockMovement stockMovement = StockMovement.builder()
                 .code(movementCode)
@@ -109,63 +132,32 @@ public class SaleService {
         stockMovement.setTenantId(tenantId);
 
         long subtotal = 0L;
+        List<InventoryLedger> ledgerEntries = new ArrayList<>();
+
+        // Resolve the whole basket up front: one query for the products and, in the
+        // default pessimistic mode, one locking query for every candidate batch.
+        Map<UUID, Product> products = loadProducts(request.getItems(), tenantId);
+        CheckoutBatches checkoutBatches = stockDeductionProperties.isConditional()
+                ? null
+                : lockCheckoutBatches(request.getItems(), tenantId, warehouseId);
 
-        // Process each sale item
         for (CreateSaleItemRequest itemReq : request.getItems()) {
-            Product product = productRepository.findByTenantIdAndId(tenantId, itemReq.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product", "id", itemReq.getProductId()));
-
-            if (itemReq.getBatchId() != null) {
-                // Manual batch selection
-                Batch batch = batchRepository.findByIdForUpdate(itemReq.getBatchId())
-                        .orElseThrow(() -> new ResourceNotFoundException("Batch", "id", itemReq.getBatchId()));
-
-                if (!batch.getTenantId().equals(tenantId)) {
-                    throw new BadRequestException("Batch does not belong to current tenant");
-                }
-                if (!batch.getWarehouse().getId().equals(warehouseId)) {
-                    throw new BadRequestException("Batch does not belong to the specified warehouse");
-                }
-                if (batch.getQuantity().compareTo(itemReq.getQuantity()) < 0) {
-                    throw new InsufficientStockException(
-                            "Insufficient stock for product '" + product.getName()
-                                    + "' in batch " + batch.getBatchCode()
-                                    + ". Available: " + batch.getQuantity()
-                                    + ", Required: " + itemReq.getQuantity());
-                }
-
-                subtotal += processBatchAllocation(savedSale, stockMovement, batch, product,
-                        itemReq.getQuantity(), tenantId, warehouseId, userId, code);
+            Product product = products.get(itemReq.getProductId());
 
-            } else {
-                // Auto-allocate FIFO
-                List<Batch> availableBatches = getFifoBatches(
-                        product.getId(), warehouseId, tenantId);
-
-                BigDecimal totalAvailable = availableBatches.stream()
-                        .map(Batch::getQuantity)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                if (totalAvailable.compareTo(itemReq.getQuantity()) < 0) {
-                    throw new InsufficientStockException(
-                            "Insufficient stock for product '" + product.getName()
-                                    + "'. Available: " + totalAvailable
-                                    + ", Required: " + itemReq.getQuantity());
-                }
-
-                BigDecimal remaining = itemReq.getQuantity();
-                for (Batch fifoBatch : availableBatches) {
-                    if (remaining.compareTo(BigDecimal.ZERO) <= 0) break;
-
-                    BigDecimal deductAmount = remaining.min(fifoBatch.getQuantity());
-                    subtotal += processBatchAllocation(sale, stockMovement, fifoBatch, product,
-                            deductAmount, tenantId, warehouseId, userId, code);
-
-                    remaining = remaining.subtract(deductAmount);
-                }
+            List<StockDeduction> deductions = checkoutBatches != null
+                    ? deductFromLockedBatches(itemReq, product, checkoutBatches, tenantId, warehouseId)
+                    : deductConditionally(itemReq, product, tenantId, warehouseId);
+
+            for (StockDeduction deduction : deductions) {
+                subtotal += processBatchAllocation(savedSale, stockMovement, product, deduction,
+                        tenantId, warehouseId, userId, code, ledgerEntries);
             }
         }
 
+        // Batch quantities are flushed by dirty checking; items and ledger rows go out
+        // as JDBC batches (hibernate.jdbc.batch_size).
+        ledgerRepository.saveAll(ledgerEntries);
+
         // Calculate discount and total
         long discountAmount = discountPercentage.compareTo(BigDecimal.ZERO) > 0
                 ? BigDecimal.valueOf(subtotal)
@@ -181,9 +173,14 @@ public class SaleService {
 
         Sale saved = saleRepository.save(savedSale);
         movementRepository.save(stockMovement);
+        movementRollupService.recordCreated(stockMovement);
+        if (saved.getStatus() == SaleStatus.COMPLETED) {
+            salesRollupService.recordCompleted(saved);
+        }
 
         log.info("Sale {} created by user {} in warehouse {} - total: {}",
                 saved.getCode(), userId, warehouseId, total);
+        reportCache.invalidateAfterCommit(tenantId);
 
         SaleResponse response = mapper.toResponse(saved, warehouse.getName());
 
@@ -200,36 +197,13 @@ public class SaleService {
                 throw new BadRequestException("Configure o InfinitePay nas configurações da empresa antes de gerar link de pagamento");
             }
 
-            // Aggregate items by product name
-            Map<String, InfinitePayCheckoutService.CheckoutItem> aggregated = new HashMap<>();
-            for (SaleItem item : saved.getItems()) {
-                aggregated.merge(item.getProductName(),
-                        new InfinitePayCheckoutService.CheckoutItem(
-                                item.getQuantity().intValue(),
-                                item.getTotalPrice(),
-                                item.getProductName()),
-                        (existing, newItem) -> {
-                            existing.setQuantity(existing.getQuantity() + newItem.getQuantity());
-                            existing.setPrice(existing.getPrice() + newItem.getPrice());
-                            return existing;
-                        });
-            }
-
-            String webhookToken = generateWebhookToken();
-            saved.setInfinitepayWebhookTokenHash(hashWebhookToken(webhookToken));
-
-            InfinitePayCheckoutService.CheckoutLinkResponse linkResponse =
-                    infinitePayCheckoutService.generatePaymentLink(
-                            tenant.getInfinitepayHandle(),
-                            aggregated.values().stream().toList(),
-                            saved.getId().toString(),
-                            webhookToken);
-
-            saved.setPaymentLink(linkResponse.getUrl());
-            saved.setInfinitepayInvoiceSlug(linkResponse.getSlug());
+            // The checkout API is called after commit, so the batch locks taken above are
+            // not held for the provider round trip. Clients poll GET /api/sales/{id}/payment-link.
+            String webhookToken = requestPaymentLink(saved);
             saleRepository.save(saved);
+            paymentLinkService.generateAfterCommit(saved.getId(), webhookToken, saved.getPaymentLinkRequestedAt());
 
-            response.setPaymentLink(linkResponse.getUrl());
+            response.setPaymentLinkStatus(saved.getPaymentLinkStatus());
         }
 
         recordSaleEvent("SALE_CREATED", saved, null);
@@ -250,6 +224,71 @@ public class SaleService {
         return mapper.toResponse(sale, warehouseName);
     }
 
+    // ── Payment link ────────────────────────────────────────────────────────
+
+    @Transactional(readOnly = true)
+    public PaymentLinkResponse getPaymentLink(UUID id) {
+        UUID tenantId = TenantContext.getTenantId();
+
+        Sale sale = saleRepository.findByTenantIdAndId(tenantId, id)
+                .orElseThrow(() -> new ResourceNotFoundException("Sale", "id", id));
+
+        if (sale.getPaymentMode() != PaymentMode.LINK) {
+            throw new BadRequestException("Sale " + sale.getCode() + " does not use a payment link");
+        }
+        return toPaymentLinkResponse(sale);
+    }
+
+    @Transactional
+    public PaymentLinkResponse retryPaymentLink(UUID id) {
+        UUID tenantId = TenantContext.getTenantId();
+
+        Sale sale = saleRepository.findByTenantIdAndId(tenantId, id)
+                .orElseThrow(() -> new ResourceNotFoundException("Sale", "id", id));
+
+        if (sale.getPaymentMode() != PaymentMode.LINK) {
+            throw new BadRequestException("Sale " + sale.getCode() + " does not use a payment link");
+        }
+        if (sale.getStatus() != SaleStatus.PENDING) {
+            throw new BadRequestException("Sale " + sale.getCode() + " is not PENDING (status: " + sale.getStatus() + ")");
+        }
+        if (!paymentLinkService.isRetryable(sale)) {
+            throw new BadRequestException("Payment link for sale " + sale.getCode()
+                    + " is " + sale.getPaymentLinkStatus() + " and cannot be requested again yet");
+        }
+
+        // A new token invalidates the webhook of any link generated by the previous request
+        String webhookToken = requestPaymentLink(sale);
+        Sale saved = saleRepository.save(sale);
+        paymentLinkService.generateAfterCommit(saved.getId(), webhookToken, saved.getPaymentLinkRequestedAt());
+
+        log.info("Payment link for sale {} requested again", saved.getCode());
+        return toPaymentLinkResponse(saved);
+    }
+
+    private String requestPaymentLink(Sale sale) {
+        String webhookToken = generateWebhookToken();
+        sale.setInfinitepayWebhookTokenHash(hashWebhookToken(webhookToken));
+        sale.setPaymentLink(null);
+        sale.setInfinitepayInvoiceSlug(null);
+        sale.setPaymentLinkStatus(PaymentLinkStatus.PENDING);
+        sale.setPaymentLinkError(null);
+        // Millisecond precision survives the TIMESTAMP round trip, so the async worker can
+        // match this value to tell its request apart from a later retry.
+        sale.setPaymentLinkRequestedAt(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        return webhookToken;
+    }
+
+    private PaymentLinkResponse toPaymentLinkResponse(Sale sale) {
+        return PaymentLinkResponse.builder()
+                .saleId(sale.getId())
+                .status(sale.getPaymentLinkStatus())
+                .paymentLink(sale.getPaymentLink())
+                .attempts(sale.getPaymentLinkAttempts())
+                .error(sale.getPaymentLinkError())
+                .build();
+    }
+
     // ── Payment mode helpers ──────────────────────────────────────────────────
 
     private SaleStatus determineSaleStatus(CreateSaleRequest request) {
@@ -282,13 +321,14 @@ public class SaleService {
         Page<Sale> sales = saleRepository.findWithFilters(
                 tenantId, warehouseId, paymentMethod, status, dateFrom, dateTo, pageable);
 
-        return sales.map(sale -> {
-            String warehouseName = warehouseRepository.findById(sale.getWarehouseId())
-                    .map(Warehouse::getName).orElse("Unknown");
-            String userName = userRepository.findById(sale.getCreatedByUserId())
-                    .map(User::getFullName).orElse("Desconhecido");
-            return mapper.toSummaryResponse(sale, warehouseName, userName);
-        });
+        Map<UUID, String> warehouseNames = referenceNameResolver.warehouseNames(tenantId,
+                sales.stream().map(Sale::getWarehouseId).toList());
+        Map<UUID, String> userNames = referenceNameResolver.userNames(tenantId,
+                sales.stream().map(Sale::getCreatedByUserId).toList());
+
+        return sales.map(sale -> mapper.toSummaryResponse(sale,
+                warehouseNames.getOrDefault(sale.getWarehouseId(), ReferenceNameResolver.UNKNOWN_WAREHOUSE),
+                userNames.getOrDefault(sale.getCreatedByUserId(), ReferenceNameResolver.UNKNOWN_USER)));
     }
 
     // ── Cancel sale ─────────────────────────────────────────────────────────
@@ -305,13 +345,14 @@ public class SaleService {
             throw new BadRequestException("Sale is already cancelled");
         }
 
+        boolean wasCompleted = sale.getStatus() == SaleStatus.COMPLETED;
         sale.setStatus(SaleStatus.CANCELLED);
         sale.setCancelledByUserId(userId);
         sale.setCancelledAt(Instant.now());
         sale.setCancellationReason(request.getCancellationReason());
 
         // Generate stock movement for cancellation
-        String movementCode = generateMovementCode(tenantId);
+        String movementCode = documentCodeSequencer.nextMovementCode(tenantId);
 
         StockMovement stockMovement = StockMovement.builder()
                 .code(movementCode)
@@ -324,10 +365,16 @@ public class SaleService {
                 .build();
         stockMovement.setTenantId(tenantId);
 
+        // Lock every batch of the sale at once, in the shared lock order
+        Map<UUID, Batch> lockedBatches = batchLockManager.lock(
+                sale.getItems().stream().map(SaleItem::getBatchId).toList());
+
         // Return stock for each item
         for (SaleItem item : sale.getItems()) {
-            Batch batch = batchRepository.findByIdForUpdate(item.getBatchId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Batch", "id", item.getBatchId()));
+            Batch batch = lockedBatches.get(item.getBatchId());
+            if (batch == null) {
+                throw new ResourceNotFoundException("Batch", "id", item.getBatchId());
+            }
 
             // Return stock to batch
             batch.setQuantity(batch.getQuantity().add(item.getQuantity()));
@@ -363,8 +410,13 @@ public class SaleService {
 
         Sale saved = saleRepository.save(sale);
         movementRepository.save(stockMovement);
+        movementRollupService.recordCreated(stockMovement);
+        if (wasCompleted) {
+            salesRollupService.recordCancelled(saved);
+        }
 
         log.info("Sale {} cancelled by user {}", saved.getCode(), userId);
+        reportCache.invalidateAfterCommit(tenantId);
         recordSaleEvent("SALE_CANCELLED", saved, request.getCancellationReason());
 
         String warehouseName = warehouseRepository.findById(saved.getWarehouseId())
@@ -389,6 +441,7 @@ public class SaleService {
         sale.setInfinitepayCardBrand(cardBrand);
 
         saleRepository.save(sale);
+        salesRollupService.recordCompleted(sale);
         recordSaleEvent("SALE_PAYMENT_CONFIRMED", sale, null);
         log.info("Sale {} confirmed via InfinitePay (nsu: {}, card_brand: {})", sale.getCode(), nsu, cardBrand);
     }
@@ -399,28 +452,67 @@ public class SaleService {
     }
 
     // ── Confirm InfinitePay webhook (payment link) ──────────────────────────
+    // Webhooks are queued in webhook_inbox by the endpoint and confirmed by
+    // WebhookInboxService in two short transactions around the payment_check call.
 
-    @Transactional
-    public void confirmInfinitePayWebhook(String webhookToken, InfinitePayWebhookRequest request) {
+    /**
+     * Cheap check done before a webhook is queued, so forged or unknown-sale
+     * callbacks are rejected up front instead of filling the inbox.
+     */
+    @Transactional(readOnly = true)
+    public void validateInfinitePayWebhookToken(String webhookTokenHash, String orderNsu) {
+        UUID saleId = parseWebhookSaleId(orderNsu);
+        Sale sale = saleRepository.findById(saleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Sale", "id", saleId));
+        validateWebhookTokenHash(sale, webhookTokenHash);
+    }
+
+    /**
+     * Validates a queued webhook against its sale and returns what to verify with
+     * InfinitePay, or empty when the sale is already completed (redelivered webhook).
+     */
+    @Transactional(readOnly = true)
+    public Optional<InfinitePayPaymentCheck> prepareInfinitePayWebhook(String webhookTokenHash,
+                                                                       InfinitePayWebhookRequest request) {
         UUID saleId = parseWebhookSaleId(request.getOrder_nsu());
         Sale sale = saleRepository.findById(saleId)
                 .orElseThrow(() -> new ResourceNotFoundException("Sale", "id", saleId));
 
-        validateWebhookToken(sale, webhookToken);
+        validateWebhookTokenHash(sale, webhookTokenHash);
         if (sale.getStatus() == SaleStatus.COMPLETED) {
             log.info("Ignoring idempotent InfinitePay webhook for already completed sale {}", sale.getCode());
-            return;
+            return Optional.empty();
         }
 
         validatePaymentLinkSale(sale, request);
         Tenant tenant = findActiveInfinitePayTenant(sale);
 
-        InfinitePayCheckoutService.PaymentCheckResponse paymentCheck =
-                infinitePayCheckoutService.checkPayment(
-                        tenant.getInfinitepayHandle(),
-                        sale.getId().toString(),
-                        requireWebhookText(request.getTransaction_nsu(), "transaction_nsu", sale.getId()),
-                        request.getInvoice_slug());
+        return Optional.of(new InfinitePayPaymentCheck(
+                tenant.getInfinitepayHandle(),
+                sale.getId().toString(),
+                requireWebhookText(request.getTransaction_nsu(), "transaction_nsu", sale.getId()),
+                request.getInvoice_slug()));
+    }
+
+    /**
+     * Completes the sale once InfinitePay confirmed the payment. The sale is re-read
+     * under a row lock, so a webhook processed twice (or racing a cancellation) is
+     * applied at most once.
+     */
+    @Transactional
+    public void applyInfinitePayWebhook(String webhookTokenHash, InfinitePayWebhookRequest request,
+                                        InfinitePayCheckoutService.PaymentCheckResponse paymentCheck) {
+        UUID saleId = parseWebhookSaleId(request.getOrder_nsu());
+        Sale sale = saleRepository.findByIdForUpdate(saleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Sale", "id", saleId));
+
+        validateWebhookTokenHash(sale, webhookTokenHash);
+        if (sale.getStatus() == SaleStatus.COMPLETED) {
+            log.info("Ignoring idempotent InfinitePay webhook for already completed sale {}", sale.getCode());
+            return;
+        }
+
+        validatePaymentLinkSale(sale, request);
         validatePaymentCheck(sale, paymentCheck);
 
         applyInfinitePayConfirmation(sale, request, paymentCheck);
@@ -492,6 +584,7 @@ public class SaleService {
         }
 
         saleRepository.save(sale);
+        salesRollupService.recordCompleted(sale);
         recordSaleEvent("SALE_PAYMENT_CONFIRMED", sale, null);
         log.info("Sale {} confirmed via InfinitePay webhook (transaction_nsu: {}, capture_method: {}, installments: {})",
                 sale.getCode(), request.getTransaction_nsu(), captureMethod, installments);
@@ -518,14 +611,14 @@ public class SaleService {
         }
     }
 
-    private void validateWebhookToken(Sale sale, String webhookToken) {
+    private void validateWebhookTokenHash(Sale sale, String webhookTokenHash) {
         String expectedHash = sale.getInfinitepayWebhookTokenHash();
-        if (expectedHash == null || expectedHash.isBlank() || webhookToken == null || webhookToken.isBlank()) {
+        if (expectedHash == null || expectedHash.isBlank() || webhookTokenHash == null || webhookTokenHash.isBlank()) {
             throw new BadRequestException("Invalid InfinitePay webhook token for sale " + sale.getId()
                     + ": expected configured opaque token");
         }
         byte[] expected = expectedHash.getBytes(StandardCharsets.UTF_8);
-        byte[] provided = hashWebhookToken(webhookToken).getBytes(StandardCharsets.UTF_8);
+        byte[] provided = webhookTokenHash.getBytes(StandardCharsets.UTF_8);
         if (!MessageDigest.isEqual(expected, provided)) {
             throw new BadRequestException("Invalid InfinitePay webhook token for sale " + sale.getId()
                     + ": expected configured opaque token");
@@ -563,7 +656,7 @@ public class SaleService {
         return Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
     }
 
-    private String hashWebhookToken(String token) {
+    static String hashWebhookToken(String token) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             byte[] hash = digest.digest(token.getBytes(StandardCharsets.UTF_8));
@@ -588,36 +681,120 @@ public class SaleService {
     @Transactional(readOnly = true)
     public NextSaleCodeResponse getNextCode() {
         UUID tenantId = TenantContext.getTenantId();
-        String code = generateCode(tenantId);
+        String code = documentCodeSequencer.peekSaleCode(tenantId);
         return NextSaleCodeResponse.builder().code(code).build();
     }
 
     // ── Private helpers ─────────────────────────────────────────────────────
 
     /**
-     * Processes a single batch allocation: deducts stock, creates SaleItem,
-     * StockMovementItem, and InventoryLedger. Returns the line total price.
+     * Allocates one basket line from the batches locked by {@link #lockCheckoutBatches}.
+     * The managed batches are decremented in memory and flushed on commit, so later
+     * lines of the same basket see what earlier lines took.
+     */
+    private List<StockDeduction> deductFromLockedBatches(CreateSaleItemRequest itemReq, Product product,
+                                                         CheckoutBatches checkoutBatches,
+                                                         UUID tenantId, UUID warehouseId) {
+        if (itemReq.getBatchId() != null) {
+            // Manual batch selection
+            Batch batch = checkoutBatches.byId().get(itemReq.getBatchId());
+            if (batch == null) {
+                throw new ResourceNotFoundException("Batch", "id", itemReq.getBatchId());
+            }
+            validateManualBatch(batch, product, itemReq.getQuantity(), tenantId, warehouseId);
+
+            batch.setQuantity(batch.getQuantity().subtract(itemReq.getQuantity()));
+            return List.of(StockDeduction.of(batch, itemReq.getQuantity()));
+        }
+
+        // Auto-allocate FIFO
+        List<Batch> availableBatches = checkoutBatches.fifoByProduct()
+                .getOrDefault(product.getId(), List.of());
+
+        BigDecimal totalAvailable = availableBatches.stream()
+                .map(Batch::getQuantity)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        if (totalAvailable.compareTo(itemReq.getQuantity()) < 0) {
+            throw new InsufficientStockException(
+                    "Insufficient stock for product '" + product.getName()
+                            + "'. Available: " + totalAvailable
+                            + ", Required: " + itemReq.getQuantity());
+        }
+
+        List<StockDeduction> deductions = new ArrayList<>();
+        BigDecimal remaining = itemReq.getQuantity();
+        for (Batch fifoBatch : availableBatches) {
+            if (remaining.compareTo(BigDecimal.ZERO) <= 0) break;
+            // Drained by an earlier line of the same basket
+            if (fifoBatch.getQuantity().compareTo(BigDecimal.ZERO) <= 0) continue;
+
+            BigDecimal deductAmount = remaining.min(fifoBatch.getQuantity());
+            fifoBatch.setQuantity(fifoBatch.getQuantity().subtract(deductAmount));
+            deductions.add(StockDeduction.of(fifoBatch, deductAmount));
+
+            remaining = remaining.subtract(deductAmount);
+        }
+        return deductions;
+    }
+
+    /**
+     * Allocates one basket line with guarded UPDATEs instead of up-front row locks
+     * (stockshift.stock-deduction.mode=CONDITIONAL).
+     */
+    private List<StockDeduction> deductConditionally(CreateSaleItemRequest itemReq, Product product,
+                                                     UUID tenantId, UUID warehouseId) {
+        if (itemReq.getBatchId() != null) {
+            // Manual batch selection
+            Batch batch = batchRepository.findById(itemReq.getBatchId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Batch", "id", itemReq.getBatchId()));
+            validateManualBatch(batch, product, itemReq.getQuantity(), tenantId, warehouseId);
+
+            return List.of(conditionalStockDeductionService.deductFromBatch(batch, product, itemReq.getQuantity()));
+        }
+
+        // Auto-allocate FIFO
+        return conditionalStockDeductionService.deductFifo(product, warehouseId, tenantId,
+                itemReq.getQuantity(), ConditionalStockDeductionService.EXPIRATION_ORDER);
+    }
+
+    private void validateManualBatch(Batch batch, Product product, BigDecimal quantity,
+                                     UUID tenantId, UUID warehouseId) {
+        if (!batch.getTenantId().equals(tenantId)) {
+            throw new BadRequestException("Batch does not belong to current tenant");
+        }
+        if (!batch.getWarehouse().getId().equals(warehouseId)) {
+            throw new BadRequestException("Batch does not belong to the specified warehouse");
+        }
+        if (batch.getQuantity().compareTo(quantity) < 0) {
+            throw new InsufficientStockException(
+                    "Insufficient stock for product '" + product.getName()
+                            + "' in batch " + batch.getBatchCode()
+                            + ". Available: " + batch.getQuantity()
+                            + ", Required: " + quantity);
+        }
+    }
+
+    /**
+     * Records a single batch allocation: creates SaleItem, StockMovementItem, and queues
+     * the InventoryLedger entry. Returns the line total price.
      */
     private long processBatchAllocation(Sale sale, StockMovement stockMovement,
-                                         Batch batch, Product product,
-                                         BigDecimal deductQuantity,
+                                         Product product, StockDeduction deduction,
                                          UUID tenantId, UUID warehouseId,
-                                         UUID userId, String saleCode) {
-        long unitPrice = batch.getSellingPrice() != null ? batch.getSellingPrice() : 0L;
-        long itemTotalPrice = unitPrice * deductQuantity.longValue();
-
-        // Deduct stock from batch
-        batch.setQuantity(batch.getQuantity().subtract(deductQuantity));
-        batchRepository.save(batch);
+                                         UUID userId, String saleCode,
+                                         List<InventoryLedger> ledgerEntries) {
+        long unitPrice = deduction.sellingPrice() != null ? deduction.sellingPrice() : 0L;
+        long itemTotalPrice = unitPrice * deduction.quantity().longValue();
 
         // Create SaleItem
         SaleItem saleItem = SaleItem.builder()
                 .productId(product.getId())
                 .productName(product.getName())
                 .productSku(product.getSku())
-                .batchId(batch.getId())
-                .batchCode(batch.getBatchCode())
-                .quantity(deductQuantity)
+                .batchId(deduction.batchId())
+                .batchCode(deduction.batchCode())
+                .quantity(deduction.quantity())
                 .unitPrice(unitPrice)
                 .totalPrice(itemTotalPrice)
                 .build();
@@ -628,9 +805,9 @@ public class SaleService {
                 .productId(product.getId())
                 .productName(product.getName())
                 .productSku(product.getSku())
-                .batchId(batch.getId())
-                .batchCode(batch.getBatchCode())
-                .quantity(deductQuantity)
+                .batchId(deduction.batchId())
+                .batchCode(deduction.batchCode())
+                .quantity(deduction.quantity())
                 .build();
         stockMovement.addItem(movementItem);
 
@@ -638,74 +815,81 @@ public class SaleService {
         InventoryLedger ledger = InventoryLedger.builder()
                 .tenantId(tenantId)
                 .warehouseId(warehouseId)
-                .batchId(batch.getId())
+                .batchId(deduction.batchId())
                 .productId(product.getId())
                 .entryType(LedgerEntryType.SALE_OUT)
-                .quantity(deductQuantity.negate())
-                .balanceAfter(batch.getQuantity())
+                .quantity(deduction.quantity().negate())
+                .balanceAfter(deduction.balanceAfter())
                 .referenceType("SALE")
                 .referenceId(sale.getId())
                 .notes("Sale: " + saleCode)
                 .createdBy(userId)
                 .build();
-        ledgerRepository.save(ledger);
+        ledgerEntries.add(ledger);
 
         return itemTotalPrice;
     }
 
-    private String generateCode(UUID tenantId) {
-        String prefix = "VND-" + LocalDate.now().getYear() + "-";
-        String likePrefix = prefix + "%";
-        String latestCode = saleRepository.findLatestCodeByTenantIdAndCodePrefix(tenantId, likePrefix);
+    /**
+     * Loads every product in the basket with a single IN query.
+     */
+    private Map<UUID, Product> loadProducts(List<CreateSaleItemRequest> items, UUID tenantId) {
+        Set<UUID> productIds = items.stream()
+                .map(CreateSaleItemRequest::getProductId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        Map<UUID, Product> products = productRepository.findByTenantIdAndIdIn(tenantId, productIds).stream()
+                .collect(Collectors.toMap(Product::getId, product -> product));
 
-        if (latestCode == null || latestCode.isBlank()) {
-            return prefix + String.format("%0" + CODE_SEQUENCE_PADDING + "d", 1);
+        for (UUID productId : productIds) {
+            if (!products.containsKey(productId)) {
+                throw new ResourceNotFoundException("Product", "id", productId);
+            }
         }
+        return products;
+    }
 
-        String sequencePart = latestCode.substring(prefix.length());
-        try {
-            long next = Long.parseLong(sequencePart) + 1;
-            return prefix + String.format("%0" + CODE_SEQUENCE_PADDING + "d", next);
-        } catch (NumberFormatException ex) {
-            log.warn("Unexpected sale code format '{}' for tenant {}. Falling back to count-based sequence.",
-                    latestCode, tenantId);
-            long count = saleRepository.countByTenantIdAndCodePrefix(tenantId, likePrefix);
-            return prefix + String.format("%0" + CODE_SEQUENCE_PADDING + "d", count + 1);
+    /**
+     * Locks all batches the basket can draw from in one ordered SELECT ... FOR UPDATE and
+     * groups the FIFO candidates per product, sorted by expiration date ASC (NULLS LAST),
+     * then createdAt ASC as tiebreaker.
+     */
+    private CheckoutBatches lockCheckoutBatches(List<CreateSaleItemRequest> items,
+                                                UUID tenantId, UUID warehouseId) {
+        Set<UUID> batchIds = new HashSet<>();
+        Set<UUID> fifoProductIds = new HashSet<>();
+        for (CreateSaleItemRequest item : items) {
+            if (item.getBatchId() != null) {
+                batchIds.add(item.getBatchId());
+            } else {
+                fifoProductIds.add(item.getProductId());
+            }
         }
-    }
 
-    private String generateMovementCode(UUID tenantId) {
-        String prefix = "MOV-" + LocalDate.now().getYear() + "-";
-        String latestCode = movementRepository.findLatestCodeByTenantIdAndCodePrefix(tenantId, prefix);
+        List<Batch> locked = batchLockManager.lockForDeduction(
+                tenantId, warehouseId, batchIds, fifoProductIds);
 
-        if (latestCode == null || latestCode.isBlank()) {
-            return prefix + String.format("%0" + CODE_SEQUENCE_PADDING + "d", 1);
+        Map<UUID, Batch> byId = new HashMap<>();
+        Map<UUID, List<Batch>> fifoByProduct = new HashMap<>();
+        for (Batch batch : locked) {
+            byId.put(batch.getId(), batch);
+            if (fifoProductIds.contains(batch.getProduct().getId())
+                    && tenantId.equals(batch.getTenantId())
+                    && warehouseId.equals(batch.getWarehouse().getId())
+                    && batch.getQuantity().compareTo(BigDecimal.ZERO) > 0) {
+                fifoByProduct.computeIfAbsent(batch.getProduct().getId(), ignored -> new ArrayList<>()).add(batch);
+            }
         }
 
-        String sequencePart = latestCode.substring(prefix.length());
-        try {
-            long next = Long.parseLong(sequencePart) + 1;
-            return prefix + String.format("%0" + CODE_SEQUENCE_PADDING + "d", next);
-        } catch (NumberFormatException ex) {
-            log.warn("Unexpected movement code format '{}' for tenant {}. Falling back to count-based sequence.",
-                    latestCode, tenantId);
-            long count = movementRepository.countByTenantIdAndCodePrefix(tenantId, prefix);
-            return prefix + String.format("%0" + CODE_SEQUENCE_PADDING + "d", count + 1);
-        }
+        Comparator<Batch> fifoOrder = Comparator
+                .comparing(Batch::getExpirationDate, Comparator.nullsLast(Comparator.<LocalDate>naturalOrder()))
+                .thenComparing(Batch::getCreatedAt, Comparator.nullsLast(Comparator.<LocalDateTime>naturalOrder()));
+        fifoByProduct.values().forEach(batches -> batches.sort(fifoOrder));
+
+        return new CheckoutBatches(byId, fifoByProduct);
     }
 
-    /**
-     * Gets available batches for FIFO allocation, re-sorted by expiration date ASC (NULLS LAST),
-     * then createdAt ASC as tiebreaker. The DB query already filters quantity > 0.
-     */
-    private List<Batch> getFifoBatches(UUID productId, UUID warehouseId, UUID tenantId) {
-        List<Batch> batches = batchRepository.findByProductAndWarehouseForFifo(productId, warehouseId, tenantId);
-
-        return batches.stream()
-                .sorted(Comparator
-                        .comparing(Batch::getExpirationDate, Comparator.nullsLast(Comparator.naturalOrder()))
-                        .thenComparing(Batch::getCreatedAt))
-                .collect(Collectors.toList());
+    private record CheckoutBatches(Map<UUID, Batch> byId, Map<UUID, List<Batch>> fifoByProduct) {
     }
 
     private void recordSaleEvent(String action, Sale sale, String reason) {
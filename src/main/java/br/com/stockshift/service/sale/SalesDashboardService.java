@@ -1,7 +1,7 @@
 package br.com.stockshift.service.sale;
 
 import br.com.stockshift.dto.sale.*;
-import br.com.stockshift.repository.SaleRepository;
+import br.com.stockshift.repository.SalesDailyRollupRepository;
 import br.com.stockshift.security.TenantContext;
 
 import lombok.extern.slf4j.Slf4j;
@@ -12,23 +12,26 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.Clock;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.*;
 
+/**
+ * Sales KPIs and the month chart, read from {@code sales_daily_rollup} (maintained by
+ * {@link SalesRollupService}) with a single query over the days shown.
+ */
 @Service
 @Slf4j
 public class SalesDashboardService {
 
-    private final SaleRepository saleRepository;
+    private final SalesDailyRollupRepository rollupRepository;
     private final Clock clock;
 
     @Autowired
-    public SalesDashboardService(SaleRepository saleRepository) {
-        this(saleRepository, Clock.systemDefaultZone());
+    public SalesDashboardService(SalesDailyRollupRepository rollupRepository) {
+        this(rollupRepository, Clock.systemDefaultZone());
     }
 
-    SalesDashboardService(SaleRepository saleRepository, Clock clock) {
-        this.saleRepository = saleRepository;
+    SalesDashboardService(SalesDailyRollupRepository rollupRepository, Clock clock) {
+        this.rollupRepository = rollupRepository;
         this.clock = clock;
     }
 
@@ -36,35 +39,27 @@ public class SalesDashboardService {
     public SalesDashboardResponse getDashboard(UUID warehouseId) {
         UUID tenantId = TenantContext.getTenantId();
         LocalDate today = LocalDate.now(clock);
+        LocalDate weekStart = today.with(DayOfWeek.MONDAY);
+        LocalDate monthStart = today.withDayOfMonth(1);
+        LocalDate firstDay = weekStart.isBefore(monthStart) ? weekStart : monthStart;
 
-        KpiPeriod todayKpi = buildKpi(tenantId, warehouseId,
-                today.atStartOfDay(), today.plusDays(1).atStartOfDay());
-        KpiPeriod weekKpi = buildKpi(tenantId, warehouseId,
-                today.with(DayOfWeek.MONDAY).atStartOfDay(), today.plusDays(1).atStartOfDay());
-        KpiPeriod monthKpi = buildKpi(tenantId, warehouseId,
-                today.withDayOfMonth(1).atStartOfDay(), today.plusDays(1).atStartOfDay());
-
-        List<Object[]> rawChart = saleRepository.dailySalesInPeriod(
-                tenantId, warehouseId,
-                today.withDayOfMonth(1).atStartOfDay(),
-                today.plusDays(1).atStartOfDay());
-
-        Map<LocalDate, Object[]> chartMap = new LinkedHashMap<>();
-        for (Object[] row : rawChart) {
-            LocalDate date = row[0] instanceof java.sql.Date sd ? sd.toLocalDate() : (LocalDate) row[0];
-            chartMap.put(date, row);
+        // Every KPI period and the chart are covered by these days
+        Map<LocalDate, SalesDailyTotalProjection> totals = new HashMap<>();
+        for (SalesDailyTotalProjection row : rollupRepository.dailyTotals(tenantId, warehouseId, firstDay, today)) {
+            totals.put(row.getDay(), row);
         }
 
+        KpiPeriod todayKpi = buildKpi(totals, today, today);
+        KpiPeriod weekKpi = buildKpi(totals, weekStart, today);
+        KpiPeriod monthKpi = buildKpi(totals, monthStart, today);
+
         List<DailyChartEntry> dailyChart = new ArrayList<>();
-        LocalDate start = today.withDayOfMonth(1);
-        for (int i = 0; i < today.lengthOfMonth(); i++) {
-            LocalDate d = start.plusDays(i);
-            if (d.isAfter(today)) break;
-            Object[] row = chartMap.get(d);
+        for (LocalDate d = monthStart; !d.isAfter(today); d = d.plusDays(1)) {
+            SalesDailyTotalProjection row = totals.get(d);
             dailyChart.add(DailyChartEntry.builder()
                     .date(d.toString())
-                    .count(row != null ? ((Number) row[1]).longValue() : 0L)
-                    .revenue(row != null ? ((Number) row[2]).longValue() : 0L)
+                    .count(row != null ? valueOf(row.getSaleCount()) : 0L)
+                    .revenue(row != null ? valueOf(row.getRevenue()) : 0L)
                     .build());
         }
 
@@ -78,15 +73,21 @@ public class SalesDashboardService {
                 .build();
     }
 
-    private KpiPeriod buildKpi(UUID tenantId, UUID warehouseId, LocalDateTime from, LocalDateTime to) {
-        List<Object[]> result = saleRepository.countAndRevenueByPeriod(tenantId, warehouseId, from, to);
-        if (result == null || result.isEmpty() || result.get(0)[0] == null) {
-            return KpiPeriod.builder().count(0).revenue(0L).avgTicket(0L).build();
+    private KpiPeriod buildKpi(Map<LocalDate, SalesDailyTotalProjection> totals, LocalDate from, LocalDate to) {
+        long count = 0L;
+        long revenue = 0L;
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            SalesDailyTotalProjection row = totals.get(d);
+            if (row != null) {
+                count += valueOf(row.getSaleCount());
+                revenue += valueOf(row.getRevenue());
+            }
         }
-        Object[] row = result.get(0);
-        long count = ((Number) row[0]).longValue();
-        long revenue = ((Number) row[1]).longValue();
         long avgTicket = count > 0 ? revenue / count : 0L;
         return KpiPeriod.builder().count(count).revenue(revenue).avgTicket(avgTicket).build();
     }
+
+    private long valueOf(Long value) {
+        return value != null ? value : 0L;
+    }
 }
@@ -0,0 +1,63 @@
+package br.com.stockshift.service.sale;
+
+import br.com.stockshift.model.entity.Sale;
+import br.com.stockshift.repository.SalesDailyRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Maintains {@code sales_daily_rollup}, the per-day totals of COMPLETED sales read by
+ * {@link SalesDashboardService}. Sales are counted on the day they were created.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SalesRollupService {
+
+    private final SalesDailyRollupRepository rollupRepository;
+
+    /** Adds a sale that just became COMPLETED. Must run in the transaction that completes it. */
+    @Transactional
+    public void recordCompleted(Sale sale) {
+        applyDelta(sale, 1L, sale.getTotal());
+    }
+
+    /** Removes a COMPLETED sale that is being cancelled. Must run in the cancelling transaction. */
+    @Transactional
+    public void recordCancelled(Sale sale) {
+        applyDelta(sale, -1L, -sale.getTotal());
+    }
+
+    /**
+     * Recomputes the tenant's rollup for {@code [from, to]} from the sales table. It first
+     * waits for the tenant's sales still adding their delta to commit, and new ones wait
+     * for the rebuild: a sale is then either read from the table or added on top of the
+     * rebuilt rows, never both or neither.
+     */
+    @Transactional
+    public int rebuild(UUID tenantId, LocalDate from, LocalDate to) {
+        rollupRepository.lockTenantExclusive(tenantId);
+        rollupRepository.deleteDays(tenantId, from, to);
+        int rows = rollupRepository.insertFromSales(tenantId, from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+        log.debug("Rebuilt {} sales rollup rows for tenant {} from {} to {}", rows, tenantId, from, to);
+        return rows;
+    }
+
+    private void applyDelta(Sale sale, long countDelta, long revenueDelta) {
+        LocalDateTime createdAt = sale.getCreatedAt() != null ? sale.getCreatedAt() : LocalDateTime.now();
+        rollupRepository.lockTenantShared(sale.getTenantId());
+        rollupRepository.applyDelta(
+                sale.getTenantId(),
+                sale.getWarehouseId(),
+                createdAt.toLocalDate(),
+                sale.getPaymentMethod().name(),
+                countDelta,
+                revenueDelta);
+    }
+}
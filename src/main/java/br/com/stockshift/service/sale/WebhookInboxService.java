@@ -0,0 +1,209 @@
+package br.com.stockshift.service.sale;
+
+import br.com.stockshift.config.WebhookInboxExecutorConfig;
+import br.com.stockshift.config.WebhookInboxProperties;
+import br.com.stockshift.dto.sale.InfinitePayWebhookRequest;
+import br.com.stockshift.dto.sale.WebhookInboxStatsProjection;
+import br.com.stockshift.exception.BadRequestException;
+import br.com.stockshift.exception.ResourceNotFoundException;
+import br.com.stockshift.model.entity.WebhookInboxEntry;
+import br.com.stockshift.repository.WebhookInboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable inbox for InfinitePay webhooks.
+ *
+ * <p>Verifying a webhook needs a payment_check round trip to InfinitePay, which used
+ * to run on the request thread and held a Tomcat thread and a DB connection for its
+ * whole duration. The endpoint now only appends the webhook to {@code webhook_inbox}
+ * and acknowledges; workers claim due rows with {@code FOR UPDATE SKIP LOCKED} (so
+ * several threads and nodes share the queue), verify the payment and complete the sale.
+ * Transient failures are retried with exponential backoff; invalid webhooks and
+ * exhausted retries end up FAILED with the last error recorded.
+ */
+@Service
+@Slf4j
+public class WebhookInboxService {
+
+    static final String SOURCE_INFINITEPAY = "INFINITEPAY";
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final WebhookInboxRepository webhookInboxRepository;
+    private final SaleService saleService;
+    private final InfinitePayCheckoutService infinitePayCheckoutService;
+    private final WebhookInboxProperties properties;
+    private final TaskExecutor webhookInboxExecutor;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final AtomicLong queueLagSeconds = new AtomicLong();
+    private final Counter doneCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+
+    public WebhookInboxService(
+            WebhookInboxRepository webhookInboxRepository,
+            SaleService saleService,
+            InfinitePayCheckoutService infinitePayCheckoutService,
+            WebhookInboxProperties properties,
+            @Qualifier(WebhookInboxExecutorConfig.WEBHOOK_INBOX_EXECUTOR) TaskExecutor webhookInboxExecutor,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        this.webhookInboxRepository = webhookInboxRepository;
+        this.saleService = saleService;
+        this.infinitePayCheckoutService = infinitePayCheckoutService;
+        this.properties = properties;
+        this.webhookInboxExecutor = webhookInboxExecutor;
+        this.objectMapper = objectMapper;
+
+        Gauge.builder("stockshift.webhook.inbox.depth", queueDepth, AtomicLong::get)
+                .description("Webhooks waiting to be processed (PENDING or PROCESSING)")
+                .register(meterRegistry);
+        Gauge.builder("stockshift.webhook.inbox.lag", queueLagSeconds, AtomicLong::get)
+                .description("Age of the oldest unprocessed webhook")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.doneCounter = processedCounter(meterRegistry, "done");
+        this.retriedCounter = processedCounter(meterRegistry, "retried");
+        this.failedCounter = processedCounter(meterRegistry, "failed");
+    }
+
+    /**
+     * Appends an InfinitePay webhook to the inbox once its token matches the sale. Only
+     * the token hash is stored, as on the sale.
+     */
+    public void enqueueInfinitePay(String webhookToken, InfinitePayWebhookRequest request) {
+        if (webhookToken == null || webhookToken.isBlank()) {
+            throw new BadRequestException("Invalid InfinitePay webhook token: expected configured opaque token");
+        }
+        String webhookTokenHash = SaleService.hashWebhookToken(webhookToken);
+        saleService.validateInfinitePayWebhookToken(webhookTokenHash, request.getOrder_nsu());
+
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Invalid InfinitePay webhook payload: " + e.getOriginalMessage());
+        }
+
+        int queued = webhookInboxRepository.enqueue(
+                SOURCE_INFINITEPAY,
+                webhookTokenHash,
+                request.getOrder_nsu(),
+                request.getTransaction_nsu() != null ? request.getTransaction_nsu() : "",
+                payload);
+        if (queued == 0) {
+            log.info("InfinitePay webhook for order {} is already queued", request.getOrder_nsu());
+        }
+    }
+
+    /**
+     * Claims the due rows for this node, processes them on the webhook worker pool and
+     * refreshes the queue metrics. Returns the number of rows claimed.
+     */
+    public int processDue() {
+        List<WebhookInboxEntry> claimed = webhookInboxRepository.claimDue(
+                getBatchSize(), properties.getLease().toSeconds());
+        if (!claimed.isEmpty()) {
+            CompletableFuture<?>[] tasks = claimed.stream()
+                    .map(entry -> CompletableFuture.runAsync(() -> process(entry), webhookInboxExecutor))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(tasks).join();
+        }
+        refreshQueueStats();
+        return claimed.size();
+    }
+
+    public int getBatchSize() {
+        return Math.max(1, properties.getConcurrency());
+    }
+
+    public int purgeProcessed() {
+        return webhookInboxRepository.deleteProcessedBefore(LocalDateTime.now().minus(properties.getRetention()));
+    }
+
+    void process(WebhookInboxEntry entry) {
+        try {
+            InfinitePayWebhookRequest request =
+                    objectMapper.readValue(entry.getPayload(), InfinitePayWebhookRequest.class);
+
+            Optional<InfinitePayPaymentCheck> check =
+                    saleService.prepareInfinitePayWebhook(entry.getWebhookTokenHash(), request);
+            if (check.isPresent()) {
+                InfinitePayCheckoutService.PaymentCheckResponse paymentCheck = infinitePayCheckoutService.checkPayment(
+                        check.get().handle(),
+                        check.get().orderNsu(),
+                        check.get().transactionNsu(),
+                        check.get().invoiceSlug());
+                saleService.applyInfinitePayWebhook(entry.getWebhookTokenHash(), request, paymentCheck);
+            }
+
+            webhookInboxRepository.markDone(entry.getId());
+            doneCounter.increment();
+        } catch (BadRequestException | ResourceNotFoundException | JsonProcessingException e) {
+            // Retrying cannot fix an invalid webhook
+            log.warn("Rejected InfinitePay webhook {} for order {}: {}", entry.getId(), entry.getOrderNsu(),
+                    e.getMessage());
+            webhookInboxRepository.markFailed(entry.getId(), truncate(e.getMessage()));
+            failedCounter.increment();
+        } catch (RuntimeException e) {
+            int maxAttempts = Math.max(1, properties.getMaxAttempts());
+            if (entry.getAttempts() >= maxAttempts) {
+                log.error("InfinitePay webhook {} for order {} failed after {} attempt(s): {}", entry.getId(),
+                        entry.getOrderNsu(), entry.getAttempts(), e.getMessage());
+                webhookInboxRepository.markFailed(entry.getId(), truncate(e.getMessage()));
+                failedCounter.increment();
+                return;
+            }
+            Duration backoff = retryBackoff(entry.getAttempts());
+            log.warn("InfinitePay webhook {} attempt {}/{} failed, retrying in {}s: {}", entry.getId(),
+                    entry.getAttempts(), maxAttempts, backoff.toSeconds(), e.getMessage());
+            webhookInboxRepository.reschedule(entry.getId(), backoff.toSeconds(), truncate(e.getMessage()));
+            retriedCounter.increment();
+        }
+    }
+
+    private void refreshQueueStats() {
+        WebhookInboxStatsProjection stats = webhookInboxRepository.findQueueStats();
+        long depth = stats != null && stats.getDepth() != null ? stats.getDepth() : 0L;
+        LocalDateTime oldest = stats != null ? stats.getOldestReceivedAt() : null;
+        queueDepth.set(depth);
+        queueLagSeconds.set(oldest != null
+                ? Math.max(0L, Duration.between(oldest, LocalDateTime.now()).toSeconds())
+                : 0L);
+    }
+
+    private Duration retryBackoff(int attempt) {
+        return properties.getRetryBackoff().multipliedBy(1L << Math.min(Math.max(attempt - 1, 0), 10));
+    }
+
+    private Counter processedCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("stockshift.webhook.inbox.processed")
+                .description("Webhook inbox rows processed, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,66 @@
+package br.com.stockshift.service.stockmovement;
+
+import br.com.stockshift.model.entity.StockMovement;
+import br.com.stockshift.model.entity.StockMovementItem;
+import br.com.stockshift.repository.MovementDailyRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Maintains {@code movement_daily_rollup}, the per-day movement totals by warehouse and
+ * type read by the movement trend, dashboard movement stats, monthly KPIs and the
+ * warehouse movement summary. Movements are counted on the day they were created.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MovementRollupService {
+
+  private final MovementDailyRollupRepository rollupRepository;
+
+  /**
+   * Adds a movement with its final items. Must run in the transaction that records it;
+   * movements are immutable afterwards, so this is the only delta ever applied.
+   */
+  @Transactional
+  public void recordCreated(StockMovement movement) {
+    if (movement.getItems().isEmpty()) {
+      return;
+    }
+    BigDecimal quantity = movement.getItems().stream()
+        .map(StockMovementItem::getQuantity)
+        .reduce(BigDecimal.ZERO, BigDecimal::add);
+    LocalDateTime createdAt = movement.getCreatedAt() != null ? movement.getCreatedAt() : LocalDateTime.now();
+    rollupRepository.lockTenantShared(movement.getTenantId());
+    rollupRepository.applyDelta(
+        movement.getTenantId(),
+        movement.getWarehouseId(),
+        createdAt.toLocalDate(),
+        movement.getType().name(),
+        movement.getDirection().name(),
+        quantity,
+        1L);
+  }
+
+  /**
+   * Recomputes the tenant's rollup for {@code [from, to]} from the movement tables. It
+   * first waits for the tenant's movements still adding their delta to commit, and new
+   * ones wait for the rebuild: a movement is then either read from the tables or added
+   * on top of the rebuilt rows, never both or neither.
+   */
+  @Transactional
+  public int rebuild(UUID tenantId, LocalDate from, LocalDate to) {
+    rollupRepository.lockTenantExclusive(tenantId);
+    rollupRepository.deleteDays(tenantId, from, to);
+    int rows = rollupRepository.insertFromMovements(tenantId, from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+    log.info("Rebuilt {} movement rollup rows for tenant {} from {} to {}", rows, tenantId, from, to);
+    return rows;
+  }
+}
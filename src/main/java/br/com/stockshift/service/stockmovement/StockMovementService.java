@@ -1,5 +1,7 @@
 package br.com.stockshift.service.stockmovement;
 
+import br.com.stockshift.config.StockDeductionProperties;
+import br.com.stockshift.dto.report.WarehouseMovementTypeTotalProjection;
 import br.com.stockshift.dto.stockmovement.*;
 import br.com.stockshift.exception.BadRequestException;
 import br.com.stockshift.exception.InsufficientStockException;
@@ -12,8 +14,14 @@ import br.com.stockshift.model.enums.StockMovementType;
 import br.com.stockshift.repository.*;
 import br.com.stockshift.security.SecurityUtils;
 import br.com.stockshift.security.TenantContext;
+import br.com.stockshift.service.BatchLockManager;
+import br.com.stockshift.service.ConditionalStockDeductionService;
+import br.com.stockshift.service.DocumentCodeSequencer;
 import br.com.stockshift.service.ProductImageProcessingService;
 import br.com.stockshift.service.ProductService;
+import br.com.stockshift.service.ReferenceNameResolver;
+import br.com.stockshift.service.ReportCache;
+import br.com.stockshift.service.StockDeduction;
 import br.com.stockshift.service.audit.AuditEventCreateRequest;
 import br.com.stockshift.service.audit.AuditService;
 import br.com.stockshift.service.upload.ProductImageUploadClaim;
@@ -31,7 +39,6 @@ import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -41,11 +48,11 @@ import java.util.stream.Collectors;
 @Slf4j
 public class StockMovementService {
 
-  private static final int CODE_SEQUENCE_PADDING = 4;
   private static final Set<StockMovementType> TRANSFER_TYPES = Set.of(
       StockMovementType.TRANSFER_IN, StockMovementType.TRANSFER_OUT);
 
   private final StockMovementRepository movementRepository;
+  private final MovementDailyRollupRepository movementDailyRollupRepository;
   private final StockMovementItemRepository movementItemRepository;
   private final BatchRepository batchRepository;
   private final ProductRepository productRepository;
@@ -56,6 +63,13 @@ public class StockMovementService {
   private final ProductService productService;
   private final AuditService auditService;
   private final ProductImageUploadService productImageUploadService;
+  private final DocumentCodeSequencer documentCodeSequencer;
+  private final StockDeductionProperties stockDeductionProperties;
+  private final ConditionalStockDeductionService conditionalStockDeductionService;
+  private final ReferenceNameResolver referenceNameResolver;
+  private final BatchLockManager batchLockManager;
+  private final ReportCache reportCache;
+  private final MovementRollupService movementRollupService;
 
   @Autowired(required = false)
   @Nullable
@@ -74,7 +88,7 @@ public class StockMovementService {
       throw new BadRequestException("Transfer movements are created automatically by the Transfer module");
     }
 
-    String code = generateCode(tenantId);
+    String code = documentCodeSequencer.nextMovementCode(tenantId);
     MovementDirection direction = request.getType().getDirection();
     validateInlineProductsAllowed(request, direction);
 
@@ -92,6 +106,9 @@ public class StockMovementService {
     List<ProductImageUploadClaim> promotedImageClaims = new ArrayList<>();
 
     try {
+      Map<UUID, List<Batch>> fifoBatches = direction == MovementDirection.OUT && !stockDeductionProperties.isConditional()
+          ? lockFifoBatches(request, warehouseId, tenantId)
+          : Map.of();
       for (CreateStockMovementItemRequest itemReq : request.getItems()) {
         Product product = resolveMovementProduct(itemReq, tenantId, promotedImageClaims);
         if (itemReq.getNewProduct() != null) {
@@ -99,13 +116,15 @@ public class StockMovementService {
         }
 
         if (direction == MovementDirection.OUT) {
-          processOutItems(saved, product, itemReq.getQuantity(), warehouseId, tenantId, userId, request.getType());
+          processOutItems(saved, product, itemReq.getQuantity(), warehouseId, tenantId, userId, request.getType(),
+              fifoBatches.getOrDefault(product.getId(), List.of()));
         } else {
           processInItem(saved, product, itemReq, warehouseId, tenantId, userId, request.getType());
         }
       }
       promotedImageClaims.forEach(productImageUploadService::markConsumed);
       saved = movementRepository.save(saved);
+      movementRollupService.recordCreated(saved);
       productImageUploadService.registerStorageCleanup(promotedImageClaims);
       recordStockMovementCreated(saved, null);
     } catch (RuntimeException exception) {
@@ -116,6 +135,7 @@ public class StockMovementService {
 
     log.info("StockMovement {} ({}) created by user {} in warehouse {}",
         saved.getCode(), saved.getType(), userId, warehouseId);
+    reportCache.invalidateAfterCommit(tenantId);
 
     String warehouseName = warehouseRepository.findById(warehouseId)
         .map(Warehouse::getName).orElse("Unknown");
@@ -200,38 +220,22 @@ public class StockMovementService {
   }
 
   private void processOutItems(StockMovement movement, Product product, BigDecimal quantity,
-      UUID warehouseId, UUID tenantId, UUID userId, StockMovementType type) {
-    List<Batch> batches = batchRepository.findByProductAndWarehouseForFifo(
-        product.getId(), warehouseId, tenantId);
-
-    BigDecimal remaining = quantity;
-    BigDecimal totalAvailable = batches.stream()
-        .map(Batch::getQuantity)
-        .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-    if (totalAvailable.compareTo(quantity) < 0) {
-      throw new InsufficientStockException(
-          "Insufficient stock for product '" + product.getName() +
-              "'. Available: " + totalAvailable + ", Required: " + quantity);
-    }
+      UUID warehouseId, UUID tenantId, UUID userId, StockMovementType type, List<Batch> fifoBatches) {
+    List<StockDeduction> deductions = stockDeductionProperties.isConditional()
+        ? conditionalStockDeductionService.deductFifo(product, warehouseId, tenantId, quantity,
+            ConditionalStockDeductionService.CREATED_AT_ORDER)
+        : deductFromLockedBatches(product, quantity, fifoBatches);
 
     LedgerEntryType ledgerType = mapToLedgerType(type);
 
-    for (Batch batch : batches) {
-      if (remaining.compareTo(BigDecimal.ZERO) <= 0)
-        break;
-
-      BigDecimal deductAmount = remaining.min(batch.getQuantity());
-      batch.setQuantity(batch.getQuantity().subtract(deductAmount));
-      batchRepository.save(batch);
-
+    for (StockDeduction deduction : deductions) {
       StockMovementItem item = StockMovementItem.builder()
           .productId(product.getId())
           .productName(product.getName())
           .productSku(product.getSku())
-          .batchId(batch.getId())
-          .batchCode(batch.getBatchCode())
-          .quantity(deductAmount)
+          .batchId(deduction.batchId())
+          .batchCode(deduction.batchCode())
+          .quantity(deduction.quantity())
           .build();
       movement.addItem(item);
 
@@ -239,20 +243,69 @@ public class StockMovementService {
       InventoryLedger ledger = InventoryLedger.builder()
           .tenantId(tenantId)
           .warehouseId(warehouseId)
-          .batchId(batch.getId())
+          .batchId(deduction.batchId())
           .productId(product.getId())
           .entryType(ledgerType)
-          .quantity(deductAmount.negate())
-          .balanceAfter(batch.getQuantity())
+          .quantity(deduction.quantity().negate())
+          .balanceAfter(deduction.balanceAfter())
           .referenceType("STOCK_MOVEMENT")
           .referenceId(movement.getId())
           .notes(type.name() + ": " + (movement.getNotes() != null ? movement.getNotes() : ""))
           .createdBy(userId)
           .build();
       ledgerRepository.save(ledger);
+    }
+  }
+
+  /**
+   * Locks, in one ordered SELECT ... FOR UPDATE, the in-stock batches of every product the
+   * movement takes out, grouped per product oldest first.
+   */
+  private Map<UUID, List<Batch>> lockFifoBatches(CreateStockMovementRequest request, UUID warehouseId,
+      UUID tenantId) {
+    Set<UUID> productIds = request.getItems().stream()
+        .map(CreateStockMovementItemRequest::getProductId)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet());
+    Map<UUID, List<Batch>> byProduct = new HashMap<>();
+    for (Batch batch : batchLockManager.lockForDeduction(tenantId, warehouseId, Set.of(), productIds)) {
+      byProduct.computeIfAbsent(batch.getProduct().getId(), ignored -> new ArrayList<>()).add(batch);
+    }
+    Comparator<Batch> fifoOrder = Comparator.comparing(Batch::getCreatedAt,
+        Comparator.nullsLast(Comparator.<LocalDateTime>naturalOrder()));
+    byProduct.values().forEach(batches -> batches.sort(fifoOrder));
+    return byProduct;
+  }
+
+  private List<StockDeduction> deductFromLockedBatches(Product product, BigDecimal quantity,
+      List<Batch> batches) {
+    BigDecimal remaining = quantity;
+    BigDecimal totalAvailable = batches.stream()
+        .map(Batch::getQuantity)
+        .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+    if (totalAvailable.compareTo(quantity) < 0) {
+      throw new InsufficientStockException(
+          "Insufficient stock for product '" + product.getName() +
+              "'. Available: " + totalAvailable + ", Required: " + quantity);
+    }
+
+    List<StockDeduction> deductions = new ArrayList<>();
+    for (Batch batch : batches) {
+      if (remaining.compareTo(BigDecimal.ZERO) <= 0)
+        break;
+      // Emptied by an earlier line of the same movement
+      if (batch.getQuantity().compareTo(BigDecimal.ZERO) <= 0)
+        continue;
+
+      BigDecimal deductAmount = remaining.min(batch.getQuantity());
+      batch.setQuantity(batch.getQuantity().subtract(deductAmount));
+      batchRepository.save(batch);
+      deductions.add(StockDeduction.of(batch, deductAmount));
 
       remaining = remaining.subtract(deductAmount);
     }
+    return deductions;
   }
 
   private void processInItem(StockMovement movement, Product product, CreateStockMovementItemRequest itemReq,
@@ -340,7 +393,7 @@ public class StockMovementService {
   public StockMovement createForTransfer(UUID tenantId, UUID warehouseId, UUID userId,
       StockMovementType type, UUID transferId,
       List<StockMovementItem> items, String notes) {
-    String code = generateCode(tenantId);
+    String code = documentCodeSequencer.nextMovementCode(tenantId);
 
     StockMovement movement = StockMovement.builder()
         .code(code)
@@ -359,9 +412,11 @@ public class StockMovementService {
     }
 
     StockMovement saved = movementRepository.save(movement);
+    movementRollupService.recordCreated(saved);
     recordStockMovementCreated(saved, transferId);
     log.info("StockMovement {} ({}) created for transfer {} in warehouse {}",
         saved.getCode(), saved.getType(), transferId, warehouseId);
+    reportCache.invalidateAfterCommit(tenantId);
     return saved;
   }
 
@@ -418,11 +473,10 @@ public class StockMovementService {
       movements = movementRepository.findWithFilters(tenantId, effectiveWarehouseId, type, dateFrom, dateTo, pageable);
     }
 
-    return movements.map(m -> {
-      String name = warehouseRepository.findById(m.getWarehouseId())
-          .map(Warehouse::getName).orElse("Unknown");
-      return mapper.toResponse(m, name);
-    });
+    Map<UUID, String> warehouseNames = referenceNameResolver.warehouseNames(tenantId,
+        movements.stream().map(StockMovement::getWarehouseId).toList());
+    return movements.map(m -> mapper.toResponse(m,
+        warehouseNames.getOrDefault(m.getWarehouseId(), ReferenceNameResolver.UNKNOWN_WAREHOUSE)));
   }
 
   @Transactional(readOnly = true)
@@ -433,42 +487,41 @@ public class StockMovementService {
     List<Warehouse> warehouses = warehouseRepository.findAllByTenantId(tenantId);
     List<UUID> warehouseIds = warehouses.stream().map(Warehouse::getId).collect(Collectors.toList());
 
-    List<StockMovement> movements = movementRepository.findForWarehouseSummary(
-        tenantId, warehouseIds, dateFrom, dateTo);
+    // Totals per warehouse and type come pre-aggregated by day from the rollup; the
+    // window is widened to whole days.
+    List<WarehouseMovementTypeTotalProjection> totals = movementDailyRollupRepository.typeTotalsPerWarehouse(
+        tenantId, warehouseIds,
+        dateFrom != null ? dateFrom.toLocalDate() : null,
+        dateTo != null ? dateTo.toLocalDate() : null);
 
     // Group by warehouse
-    Map<UUID, List<StockMovement>> byWarehouse = movements.stream()
-        .collect(Collectors.groupingBy(StockMovement::getWarehouseId));
+    Map<UUID, List<WarehouseMovementTypeTotalProjection>> byWarehouse = totals.stream()
+        .collect(Collectors.groupingBy(WarehouseMovementTypeTotalProjection::getWarehouseId));
 
     List<WarehouseMovementSummaryResponse.WarehouseSummary> summaries = new ArrayList<>();
 
     for (Warehouse wh : warehouses) {
-      List<StockMovement> whMovements = byWarehouse.getOrDefault(wh.getId(), Collections.emptyList());
-
-      Map<StockMovementType, List<StockMovement>> byType = whMovements.stream()
-          .collect(Collectors.groupingBy(StockMovement::getType));
+      List<WarehouseMovementTypeTotalProjection> whTotals =
+          byWarehouse.getOrDefault(wh.getId(), Collections.emptyList());
 
       BigDecimal totalIn = BigDecimal.ZERO;
       BigDecimal totalOut = BigDecimal.ZERO;
       List<WarehouseMovementSummaryResponse.TypeSummary> typeSummaries = new ArrayList<>();
 
-      for (Map.Entry<StockMovementType, List<StockMovement>> entry : byType.entrySet()) {
-        BigDecimal qty = entry.getValue().stream()
-            .flatMap(m -> m.getItems().stream())
-            .map(StockMovementItem::getQuantity)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+      for (WarehouseMovementTypeTotalProjection typeTotal : whTotals) {
+        BigDecimal qty = typeTotal.getItemQuantity();
 
-        if (entry.getKey().getDirection() == MovementDirection.IN) {
+        if (typeTotal.getDirection() == MovementDirection.IN) {
           totalIn = totalIn.add(qty);
         } else {
           totalOut = totalOut.add(qty);
         }
 
         typeSummaries.add(WarehouseMovementSummaryResponse.TypeSummary.builder()
-            .type(entry.getKey().name())
-            .direction(entry.getKey().getDirection().name())
+            .type(typeTotal.getType().name())
+            .direction(typeTotal.getDirection().name())
             .totalQuantity(qty)
-            .count(entry.getValue().size())
+            .count(typeTotal.getMovementCount())
             .build());
       }
 
@@ -488,26 +541,6 @@ public class StockMovementService {
 
   // ── Helpers ─────────────────────────────────────────────────────────────
 
-  private String generateCode(UUID tenantId) {
-    String prefix = "MOV-" + LocalDate.now().getYear() + "-";
-    String latestCode = movementRepository.findLatestCodeByTenantIdAndCodePrefix(tenantId, prefix);
-
-    if (latestCode == null || latestCode.isBlank()) {
-      return prefix + String.format("%0" + CODE_SEQUENCE_PADDING + "d", 1);
-    }
-
-    String sequencePart = latestCode.substring(prefix.length());
-    try {
-      long next = Long.parseLong(sequencePart) + 1;
-      return prefix + String.format("%0" + CODE_SEQUENCE_PADDING + "d", next);
-    } catch (NumberFormatException ex) {
-      log.warn("Unexpected movement code format '{}' for tenant {}. Falling back to count-based sequence.",
-          latestCode, tenantId);
-      long count = movementRepository.countByTenantIdAndCodePrefix(tenantId, prefix);
-      return prefix + String.format("%0" + CODE_SEQUENCE_PADDING + "d", count + 1);
-    }
-  }
-
   private LedgerEntryType mapToLedgerType(StockMovementType type) {
     return switch (type) {
       case USAGE -> LedgerEntryType.USAGE_OUT;
@@ -11,6 +11,10 @@ import br.com.stockshift.model.enums.LedgerEntryType;
 import br.com.stockshift.model.enums.TransferStatus;
 import br.com.stockshift.repository.*;
 import br.com.stockshift.security.SecurityUtils;
+import br.com.stockshift.service.BatchLockManager;
+import br.com.stockshift.service.DocumentCodeSequencer;
+import br.com.stockshift.service.ReferenceNameResolver;
+import br.com.stockshift.service.ReportCache;
 import br.com.stockshift.service.stockmovement.StockMovementService;
 import br.com.stockshift.model.entity.StockMovementItem;
 import br.com.stockshift.model.enums.StockMovementType;
@@ -25,21 +29,19 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.time.LocalDate;
 
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TransferService {
 
-    private static final int TRANSFER_CODE_SEQUENCE_PADDING = 4;
-
     private final TransferRepository transferRepository;
 
     private final BatchRepository batchRepository;
@@ -50,6 +52,10 @@ public class TransferService {
     private final SecurityUtils securityUtils;
     private final StockMovementService stockMovementService;
     private final AuditService auditService;
+    private final DocumentCodeSequencer documentCodeSequencer;
+    private final ReferenceNameResolver referenceNameResolver;
+    private final BatchLockManager batchLockManager;
+    private final ReportCache reportCache;
 
     @Transactional
     public TransferResponse create(CreateTransferRequest request) {
@@ -70,7 +76,7 @@ public class TransferService {
                 .orElseThrow(() -> new ResourceNotFoundException("Source warehouse not found"));
 
         // Generate transfer code
-        String code = generateTransferCode(tenantId);
+        String code = documentCodeSequencer.nextTransferCode(tenantId);
 
         // Create transfer
         Transfer transfer = Transfer.builder()
@@ -92,6 +98,7 @@ public class TransferService {
         Transfer saved = transferRepository.save(transfer);
         recordTransferEvent("TRANSFER_CREATED", saved, userId, null);
         log.info("Transfer {} created by user {}", saved.getCode(), userId);
+        reportCache.invalidateAfterCommit(tenantId);
 
         return transferMapper.toResponse(saved, sourceWarehouse.getName(), destinationWarehouse.getName());
     }
@@ -122,26 +129,6 @@ public class TransferService {
                 .build();
     }
 
-    private String generateTransferCode(UUID tenantId) {
-        String prefix = "TRF-" + LocalDate.now().getYear() + "-";
-        String latestCode = transferRepository.findLatestCodeByTenantIdAndCodePrefix(tenantId, prefix);
-
-        if (latestCode == null || latestCode.isBlank()) {
-            return prefix + String.format("%0" + TRANSFER_CODE_SEQUENCE_PADDING + "d", 1);
-        }
-
-        String sequencePart = latestCode.substring(prefix.length());
-        try {
-            long nextSequence = Long.parseLong(sequencePart) + 1;
-            return prefix + String.format("%0" + TRANSFER_CODE_SEQUENCE_PADDING + "d", nextSequence);
-        } catch (NumberFormatException ex) {
-            log.warn("Unexpected transfer code format '{}' for tenant {}. Falling back to count-based sequence.",
-                    latestCode, tenantId);
-            long count = transferRepository.countByTenantIdAndCodePrefix(tenantId, prefix);
-            return prefix + String.format("%0" + TRANSFER_CODE_SEQUENCE_PADDING + "d", count + 1);
-        }
-    }
-
     @Transactional(readOnly = true)
     public TransferResponse getById(UUID id) {
         UUID tenantId = TenantContext.getTenantId();
@@ -150,12 +137,10 @@ public class TransferService {
         Transfer transfer = transferRepository.findByTenantIdAndIdAndWarehouseScope(tenantId, id, currentWarehouseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Transfer not found"));
 
-        String sourceWarehouseName = warehouseRepository.findById(transfer.getSourceWarehouseId())
-                .map(Warehouse::getName).orElse("Unknown");
-        String destinationWarehouseName = warehouseRepository.findById(transfer.getDestinationWarehouseId())
-                .map(Warehouse::getName).orElse("Unknown");
+        Map<UUID, String> warehouseNames = referenceNameResolver.warehouseNames(tenantId,
+                List.of(transfer.getSourceWarehouseId(), transfer.getDestinationWarehouseId()));
 
-        return transferMapper.toResponse(transfer, sourceWarehouseName, destinationWarehouseName);
+        return toResponse(transfer, warehouseNames);
     }
 
     @Transactional(readOnly = true)
@@ -185,13 +170,19 @@ public class TransferService {
             transfers = transferRepository.findAllByTenantIdAndWarehouseScope(tenantId, currentWarehouseId, pageable);
         }
 
-        return transfers.map(t -> {
-            String sourceName = warehouseRepository.findById(t.getSourceWarehouseId())
-                    .map(Warehouse::getName).orElse("Unknown");
-            String destName = warehouseRepository.findById(t.getDestinationWarehouseId())
-                    .map(Warehouse::getName).orElse("Unknown");
-            return transferMapper.toResponse(t, sourceName, destName);
-        });
+        Map<UUID, String> warehouseNames = referenceNameResolver.warehouseNames(tenantId,
+                transfers.stream()
+                        .flatMap(t -> Stream.of(t.getSourceWarehouseId(), t.getDestinationWarehouseId()))
+                        .toList());
+
+        return transfers.map(t -> toResponse(t, warehouseNames));
+    }
+
+    private TransferResponse toResponse(Transfer transfer, Map<UUID, String> warehouseNames) {
+        return transferMapper.toResponse(transfer,
+                warehouseNames.getOrDefault(transfer.getSourceWarehouseId(), ReferenceNameResolver.UNKNOWN_WAREHOUSE),
+                warehouseNames.getOrDefault(transfer.getDestinationWarehouseId(),
+                        ReferenceNameResolver.UNKNOWN_WAREHOUSE));
     }
 
     @Transactional
@@ -223,6 +214,7 @@ public class TransferService {
 
         Transfer saved = transferRepository.save(transfer);
         recordTransferEvent("TRANSFER_UPDATED", saved, userId, null);
+        reportCache.invalidateAfterCommit(tenantId);
 
         String sourceWarehouseName = warehouseRepository.findById(transfer.getSourceWarehouseId())
                 .map(Warehouse::getName).orElse("Unknown");
@@ -247,11 +239,16 @@ public class TransferService {
         Warehouse destinationWarehouse = warehouseRepository.findById(transfer.getDestinationWarehouseId())
                 .orElseThrow(() -> new ResourceNotFoundException("Destination warehouse not found"));
 
+        // Lock every source batch at once, in the shared lock order
+        Map<UUID, Batch> lockedBatches = lockSourceBatches(transfer);
+
         // Process each item: validate stock, update batch quantities, create ledger
         // entries
         for (TransferItem item : transfer.getItems()) {
-            Batch batch = batchRepository.findByIdForUpdate(item.getSourceBatchId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Batch not found: " + item.getSourceBatchId()));
+            Batch batch = lockedBatches.get(item.getSourceBatchId());
+            if (batch == null) {
+                throw new ResourceNotFoundException("Batch not found: " + item.getSourceBatchId());
+            }
 
             if (batch.getQuantity().compareTo(item.getQuantitySent()) < 0) {
                 throw new BadRequestException("Insufficient quantity in batch " + batch.getBatchCode() +
@@ -298,8 +295,7 @@ public class TransferService {
                         .productName(ti.getProductName())
                         .productSku(ti.getProductSku())
                         .batchId(ti.getSourceBatchId())
-                        .batchCode(batchRepository.findById(ti.getSourceBatchId())
-                                .map(Batch::getBatchCode).orElse("Unknown"))
+                        .batchCode(lockedBatches.get(ti.getSourceBatchId()).getBatchCode())
                         .quantity(ti.getQuantitySent())
                         .build())
                 .collect(Collectors.toList());
@@ -330,9 +326,12 @@ public class TransferService {
             }
 
             // Revert stock movements
+            Map<UUID, Batch> lockedBatches = lockSourceBatches(transfer);
             for (TransferItem item : transfer.getItems()) {
-                Batch batch = batchRepository.findByIdForUpdate(item.getSourceBatchId())
-                        .orElseThrow(() -> new ResourceNotFoundException("Batch not found"));
+                Batch batch = lockedBatches.get(item.getSourceBatchId());
+                if (batch == null) {
+                    throw new ResourceNotFoundException("Batch not found");
+                }
 
                 batch.setTransitQuantity(batch.getTransitQuantity().subtract(item.getQuantitySent()));
                 batch.setQuantity(batch.getQuantity().add(item.getQuantitySent()));
@@ -363,6 +362,7 @@ public class TransferService {
         Transfer saved = transferRepository.save(transfer);
         recordTransferEvent("TRANSFER_CANCELLED", saved, userId, request.getReason());
         log.info("Transfer {} cancelled by user {}", saved.getCode(), userId);
+        reportCache.invalidateAfterCommit(tenantId);
 
         String sourceWarehouseName = warehouseRepository.findById(transfer.getSourceWarehouseId())
                 .map(Warehouse::getName).orElse("Unknown");
@@ -372,6 +372,10 @@ public class TransferService {
         return transferMapper.toResponse(saved, sourceWarehouseName, destinationWarehouseName);
     }
 
+    private Map<UUID, Batch> lockSourceBatches(Transfer transfer) {
+        return batchLockManager.lock(transfer.getItems().stream().map(TransferItem::getSourceBatchId).toList());
+    }
+
     private void validateSourceWarehouseAccess(Transfer transfer, UUID currentWarehouseId) {
         if (!transfer.getSourceWarehouseId().equals(currentWarehouseId)) {
             throw new ForbiddenException("Only source warehouse can perform this action");
@@ -11,6 +11,7 @@ import br.com.stockshift.model.enums.LedgerEntryType;
 import br.com.stockshift.model.enums.TransferStatus;
 import br.com.stockshift.repository.*;
 import br.com.stockshift.security.SecurityUtils;
+import br.com.stockshift.service.BatchLockManager;
 import br.com.stockshift.service.stockmovement.StockMovementService;
 import br.com.stockshift.model.enums.StockMovementType;
 import br.com.stockshift.service.audit.AuditEventCreateRequest;
@@ -45,6 +46,7 @@ public class TransferValidationService {
         private final SecurityUtils securityUtils;
         private final StockMovementService stockMovementService;
         private final AuditService auditService;
+        private final BatchLockManager batchLockManager;
 
         @Transactional
         public TransferResponse startValidation(UUID transferId) {
@@ -162,10 +164,17 @@ public class TransferValidationService {
                 int itemsOk = 0;
                 int itemsWithDiscrepancy = 0;
 
+                // Lock every source batch at once, in the shared lock order
+                Map<UUID, Batch> sourceBatches = batchLockManager.lock(transfer.getItems().stream()
+                                .map(TransferItem::getSourceBatchId)
+                                .toList());
+
                 for (TransferItem item : transfer.getItems()) {
                         // Clear transit quantity from source batch
-                        Batch sourceBatch = batchRepository.findByIdForUpdate(item.getSourceBatchId())
-                                        .orElseThrow(() -> new ResourceNotFoundException("Source batch not found"));
+                        Batch sourceBatch = sourceBatches.get(item.getSourceBatchId());
+                        if (sourceBatch == null) {
+                                throw new ResourceNotFoundException("Source batch not found");
+                        }
                         sourceBatch.setTransitQuantity(
                                         sourceBatch.getTransitQuantity().subtract(item.getQuantitySent()));
                         batchRepository.save(sourceBatch);
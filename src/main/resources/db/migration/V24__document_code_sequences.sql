@@ -0,0 +1,42 @@
+-- Per-tenant document code counters. Each row holds the highest number already
+-- handed out for a (prefix, period) pair; application nodes reserve blocks of
+-- numbers from it and serve codes from memory, so sale/movement/transfer/batch
+-- code generation no longer scans the business tables with LIKE ... ORDER BY.
+CREATE TABLE document_code_sequences (
+    tenant_id UUID NOT NULL,
+    prefix VARCHAR(10) NOT NULL,
+    period VARCHAR(8) NOT NULL,
+    last_value BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (tenant_id, prefix, period)
+);
+
+-- Seed counters from codes issued before this migration so new blocks never
+-- collide with the existing unique constraints.
+INSERT INTO document_code_sequences (tenant_id, prefix, period, last_value)
+SELECT tenant_id, 'VND', split_part(code, '-', 2), MAX(split_part(code, '-', 3)::BIGINT)
+FROM sales
+WHERE code ~ '^VND-[0-9]{4}-[0-9]{1,18}$'
+GROUP BY tenant_id, split_part(code, '-', 2)
+ON CONFLICT DO NOTHING;
+
+INSERT INTO document_code_sequences (tenant_id, prefix, period, last_value)
+SELECT tenant_id, 'MOV', split_part(code, '-', 2), MAX(split_part(code, '-', 3)::BIGINT)
+FROM stock_movements
+WHERE code ~ '^MOV-[0-9]{4}-[0-9]{1,18}$'
+GROUP BY tenant_id, split_part(code, '-', 2)
+ON CONFLICT DO NOTHING;
+
+INSERT INTO document_code_sequences (tenant_id, prefix, period, last_value)
+SELECT tenant_id, 'TRF', split_part(code, '-', 2), MAX(split_part(code, '-', 3)::BIGINT)
+FROM transfers
+WHERE code ~ '^TRF-[0-9]{4}-[0-9]{1,18}$'
+GROUP BY tenant_id, split_part(code, '-', 2)
+ON CONFLICT DO NOTHING;
+
+INSERT INTO document_code_sequences (tenant_id, prefix, period, last_value)
+SELECT tenant_id, 'BATCH', split_part(batch_code, '-', 2), MAX(split_part(batch_code, '-', 3)::BIGINT)
+FROM batches
+WHERE batch_code ~ '^BATCH-[0-9]{8}-[0-9]{1,18}$'
+GROUP BY tenant_id, split_part(batch_code, '-', 2)
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,12 @@
+-- Payment links are generated after the sale commits; track the asynchronous stage
+ALTER TABLE sales ADD COLUMN payment_link_status VARCHAR(20);
+ALTER TABLE sales ADD COLUMN payment_link_attempts INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE sales ADD COLUMN payment_link_error VARCHAR(500);
+ALTER TABLE sales ADD COLUMN payment_link_requested_at TIMESTAMP;
+
+ALTER TABLE sales ADD CONSTRAINT chk_sale_payment_link_status
+    CHECK (payment_link_status IS NULL OR payment_link_status IN ('PENDING', 'READY', 'FAILED'));
+
+-- Links of existing LINK sales were generated synchronously
+UPDATE sales SET payment_link_status = 'READY'
+WHERE payment_mode = 'LINK' AND payment_link IS NOT NULL;
@@ -0,0 +1,28 @@
+-- Durable inbox for inbound payment webhooks. The webhook endpoint only appends a
+-- row and acknowledges; workers claim rows with FOR UPDATE SKIP LOCKED, verify the
+-- payment with the provider and complete the sale outside the request thread.
+CREATE TABLE webhook_inbox (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    source VARCHAR(30) NOT NULL,
+    webhook_token_hash VARCHAR(64) NOT NULL,
+    order_nsu TEXT NOT NULL,
+    transaction_nsu TEXT NOT NULL DEFAULT '',
+    payload JSONB NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    locked_until TIMESTAMP,
+    last_error VARCHAR(500),
+    received_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP,
+    CONSTRAINT chk_webhook_inbox_status CHECK (status IN ('PENDING', 'PROCESSING', 'DONE', 'FAILED')),
+    -- Provider redeliveries of the same notification collapse into one row
+    CONSTRAINT uk_webhook_inbox_delivery UNIQUE (source, webhook_token_hash, order_nsu, transaction_nsu)
+);
+
+-- Claim scan and queue-depth metrics only look at unfinished rows
+CREATE INDEX idx_webhook_inbox_claimable ON webhook_inbox (next_attempt_at)
+    WHERE status IN ('PENDING', 'PROCESSING');
+
+CREATE INDEX idx_webhook_inbox_processed_at ON webhook_inbox (processed_at)
+    WHERE status = 'DONE';
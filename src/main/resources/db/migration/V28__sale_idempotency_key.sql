@@ -0,0 +1,6 @@
+-- Client-generated key of sales replayed by offline POS terminals (POST /api/sales/batch)
+ALTER TABLE sales ADD COLUMN idempotency_key VARCHAR(100);
+
+CREATE UNIQUE INDEX uk_sales_tenant_idempotency_key
+    ON sales (tenant_id, idempotency_key)
+    WHERE idempotency_key IS NOT NULL;
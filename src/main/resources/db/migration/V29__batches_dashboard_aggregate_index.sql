@@ -0,0 +1,8 @@
+-- Batch side of the dashboard stock aggregates (BatchRepository.findDashboardStockTotals
+-- and the per-warehouse/per-category breakdowns): the scoped warehouses' live batches are
+-- read from this index without visiting the table once it is vacuumed. Products and
+-- categories are still joined on product_id, so the queries as a whole are not index-only.
+CREATE INDEX idx_batches_tenant_warehouse_stock
+    ON batches (tenant_id, warehouse_id)
+    INCLUDE (product_id, quantity, cost_price, expiration_date)
+    WHERE deleted_at IS NULL;
@@ -0,0 +1,20 @@
+-- Dashboard KPI figures of closed months. A month never changes once it ends, so
+-- its figures are aggregated from stock_movements once (by the month closer job,
+-- or lazily on first read) and read from here afterwards; only the open month is
+-- aggregated live. warehouse_id is the nil UUID for the tenant-wide figures.
+-- stock_value and transit_value are the figures at the time the month was closed.
+CREATE TABLE kpi_period_snapshot (
+    tenant_id UUID NOT NULL,
+    warehouse_id UUID NOT NULL,
+    period_start DATE NOT NULL,
+    stock_value NUMERIC NOT NULL DEFAULT 0,
+    purchases_value NUMERIC NOT NULL DEFAULT 0,
+    losses_value NUMERIC NOT NULL DEFAULT 0,
+    damage_value NUMERIC NOT NULL DEFAULT 0,
+    gift_value NUMERIC NOT NULL DEFAULT 0,
+    adjustment_value NUMERIC NOT NULL DEFAULT 0,
+    transit_value NUMERIC NOT NULL DEFAULT 0,
+    stock_turnover_rate NUMERIC NOT NULL DEFAULT 0,
+    closed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (tenant_id, warehouse_id, period_start)
+);
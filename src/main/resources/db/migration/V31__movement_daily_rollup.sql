@@ -0,0 +1,28 @@
+-- Per-day movement totals by warehouse and type, maintained in the transaction that
+-- records the movement. The movement trend, dashboard movement stats, monthly KPIs and
+-- the warehouse movement summary read only this table, so their cost depends on the
+-- number of days shown instead of the movement history.
+-- Days follow stock_movements.created_at; only movements with items are counted,
+-- matching the previous stock_movements JOIN stock_movement_items queries.
+CREATE TABLE movement_daily_rollup (
+    tenant_id UUID NOT NULL,
+    warehouse_id UUID NOT NULL,
+    day DATE NOT NULL,
+    type VARCHAR(30) NOT NULL,
+    direction VARCHAR(10) NOT NULL,
+    item_quantity NUMERIC(19,4) NOT NULL DEFAULT 0,
+    movement_count BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (tenant_id, warehouse_id, day, type)
+);
+
+-- Reads span one or every warehouse of a tenant for a range of days
+CREATE INDEX idx_movement_daily_rollup_tenant_day ON movement_daily_rollup (tenant_id, day);
+
+-- Backfill from the movements recorded before this migration
+INSERT INTO movement_daily_rollup (tenant_id, warehouse_id, day, type, direction, item_quantity, movement_count)
+SELECT sm.tenant_id, sm.warehouse_id, CAST(sm.created_at AS DATE), sm.type, sm.direction,
+       COALESCE(SUM(smi.quantity), 0), COUNT(DISTINCT sm.id)
+FROM stock_movements sm
+JOIN stock_movement_items smi ON smi.stock_movement_id = sm.id
+GROUP BY sm.tenant_id, sm.warehouse_id, CAST(sm.created_at AS DATE), sm.type, sm.direction;
@@ -0,0 +1,9 @@
+-- Back BatchRepository.findLowStock and findExpiringBatches: both read the lowest
+-- quantities / soonest expirations of a tenant in index order and stop at the limit.
+CREATE INDEX idx_batches_tenant_quantity
+    ON batches (tenant_id, quantity)
+    WHERE deleted_at IS NULL;
+
+CREATE INDEX idx_batches_tenant_expiration
+    ON batches (tenant_id, expiration_date)
+    WHERE deleted_at IS NULL AND expiration_date IS NOT NULL;
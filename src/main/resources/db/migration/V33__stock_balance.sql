@@ -0,0 +1,92 @@
+-- Stock on hand per tenant, warehouse and product: the sums of the live batches,
+-- kept current so availability checks and stock listings read one row (or one index
+-- range) instead of aggregating batches.
+-- Maintained by a trigger on batches, so every change commits or rolls back with the
+-- batch write that caused it: entity saves, guarded conditional deductions, transfers
+-- and the bulk soft deletes that bypass the entity layer alike.
+-- value_at_cost is quantity * cost_price (cents; batches without a cost count as 0).
+-- batch_count counts live batches, including empty ones; rows whose batches were all
+-- deleted stay with batch_count = 0 and are skipped by readers.
+CREATE TABLE stock_balance (
+    tenant_id UUID NOT NULL,
+    warehouse_id UUID NOT NULL,
+    product_id UUID NOT NULL,
+    on_hand NUMERIC(19,4) NOT NULL DEFAULT 0,
+    in_transit NUMERIC(19,4) NOT NULL DEFAULT 0,
+    value_at_cost NUMERIC(24,4) NOT NULL DEFAULT 0,
+    batch_count INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (tenant_id, warehouse_id, product_id)
+);
+
+-- Product-wide lookups across warehouses
+CREATE INDEX idx_stock_balance_tenant_product ON stock_balance (tenant_id, product_id);
+
+CREATE FUNCTION stock_balance_add(
+    p_tenant_id UUID, p_warehouse_id UUID, p_product_id UUID,
+    p_on_hand NUMERIC, p_in_transit NUMERIC, p_value_at_cost NUMERIC, p_batch_count INTEGER
+) RETURNS void AS $$
+BEGIN
+    INSERT INTO stock_balance AS sb (tenant_id, warehouse_id, product_id, on_hand, in_transit,
+                                     value_at_cost, batch_count, updated_at)
+    VALUES (p_tenant_id, p_warehouse_id, p_product_id, p_on_hand, p_in_transit,
+            p_value_at_cost, p_batch_count, CURRENT_TIMESTAMP)
+    ON CONFLICT (tenant_id, warehouse_id, product_id)
+    DO UPDATE SET on_hand = sb.on_hand + EXCLUDED.on_hand,
+                  in_transit = sb.in_transit + EXCLUDED.in_transit,
+                  value_at_cost = sb.value_at_cost + EXCLUDED.value_at_cost,
+                  batch_count = sb.batch_count + EXCLUDED.batch_count,
+                  updated_at = CURRENT_TIMESTAMP;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION stock_balance_apply_batch_change() RETURNS trigger AS $$
+BEGIN
+    -- Common case: quantity or cost of a live batch changed in place; apply the net delta once
+    IF TG_OP = 'UPDATE' AND OLD.deleted_at IS NULL AND NEW.deleted_at IS NULL
+            AND OLD.tenant_id = NEW.tenant_id AND OLD.warehouse_id = NEW.warehouse_id
+            AND OLD.product_id = NEW.product_id THEN
+        PERFORM stock_balance_add(NEW.tenant_id, NEW.warehouse_id, NEW.product_id,
+                NEW.quantity - OLD.quantity,
+                NEW.transit_quantity - OLD.transit_quantity,
+                NEW.quantity * COALESCE(NEW.cost_price, 0) - OLD.quantity * COALESCE(OLD.cost_price, 0),
+                0);
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.deleted_at IS NULL THEN
+        PERFORM stock_balance_add(OLD.tenant_id, OLD.warehouse_id, OLD.product_id,
+                -OLD.quantity, -OLD.transit_quantity, -(OLD.quantity * COALESCE(OLD.cost_price, 0)), -1);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.deleted_at IS NULL THEN
+        PERFORM stock_balance_add(NEW.tenant_id, NEW.warehouse_id, NEW.product_id,
+                NEW.quantity, NEW.transit_quantity, NEW.quantity * COALESCE(NEW.cost_price, 0), 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_batches_stock_balance_insert_delete
+    AFTER INSERT OR DELETE ON batches
+    FOR EACH ROW EXECUTE FUNCTION stock_balance_apply_batch_change();
+
+-- Price edits and other updates that leave the balance unchanged do not touch it
+CREATE TRIGGER trg_batches_stock_balance_update
+    AFTER UPDATE ON batches
+    FOR EACH ROW
+    WHEN (OLD.quantity IS DISTINCT FROM NEW.quantity
+          OR OLD.transit_quantity IS DISTINCT FROM NEW.transit_quantity
+          OR OLD.cost_price IS DISTINCT FROM NEW.cost_price
+          OR OLD.deleted_at IS DISTINCT FROM NEW.deleted_at
+          OR OLD.warehouse_id IS DISTINCT FROM NEW.warehouse_id
+          OR OLD.product_id IS DISTINCT FROM NEW.product_id
+          OR OLD.tenant_id IS DISTINCT FROM NEW.tenant_id)
+    EXECUTE FUNCTION stock_balance_apply_batch_change();
+
+-- Backfill from the batches recorded before this migration
+INSERT INTO stock_balance (tenant_id, warehouse_id, product_id, on_hand, in_transit, value_at_cost, batch_count)
+SELECT tenant_id, warehouse_id, product_id,
+       SUM(quantity), SUM(transit_quantity), SUM(quantity * COALESCE(cost_price, 0)), COUNT(*)
+FROM batches
+WHERE deleted_at IS NULL
+GROUP BY tenant_id, warehouse_id, product_id;
@@ -0,0 +1,3 @@
+-- Ledger entries of a batch, for reconciliation: the grouped SUM per batch is read from
+-- the index alone instead of scanning the ledger once per batch.
+CREATE INDEX idx_inventory_ledger_batch ON inventory_ledger (batch_id) INCLUDE (entry_type, quantity);
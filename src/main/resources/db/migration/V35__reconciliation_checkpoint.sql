@@ -0,0 +1,23 @@
+-- Incremental reconciliation: the ledger is append-only, so the net quantity of a batch
+-- through a point in time never changes once every entry before it has committed.
+-- ledger_high_water is the created_at up to which a tenant's ledger has been summed;
+-- entries at or after it are summed again on every run until a later run advances it.
+CREATE TABLE reconciliation_checkpoint (
+    tenant_id UUID PRIMARY KEY,
+    ledger_high_water TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Net ledger quantity of each batch through its tenant's ledger_high_water
+CREATE TABLE batch_balance_checkpoint (
+    batch_id UUID PRIMARY KEY,
+    tenant_id UUID NOT NULL,
+    ledger_quantity NUMERIC(19,3) NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_batch_balance_checkpoint_tenant ON batch_balance_checkpoint (tenant_id);
+
+-- Ledger entries of a tenant after a checkpoint, read from the index alone
+CREATE INDEX idx_inventory_ledger_tenant_created ON inventory_ledger (tenant_id, created_at)
+    INCLUDE (batch_id, entry_type, quantity);
@@ -0,0 +1,125 @@
+-- inventory_ledger becomes a table partitioned by month on created_at. Queries bounded
+-- by created_at scan only the matching months, vacuum works one month at a time, and
+-- old months are moved whole to inventory_ledger_archive instead of deleted row by row.
+-- Partitions are named inventory_ledger_pYYYYMM; rows of a month without a partition
+-- land in inventory_ledger_default until LedgerPartitionJob creates it.
+ALTER TABLE inventory_ledger RENAME TO inventory_ledger_unpartitioned;
+
+CREATE TABLE inventory_ledger (
+    id UUID NOT NULL,
+    tenant_id UUID NOT NULL,
+    product_id UUID NOT NULL,
+    warehouse_id UUID,
+    batch_id UUID,
+    transfer_item_id UUID,
+    reference_id UUID NOT NULL,
+    reference_type VARCHAR(50) NOT NULL,
+    entry_type VARCHAR(50) NOT NULL,
+    quantity NUMERIC(15, 3) NOT NULL,
+    balance_after NUMERIC(15, 3),
+    notes TEXT,
+    created_by UUID NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT inventory_ledger_entry_type_check
+        CHECK (entry_type IN (
+            'PURCHASE_IN', 'ADJUSTMENT_IN', 'ADJUSTMENT_OUT',
+            'TRANSFER_OUT', 'TRANSFER_CANCELLED', 'TRANSFER_IN',
+            'TRANSFER_IN_DISCREPANCY', 'USAGE_OUT', 'GIFT_OUT',
+            'LOSS_OUT', 'DAMAGE_OUT', 'STOCK_MOVEMENT_IN',
+            'STOCK_MOVEMENT_OUT', 'SALE_OUT', 'SALE_CANCEL_IN'
+        ))
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE inventory_ledger_default PARTITION OF inventory_ledger DEFAULT;
+
+-- Creates the partition of the month containing p_month, moving in any rows of that month
+-- from the default partition. Returns false when the month already has a partition (live
+-- or archived).
+CREATE FUNCTION inventory_ledger_ensure_partition(p_month DATE) RETURNS boolean AS $$
+DECLARE
+    v_from TIMESTAMP := date_trunc('month', p_month);
+    v_to TIMESTAMP := date_trunc('month', p_month) + INTERVAL '1 month';
+    v_name TEXT := 'inventory_ledger_p' || to_char(p_month, 'YYYYMM');
+BEGIN
+    IF to_regclass(v_name) IS NOT NULL THEN
+        RETURN false;
+    END IF;
+    EXECUTE format('CREATE TABLE %I (LIKE inventory_ledger INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', v_name);
+    EXECUTE format('WITH moved AS (DELETE FROM inventory_ledger_default WHERE created_at >= %L AND created_at < %L '
+                   'RETURNING *) INSERT INTO %I SELECT * FROM moved', v_from, v_to, v_name);
+    EXECUTE format('ALTER TABLE inventory_ledger ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   v_name, v_from, v_to);
+    RETURN true;
+END;
+$$ LANGUAGE plpgsql;
+
+-- From the first month with entries (or the current one) to three months ahead
+DO $$
+DECLARE
+    v_month DATE := date_trunc('month', COALESCE((SELECT MIN(created_at) FROM inventory_ledger_unpartitioned),
+                                                 LOCALTIMESTAMP));
+BEGIN
+    WHILE v_month <= date_trunc('month', LOCALTIMESTAMP) + INTERVAL '3 months' LOOP
+        PERFORM inventory_ledger_ensure_partition(v_month);
+        v_month := v_month + INTERVAL '1 month';
+    END LOOP;
+END;
+$$;
+
+INSERT INTO inventory_ledger (id, tenant_id, product_id, warehouse_id, batch_id, transfer_item_id, reference_id,
+                              reference_type, entry_type, quantity, balance_after, notes, created_by, created_at)
+SELECT id, tenant_id, product_id, warehouse_id, batch_id, transfer_item_id, reference_id,
+       reference_type, entry_type, quantity, balance_after, notes, created_by, created_at
+FROM inventory_ledger_unpartitioned;
+
+DROP TABLE inventory_ledger_unpartitioned;
+
+-- Created on the parent, so every partition gets them, including those attached later
+ALTER TABLE inventory_ledger ADD CONSTRAINT inventory_ledger_pkey PRIMARY KEY (id, created_at);
+CREATE INDEX idx_inventory_ledger_tenant ON inventory_ledger (tenant_id);
+CREATE INDEX idx_inventory_ledger_product ON inventory_ledger (product_id);
+CREATE INDEX idx_inventory_ledger_reference ON inventory_ledger (reference_type, reference_id);
+CREATE INDEX idx_inventory_ledger_batch ON inventory_ledger (batch_id) INCLUDE (entry_type, quantity);
+CREATE INDEX idx_inventory_ledger_tenant_created ON inventory_ledger (tenant_id, created_at)
+    INCLUDE (batch_id, entry_type, quantity);
+
+-- Months older than the retention of the live table. Same columns and indexes, so a
+-- detached partition is attached here as is, without copying rows or rebuilding indexes.
+CREATE TABLE inventory_ledger_archive (LIKE inventory_ledger INCLUDING ALL) PARTITION BY RANGE (created_at);
+
+-- Moves every live partition that ends on or before p_cutoff to the archive; returns how
+-- many were moved. Gives up on a busy table rather than queue ledger writes behind it.
+CREATE FUNCTION inventory_ledger_archive_before(p_cutoff DATE) RETURNS integer AS $$
+DECLARE
+    v_partition RECORD;
+    v_from TIMESTAMP;
+    v_moved INTEGER := 0;
+BEGIN
+    PERFORM set_config('lock_timeout', '5s', true);
+    FOR v_partition IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'inventory_ledger'::regclass
+          AND c.relname ~ '^inventory_ledger_p[0-9]{6}$'
+        ORDER BY c.relname
+    LOOP
+        v_from := to_date(right(v_partition.relname, 6), 'YYYYMM');
+        EXIT WHEN v_from + INTERVAL '1 month' > p_cutoff;
+        EXECUTE format('ALTER TABLE inventory_ledger DETACH PARTITION %I', v_partition.relname);
+        EXECUTE format('ALTER TABLE inventory_ledger_archive ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                       v_partition.relname, v_from, v_from + INTERVAL '1 month');
+        -- Never written again: autovacuum has nothing left to reclaim there
+        EXECUTE format('ALTER TABLE %I SET (autovacuum_enabled = false)', v_partition.relname);
+        v_moved := v_moved + 1;
+    END LOOP;
+    RETURN v_moved;
+END;
+$$ LANGUAGE plpgsql;
+
+-- The whole ledger, live and archived, for the readers that need all of it (full
+-- reconciliation); everything else reads inventory_ledger.
+CREATE VIEW inventory_ledger_history AS
+SELECT * FROM inventory_ledger
+UNION ALL
+SELECT * FROM inventory_ledger_archive;
@@ -0,0 +1,10 @@
+-- Ledger of a warehouse or product newest first, read in keyset pages: a page continues
+-- right after the (created_at, id) of the last row of the previous one. Also on the
+-- archive, so partitions moved there keep matching its indexes.
+CREATE INDEX idx_inventory_ledger_warehouse_created ON inventory_ledger (warehouse_id, created_at DESC, id DESC);
+CREATE INDEX idx_inventory_ledger_product_created ON inventory_ledger (product_id, created_at DESC, id DESC);
+
+CREATE INDEX idx_inventory_ledger_archive_warehouse_created
+    ON inventory_ledger_archive (warehouse_id, created_at DESC, id DESC);
+CREATE INDEX idx_inventory_ledger_archive_product_created
+    ON inventory_ledger_archive (product_id, created_at DESC, id DESC);
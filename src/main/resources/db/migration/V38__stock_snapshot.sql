@@ -0,0 +1,23 @@
+-- Point-in-time stock: the net ledger quantity of every batch at the end of a day, so
+-- "stock as of D" is the nearest snapshot on or before D plus the ledger entries
+-- created after it, instead of a replay of the ledger from its first entry.
+-- Written once per tenant and day by the nightly snapshot job, each day from the
+-- previous one plus that day's entries; the ledger is append-only, so a day never
+-- changes once written. Past the daily retention only month-end snapshots are kept.
+CREATE TABLE stock_snapshot (
+    tenant_id UUID NOT NULL,
+    snapshot_date DATE NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (tenant_id, snapshot_date)
+);
+
+-- Batches with a non-zero balance only: an absent batch had none that day
+CREATE TABLE stock_snapshot_batch (
+    tenant_id UUID NOT NULL,
+    snapshot_date DATE NOT NULL,
+    batch_id UUID NOT NULL,
+    quantity NUMERIC(19,3) NOT NULL,
+    PRIMARY KEY (tenant_id, snapshot_date, batch_id),
+    CONSTRAINT fk_stock_snapshot_batch_snapshot FOREIGN KEY (tenant_id, snapshot_date)
+        REFERENCES stock_snapshot (tenant_id, snapshot_date) ON DELETE CASCADE
+);
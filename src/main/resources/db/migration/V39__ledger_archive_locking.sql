@@ -0,0 +1,53 @@
+-- Replaces inventory_ledger_archive_before (V36), whose comment said it never queues
+-- ledger writes. A plain DETACH PARTITION takes an ACCESS EXCLUSIVE lock on
+-- inventory_ledger, and every ledger write that arrives while it waits for that lock
+-- queues behind it. DETACH ... CONCURRENTLY would avoid that, but Postgres refuses it on
+-- a table with a default partition, and inventory_ledger_default must stay.
+--
+-- The lock is now waited for at most 1s, so a write stalls at most that long (plus the
+-- detach itself, which reads no rows) before the month is left for the next run.
+--
+-- Archived months also keep autovacuum. V36 turned it off, but those months are still
+-- read through inventory_ledger_history. They need the vacuum that marks their last
+-- writes all-visible (index-only scans) and the statistics that analyze keeps. A month
+-- that is no longer written gives autovacuum no reason to come back anyway.
+CREATE OR REPLACE FUNCTION inventory_ledger_archive_before(p_cutoff DATE) RETURNS integer AS $$
+DECLARE
+    v_partition RECORD;
+    v_from TIMESTAMP;
+    v_moved INTEGER := 0;
+BEGIN
+    PERFORM set_config('lock_timeout', '1s', true);
+    FOR v_partition IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'inventory_ledger'::regclass
+          AND c.relname ~ '^inventory_ledger_p[0-9]{6}$'
+        ORDER BY c.relname
+    LOOP
+        v_from := to_date(right(v_partition.relname, 6), 'YYYYMM');
+        EXIT WHEN v_from + INTERVAL '1 month' > p_cutoff;
+        EXECUTE format('ALTER TABLE inventory_ledger DETACH PARTITION %I', v_partition.relname);
+        EXECUTE format('ALTER TABLE inventory_ledger_archive ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                       v_partition.relname, v_from, v_from + INTERVAL '1 month');
+        v_moved := v_moved + 1;
+    END LOOP;
+    RETURN v_moved;
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+DECLARE
+    v_partition RECORD;
+BEGIN
+    FOR v_partition IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'inventory_ledger_archive'::regclass
+    LOOP
+        EXECUTE format('ALTER TABLE %I RESET (autovacuum_enabled)', v_partition.relname);
+    END LOOP;
+END;
+$$;
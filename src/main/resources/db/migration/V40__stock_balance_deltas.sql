@@ -0,0 +1,56 @@
+-- The batch triggers (V33) no longer update stock_balance in the writing transaction.
+-- Every write to a product's batches in a warehouse upserted the same balance row, so
+-- concurrent sales of one product queued on that row until each committed, even in the
+-- CONDITIONAL deduction mode that locks no batches up front.
+--
+-- The triggers now append their deltas to stock_balance_delta, which takes no row locks
+-- beyond the new row. StockBalanceFoldJob folds the deltas into stock_balance every few
+-- seconds, and readers read stock_balance_current: the folded balance plus the deltas
+-- not folded yet, so they see every committed write as before.
+--
+-- Each delta also takes the tenant's balance lock in shared mode. A rebuild of the
+-- tenant's balances takes it exclusively, so it waits only for that tenant's batch
+-- writes (V33 rebuilds locked stock_balance, and with it every tenant's writes).
+CREATE TABLE stock_balance_delta (
+    id BIGSERIAL PRIMARY KEY,
+    tenant_id UUID NOT NULL,
+    warehouse_id UUID NOT NULL,
+    product_id UUID NOT NULL,
+    on_hand NUMERIC(19,4) NOT NULL,
+    in_transit NUMERIC(19,4) NOT NULL,
+    value_at_cost NUMERIC(24,4) NOT NULL,
+    batch_count INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_stock_balance_delta_key ON stock_balance_delta (tenant_id, warehouse_id, product_id);
+
+CREATE OR REPLACE FUNCTION stock_balance_add(
+    p_tenant_id UUID, p_warehouse_id UUID, p_product_id UUID,
+    p_on_hand NUMERIC, p_in_transit NUMERIC, p_value_at_cost NUMERIC, p_batch_count INTEGER
+) RETURNS void AS $$
+BEGIN
+    PERFORM pg_advisory_xact_lock_shared(hashtextextended('stock_balance:' || CAST(p_tenant_id AS text), 0));
+    INSERT INTO stock_balance_delta (tenant_id, warehouse_id, product_id, on_hand, in_transit,
+                                     value_at_cost, batch_count)
+    VALUES (p_tenant_id, p_warehouse_id, p_product_id, p_on_hand, p_in_transit,
+            p_value_at_cost, p_batch_count);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Same columns as stock_balance; a key with no folded row yet comes from its deltas alone
+CREATE VIEW stock_balance_current AS
+SELECT tenant_id, warehouse_id, product_id,
+       SUM(on_hand) AS on_hand,
+       SUM(in_transit) AS in_transit,
+       SUM(value_at_cost) AS value_at_cost,
+       CAST(SUM(batch_count) AS INTEGER) AS batch_count,
+       MAX(updated_at) AS updated_at
+FROM (
+    SELECT tenant_id, warehouse_id, product_id, on_hand, in_transit, value_at_cost, batch_count, updated_at
+    FROM stock_balance
+    UNION ALL
+    SELECT tenant_id, warehouse_id, product_id, on_hand, in_transit, value_at_cost, batch_count, created_at
+    FROM stock_balance_delta
+) entries
+GROUP BY tenant_id, warehouse_id, product_id;
@@ -0,0 +1,10 @@
+-- Warehouse-scoped counterparts of the V32 indexes, for BatchRepository.findLowStockByWarehouse
+-- and findExpiringBatchesByWarehouse. On the tenant-only indexes a warehouse user's widget
+-- walked the lowest quantities / soonest expirations of every warehouse to fill its page.
+CREATE INDEX idx_batches_tenant_warehouse_quantity
+    ON batches (tenant_id, warehouse_id, quantity)
+    WHERE deleted_at IS NULL;
+
+CREATE INDEX idx_batches_tenant_warehouse_expiration
+    ON batches (tenant_id, warehouse_id, expiration_date)
+    WHERE deleted_at IS NULL AND expiration_date IS NOT NULL;
@@ -0,0 +1,185 @@
+package br.com.stockshift.config;
+
+import br.com.stockshift.config.ReadReplicaRouter.Target;
+import br.com.stockshift.security.TenantContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReadReplicaRouterTest {
+
+    @Mock
+    private DataSource primary;
+    @Mock
+    private DataSource replica;
+    @Mock
+    private StringRedisTemplate redisTemplate;
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private final Map<String, String> redis = new HashMap<>();
+    private ReadReplicaProperties properties;
+    private ReadReplicaRouter router;
+    private UUID tenantId;
+
+    @BeforeEach
+    void setUp() {
+        tenantId = UUID.randomUUID();
+        TenantContext.setTenantId(tenantId);
+        properties = new ReadReplicaProperties();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenAnswer(invocation -> redis.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> redis.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(valueOperations).set(anyString(), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS));
+        router = new ReadReplicaRouter(primary, replica, redisTemplate, properties, new SimpleMeterRegistry());
+        router.applyLag(0.1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TenantContext.clear();
+    }
+
+    @Test
+    void readOnlyTransactionShouldUseReplica() {
+        beginTransaction(true);
+
+        assertThat(router.route()).isEqualTo(Target.REPLICA);
+    }
+
+    @Test
+    void writesAndNonTransactionalAccessShouldUsePrimary() {
+        assertThat(router.route()).isEqualTo(Target.PRIMARY);
+
+        beginTransaction(false);
+
+        assertThat(router.route()).isEqualTo(Target.PRIMARY);
+    }
+
+    @Test
+    void readOnlyTransactionWithoutTenantShouldUsePrimary() {
+        TenantContext.clear();
+        beginTransaction(true);
+
+        assertThat(router.route()).isEqualTo(Target.PRIMARY);
+    }
+
+    @Test
+    void tenantShouldReadFromPrimaryAfterCommittingAWrite() {
+        beginTransaction(false);
+        router.route();
+        commit();
+
+        beginTransaction(true);
+        assertThat(router.route()).isEqualTo(Target.PRIMARY);
+
+        TenantContext.setTenantId(UUID.randomUUID());
+        assertThat(router.route()).isEqualTo(Target.REPLICA);
+    }
+
+    @Test
+    void rolledBackWriteShouldNotPinTenantToPrimary() {
+        beginTransaction(false);
+        router.route();
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        beginTransaction(true);
+        assertThat(router.route()).isEqualTo(Target.REPLICA);
+    }
+
+    @Test
+    void writeRecordedByAnotherNodeShouldPinTenantToPrimary() {
+        ReadReplicaRouter otherNode =
+                new ReadReplicaRouter(primary, replica, redisTemplate, properties, new SimpleMeterRegistry());
+        otherNode.recordWrite(tenantId);
+
+        beginTransaction(true);
+
+        assertThat(router.route()).isEqualTo(Target.PRIMARY);
+    }
+
+    @Test
+    void shouldUsePrimaryWhenRecentWritesCannotBeRead() {
+        when(valueOperations.get(anyString())).thenThrow(new RedisConnectionFailureException("down"));
+        beginTransaction(true);
+
+        assertThat(router.route()).isEqualTo(Target.PRIMARY);
+    }
+
+    @Test
+    void laggingOrUnreachableReplicaShouldBeSkippedUntilItCatchesUp() throws SQLException {
+        beginTransaction(true);
+
+        router.applyLag(30);
+        assertThat(router.route()).isEqualTo(Target.PRIMARY);
+
+        router.applyLag(0);
+        assertThat(router.route()).isEqualTo(Target.REPLICA);
+
+        when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+        router.checkLag();
+        assertThat(router.isReplicaAvailable()).isFalse();
+        assertThat(router.route()).isEqualTo(Target.PRIMARY);
+    }
+
+    @Test
+    void staleLagMeasurementShouldNotCount() {
+        beginTransaction(true);
+        long checkInterval = properties.getLagCheckInterval().toNanos();
+
+        router.applyLag(0, System.nanoTime() - checkInterval * (ReadReplicaRouter.STALE_AFTER_CHECKS + 1));
+        assertThat(router.isReplicaAvailable()).isFalse();
+        assertThat(router.route()).isEqualTo(Target.PRIMARY);
+
+        router.applyLag(0, System.nanoTime() - checkInterval);
+        assertThat(router.route()).isEqualTo(Target.REPLICA);
+    }
+
+    private void beginTransaction(boolean readOnly) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.initSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+
+    private void commit() {
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+}
@@ -18,10 +18,13 @@ import br.com.stockshift.dto.user.CreateUserRequest;
 import br.com.stockshift.dto.user.CreateUserResponse;
 import br.com.stockshift.dto.user.UpdateUserRequest;
 import br.com.stockshift.dto.user.UserResponse;
+import br.com.stockshift.exception.BadRequestException;
 import br.com.stockshift.model.enums.StockMovementType;
 import br.com.stockshift.model.enums.TransferStatus;
+import br.com.stockshift.security.TenantContext;
 import br.com.stockshift.service.RoleService;
 import br.com.stockshift.service.UserService;
+import br.com.stockshift.service.stockmovement.MovementRollupService;
 import br.com.stockshift.service.stockmovement.StockMovementService;
 import br.com.stockshift.service.transfer.TransferService;
 import br.com.stockshift.service.transfer.TransferValidationService;
@@ -33,11 +36,13 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
@@ -56,6 +61,8 @@ class AdminControllersTest {
     private TransferService transferService;
     @Mock
     private TransferValidationService transferValidationService;
+    @Mock
+    private MovementRollupService movementRollupService;
 
     @Test
     void roleControllerShouldWrapCrudResponses() {
@@ -152,4 +159,23 @@ class AdminControllersTest {
         assertThat(controller.getDiscrepancyReport(id).getBody().getData().getTransferId()).isEqualTo(id);
         assertThat(controller.getValidationLogs(id).getBody().getData()).hasSize(1);
     }
+
+    @Test
+    void movementRollupRebuildShouldRejectSpansLongerThanAQuarter() {
+        AdminMovementRollupController controller = new AdminMovementRollupController(movementRollupService);
+        UUID tenantId = UUID.randomUUID();
+        LocalDate from = LocalDate.of(2026, 1, 1);
+        TenantContext.setTenantId(tenantId);
+        try {
+            when(movementRollupService.rebuild(tenantId, from, from.plusDays(91))).thenReturn(12);
+
+            assertThat(controller.rebuild(from, from.plusDays(91)).getBody().getData()).isEqualTo(12);
+            assertThatThrownBy(() -> controller.rebuild(from, from.plusDays(92)))
+                    .isInstanceOf(BadRequestException.class);
+            assertThatThrownBy(() -> controller.rebuild(from.plusDays(1), from))
+                    .isInstanceOf(BadRequestException.class);
+        } finally {
+            TenantContext.clear();
+        }
+    }
 }
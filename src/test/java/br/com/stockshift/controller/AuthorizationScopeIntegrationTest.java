@@ -33,4 +33,18 @@ class AuthorizationScopeIntegrationTest extends BaseIntegrationTest {
         mockMvc.perform(get("/api/batches/warehouse/{warehouseId}", UUID.randomUUID()))
                 .andExpect(status().isForbidden());
     }
+
+    @Test
+    @WithMockUser(authorities = {"batches:read"})
+    void shouldReturnForbiddenForMetricsWithoutAdminRole() throws Exception {
+        mockMvc.perform(get("/actuator/metrics"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(roles = {"ADMIN"})
+    void shouldReturnMetricsToAdmins() throws Exception {
+        mockMvc.perform(get("/actuator/metrics"))
+                .andExpect(status().isOk());
+    }
 }
@@ -1,15 +1,27 @@
 package br.com.stockshift.controller;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
 import java.util.UUID;
 
 import br.com.stockshift.BaseIntegrationTest;
@@ -232,9 +244,45 @@ class ReportControllerIntegrationTest extends BaseIntegrationTest {
         mockMvc.perform(get("/api/reports/stock"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
-                .andExpect(jsonPath("$.data").isArray())
-                .andExpect(jsonPath("$.data[0].productName").value("Report Product"))
-                .andExpect(jsonPath("$.data[0].totalQuantity").value(75));
+                .andExpect(jsonPath("$.data.items").isArray())
+                .andExpect(jsonPath("$.data.items[0].productName").value("Report Product"))
+                .andExpect(jsonPath("$.data.items[0].totalQuantity").value(75))
+                .andExpect(jsonPath("$.data.nextCursor").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(username = "report@test.com", authorities = { "ROLE_ADMIN" })
+    void shouldStreamStockReportAsCsv() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/reports/stock/stream").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string(startsWith("product_id,produto,")))
+                .andExpect(content().string(containsString("Report Product")));
+    }
+
+    @Test
+    @WithMockUser(username = "report@test.com", authorities = { "ROLE_ADMIN" })
+    void shouldExportLowStockReportAsXlsx() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/reports/stock/low-stock/export.xlsx").param("threshold", "100"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult exported = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", startsWith("attachment")))
+                .andReturn();
+
+        try (Workbook workbook = new XSSFWorkbook(
+                new ByteArrayInputStream(exported.getResponse().getContentAsByteArray()))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            assertThat(sheet.getRow(0).getCell(1).getStringCellValue()).isEqualTo("produto");
+            assertThat(sheet.getRow(1).getCell(1).getStringCellValue()).isEqualTo("Report Product");
+            assertThat(sheet.getRow(1).getCell(4).getNumericCellValue()).isEqualTo(75.0);
+        }
     }
 
     @Test
@@ -0,0 +1,96 @@
+package br.com.stockshift.controller;
+
+import br.com.stockshift.BaseIntegrationTest;
+import br.com.stockshift.dto.report.StockReportResponse;
+import br.com.stockshift.model.entity.Product;
+import br.com.stockshift.model.entity.Tenant;
+import br.com.stockshift.model.entity.Warehouse;
+import br.com.stockshift.repository.BatchRepository;
+import br.com.stockshift.repository.ProductRepository;
+import br.com.stockshift.repository.TenantRepository;
+import br.com.stockshift.repository.WarehouseRepository;
+import br.com.stockshift.security.TenantContext;
+import br.com.stockshift.service.StockReportStreamWriter;
+import br.com.stockshift.util.TestDataFactory;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Pool usage while a streamed report is being written, outside any test transaction so
+// the request holds only the connections it takes itself
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReportStreamConnectionIntegrationTest extends BaseIntegrationTest {
+
+    @MockitoSpyBean
+    private StockReportStreamWriter stockReportStreamWriter;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private BatchRepository batchRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @BeforeEach
+    void createStock() {
+        Tenant tenant = TestDataFactory.createTenant(tenantRepository, "Stream " + UUID.randomUUID(),
+                UUID.randomUUID().toString().replace("-", "").substring(0, 14));
+        Warehouse warehouse = TestDataFactory.createWarehouse(warehouseRepository, tenant.getId(), "Stream");
+        Product product = TestDataFactory.createProduct(productRepository, tenant.getId(), null,
+                "Stream", "STR-" + UUID.randomUUID().toString().substring(0, 8));
+        TestDataFactory.createBatch(batchRepository, tenant.getId(), product, warehouse, 10);
+        TenantContext.setTenantId(tenant.getId());
+    }
+
+    @AfterEach
+    void clearTenant() {
+        TenantContext.clear();
+    }
+
+    @Test
+    @WithMockUser(authorities = { "ROLE_ADMIN" })
+    void streamedReportShouldHoldNoConnectionWhileWritingRows() throws Exception {
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        int activeBefore = pool.getHikariPoolMXBean().getActiveConnections();
+        List<Integer> activeWhileWriting = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            Iterable<StockReportResponse> rows = invocation.getArgument(0);
+            for (StockReportResponse ignored : rows) {
+                activeWhileWriting.add(pool.getHikariPoolMXBean().getActiveConnections());
+            }
+            return invocation.callRealMethod();
+        }).when(stockReportStreamWriter).writeNdjson(any(), any());
+
+        MvcResult result = mockMvc.perform(get("/api/reports/stock/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        // The chunk was read in its own transaction; open-in-view would still hold its connection
+        assertThat(activeWhileWriting).containsOnly(activeBefore);
+    }
+}
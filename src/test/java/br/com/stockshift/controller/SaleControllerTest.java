@@ -1,7 +1,13 @@
 package br.com.stockshift.controller;
 
+import br.com.stockshift.dto.sale.BatchSaleResponse;
+import br.com.stockshift.dto.sale.BatchSaleResult;
+import br.com.stockshift.model.enums.BatchSaleResultStatus;
+import br.com.stockshift.service.sale.SaleBatchService;
 import br.com.stockshift.service.sale.SaleService;
+import br.com.stockshift.exception.BadRequestException;
 import br.com.stockshift.service.sale.SalesDashboardService;
+import br.com.stockshift.service.sale.WebhookInboxService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -42,12 +48,18 @@ class SaleControllerTest {
     @Mock
     private SalesDashboardService salesDashboardService;
 
+    @Mock
+    private WebhookInboxService webhookInboxService;
+
+    @Mock
+    private SaleBatchService saleBatchService;
+
     private MockMvc mockMvc;
     private SaleController controller;
 
     @BeforeEach
     void setUp() {
-        controller = new SaleController(saleService, salesDashboardService);
+        controller = new SaleController(saleService, saleBatchService, salesDashboardService, webhookInboxService);
         ReflectionTestUtils.setField(controller, "frontendUrl", "https://app.example");
         mockMvc = MockMvcBuilders.standaloneSetup(controller)
                 .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver())
@@ -114,6 +126,38 @@ class SaleControllerTest {
                 .andExpect(jsonPath("$.data.status").value("CANCELLED"));
     }
 
+    @Test
+    void shouldDelegateOfflineSaleBatch() throws Exception {
+        UUID saleId = UUID.randomUUID();
+        when(saleBatchService.ingest(any())).thenReturn(BatchSaleResponse.builder()
+                .created(1)
+                .results(List.of(BatchSaleResult.builder()
+                        .idempotencyKey("pos-1-0001")
+                        .status(BatchSaleResultStatus.CREATED)
+                        .saleId(saleId)
+                        .build()))
+                .build());
+
+        mockMvc.perform(post("/api/sales/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {"sales":[{"idempotencyKey":"pos-1-0001","sale":{"warehouseId":"%s","paymentMethod":"CASH",
+                        "items":[{"productId":"%s","quantity":1}]}}]}
+                        """.formatted(UUID.randomUUID(), UUID.randomUUID())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.created").value(1))
+                .andExpect(jsonPath("$.data.results[0].status").value("CREATED"))
+                .andExpect(jsonPath("$.data.results[0].saleId").value(saleId.toString()));
+
+        mockMvc.perform(post("/api/sales/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {"sales":[{"sale":{"warehouseId":"%s","paymentMethod":"CASH",
+                        "items":[{"productId":"%s","quantity":1}]}}]}
+                        """.formatted(UUID.randomUUID(), UUID.randomUUID())))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void shouldConfirmInfinitePayReturnAsJson() throws Exception {
         UUID saleId = UUID.randomUUID();
@@ -200,7 +244,7 @@ class SaleControllerTest {
     }
 
     @Test
-    void shouldProcessInfinitePayWebhookAndRejectInvalidWebhookOrder() throws Exception {
+    void shouldQueueInfinitePayWebhookAndRejectInvalidWebhookOrder() throws Exception {
         UUID saleId = UUID.randomUUID();
 
         mockMvc.perform(post("/api/sales/infinitepay/webhook/secret-token")
@@ -210,14 +254,26 @@ class SaleControllerTest {
                         """.formatted(saleId)))
                 .andExpect(status().isOk());
 
-        verify(saleService).confirmInfinitePayWebhook(eq("secret-token"), any());
+        verify(webhookInboxService).enqueueInfinitePay(eq("secret-token"), any());
+        verifyNoInteractions(saleService);
 
-        doThrow(new IllegalArgumentException("invalid order"))
-                .when(saleService).confirmInfinitePayWebhook(eq("secret-token"), any());
+        doThrow(new BadRequestException("invalid order"))
+                .when(webhookInboxService).enqueueInfinitePay(eq("secret-token"), any());
 
         mockMvc.perform(post("/api/sales/infinitepay/webhook/secret-token")
                 .contentType(MediaType.APPLICATION_JSON)
-                .content("{\"order_nsu\":\"bad-id\"}"))
+                .content("{\"order_nsu\":\"\"}"))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void shouldAskForRedeliveryWhenInfinitePayWebhookCannotBeQueued() throws Exception {
+        doThrow(new IllegalStateException("connection refused"))
+                .when(webhookInboxService).enqueueInfinitePay(eq("secret-token"), any());
+
+        mockMvc.perform(post("/api/sales/infinitepay/webhook/secret-token")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"order_nsu\":\"%s\"}".formatted(UUID.randomUUID())))
+                .andExpect(status().isServiceUnavailable());
+    }
 }
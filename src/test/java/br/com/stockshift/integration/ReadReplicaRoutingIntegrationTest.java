@@ -0,0 +1,153 @@
+package br.com.stockshift.integration;
+
+import br.com.stockshift.config.ReadReplicaRouter;
+import br.com.stockshift.security.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.Transferable;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// A primary and a streaming replica (pg_basebackup -R) in two containers, with the
+// routing data source enabled. Run with ./gradlew replicaTest.
+@Tag("replica")
+@SpringBootTest
+@ActiveProfiles("test")
+class ReadReplicaRoutingIntegrationTest {
+
+    @SuppressWarnings("resource")
+    static PostgreSQLContainer primary;
+    @SuppressWarnings("resource")
+    static GenericContainer<?> replica;
+    @SuppressWarnings("resource")
+    static GenericContainer<?> redis;
+
+    static {
+        Network network = Network.newNetwork();
+        primary = new PostgreSQLContainer("postgres:16-alpine")
+                .withNetwork(network)
+                .withNetworkAliases("primary")
+                .withDatabaseName("stockshift_test")
+                .withUsername("test")
+                .withPassword("test")
+                // The image only accepts replication connections from localhost
+                .withCopyToContainer(
+                        Transferable.of("echo 'host replication all all scram-sha-256' >> \"$PGDATA/pg_hba.conf\"\n"),
+                        "/docker-entrypoint-initdb.d/replication.sh");
+        primary.start();
+
+        replica = new GenericContainer<>("postgres:16-alpine")
+                .withNetwork(network)
+                .withEnv("PGPASSWORD", "test")
+                .withExposedPorts(5432)
+                .withCreateContainerCmdModifier(cmd -> cmd.withUser("postgres"))
+                .withCommand("sh", "-c", "pg_basebackup -h primary -U test -D /tmp/replica -R -X stream"
+                        + " && chmod 700 /tmp/replica && exec postgres -D /tmp/replica")
+                .waitingFor(Wait.forLogMessage(".*ready to accept read-only connections.*\\n", 1));
+        replica.start();
+
+        redis = new GenericContainer<>("redis:7.2-alpine")
+                .withExposedPorts(6379);
+        redis.start();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primary::getJdbcUrl);
+        registry.add("spring.datasource.username", primary::getUsername);
+        registry.add("spring.datasource.password", primary::getPassword);
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", () -> redis.getMappedPort(6379));
+
+        registry.add("stockshift.read-replica.enabled", () -> "true");
+        registry.add("stockshift.read-replica.url", () -> "jdbc:postgresql://" + replica.getHost() + ":"
+                + replica.getMappedPort(5432) + "/stockshift_test");
+        registry.add("stockshift.read-replica.username", () -> "test");
+        registry.add("stockshift.read-replica.password", () -> "test");
+        registry.add("stockshift.read-replica.recent-write-window", () -> "2s");
+    }
+
+    @Autowired
+    private ReadReplicaRouter readReplicaRouter;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        TenantContext.setTenantId(UUID.randomUUID());
+        readReplicaRouter.checkLag();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void readOnlyTransactionsShouldRunOnTheReplica() {
+        assertThat(readReplicaRouter.isReplicaAvailable()).isTrue();
+
+        assertThat(inTransaction(true, this::isReplica)).isTrue();
+        assertThat(inTransaction(false, this::isReplica)).isFalse();
+        assertThat(isReplica()).isFalse();
+    }
+
+    @Test
+    void tenantShouldReadItsOwnWritesUntilTheReplicaHasThem() throws InterruptedException {
+        UUID id = UUID.randomUUID();
+        inTransaction(false, () -> {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS replica_probe (id UUID PRIMARY KEY)");
+            return jdbcTemplate.update("INSERT INTO replica_probe (id) VALUES (?)", id);
+        });
+
+        assertThat(inTransaction(true, this::isReplica)).isFalse();
+        assertThat(inTransaction(true, () -> countProbe(id))).isEqualTo(1);
+
+        // Another tenant has not written and keeps reading from the replica
+        UUID writer = TenantContext.getTenantId();
+        TenantContext.setTenantId(UUID.randomUUID());
+        assertThat(inTransaction(true, this::isReplica)).isTrue();
+        TenantContext.setTenantId(writer);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!inTransaction(true, this::isReplica) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(200);
+        }
+        assertThat(inTransaction(true, this::isReplica)).isTrue();
+        assertThat(inTransaction(true, () -> countProbe(id))).isEqualTo(1);
+    }
+
+    private <T> T inTransaction(boolean readOnly, Supplier<T> work) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status -> work.get());
+    }
+
+    private boolean isReplica() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_is_in_recovery()", Boolean.class));
+    }
+
+    private int countProbe(UUID id) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM replica_probe WHERE id = ?", Integer.class, id);
+        return count != null ? count : 0;
+    }
+}
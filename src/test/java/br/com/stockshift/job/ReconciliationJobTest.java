@@ -1,15 +1,18 @@
 package br.com.stockshift.job;
 
 import br.com.stockshift.dto.ReconciliationResult;
+import br.com.stockshift.dto.warehouse.StockBalanceMismatchProjection;
 import br.com.stockshift.model.entity.Tenant;
 import br.com.stockshift.repository.TenantRepository;
 import br.com.stockshift.service.AlertService;
 import br.com.stockshift.service.ReconciliationService;
+import br.com.stockshift.service.StockBalanceService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.support.TaskExecutorAdapter;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -31,15 +34,19 @@ class ReconciliationJobTest {
     @Mock
     private AlertService alertService;
 
+    @Mock
+    private StockBalanceService stockBalanceService;
+
     private ReconciliationJob reconciliationJob;
 
     @BeforeEach
     void setUp() {
-        reconciliationJob = new ReconciliationJob(tenantRepository, reconciliationService, alertService);
+        reconciliationJob = new ReconciliationJob(tenantRepository, reconciliationService, alertService,
+            stockBalanceService, new TaskExecutorAdapter(Runnable::run));
     }
 
     @Test
-    void shouldRunReconciliationForAllTenants() {
+    void shouldRunFullReconciliationForAllTenants() {
         Tenant tenant1 = new Tenant();
         tenant1.setId(UUID.randomUUID());
         tenant1.setBusinessName("Tenant 1");
@@ -49,13 +56,16 @@ class ReconciliationJobTest {
         tenant2.setBusinessName("Tenant 2");
 
         when(tenantRepository.findAll()).thenReturn(List.of(tenant1, tenant2));
-        when(reconciliationService.reconcileTenant(any())).thenReturn(List.of());
+        when(reconciliationService.rebuildCheckpoint(any())).thenReturn(List.of());
 
-        reconciliationJob.runDailyReconciliation();
+        reconciliationJob.runFullReconciliation();
 
-        verify(reconciliationService).reconcileTenant(tenant1.getId());
-        verify(reconciliationService).reconcileTenant(tenant2.getId());
+        verify(reconciliationService).rebuildCheckpoint(tenant1.getId());
+        verify(reconciliationService).rebuildCheckpoint(tenant2.getId());
+        verify(stockBalanceService).verify(tenant1.getId());
+        verify(stockBalanceService).verify(tenant2.getId());
         verify(alertService, never()).sendCriticalAlert(any(), any());
+        verify(alertService, never()).sendStockBalanceAlert(any(), any());
     }
 
     @Test
@@ -73,10 +83,79 @@ class ReconciliationJobTest {
         );
 
         when(tenantRepository.findAll()).thenReturn(List.of(tenant));
-        when(reconciliationService.reconcileTenant(tenant.getId())).thenReturn(List.of(discrepancy));
+        when(reconciliationService.rebuildCheckpoint(tenant.getId())).thenReturn(List.of(discrepancy));
+
+        reconciliationJob.runFullReconciliation();
+
+        verify(alertService).sendCriticalAlert(
+            eq("Batch quantity mismatch detected"),
+            eq(List.of(discrepancy))
+        );
+    }
+
+    @Test
+    void shouldSendAlertWhenStockBalancesDiverge() {
+        Tenant tenant = new Tenant();
+        tenant.setId(UUID.randomUUID());
+        tenant.setBusinessName("Drifted Tenant");
+
+        StockBalanceMismatchProjection mismatch = mock(StockBalanceMismatchProjection.class);
+
+        when(tenantRepository.findAll()).thenReturn(List.of(tenant));
+        when(reconciliationService.rebuildCheckpoint(tenant.getId())).thenReturn(List.of());
+        when(stockBalanceService.verify(tenant.getId())).thenReturn(List.of(mismatch));
+
+        reconciliationJob.runFullReconciliation();
+
+        verify(alertService, never()).sendCriticalAlert(any(), any());
+        verify(alertService).sendStockBalanceAlert(
+            eq("Stock balance mismatch detected"),
+            eq(List.of(mismatch))
+        );
+    }
+
+    @Test
+    void shouldKeepReconcilingOtherTenantsWhenOneFails() {
+        Tenant failing = new Tenant();
+        failing.setId(UUID.randomUUID());
+        failing.setBusinessName("Failing Tenant");
+
+        Tenant healthy = new Tenant();
+        healthy.setId(UUID.randomUUID());
+        healthy.setBusinessName("Healthy Tenant");
+
+        when(tenantRepository.findAll()).thenReturn(List.of(failing, healthy));
+        when(reconciliationService.rebuildCheckpoint(failing.getId())).thenThrow(new IllegalStateException("boom"));
+        when(reconciliationService.rebuildCheckpoint(healthy.getId())).thenReturn(List.of());
+
+        reconciliationJob.runFullReconciliation();
+
+        verify(reconciliationService).rebuildCheckpoint(healthy.getId());
+        verify(stockBalanceService).verify(healthy.getId());
+        verify(stockBalanceService, never()).verify(failing.getId());
+    }
+
+    @Test
+    void incrementalRunShouldOnlyCheckTheBatchesTouchedSinceTheCheckpoint() {
+        Tenant tenant = new Tenant();
+        tenant.setId(UUID.randomUUID());
+        tenant.setBusinessName("Busy Tenant");
+
+        ReconciliationResult discrepancy = new ReconciliationResult(
+            UUID.randomUUID(),
+            "BATCH-002",
+            new BigDecimal("8"),
+            new BigDecimal("6"),
+            new BigDecimal("2")
+        );
+
+        when(tenantRepository.findAll()).thenReturn(List.of(tenant));
+        when(reconciliationService.reconcileTenantIncremental(tenant.getId())).thenReturn(List.of(discrepancy));
 
-        reconciliationJob.runDailyReconciliation();
+        reconciliationJob.runIncrementalReconciliation();
 
+        verify(reconciliationService, never()).rebuildCheckpoint(any());
+        verify(stockBalanceService, never()).verify(any());
         verify(alertService).sendCriticalAlert(
             eq("Batch quantity mismatch detected"),
             eq(List.of(discrepancy))
@@ -0,0 +1,51 @@
+package br.com.stockshift.job;
+
+import br.com.stockshift.config.WebhookInboxProperties;
+import br.com.stockshift.service.sale.WebhookInboxService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookInboxJobTest {
+
+    @Mock
+    private WebhookInboxService webhookInboxService;
+
+    private WebhookInboxProperties properties;
+    private WebhookInboxJob webhookInboxJob;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WebhookInboxProperties();
+        webhookInboxJob = new WebhookInboxJob(webhookInboxService, properties);
+        when(webhookInboxService.getBatchSize()).thenReturn(4);
+    }
+
+    @Test
+    void shouldPollAgainWhilePollsComeBackFull() {
+        when(webhookInboxService.processDue()).thenReturn(4, 4, 1);
+
+        webhookInboxJob.processInbox();
+
+        verify(webhookInboxService, times(3)).processDue();
+    }
+
+    @Test
+    void shouldStopDrainingAfterTheDrainTime() {
+        properties.setMaxDrainTime(Duration.ZERO);
+        when(webhookInboxService.processDue()).thenReturn(4);
+
+        webhookInboxJob.processInbox();
+
+        verify(webhookInboxService, times(1)).processDue();
+    }
+}
@@ -23,6 +23,7 @@ import br.com.stockshift.repository.WarehouseRepository;
 import br.com.stockshift.security.ratelimit.RateLimitFilter;
 import br.com.stockshift.security.ratelimit.RateLimitService;
 import br.com.stockshift.service.sale.InfinitePayCheckoutService;
+import br.com.stockshift.service.sale.WebhookInboxService;
 import br.com.stockshift.util.TestDataFactory;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.http.Cookie;
@@ -88,6 +89,9 @@ class SecurityAuditRegressionTest extends BaseIntegrationTest {
     @MockitoBean
     private InfinitePayCheckoutService infinitePayCheckoutService;
 
+    @Autowired
+    private WebhookInboxService webhookInboxService;
+
     @BeforeEach
     void resetSecurityAuditData() {
         reset(infinitePayCheckoutService);
@@ -153,6 +157,9 @@ class SecurityAuditRegressionTest extends BaseIntegrationTest {
                         """.formatted(sale.getId())))
                 .andExpect(status().isOk());
 
+        assertThat(reloadSaleStatus(sale)).isEqualTo(SaleStatus.PENDING);
+        assertThat(webhookInboxService.processDue()).isEqualTo(1);
+
         Sale reloaded = saleRepository.findById(sale.getId()).orElseThrow();
         assertThat(reloaded.getStatus()).isEqualTo(SaleStatus.COMPLETED);
         assertThat(reloaded.getInfinitepayNsu()).isEqualTo("txn");
@@ -0,0 +1,160 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.BaseIntegrationTest;
+import br.com.stockshift.model.entity.Batch;
+import br.com.stockshift.model.entity.Product;
+import br.com.stockshift.model.entity.Tenant;
+import br.com.stockshift.model.entity.Warehouse;
+import br.com.stockshift.repository.BatchRepository;
+import br.com.stockshift.repository.ProductRepository;
+import br.com.stockshift.repository.TenantRepository;
+import br.com.stockshift.repository.WarehouseRepository;
+import br.com.stockshift.util.TestDataFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Two commands touching the same batches in opposite item order. Locking one batch per
+// item (the previous findByIdForUpdate loop) lets Postgres detect a deadlock and abort
+// one of them; locking through BatchLockManager serialises them instead.
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BatchLockManagerConcurrencyIntegrationTest extends BaseIntegrationTest {
+
+    private static final int WORKERS = 8;
+    private static final int COMMANDS_PER_WORKER = 25;
+
+    @Autowired
+    private BatchLockManager batchLockManager;
+    @Autowired
+    private BatchRepository batchRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+    @Autowired
+    private TenantRepository tenantRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private List<UUID> batchIds;
+
+    @BeforeEach
+    void createBatches() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        Tenant tenant = TestDataFactory.createTenant(tenantRepository, "Lock order " + UUID.randomUUID(),
+                UUID.randomUUID().toString().replace("-", "").substring(0, 14));
+        Warehouse warehouse = TestDataFactory.createWarehouse(warehouseRepository, tenant.getId(), "Lock order");
+        Product product = TestDataFactory.createProduct(productRepository, tenant.getId(), null,
+                "Lock order", "LOCK-" + UUID.randomUUID().toString().substring(0, 8));
+        batchIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            batchIds.add(TestDataFactory.createBatch(batchRepository, tenant.getId(), product, warehouse, 1_000)
+                    .getId());
+        }
+    }
+
+    @Test
+    void perItemLockingInOppositeOrderDeadlocks() throws Exception {
+        UUID first = batchIds.get(0);
+        UUID second = batchIds.get(1);
+        CyclicBarrier bothHoldFirstLock = new CyclicBarrier(2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> forward = executor.submit(() -> lockOneByOne(first, second, bothHoldFirstLock));
+            Future<?> backward = executor.submit(() -> lockOneByOne(second, first, bothHoldFirstLock));
+
+            List<Throwable> failures = new ArrayList<>();
+            for (Future<?> command : List.of(forward, backward)) {
+                try {
+                    command.get(30, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                }
+            }
+
+            assertThat(failures).hasSize(1);
+            assertThat(failures.get(0)).isInstanceOf(PessimisticLockingFailureException.class);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void orderedLockingNeverDeadlocks() throws Exception {
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(WORKERS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int worker = 0; worker < WORKERS; worker++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int command = 0; command < COMMANDS_PER_WORKER; command++) {
+                    // Every command asks for the batches in a different order
+                    List<UUID> itemOrder = new ArrayList<>(batchIds);
+                    Collections.shuffle(itemOrder, ThreadLocalRandom.current());
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> {
+                            Map<UUID, Batch> locked = batchLockManager.lock(itemOrder);
+                            for (UUID id : itemOrder) {
+                                Batch batch = locked.get(id);
+                                batch.setQuantity(batch.getQuantity().subtract(BigDecimal.ONE));
+                            }
+                        });
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertThat(failed).hasValue(0);
+        int commands = WORKERS * COMMANDS_PER_WORKER;
+        for (UUID id : batchIds) {
+            assertThat(batchRepository.findById(id).orElseThrow().getQuantity())
+                    .isEqualByComparingTo(BigDecimal.valueOf(1_000 - commands));
+        }
+    }
+
+    private void lockOneByOne(UUID firstId, UUID secondId, CyclicBarrier bothHoldFirstLock) {
+        transactionTemplate.executeWithoutResult(status -> {
+            batchRepository.findByIdForUpdate(firstId).orElseThrow();
+            try {
+                bothHoldFirstLock.await(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            batchRepository.findByIdForUpdate(secondId).orElseThrow();
+        });
+    }
+}
@@ -28,6 +28,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -69,6 +71,15 @@ class BatchServiceTest {
         @Mock
         private AuditSnapshotService auditSnapshotService;
 
+        @Mock
+        private DocumentCodeSequencer documentCodeSequencer;
+
+        @Mock
+        private StockBalanceService stockBalanceService;
+
+        @Mock
+        private ReportCache reportCache;
+
         @InjectMocks
         private BatchService batchService;
 
@@ -159,6 +170,7 @@ class BatchServiceTest {
 
         verify(productService).create(any(ProductRequest.class), any());
         verify(batchRepository).save(any(Batch.class));
+        verify(reportCache).invalidateAfterCommit(tenantId);
     }
 
         @Test
@@ -275,6 +287,34 @@ class BatchServiceTest {
                 verify(batchRepository).save(any(Batch.class));
         }
 
+        @Test
+        void shouldSkipGeneratedBatchCodeAlreadyTakenByManualCode() {
+                BatchRequest batchRequest = BatchRequest.builder()
+                                .productId(productId)
+                                .warehouseId(warehouseId)
+                                .quantity(new BigDecimal("5"))
+                                .build();
+                warehouse.setName("Main");
+                when(documentCodeSequencer.nextBatchCode(tenantId))
+                                .thenReturn("BATCH-20260101-001", "BATCH-20260101-002");
+                when(batchRepository.findByTenantIdAndBatchCode(tenantId, "BATCH-20260101-001"))
+                                .thenReturn(Optional.of(new Batch()));
+                when(batchRepository.findByTenantIdAndBatchCode(tenantId, "BATCH-20260101-002"))
+                                .thenReturn(Optional.empty());
+                when(productRepository.findByTenantIdAndId(tenantId, productId)).thenReturn(Optional.of(product));
+                when(warehouseRepository.findByTenantIdAndId(tenantId, warehouseId)).thenReturn(Optional.of(warehouse));
+                when(batchRepository.save(any(Batch.class))).thenAnswer(invocation -> {
+                        Batch batch = invocation.getArgument(0);
+                        batch.setId(UUID.randomUUID());
+                        return batch;
+                });
+
+                BatchResponse response = batchService.create(batchRequest);
+
+                assertThat(response.getBatchCode()).isEqualTo("BATCH-20260101-002");
+                verify(documentCodeSequencer, times(2)).nextBatchCode(tenantId);
+        }
+
         @Test
         void shouldMarkExistingProductAsExpiringWhenBatchUsesExpirationDate() {
                 BatchRequest batchRequest = BatchRequest.builder()
@@ -350,6 +390,7 @@ class BatchServiceTest {
 
                 assertThat(batchService.create(batchRequest).getOriginStockMovementCode()).isEqualTo("MOV-1");
                 verify(auditService).record(any());
+                verify(reportCache).invalidateAfterCommit(tenantId);
         }
 
         @Test
@@ -360,23 +401,29 @@ class BatchServiceTest {
                 when(batchRepository.findByTenantIdAndId(tenantId, batch.getId())).thenReturn(Optional.of(batch));
                 when(batchRepository.findByProductIdAndWarehouseIdAndTenantId(productId, warehouseId, tenantId))
                                 .thenReturn(List.of(batch));
-                when(batchRepository.findExpiringBatches(any(), any(), eq(tenantId))).thenReturn(List.of(batch));
-                when(batchRepository.findLowStock(10, tenantId)).thenReturn(List.of(batch));
+                when(batchRepository.findExpiringBatchesByWarehouse(eq(tenantId), eq(warehouseId), any(), any(),
+                                eq(Pageable.unpaged()))).thenReturn(List.of(batch));
+                when(batchRepository.findLowStockByWarehouse(tenantId, warehouseId, BigDecimal.TEN, PageRequest.of(0, 5)))
+                                .thenReturn(List.of(batch));
 
                 assertThat(batchService.findAll()).hasSize(1);
                 assertThat(batchService.findById(batch.getId()).getBatchCode()).isEqualTo("BATCH-001");
                 assertThat(batchService.findByWarehouse(warehouseId)).hasSize(1);
                 assertThat(batchService.findByProduct(productId)).hasSize(1);
                 assertThat(batchService.findByWarehouseAndProduct(warehouseId, productId)).hasSize(1);
-                assertThat(batchService.findExpiringBatches(30)).hasSize(1);
-                assertThat(batchService.findLowStock(10)).hasSize(1);
+                assertThat(batchService.findExpiringBatches(30, null)).hasSize(1);
+                assertThat(batchService.findLowStock(10, 5)).hasSize(1);
 
                 when(securityUtils.getCurrentWarehouseId()).thenThrow(new UnauthorizedException("no warehouse"));
                 when(warehouseAccessService.hasFullAccess()).thenReturn(true);
                 when(batchRepository.findAllByTenantId(tenantId)).thenReturn(List.of(batch));
                 when(batchRepository.findByProductIdAndTenantId(productId, tenantId)).thenReturn(List.of(batch));
+                when(batchRepository.findLowStock(tenantId, BigDecimal.TEN, PageRequest.of(0, 5)))
+                                .thenReturn(List.of(batch));
                 assertThat(batchService.findAll()).hasSize(1);
                 assertThat(batchService.findByProduct(productId)).hasSize(1);
+                assertThat(batchService.findLowStock(10, 5)).hasSize(1);
+                verify(batchRepository, never()).findLowStockByWarehouse(any(), any(), any(), any());
         }
 
         @Test
@@ -406,14 +453,14 @@ class BatchServiceTest {
                 when(warehouseRepository.findByTenantIdAndId(tenantId, warehouseId)).thenReturn(Optional.of(warehouse));
                 when(batchRepository.save(any(Batch.class))).thenAnswer(invocation -> invocation.getArgument(0));
                 when(batchRepository.softDeleteByProductAndWarehouse(productId, warehouseId, tenantId)).thenReturn(2);
-                when(batchRepository.findByProductIdAndWarehouseIdAndTenantId(productId, warehouseId, tenantId))
-                                .thenReturn(List.of(batch, batch));
+                when(stockBalanceService.getOnHand(tenantId, warehouseId, productId)).thenReturn(new BigDecimal("14"));
 
                 assertThat(batchService.update(batch.getId(), update).getBatchCode()).isEqualTo("BATCH-002");
                 batchService.delete(batch.getId());
                 verify(batchRepository).delete(batch);
                 BatchDeletionResponse deleted = batchService.deleteAllByProductAndWarehouse(warehouseId, productId);
                 assertThat(deleted.deletedCount()).isEqualTo(2);
+                verify(reportCache, times(3)).invalidateAfterCommit(tenantId);
                 assertThat(batchService.getAvailableQuantity(productId, warehouseId, tenantId))
                                 .isEqualByComparingTo("14");
         }
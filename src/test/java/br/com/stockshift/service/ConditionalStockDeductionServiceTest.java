@@ -0,0 +1,185 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.dto.warehouse.BatchStockCandidateProjection;
+import br.com.stockshift.exception.InsufficientStockException;
+import br.com.stockshift.model.entity.Batch;
+import br.com.stockshift.model.entity.Product;
+import br.com.stockshift.repository.BatchRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ConditionalStockDeductionServiceTest {
+
+    @Mock
+    private BatchRepository batchRepository;
+    @Mock
+    private EntityManager entityManager;
+
+    private ConditionalStockDeductionService service;
+    private UUID tenantId;
+    private UUID warehouseId;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        service = new ConditionalStockDeductionService(batchRepository, entityManager);
+        tenantId = UUID.randomUUID();
+        warehouseId = UUID.randomUUID();
+        product = new Product();
+        product.setId(UUID.randomUUID());
+        product.setName("Coffee");
+    }
+
+    @Test
+    void shouldDeductAcrossBatchesInExpirationOrder() {
+        BatchStockCandidateProjection later = candidate("B-LATER", "4", LocalDate.now().plusDays(30));
+        BatchStockCandidateProjection sooner = candidate("B-SOONER", "2", LocalDate.now().plusDays(1));
+        when(batchRepository.findFifoCandidates(product.getId(), warehouseId, tenantId))
+                .thenReturn(List.of(later, sooner));
+        when(batchRepository.deductIfAvailable(sooner.getId(), new BigDecimal("2")))
+                .thenReturn(Optional.of(BigDecimal.ZERO));
+        when(batchRepository.deductIfAvailable(later.getId(), new BigDecimal("3")))
+                .thenReturn(Optional.of(BigDecimal.ONE));
+
+        List<StockDeduction> deductions = service.deductFifo(product, warehouseId, tenantId,
+                new BigDecimal("5"), ConditionalStockDeductionService.EXPIRATION_ORDER);
+
+        assertThat(deductions).extracting(StockDeduction::batchCode).containsExactly("B-SOONER", "B-LATER");
+        assertThat(deductions).extracting(StockDeduction::balanceAfter)
+                .containsExactly(BigDecimal.ZERO, BigDecimal.ONE);
+    }
+
+    @Test
+    void shouldMoveToNextBatchWhenGuardedUpdateLosesTheRace() {
+        BatchStockCandidateProjection first = candidate("B-1", "5", null);
+        BatchStockCandidateProjection second = candidate("B-2", "5", null);
+        when(batchRepository.findFifoCandidates(product.getId(), warehouseId, tenantId))
+                .thenReturn(List.of(first, second));
+        when(batchRepository.deductIfAvailable(first.getId(), new BigDecimal("3"))).thenReturn(Optional.empty());
+        when(batchRepository.deductIfAvailable(second.getId(), new BigDecimal("3")))
+                .thenReturn(Optional.of(new BigDecimal("2")));
+
+        List<StockDeduction> deductions = service.deductFifo(product, warehouseId, tenantId,
+                new BigDecimal("3"), ConditionalStockDeductionService.CREATED_AT_ORDER);
+
+        assertThat(deductions).singleElement().satisfies(deduction -> {
+            assertThat(deduction.batchId()).isEqualTo(second.getId());
+            assertThat(deduction.balanceAfter()).isEqualByComparingTo("2");
+        });
+    }
+
+    @Test
+    void shouldReReadCandidatesWhenEveryBatchWasTakenConcurrently() {
+        BatchStockCandidateProjection stale = candidate("B-1", "5", null);
+        BatchStockCandidateProjection fresh = candidate("B-1", "4", null, stale.getId());
+        when(batchRepository.findFifoCandidates(product.getId(), warehouseId, tenantId))
+                .thenReturn(List.of(stale), List.of(fresh));
+        when(batchRepository.deductIfAvailable(stale.getId(), new BigDecimal("4")))
+                .thenReturn(Optional.empty(), Optional.of(BigDecimal.ZERO));
+
+        List<StockDeduction> deductions = service.deductFifo(product, warehouseId, tenantId,
+                new BigDecimal("4"), ConditionalStockDeductionService.CREATED_AT_ORDER);
+
+        assertThat(deductions).hasSize(1);
+        verify(batchRepository, times(2)).findFifoCandidates(product.getId(), warehouseId, tenantId);
+    }
+
+    @Test
+    void shouldRejectWhenCandidatesCannotCoverQuantity() {
+        when(batchRepository.findFifoCandidates(product.getId(), warehouseId, tenantId))
+                .thenReturn(List.of(candidate("B-1", "1", null)));
+
+        assertThatThrownBy(() -> service.deductFifo(product, warehouseId, tenantId,
+                new BigDecimal("2"), ConditionalStockDeductionService.CREATED_AT_ORDER))
+                .isInstanceOf(InsufficientStockException.class)
+                .hasMessageContaining("Available: 1");
+        verify(batchRepository, never()).deductIfAvailable(any(), any());
+    }
+
+    @Test
+    void shouldRefreshTheLoadedBatchAfterTheGuardedUpdate() {
+        Batch batch = Batch.builder().batchCode("B-MANUAL").quantity(new BigDecimal("5")).build();
+        batch.setId(UUID.randomUUID());
+        when(batchRepository.deductIfAvailable(batch.getId(), BigDecimal.ONE))
+                .thenReturn(Optional.of(new BigDecimal("4")));
+        when(entityManager.getReference(Batch.class, batch.getId())).thenReturn(batch);
+
+        StockDeduction deduction = service.deductFromBatch(batch, product, BigDecimal.ONE);
+
+        assertThat(deduction.balanceAfter()).isEqualByComparingTo("4");
+        verify(entityManager).refresh(batch);
+    }
+
+    @Test
+    void shouldRejectManualBatchWhenGuardFails() {
+        Batch batch = Batch.builder().batchCode("B-MANUAL").quantity(BigDecimal.ONE).build();
+        batch.setId(UUID.randomUUID());
+        when(batchRepository.deductIfAvailable(batch.getId(), BigDecimal.ONE)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.deductFromBatch(batch, product, BigDecimal.ONE))
+                .isInstanceOf(InsufficientStockException.class)
+                .hasMessageContaining("B-MANUAL");
+    }
+
+    private BatchStockCandidateProjection candidate(String code, String quantity, LocalDate expirationDate) {
+        return candidate(code, quantity, expirationDate, UUID.randomUUID());
+    }
+
+    private BatchStockCandidateProjection candidate(String code, String quantity, LocalDate expirationDate, UUID id) {
+        LocalDateTime createdAt = LocalDateTime.now();
+        return new BatchStockCandidateProjection() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getBatchCode() {
+                return code;
+            }
+
+            @Override
+            public BigDecimal getQuantity() {
+                return new BigDecimal(quantity);
+            }
+
+            @Override
+            public Long getSellingPrice() {
+                return 1000L;
+            }
+
+            @Override
+            public LocalDate getExpirationDate() {
+                return expirationDate;
+            }
+
+            @Override
+            public LocalDateTime getCreatedAt() {
+                return createdAt;
+            }
+        };
+    }
+}
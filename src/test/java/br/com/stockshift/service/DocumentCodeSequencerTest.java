@@ -0,0 +1,122 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.config.DocumentCodeProperties;
+import br.com.stockshift.repository.DocumentCodeSequenceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DocumentCodeSequencerTest {
+
+    @Mock
+    private DocumentCodeSequenceRepository sequenceRepository;
+
+    private DocumentCodeSequencer sequencer;
+    private UUID tenantId;
+    private String year;
+
+    @BeforeEach
+    void setUp() {
+        DocumentCodeProperties properties = new DocumentCodeProperties();
+        properties.setBlockSize(3);
+        sequencer = new DocumentCodeSequencer(sequenceRepository, properties);
+        tenantId = UUID.randomUUID();
+        year = String.valueOf(LocalDate.now().getYear());
+    }
+
+    @Test
+    void shouldServeCodesFromReservedBlockBeforeAllocatingAgain() {
+        when(sequenceRepository.allocateBlock(tenantId, "VND", year, 3L)).thenReturn(3L, 6L);
+
+        List<String> codes = List.of(
+                sequencer.nextSaleCode(tenantId),
+                sequencer.nextSaleCode(tenantId),
+                sequencer.nextSaleCode(tenantId),
+                sequencer.nextSaleCode(tenantId));
+
+        assertThat(codes).containsExactly(
+                "VND-" + year + "-0001", "VND-" + year + "-0002", "VND-" + year + "-0003", "VND-" + year + "-0004");
+        verify(sequenceRepository, times(2)).allocateBlock(tenantId, "VND", year, 3L);
+    }
+
+    @Test
+    void shouldKeepPrefixesIndependent() {
+        when(sequenceRepository.allocateBlock(tenantId, "MOV", year, 3L)).thenReturn(42L);
+        when(sequenceRepository.allocateBlock(tenantId, "TRF", year, 3L)).thenReturn(3L);
+        String day = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        when(sequenceRepository.allocateBlock(tenantId, "BATCH", day, 3L)).thenReturn(3L);
+
+        assertThat(sequencer.nextMovementCode(tenantId)).isEqualTo("MOV-" + year + "-0040");
+        assertThat(sequencer.nextTransferCode(tenantId)).isEqualTo("TRF-" + year + "-0001");
+        assertThat(sequencer.nextBatchCode(tenantId)).isEqualTo("BATCH-" + day + "-001");
+    }
+
+    @Test
+    void shouldPeekWithoutConsumingNumbers() {
+        when(sequenceRepository.findLastValue(tenantId, "VND", year)).thenReturn(Optional.of(8L));
+
+        assertThat(sequencer.peekSaleCode(tenantId)).isEqualTo("VND-" + year + "-0009");
+        verify(sequenceRepository, never()).allocateBlock(any(), anyString(), anyString(), anyLong());
+
+        when(sequenceRepository.allocateBlock(tenantId, "VND", year, 3L)).thenReturn(11L);
+        assertThat(sequencer.nextSaleCode(tenantId)).isEqualTo("VND-" + year + "-0009");
+        assertThat(sequencer.peekSaleCode(tenantId)).isEqualTo("VND-" + year + "-0010");
+        assertThat(sequencer.nextSaleCode(tenantId)).isEqualTo("VND-" + year + "-0010");
+    }
+
+    @Test
+    void shouldHandOutUniqueCodesUnderConcurrency() throws Exception {
+        AtomicLong counter = new AtomicLong();
+        when(sequenceRepository.allocateBlock(eq(tenantId), eq("VND"), eq(year), eq(3L)))
+                .thenAnswer(invocation -> counter.addAndGet(3L));
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        codes.add(sequencer.nextSaleCode(tenantId));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(codes).hasSize(400);
+    }
+}
@@ -0,0 +1,124 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.dto.report.KpiPeriodData;
+import br.com.stockshift.dto.report.MovementTypeTotalProjection;
+import br.com.stockshift.model.entity.KpiPeriodSnapshot;
+import br.com.stockshift.model.enums.MovementDirection;
+import br.com.stockshift.model.enums.StockMovementType;
+import br.com.stockshift.repository.BatchRepository;
+import br.com.stockshift.repository.KpiPeriodSnapshotRepository;
+import br.com.stockshift.repository.MovementDailyRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class KpiSnapshotServiceTest {
+
+    @Mock
+    private BatchRepository batchRepository;
+    @Mock
+    private MovementDailyRollupRepository movementDailyRollupRepository;
+    @Mock
+    private KpiPeriodSnapshotRepository snapshotRepository;
+
+    @InjectMocks
+    private KpiSnapshotService service;
+
+    @Test
+    void closeShouldAggregateTheWholeMonthAndStoreItUnderTenantWideKey() {
+        UUID tenantId = UUID.randomUUID();
+        YearMonth month = YearMonth.of(2026, 2);
+        when(snapshotRepository.findById(new KpiPeriodSnapshot.KpiPeriodSnapshotId(
+                tenantId, KpiSnapshotService.ALL_WAREHOUSES, month.atDay(1)))).thenReturn(Optional.empty());
+        when(movementDailyRollupRepository.typeTotals(tenantId, null, month.atDay(1), month.atEndOfMonth()))
+                .thenReturn(List.of(
+                        typeTotal(StockMovementType.PURCHASE_IN, MovementDirection.IN, "30"),
+                        typeTotal(StockMovementType.SALE, MovementDirection.OUT, "20")));
+        when(batchRepository.sumStockValue(tenantId, null)).thenReturn(new BigDecimal("400"));
+        when(batchRepository.sumTransitQuantity(tenantId, null)).thenReturn(new BigDecimal("5"));
+
+        assertThat(service.close(tenantId, null, month)).isTrue();
+
+        verify(snapshotRepository).insertIfAbsent(
+                tenantId,
+                KpiSnapshotService.ALL_WAREHOUSES,
+                month.atDay(1),
+                new BigDecimal("400"),
+                new BigDecimal("30"),
+                BigDecimal.ZERO,
+                BigDecimal.ZERO,
+                BigDecimal.ZERO,
+                BigDecimal.ZERO,
+                new BigDecimal("5"),
+                new BigDecimal("0.05"));
+    }
+
+    @Test
+    void closeShouldSkipMonthsAlreadySnapshotted() {
+        UUID tenantId = UUID.randomUUID();
+        UUID warehouseId = UUID.randomUUID();
+        YearMonth month = YearMonth.of(2026, 2);
+        when(snapshotRepository.findById(new KpiPeriodSnapshot.KpiPeriodSnapshotId(
+                tenantId, warehouseId, month.atDay(1))))
+                .thenReturn(Optional.of(KpiPeriodSnapshot.builder()
+                        .stockValue(new BigDecimal("400"))
+                        .purchasesValue(new BigDecimal("30"))
+                        .build()));
+
+        assertThat(service.close(tenantId, warehouseId, month)).isFalse();
+
+        verifyNoInteractions(movementDailyRollupRepository, batchRepository);
+        verify(snapshotRepository, never()).insertIfAbsent(
+                any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void storeShouldRejectTheOpenMonth() {
+        KpiPeriodData data = KpiPeriodData.builder().totalStockValue(BigDecimal.ONE).build();
+
+        assertThatThrownBy(() -> service.store(UUID.randomUUID(), null, YearMonth.now(), data))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(snapshotRepository);
+    }
+
+    private MovementTypeTotalProjection typeTotal(StockMovementType type, MovementDirection direction, String quantity) {
+        return new MovementTypeTotalProjection() {
+            @Override
+            public StockMovementType getType() {
+                return type;
+            }
+
+            @Override
+            public MovementDirection getDirection() {
+                return direction;
+            }
+
+            @Override
+            public BigDecimal getItemQuantity() {
+                return new BigDecimal(quantity);
+            }
+
+            @Override
+            public Long getMovementCount() {
+                return 1L;
+            }
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.BaseIntegrationTest;
+import br.com.stockshift.config.LedgerPartitionProperties;
+import br.com.stockshift.repository.InventoryLedgerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Partition DDL runs inside the test transaction and is rolled back with it
+class LedgerPartitionIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private LedgerPartitionService ledgerPartitionService;
+    @Autowired
+    private InventoryLedgerRepository ledgerRepository;
+    @Autowired
+    private LedgerPartitionProperties properties;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void restoreRetention() {
+        properties.setArchiveAfterMonths(new LedgerPartitionProperties().getArchiveAfterMonths());
+    }
+
+    @Test
+    void upcomingMonthsShouldHavePartitions() {
+        ledgerPartitionService.ensureFuturePartitions();
+
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        for (int i = 0; i <= properties.getMonthsAhead(); i++) {
+            assertThat(jdbcTemplate.queryForObject("SELECT to_regclass(?)::text", String.class,
+                    partitionName(currentMonth.plusMonths(i)))).isNotNull();
+        }
+        UUID id = insertEntry(LocalDateTime.now());
+        assertThat(partitionOf("inventory_ledger", id)).isEqualTo(partitionName(currentMonth));
+    }
+
+    @Test
+    void oldEntriesShouldMoveFromTheDefaultPartitionToTheArchive() {
+        LocalDate oldMonth = LocalDate.now().withDayOfMonth(1).minusYears(5);
+        UUID id = insertEntry(oldMonth.atTime(12, 0));
+        assertThat(partitionOf("inventory_ledger", id)).isEqualTo("inventory_ledger_default");
+
+        assertThat(ledgerRepository.ensurePartition(oldMonth)).isTrue();
+        assertThat(partitionOf("inventory_ledger", id)).isEqualTo(partitionName(oldMonth));
+
+        properties.setArchiveAfterMonths(12);
+        assertThat(ledgerPartitionService.archiveExpiredPartitions()).isPositive();
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM inventory_ledger WHERE id = ?", Integer.class, id)).isZero();
+        assertThat(partitionOf("inventory_ledger_archive", id)).isEqualTo(partitionName(oldMonth));
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM inventory_ledger_history WHERE id = ?", Integer.class, id)).isEqualTo(1);
+        // An archived month is not created again in the live table
+        assertThat(ledgerRepository.ensurePartition(oldMonth)).isFalse();
+    }
+
+    private UUID insertEntry(LocalDateTime createdAt) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("""
+                INSERT INTO inventory_ledger (id, tenant_id, product_id, reference_id, reference_type,
+                                              entry_type, quantity, created_by, created_at)
+                VALUES (?, ?, ?, ?, 'TEST', 'PURCHASE_IN', 1, ?, ?)
+                """, id, UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), createdAt);
+        return id;
+    }
+
+    private String partitionOf(String table, UUID id) {
+        return jdbcTemplate.queryForObject(
+                "SELECT tableoid::regclass::text FROM " + table + " WHERE id = ?", String.class, id);
+    }
+
+    private static String partitionName(LocalDate month) {
+        return "inventory_ledger_p" + month.format(DateTimeFormatter.ofPattern("yyyyMM"));
+    }
+}
@@ -0,0 +1,64 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.config.LedgerPartitionProperties;
+import br.com.stockshift.repository.InventoryLedgerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerPartitionServiceTest {
+
+    @Mock
+    private InventoryLedgerRepository ledgerRepository;
+
+    private LedgerPartitionProperties properties;
+    private LedgerPartitionService ledgerPartitionService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LedgerPartitionProperties();
+        ledgerPartitionService = new LedgerPartitionService(ledgerRepository, properties);
+    }
+
+    @Test
+    void shouldEnsureTheCurrentMonthAndTheMonthsAhead() {
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        when(ledgerRepository.ensurePartition(any())).thenReturn(false);
+        when(ledgerRepository.ensurePartition(currentMonth.plusMonths(3))).thenReturn(true);
+
+        int created = ledgerPartitionService.ensureFuturePartitions();
+
+        assertThat(created).isEqualTo(1);
+        for (int i = 0; i <= 3; i++) {
+            verify(ledgerRepository).ensurePartition(currentMonth.plusMonths(i));
+        }
+    }
+
+    @Test
+    void shouldArchiveMonthsBeyondTheRetention() {
+        properties.setArchiveAfterMonths(12);
+        LocalDate cutoff = LocalDate.now().withDayOfMonth(1).minusMonths(11);
+        when(ledgerRepository.archivePartitionsBefore(cutoff)).thenReturn(2);
+
+        assertThat(ledgerPartitionService.archiveExpiredPartitions()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldKeepEverythingLiveWhenArchivingIsDisabled() {
+        properties.setArchiveAfterMonths(0);
+
+        assertThat(ledgerPartitionService.archiveExpiredPartitions()).isZero();
+        verify(ledgerRepository, never()).archivePartitionsBefore(any());
+    }
+}
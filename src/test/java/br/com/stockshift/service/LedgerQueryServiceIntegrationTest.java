@@ -0,0 +1,95 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.BaseIntegrationTest;
+import br.com.stockshift.dto.ledger.LedgerEntryResponse;
+import br.com.stockshift.dto.ledger.LedgerPageResponse;
+import br.com.stockshift.security.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Keyset pages and the cursor-backed export against real rows, including entries that
+// share a created_at and a range that spans months (partitions)
+class LedgerQueryServiceIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private LedgerQueryService ledgerQueryService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UUID tenantId;
+    private UUID warehouseId;
+    private UUID productId;
+    private final List<UUID> newestFirst = new ArrayList<>();
+
+    @BeforeEach
+    void createEntries() {
+        tenantId = UUID.randomUUID();
+        warehouseId = UUID.randomUUID();
+        productId = UUID.randomUUID();
+        TenantContext.setTenantId(tenantId);
+
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<LocalDateTime> times = List.of(now, now, now.minusDays(1), now.minusDays(40), now.minusDays(40));
+        List<UUID> ids = new ArrayList<>();
+        for (LocalDateTime createdAt : times) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            jdbcTemplate.update("""
+                    INSERT INTO inventory_ledger (id, tenant_id, product_id, warehouse_id, reference_id,
+                                                  reference_type, entry_type, quantity, created_by, created_at)
+                    VALUES (?, ?, ?, ?, ?, 'TEST', 'PURCHASE_IN', 1, ?, ?)
+                    """, id, tenantId, productId, warehouseId, UUID.randomUUID(), UUID.randomUUID(), createdAt);
+        }
+        // Another tenant's entry in the same warehouse is never returned
+        jdbcTemplate.update("""
+                INSERT INTO inventory_ledger (id, tenant_id, product_id, warehouse_id, reference_id,
+                                              reference_type, entry_type, quantity, created_by, created_at)
+                VALUES (?, ?, ?, ?, ?, 'TEST', 'PURCHASE_IN', 1, ?, ?)
+                """, UUID.randomUUID(), UUID.randomUUID(), productId, warehouseId, UUID.randomUUID(),
+                UUID.randomUUID(), now);
+
+        newestFirst.addAll(jdbcTemplate.queryForList(
+                "SELECT id FROM inventory_ledger WHERE tenant_id = ? ORDER BY created_at DESC, id DESC",
+                UUID.class, tenantId));
+        assertThat(newestFirst).containsExactlyInAnyOrderElementsOf(ids);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void pagesShouldWalkTheLedgerNewestFirstWithoutGapsOrRepeats() {
+        List<UUID> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            LedgerPageResponse page = ledgerQueryService.findByWarehouseId(warehouseId, null, null, cursor, 2);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(2);
+            page.getItems().forEach(entry -> seen.add(entry.id()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(seen).containsExactlyElementsOf(newestFirst);
+    }
+
+    @Test
+    void exportShouldHonourTheDateRange() {
+        List<UUID> exported = new ArrayList<>();
+        long count = ledgerQueryService.exportByProductId(productId,
+                LocalDateTime.now().minusDays(2), null, entry -> exported.add(entry.id()));
+
+        assertThat(count).isEqualTo(3);
+        assertThat(exported).containsExactlyElementsOf(newestFirst.subList(0, 3));
+    }
+}
@@ -1,42 +1,128 @@
 package br.com.stockshift.service;
 
-import br.com.stockshift.model.entity.InventoryLedger;
-
+import br.com.stockshift.dto.ledger.LedgerEntryResponse;
+import br.com.stockshift.dto.ledger.LedgerPageResponse;
+import br.com.stockshift.exception.BadRequestException;
+import br.com.stockshift.model.enums.LedgerEntryType;
 import br.com.stockshift.repository.InventoryLedgerRepository;
+import br.com.stockshift.security.TenantContext;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
 class LedgerQueryServiceTest {
 
     @Mock
     private InventoryLedgerRepository ledgerRepository;
 
     private LedgerQueryService ledgerQueryService;
+    private UUID tenantId;
 
     @BeforeEach
     void setUp() {
         ledgerQueryService = new LedgerQueryService(ledgerRepository);
+        tenantId = UUID.randomUUID();
+        TenantContext.setTenantId(tenantId);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
     }
 
     @Test
     void shouldFindLedgerEntriesByBatchId() {
         UUID batchId = UUID.randomUUID();
 
-        when(ledgerRepository.findByBatchIdOrderByCreatedAtDesc(batchId))
+        when(ledgerRepository.findPageByBatchId(eq(tenantId), eq(batchId), any(), any(), any(), any()))
                 .thenReturn(List.of());
 
-        List<InventoryLedger> result = ledgerQueryService.findByBatchId(batchId);
+        LedgerPageResponse result = ledgerQueryService.findByBatchId(batchId, null, null, null, null);
+
+        assertThat(result.getItems()).isEmpty();
+        assertThat(result.getNextCursor()).isNull();
+    }
+
+    @Test
+    void pageShouldStopAtTheLimitAndContinueAfterItsLastEntry() {
+        UUID warehouseId = UUID.randomUUID();
+        LocalDateTime from = LocalDateTime.of(2026, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2026, 2, 1, 0, 0);
+        LedgerEntryResponse newest = entry(LocalDateTime.of(2026, 1, 20, 10, 0));
+        LedgerEntryResponse older = entry(LocalDateTime.of(2026, 1, 15, 9, 30));
+        LedgerEntryResponse oldest = entry(LocalDateTime.of(2026, 1, 2, 8, 0));
+
+        when(ledgerRepository.findPageByWarehouseId(eq(tenantId), eq(warehouseId), eq(from), eq(to),
+                eq(new UUID(0L, 0L)), any())).thenReturn(List.of(newest, older, oldest));
+
+        LedgerPageResponse first = ledgerQueryService.findByWarehouseId(warehouseId, from, to, null, 2);
+
+        assertThat(first.getItems()).containsExactly(newest, older);
+        assertThat(first.getNextCursor()).isNotNull();
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(ledgerRepository).findPageByWarehouseId(eq(tenantId), eq(warehouseId), eq(from), eq(to),
+                eq(new UUID(0L, 0L)), pageable.capture());
+        assertThat(pageable.getValue()).isEqualTo(PageRequest.of(0, 3));
+
+        when(ledgerRepository.findPageByWarehouseId(eq(tenantId), eq(warehouseId), eq(from),
+                eq(older.createdAt()), eq(older.id()), any())).thenReturn(List.of(oldest));
+
+        LedgerPageResponse second =
+                ledgerQueryService.findByWarehouseId(warehouseId, from, to, first.getNextCursor(), 2);
+
+        assertThat(second.getItems()).containsExactly(oldest);
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        assertThatThrownBy(() -> ledgerQueryService.findByProductId(UUID.randomUUID(), null, null, "not-a-cursor", 10))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void exportShouldPassEveryEntryToTheConsumer() {
+        UUID productId = UUID.randomUUID();
+        LedgerEntryResponse first = entry(LocalDateTime.of(2026, 1, 20, 10, 0));
+        LedgerEntryResponse second = entry(LocalDateTime.of(2026, 1, 15, 9, 30));
+
+        when(ledgerRepository.streamByProductId(eq(tenantId), eq(productId), any(), any()))
+                .thenReturn(Stream.of(first, second));
+
+        List<LedgerEntryResponse> written = new ArrayList<>();
+        long count = ledgerQueryService.exportByProductId(productId, null, null, written::add);
+
+        assertThat(count).isEqualTo(2);
+        assertThat(written).containsExactly(first, second);
+    }
 
-        assertThat(result).isNotNull();
+    private static LedgerEntryResponse entry(LocalDateTime createdAt) {
+        return new LedgerEntryResponse(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+                null, "SALE", UUID.randomUUID(), LedgerEntryType.SALE_OUT, BigDecimal.ONE, null, null,
+                UUID.randomUUID(), createdAt);
     }
 }
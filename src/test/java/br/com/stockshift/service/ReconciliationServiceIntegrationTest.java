@@ -0,0 +1,143 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.BaseIntegrationTest;
+import br.com.stockshift.config.ReconciliationProperties;
+import br.com.stockshift.dto.ReconciliationResult;
+import br.com.stockshift.model.entity.Batch;
+import br.com.stockshift.model.entity.InventoryLedger;
+import br.com.stockshift.model.entity.Product;
+import br.com.stockshift.model.entity.Tenant;
+import br.com.stockshift.model.entity.Warehouse;
+import br.com.stockshift.model.enums.LedgerEntryType;
+import br.com.stockshift.repository.BatchRepository;
+import br.com.stockshift.repository.InventoryLedgerRepository;
+import br.com.stockshift.repository.ProductRepository;
+import br.com.stockshift.repository.TenantRepository;
+import br.com.stockshift.repository.WarehouseRepository;
+import br.com.stockshift.util.TestDataFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The grouped ledger SUM against real rows: debits, credits and batches without entries
+class ReconciliationServiceIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private ReconciliationService reconciliationService;
+    @Autowired
+    private InventoryLedgerRepository ledgerRepository;
+    @Autowired
+    private BatchRepository batchRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+    @Autowired
+    private TenantRepository tenantRepository;
+    @Autowired
+    private ReconciliationProperties properties;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Tenant tenant;
+    private Warehouse warehouse;
+    private Product product;
+
+    @BeforeEach
+    void createStock() {
+        tenant = TestDataFactory.createTenant(tenantRepository, "Reconcile " + UUID.randomUUID(),
+                UUID.randomUUID().toString().replace("-", "").substring(0, 14));
+        warehouse = TestDataFactory.createWarehouse(warehouseRepository, tenant.getId(), "Reconcile");
+        product = TestDataFactory.createProduct(productRepository, tenant.getId(), null,
+                "Reconcile", "REC-" + UUID.randomUUID().toString().substring(0, 8));
+        // Entries written by the test are settled at once
+        properties.setSettleWindow(Duration.ZERO);
+    }
+
+    @AfterEach
+    void restoreSettleWindow() {
+        properties.setSettleWindow(new ReconciliationProperties().getSettleWindow());
+    }
+
+    @Test
+    void shouldReportOnlyBatchesWhoseLedgerDoesNotAddUp() {
+        Batch balanced = TestDataFactory.createBatch(batchRepository, tenant.getId(), product, warehouse, 70);
+        record(balanced, LedgerEntryType.PURCHASE_IN, "100");
+        record(balanced, LedgerEntryType.SALE_OUT, "30");
+
+        Batch drifted = TestDataFactory.createBatch(batchRepository, tenant.getId(), product, warehouse, 60);
+        record(drifted, LedgerEntryType.PURCHASE_IN, "100");
+        record(drifted, LedgerEntryType.ADJUSTMENT_OUT, "50");
+
+        Batch withoutEntries = TestDataFactory.createBatch(batchRepository, tenant.getId(), product, warehouse, 5);
+        ledgerRepository.flush();
+
+        List<ReconciliationResult> results = reconciliationService.reconcileTenant(tenant.getId());
+
+        assertThat(results).extracting(ReconciliationResult::batchId)
+                .containsExactlyInAnyOrder(drifted.getId(), withoutEntries.getId());
+        ReconciliationResult driftedResult = results.stream()
+                .filter(result -> result.batchId().equals(drifted.getId()))
+                .findFirst().orElseThrow();
+        assertThat(driftedResult.calculatedQuantity()).isEqualByComparingTo("50");
+        assertThat(driftedResult.difference()).isEqualByComparingTo("10");
+        assertThat(reconciliationService.calculateQuantityFromLedger(balanced.getId())).isEqualByComparingTo("70");
+    }
+
+    @Test
+    void incrementalRunsShouldAccumulateCheckpointsAndCheckOnlyTouchedBatches() {
+        Batch batch = TestDataFactory.createBatch(batchRepository, tenant.getId(), product, warehouse, 100);
+        record(batch, LedgerEntryType.PURCHASE_IN, "100");
+        ledgerRepository.flush();
+
+        assertThat(reconciliationService.reconcileTenantIncremental(tenant.getId())).isEmpty();
+        assertThat(checkpointQuantity(batch)).isEqualByComparingTo("100");
+
+        batch.setQuantity(new BigDecimal("80"));
+        record(batch, LedgerEntryType.SALE_OUT, "20");
+        batchRepository.flush();
+
+        assertThat(reconciliationService.reconcileTenantIncremental(tenant.getId())).isEmpty();
+        assertThat(checkpointQuantity(batch)).isEqualByComparingTo("80");
+
+        // A quantity change without a ledger entry is caught by the next run
+        batch.setQuantity(new BigDecimal("75"));
+        batchRepository.flush();
+
+        assertThat(reconciliationService.reconcileTenantIncremental(tenant.getId()))
+                .singleElement()
+                .satisfies(result -> assertThat(result.difference()).isEqualByComparingTo("-5"));
+
+        assertThat(reconciliationService.rebuildCheckpoint(tenant.getId())).hasSize(1);
+        assertThat(checkpointQuantity(batch)).isEqualByComparingTo("80");
+    }
+
+    private BigDecimal checkpointQuantity(Batch batch) {
+        return jdbcTemplate.queryForObject(
+                "SELECT ledger_quantity FROM batch_balance_checkpoint WHERE batch_id = ?",
+                BigDecimal.class, batch.getId());
+    }
+
+    private void record(Batch batch, LedgerEntryType entryType, String quantity) {
+        ledgerRepository.save(InventoryLedger.builder()
+                .tenantId(tenant.getId())
+                .warehouseId(warehouse.getId())
+                .productId(product.getId())
+                .batchId(batch.getId())
+                .entryType(entryType)
+                .quantity(new BigDecimal(quantity))
+                .referenceType("TEST")
+                .referenceId(UUID.randomUUID())
+                .createdBy(UUID.randomUUID())
+                .build());
+    }
+}
@@ -1,11 +1,13 @@
 package br.com.stockshift.service;
 
+import br.com.stockshift.config.ReconciliationProperties;
+import br.com.stockshift.dto.BatchLedgerBalanceProjection;
 import br.com.stockshift.dto.ReconciliationResult;
-import br.com.stockshift.model.entity.Batch;
-import br.com.stockshift.model.entity.InventoryLedger;
+import br.com.stockshift.model.entity.ReconciliationCheckpoint;
 import br.com.stockshift.model.enums.LedgerEntryType;
-import br.com.stockshift.repository.BatchRepository;
+import br.com.stockshift.repository.BatchBalanceCheckpointRepository;
 import br.com.stockshift.repository.InventoryLedgerRepository;
+import br.com.stockshift.repository.ReconciliationCheckpointRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,47 +15,49 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class ReconciliationServiceTest {
 
     @Mock
-    private BatchRepository batchRepository;
+    private InventoryLedgerRepository ledgerRepository;
 
     @Mock
-    private InventoryLedgerRepository ledgerRepository;
+    private ReconciliationCheckpointRepository checkpointRepository;
+
+    @Mock
+    private BatchBalanceCheckpointRepository batchCheckpointRepository;
 
+    private ReconciliationProperties properties;
     private ReconciliationService reconciliationService;
 
     @BeforeEach
     void setUp() {
-        reconciliationService = new ReconciliationService(batchRepository, ledgerRepository);
+        properties = new ReconciliationProperties();
+        reconciliationService = new ReconciliationService(ledgerRepository, checkpointRepository,
+            batchCheckpointRepository, properties);
     }
 
     @Test
     void shouldDetectNoDiscrepancyWhenBalanced() {
         UUID tenantId = UUID.randomUUID();
-        UUID batchId = UUID.randomUUID();
-
-        Batch batch = new Batch();
-        batch.setId(batchId);
-        batch.setQuantity(new BigDecimal("50"));
-
-        InventoryLedger entry1 = new InventoryLedger();
-        entry1.setEntryType(LedgerEntryType.PURCHASE_IN); // Credit
-        entry1.setQuantity(new BigDecimal("100"));
 
-        InventoryLedger entry2 = new InventoryLedger();
-        entry2.setEntryType(LedgerEntryType.ADJUSTMENT_OUT); // Debit
-        entry2.setQuantity(new BigDecimal("50"));
-
-        when(batchRepository.findAllByTenantId(tenantId)).thenReturn(List.of(batch));
-        when(ledgerRepository.findByBatchId(batchId)).thenReturn(List.of(entry1, entry2));
+        when(ledgerRepository.findLedgerMismatchesByTenant(tenantId, ReconciliationService.DEBIT_ENTRY_TYPES))
+            .thenReturn(List.of());
 
         List<ReconciliationResult> results = reconciliationService.reconcileTenant(tenantId);
 
@@ -65,28 +69,69 @@ class ReconciliationServiceTest {
         UUID tenantId = UUID.randomUUID();
         UUID batchId = UUID.randomUUID();
 
-        Batch batch = new Batch();
-        batch.setId(batchId);
-        batch.setBatchCode("BATCH-001");
-        batch.setQuantity(new BigDecimal("60")); // Wrong! Should be 50
-
-        InventoryLedger entry1 = new InventoryLedger();
-        entry1.setEntryType(LedgerEntryType.PURCHASE_IN);
-        entry1.setQuantity(new BigDecimal("100"));
+        BatchLedgerBalanceProjection batch = mock(BatchLedgerBalanceProjection.class);
+        when(batch.getBatchId()).thenReturn(batchId);
+        when(batch.getBatchCode()).thenReturn("BATCH-001");
+        when(batch.getMaterializedQuantity()).thenReturn(new BigDecimal("60")); // Wrong! Should be 50
+        when(batch.getCalculatedQuantity()).thenReturn(new BigDecimal("50"));
 
-        InventoryLedger entry2 = new InventoryLedger();
-        entry2.setEntryType(LedgerEntryType.ADJUSTMENT_OUT);
-        entry2.setQuantity(new BigDecimal("50"));
-
-        when(batchRepository.findAllByTenantId(tenantId)).thenReturn(List.of(batch));
-        when(ledgerRepository.findByBatchId(batchId)).thenReturn(List.of(entry1, entry2));
+        when(ledgerRepository.findLedgerMismatchesByTenant(tenantId, ReconciliationService.DEBIT_ENTRY_TYPES))
+            .thenReturn(List.of(batch));
 
         List<ReconciliationResult> results = reconciliationService.reconcileTenant(tenantId);
 
         assertThat(results).hasSize(1);
         assertThat(results.get(0).batchId()).isEqualTo(batchId);
+        assertThat(results.get(0).batchCode()).isEqualTo("BATCH-001");
         assertThat(results.get(0).materializedQuantity()).isEqualByComparingTo(new BigDecimal("60"));
         assertThat(results.get(0).calculatedQuantity()).isEqualByComparingTo(new BigDecimal("50"));
         assertThat(results.get(0).difference()).isEqualByComparingTo(new BigDecimal("10"));
     }
+
+    @Test
+    void debitEntryTypesShouldMatchTheLedgerEntryTypes() {
+        assertThat(ReconciliationService.DEBIT_ENTRY_TYPES)
+            .contains(LedgerEntryType.SALE_OUT.name(), LedgerEntryType.TRANSFER_OUT.name())
+            .doesNotContain(LedgerEntryType.PURCHASE_IN.name(), LedgerEntryType.SALE_CANCEL_IN.name())
+            .hasSize((int) Arrays.stream(LedgerEntryType.values()).filter(LedgerEntryType::isDebit).count());
+    }
+
+    @Test
+    void incrementalRunShouldFoldSettledEntriesAndAdvanceTheHighWaterMark() {
+        UUID tenantId = UUID.randomUUID();
+        LocalDateTime lastRun = LocalDateTime.now().minusHours(1);
+        ReconciliationCheckpoint checkpoint = new ReconciliationCheckpoint(tenantId, lastRun, lastRun);
+
+        when(checkpointRepository.findByTenantIdForUpdate(tenantId)).thenReturn(Optional.of(checkpoint));
+        when(batchCheckpointRepository.findMismatchesTouchedSince(eq(tenantId), eq(lastRun), any(),
+            eq(ReconciliationService.DEBIT_ENTRY_TYPES))).thenReturn(List.of());
+
+        List<ReconciliationResult> results = reconciliationService.reconcileTenantIncremental(tenantId);
+
+        assertThat(results).isEmpty();
+        LocalDateTime through = checkpoint.getLedgerHighWater();
+        assertThat(through).isAfter(lastRun)
+            .isBefore(LocalDateTime.now().minus(properties.getSettleWindow()).plusSeconds(1));
+        verify(batchCheckpointRepository).addLedgerDelta(tenantId, lastRun, through,
+            ReconciliationService.DEBIT_ENTRY_TYPES);
+        verify(batchCheckpointRepository).findMismatchesTouchedSince(tenantId, lastRun, through,
+            ReconciliationService.DEBIT_ENTRY_TYPES);
+    }
+
+    @Test
+    void incrementalRunWithinTheSettleWindowShouldNotMoveTheCheckpoint() {
+        UUID tenantId = UUID.randomUUID();
+        properties.setSettleWindow(Duration.ofHours(2));
+        LocalDateTime lastRun = LocalDateTime.now().minusHours(1);
+        ReconciliationCheckpoint checkpoint = new ReconciliationCheckpoint(tenantId, lastRun, lastRun);
+
+        when(checkpointRepository.findByTenantIdForUpdate(tenantId)).thenReturn(Optional.of(checkpoint));
+
+        reconciliationService.reconcileTenantIncremental(tenantId);
+
+        assertThat(checkpoint.getLedgerHighWater()).isEqualTo(lastRun);
+        verify(batchCheckpointRepository, never()).addLedgerDelta(any(), any(), any(), any());
+        verify(batchCheckpointRepository).findMismatchesTouchedSince(tenantId, lastRun, lastRun,
+            ReconciliationService.DEBIT_ENTRY_TYPES);
+    }
 }
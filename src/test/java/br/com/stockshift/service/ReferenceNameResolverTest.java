@@ -0,0 +1,98 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.config.ReferenceNameProperties;
+import br.com.stockshift.dto.ReferenceNameProjection;
+import br.com.stockshift.repository.UserRepository;
+import br.com.stockshift.repository.WarehouseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReferenceNameResolverTest {
+
+    @Mock
+    private WarehouseRepository warehouseRepository;
+    @Mock
+    private UserRepository userRepository;
+
+    private ReferenceNameResolver resolver;
+    private UUID tenantId;
+
+    @BeforeEach
+    void setUp() {
+        resolver = new ReferenceNameResolver(warehouseRepository, userRepository, new ReferenceNameProperties());
+        tenantId = UUID.randomUUID();
+    }
+
+    @Test
+    void shouldLoadAllMissingWarehousesWithOneQueryAndServeRepeatsFromCache() {
+        UUID main = UUID.randomUUID();
+        UUID branch = UUID.randomUUID();
+        when(warehouseRepository.findNamesByTenantIdAndIdIn(eq(tenantId), any()))
+                .thenReturn(List.of(name(main, "Main"), name(branch, "Branch")));
+
+        assertThat(resolver.warehouseNames(tenantId, List.of(main, branch, main)))
+                .containsEntry(main, "Main")
+                .containsEntry(branch, "Branch");
+        assertThat(resolver.warehouseName(tenantId, branch)).isEqualTo("Branch");
+
+        verify(warehouseRepository, times(1)).findNamesByTenantIdAndIdIn(tenantId, Set.of(main, branch));
+    }
+
+    @Test
+    void shouldFallBackForUnknownAndNullIds() {
+        UUID missing = UUID.randomUUID();
+        when(userRepository.findNamesByTenantIdAndIdIn(eq(tenantId), any())).thenReturn(List.of());
+
+        assertThat(resolver.userNames(tenantId, Arrays.asList(missing, null)))
+                .containsExactlyEntriesOf(Map.of(missing, ReferenceNameResolver.UNKNOWN_USER));
+        assertThat(resolver.warehouseName(tenantId, null)).isEqualTo(ReferenceNameResolver.UNKNOWN_WAREHOUSE);
+    }
+
+    @Test
+    void shouldReloadNameAfterEviction() {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.findNamesByTenantIdAndIdIn(eq(tenantId), any()))
+                .thenReturn(List.of(name(userId, "Ana")))
+                .thenReturn(List.of(name(userId, "Ana Souza")));
+
+        assertThat(resolver.userNames(tenantId, List.of(userId))).containsEntry(userId, "Ana");
+        resolver.evictUser(tenantId, userId);
+
+        assertThat(resolver.userNames(tenantId, List.of(userId))).containsEntry(userId, "Ana Souza");
+        verify(userRepository, times(2)).findNamesByTenantIdAndIdIn(eq(tenantId), any());
+    }
+
+    private ReferenceNameProjection name(UUID id, String name) {
+        return new ReferenceNameProjection() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+}
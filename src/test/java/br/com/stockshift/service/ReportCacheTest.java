@@ -0,0 +1,122 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.config.ReportCacheProperties;
+import br.com.stockshift.dto.report.DashboardSummaryResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReportCacheTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private final Map<String, String> redis = new HashMap<>();
+    private ReportCacheProperties properties;
+    private ReportCache cache;
+    private UUID tenantId;
+
+    @BeforeEach
+    void setUp() {
+        tenantId = UUID.randomUUID();
+        properties = new ReportCacheProperties();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenAnswer(invocation -> redis.get(invocation.<String>getArgument(0)));
+        when(valueOperations.increment(anyString())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            long next = Long.parseLong(redis.getOrDefault(key, "0")) + 1;
+            redis.put(key, String.valueOf(next));
+            return next;
+        });
+        doAnswer(invocation -> redis.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(valueOperations).set(anyString(), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS));
+        cache = new ReportCache(redisTemplate, new ObjectMapper(), properties);
+    }
+
+    @Test
+    void shouldComputeOnceUntilTenantVersionIsBumped() {
+        AtomicInteger computed = new AtomicInteger();
+
+        cache.get(tenantId, "summary", "all", "", DashboardSummaryResponse.class, summary(computed));
+        DashboardSummaryResponse cached =
+                cache.get(tenantId, "summary", "all", "", DashboardSummaryResponse.class, summary(computed));
+
+        assertThat(computed).hasValue(1);
+        assertThat(cached.getTotalProducts()).isEqualTo(1L);
+
+        cache.invalidateAfterCommit(tenantId);
+        DashboardSummaryResponse refreshed =
+                cache.get(tenantId, "summary", "all", "", DashboardSummaryResponse.class, summary(computed));
+
+        assertThat(computed).hasValue(2);
+        assertThat(refreshed.getTotalProducts()).isEqualTo(2L);
+    }
+
+    @Test
+    void shouldServeOtherNodesFromSharedTier() {
+        AtomicInteger computed = new AtomicInteger();
+        ReportCache otherNode = new ReportCache(redisTemplate, new ObjectMapper(), properties);
+
+        cache.get(tenantId, "summary", "all", "", DashboardSummaryResponse.class, summary(computed));
+        DashboardSummaryResponse fromRedis =
+                otherNode.get(tenantId, "summary", "all", "", DashboardSummaryResponse.class, summary(computed));
+
+        assertThat(computed).hasValue(1);
+        assertThat(fromRedis.getTotalProducts()).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldKeepScopesAndTenantsApart() {
+        AtomicInteger computed = new AtomicInteger();
+
+        cache.get(tenantId, "summary", "all", "", DashboardSummaryResponse.class, summary(computed));
+        cache.get(tenantId, "summary", UUID.randomUUID().toString(), "", DashboardSummaryResponse.class,
+                summary(computed));
+        cache.get(UUID.randomUUID(), "summary", "all", "", DashboardSummaryResponse.class, summary(computed));
+
+        assertThat(computed).hasValue(3);
+    }
+
+    @Test
+    void shouldComputeEveryTimeWhenRedisIsUnavailable() {
+        AtomicInteger computed = new AtomicInteger();
+        when(valueOperations.get(anyString())).thenThrow(new RedisConnectionFailureException("down"));
+
+        cache.get(tenantId, "summary", "all", "", DashboardSummaryResponse.class, summary(computed));
+        cache.get(tenantId, "summary", "all", "", DashboardSummaryResponse.class, summary(computed));
+
+        assertThat(computed).hasValue(2);
+    }
+
+    private Supplier<DashboardSummaryResponse> summary(AtomicInteger computed) {
+        return () -> DashboardSummaryResponse.builder()
+                .totalProducts((long) computed.incrementAndGet())
+                .build();
+    }
+}
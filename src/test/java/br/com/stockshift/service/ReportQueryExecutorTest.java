@@ -0,0 +1,123 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.config.ReportQueryProperties;
+import br.com.stockshift.exception.ReportTimeoutException;
+import br.com.stockshift.security.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReportQueryExecutorTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ThreadPoolTaskExecutor pool;
+    private ReportQueryProperties properties;
+    private ReportQueryExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        properties = new ReportQueryProperties();
+        pool = new ThreadPoolTaskExecutor();
+        pool.setCorePoolSize(4);
+        pool.setMaxPoolSize(4);
+        pool.initialize();
+        executor = new ReportQueryExecutor(pool, transactionManager, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+        TenantContext.clear();
+    }
+
+    @Test
+    void shouldRunQueriesConcurrentlyInReadOnlyTransactionsWithCallerTenant() {
+        UUID tenantId = UUID.randomUUID();
+        TenantContext.setTenantId(tenantId);
+        // Each query only returns once all of them are running at the same time
+        CountDownLatch allRunning = new CountDownLatch(3);
+
+        try (ReportQueryExecutor.Scope queries = executor.open()) {
+            Supplier<UUID> first = queries.fork(() -> awaitOthers(allRunning));
+            Supplier<UUID> second = queries.fork(() -> awaitOthers(allRunning));
+            Supplier<UUID> third = queries.fork(() -> awaitOthers(allRunning));
+            queries.join();
+
+            assertThat(first.get()).isEqualTo(tenantId);
+            assertThat(second.get()).isEqualTo(tenantId);
+            assertThat(third.get()).isEqualTo(tenantId);
+        }
+        verify(transactionManager, atLeastOnce()).getTransaction(argThat(TransactionDefinition::isReadOnly));
+    }
+
+    @Test
+    void shouldFailWhenDeadlinePasses() {
+        properties.setDeadline(Duration.ofMillis(100));
+        CountDownLatch never = new CountDownLatch(1);
+
+        try (ReportQueryExecutor.Scope queries = executor.open()) {
+            queries.fork(() -> {
+                try {
+                    never.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            });
+
+            assertThatThrownBy(queries::join).isInstanceOf(ReportTimeoutException.class);
+        }
+    }
+
+    @Test
+    void shouldPropagateQueryFailure() {
+        try (ReportQueryExecutor.Scope queries = executor.open()) {
+            queries.fork(() -> 1L);
+            queries.fork(() -> {
+                throw new IllegalArgumentException("bad query");
+            });
+
+            assertThatThrownBy(queries::join)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("bad query");
+        }
+    }
+
+    private UUID awaitOthers(CountDownLatch allRunning) {
+        allRunning.countDown();
+        try {
+            assertThat(allRunning.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return TenantContext.getTenantId();
+    }
+}
@@ -1,13 +1,25 @@
 package br.com.stockshift.service;
 
+import br.com.stockshift.config.ReportQueryProperties;
+import br.com.stockshift.dto.report.BatchReportRowProjection;
+import br.com.stockshift.dto.report.CategoryStockValueProjection;
 import br.com.stockshift.dto.report.DashboardAlertsResponse;
 import br.com.stockshift.dto.report.DashboardKpisResponse;
 import br.com.stockshift.dto.report.DashboardResponse;
+import br.com.stockshift.dto.report.DashboardStockTotalsProjection;
 import br.com.stockshift.dto.report.DashboardSummaryResponse;
+import br.com.stockshift.dto.report.MovementDailyTotalProjection;
 import br.com.stockshift.dto.report.MovementTrendResponse;
+import br.com.stockshift.dto.report.MovementTypeTotalProjection;
+import br.com.stockshift.dto.report.RecentLossProjection;
+import br.com.stockshift.dto.report.StockReportPageResponse;
 import br.com.stockshift.dto.report.StockReportResponse;
+import br.com.stockshift.dto.report.StockReportRowProjection;
+import br.com.stockshift.dto.warehouse.StockBalanceTotalsProjection;
+import br.com.stockshift.exception.BadRequestException;
 import br.com.stockshift.exception.UnauthorizedException;
 import br.com.stockshift.model.entity.Batch;
+import br.com.stockshift.model.entity.KpiPeriodSnapshot;
 import br.com.stockshift.model.entity.Product;
 import br.com.stockshift.model.entity.StockMovement;
 import br.com.stockshift.model.entity.StockMovementItem;
@@ -16,6 +28,9 @@ import br.com.stockshift.model.enums.MovementDirection;
 import br.com.stockshift.model.enums.StockMovementType;
 import br.com.stockshift.model.enums.TransferStatus;
 import br.com.stockshift.repository.BatchRepository;
+import br.com.stockshift.repository.KpiPeriodSnapshotRepository;
+import br.com.stockshift.repository.MovementDailyRollupRepository;
+import br.com.stockshift.repository.StockBalanceRepository;
 import br.com.stockshift.repository.StockMovementRepository;
 import br.com.stockshift.repository.TransferRepository;
 import br.com.stockshift.repository.WarehouseRepository;
@@ -31,21 +46,35 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 
 import java.math.BigDecimal;
-import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -66,6 +95,16 @@ class ReportServiceEndpointsTest {
     private WarehouseAccessService warehouseAccessService;
     @Mock
     private PermissionResolverService permissionResolverService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private KpiPeriodSnapshotRepository kpiPeriodSnapshotRepository;
+    @Mock
+    private MovementDailyRollupRepository movementDailyRollupRepository;
+    @Mock
+    private StockSnapshotService stockSnapshotService;
+    @Mock
+    private StockBalanceRepository stockBalanceRepository;
 
     @InjectMocks
     private ReportService reportService;
@@ -82,6 +121,11 @@ class ReportServiceEndpointsTest {
         warehouse = warehouse(warehouseId, "Principal");
         product = product("Produto");
         TenantContext.setTenantId(tenantId);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ReflectionTestUtils.setField(reportService, "reportQueryExecutor", new ReportQueryExecutor(
+                new TaskExecutorAdapter(Runnable::run), transactionManager, new ReportQueryProperties()));
+        ReflectionTestUtils.setField(reportService, "kpiSnapshotService", new KpiSnapshotService(
+                batchRepository, movementDailyRollupRepository, kpiPeriodSnapshotRepository));
     }
 
     @AfterEach
@@ -93,20 +137,22 @@ class ReportServiceEndpointsTest {
     void stockReportsShouldUseWarehouseContextAndAggregateBatches() {
         Batch first = batch(product, warehouse, "7", 200L, LocalDate.now().plusDays(10));
         Batch second = batch(product, warehouse, "3", 100L, LocalDate.now().plusDays(3));
-        Batch otherWarehouse = batch(product, warehouse(UUID.randomUUID(), "Filial"), "1", 100L, null);
+        LocalDate today = LocalDate.now();
         when(securityUtils.getCurrentWarehouseId()).thenReturn(warehouseId);
-        when(batchRepository.findByWarehouseIdAndTenantId(warehouseId, tenantId))
-                .thenReturn(List.of(first, second));
-        when(batchRepository.findLowStock(10, tenantId))
-                .thenReturn(List.of(first, otherWarehouse));
-        when(batchRepository.findExpiringBatches(any(LocalDate.class), any(LocalDate.class), eq(tenantId)))
-                .thenReturn(List.of(second, otherWarehouse));
-
-        List<StockReportResponse> stock = reportService.getStockReport();
+        when(batchRepository.findStockReportFirstPage(eq(tenantId), eq(warehouseId), any(Pageable.class)))
+                .thenReturn(List.of(stockRow(product, warehouse, "10", "1700", second.getExpirationDate())));
+        when(batchRepository.findLowStockByWarehouse(tenantId, warehouseId, BigDecimal.TEN, PageRequest.of(0, 1)))
+                .thenReturn(List.of(first));
+        when(batchRepository.findExpiringBatchesByWarehouse(
+                tenantId, warehouseId, today, today.plusDays(30), PageRequest.of(0, 5)))
+                .thenReturn(List.of(second));
+
+        StockReportPageResponse stock = reportService.getStockReport(null, null);
         List<StockReportResponse> lowStock = reportService.getLowStockReport(10, 1);
         List<StockReportResponse> expiring = reportService.getExpiringProductsReport(30, 5);
 
-        assertThat(stock).singleElement().satisfies(item -> {
+        assertThat(stock.getNextCursor()).isNull();
+        assertThat(stock.getItems()).singleElement().satisfies(item -> {
             assertThat(item.getProductId()).isEqualTo(product.getId());
             assertThat(item.getWarehouseId()).isEqualTo(warehouseId);
             assertThat(item.getTotalQuantity()).isEqualByComparingTo("10");
@@ -119,11 +165,94 @@ class ReportServiceEndpointsTest {
                 .isEqualTo(second.getExpirationDate());
     }
 
+    @Test
+    void stockReportShouldPageByKeysetCursor() {
+        Product second = product("Segundo");
+        StockReportRowProjection firstRow = stockRow(product, warehouse, "4", "400", null);
+        when(securityUtils.getCurrentWarehouseId()).thenReturn(warehouseId);
+        when(batchRepository.findStockReportFirstPage(tenantId, warehouseId, PageRequest.of(0, 2)))
+                .thenReturn(List.of(firstRow, stockRow(second, warehouse, "1", "100", null)));
+        when(batchRepository.findStockReportPageAfter(
+                tenantId, warehouseId, product.getName(), product.getId(), warehouseId, PageRequest.of(0, 2)))
+                .thenReturn(List.of(stockRow(second, warehouse, "1", "100", null)));
+
+        StockReportPageResponse firstPage = reportService.getStockReport(null, 1);
+        StockReportPageResponse lastPage = reportService.getStockReport(firstPage.getNextCursor(), 1);
+
+        assertThat(firstPage.getItems()).singleElement().extracting("productId").isEqualTo(product.getId());
+        assertThat(firstPage.getNextCursor()).isNotBlank();
+        assertThat(lastPage.getItems()).singleElement().extracting("productId").isEqualTo(second.getId());
+        assertThat(lastPage.getNextCursor()).isNull();
+        assertThatThrownBy(() -> reportService.getStockReport("not-a-cursor", 1))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void stockReportStreamShouldReadChunksWhileIterating() {
+        List<StockReportRowProjection> fullChunk = IntStream.range(0, 500)
+                .mapToObj(index -> stockRow(product(String.format("Produto %03d", index)), warehouse, "1", "1", null))
+                .collect(Collectors.toList());
+        StockReportRowProjection last = fullChunk.get(fullChunk.size() - 1);
+        when(warehouseAccessService.hasFullAccess()).thenReturn(true);
+        when(securityUtils.getCurrentWarehouseId()).thenThrow(new UnauthorizedException("no warehouse"));
+        when(batchRepository.findStockReportFirstPage(eq(tenantId), isNull(), any(Pageable.class)))
+                .thenReturn(fullChunk);
+        when(batchRepository.findStockReportPageAfter(eq(tenantId), isNull(), eq(last.getProductName()),
+                eq(last.getProductId()), eq(warehouseId), any(Pageable.class)))
+                .thenReturn(List.of(stockRow(product, warehouse, "2", "2", null)));
+
+        Iterable<StockReportResponse> rows = reportService.streamStockReport();
+
+        verify(batchRepository, never()).findStockReportFirstPage(any(), any(), any());
+        assertThat(rows).hasSize(501);
+    }
+
+    @Test
+    void stockReportAsOfShouldReadSnapshotsInWarehouseScopeAndRejectFutureDates() {
+        LocalDate date = LocalDate.now().minusDays(40);
+        when(securityUtils.getCurrentWarehouseId()).thenReturn(warehouseId);
+        when(stockSnapshotService.findStockAsOf(tenantId, warehouseId, date))
+                .thenReturn(List.of(stockRow(product, warehouse, "6", "600", null)));
+
+        List<StockReportResponse> report = reportService.getStockReportAsOf(date);
+
+        assertThat(report).singleElement().satisfies(item -> {
+            assertThat(item.getProductId()).isEqualTo(product.getId());
+            assertThat(item.getTotalQuantity()).isEqualByComparingTo("6");
+            assertThat(item.getTotalValue()).isEqualByComparingTo("600");
+        });
+        assertThatThrownBy(() -> reportService.getStockReportAsOf(LocalDate.now().plusDays(1)))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void expiringReportStreamShouldContinueAfterLastExpirationAndBatch() {
+        LocalDate today = LocalDate.now();
+        List<BatchReportRowProjection> fullChunk = IntStream.range(0, 500)
+                .mapToObj(index -> batchRow(UUID.randomUUID(), today.plusDays(index % 30)))
+                .collect(Collectors.toList());
+        BatchReportRowProjection last = fullChunk.get(fullChunk.size() - 1);
+        when(securityUtils.getCurrentWarehouseId()).thenReturn(warehouseId);
+        when(batchRepository.findExpiringReportFirstPage(
+                eq(tenantId), eq(warehouseId), eq(today), eq(today.plusDays(30)), any(Pageable.class)))
+                .thenReturn(fullChunk);
+        when(batchRepository.findExpiringReportPageAfter(eq(tenantId), eq(warehouseId), eq(today),
+                eq(today.plusDays(30)), eq(last.getExpirationDate()), eq(last.getBatchId()), any(Pageable.class)))
+                .thenReturn(List.of(batchRow(UUID.randomUUID(), today.plusDays(30))));
+
+        List<StockReportResponse> rows = new ArrayList<>();
+        reportService.streamExpiringProductsReport(30).forEach(rows::add);
+
+        assertThat(rows).hasSize(501);
+        assertThat(rows.get(500).getNearestExpiration()).isEqualTo(today.plusDays(30));
+        assertThat(rows).allSatisfy(row -> assertThat(row.getBatchCount()).isEqualTo(1));
+    }
+
     @Test
     void summaryKpisAndMovementTrendShouldMapRepositoryTotals() {
         when(securityUtils.getCurrentWarehouseId()).thenReturn(warehouseId);
-        when(batchRepository.findByWarehouseIdAndTenantId(warehouseId, tenantId))
-                .thenReturn(List.of(batch(product, warehouse, "4", 500L, null)));
+        when(stockBalanceRepository.sumByWarehouse(tenantId, warehouseId))
+                .thenReturn(stockTotals(2L, "4"));
         when(batchRepository.sumStockValue(tenantId, warehouseId))
                 .thenReturn(new BigDecimal("2000"), new BigDecimal("100"), new BigDecimal("50"));
         when(batchRepository.sumTransitQuantity(tenantId, warehouseId))
@@ -135,9 +264,9 @@ class ReportServiceEndpointsTest {
                 .thenReturn(5L);
         when(stockMovementRepository.countTodayMovements(eq(tenantId), eq(warehouseId), any(), any()))
                 .thenReturn(9L);
-        when(stockMovementRepository.sumMovementsByTypeAndPeriod(eq(tenantId), eq(warehouseId), any(), any()))
+        when(movementDailyRollupRepository.typeTotals(eq(tenantId), eq(warehouseId), any(), any()))
                 .thenReturn(
-                        List.<Object[]>of(
+                        List.of(
                                 movementSum(StockMovementType.PURCHASE_IN, MovementDirection.IN, "20"),
                                 movementSum(StockMovementType.LOSS, MovementDirection.OUT, "3"),
                                 movementSum(StockMovementType.DAMAGE, MovementDirection.OUT, "2"),
@@ -146,19 +275,21 @@ class ReportServiceEndpointsTest {
                                 movementSum(StockMovementType.ADJUSTMENT_OUT, MovementDirection.OUT, "1"),
                                 movementSum(StockMovementType.SALE, MovementDirection.OUT, "3")
                         ),
-                        List.<Object[]>of(movementSum(StockMovementType.PURCHASE_IN, MovementDirection.IN, "10"))
+                        List.of(movementSum(StockMovementType.PURCHASE_IN, MovementDirection.IN, "10"))
                 );
         LocalDate today = LocalDate.now();
-        when(stockMovementRepository.getDailyMovementTrend(eq(tenantId), eq(warehouseId), any(), any()))
+        when(movementDailyRollupRepository.dailyTotals(eq(tenantId), eq(warehouseId), any(), any()))
                 .thenReturn(List.of(
-                        new Object[]{today.minusDays(1), MovementDirection.IN, new BigDecimal("4"), 2L},
-                        new Object[]{today, MovementDirection.OUT, new BigDecimal("3"), 1L}
+                        dailyTotal(today.minusDays(1), MovementDirection.IN, "4", 2L),
+                        dailyTotal(today, MovementDirection.OUT, "3", 1L)
                 ));
 
         DashboardSummaryResponse summary = reportService.getSummary();
         DashboardKpisResponse kpis = reportService.getKpis();
         MovementTrendResponse trend = reportService.getMovementTrend(2);
 
+        assertThat(summary.getTotalProducts()).isEqualTo(2L);
+        assertThat(summary.getTotalStockQuantity()).isEqualByComparingTo("4");
         assertThat(summary.getTotalStockValue()).isEqualByComparingTo("2000");
         assertThat(summary.getPendingTransfers()).isEqualTo(5L);
         assertThat(summary.getTodayMovements()).isEqualTo(9L);
@@ -169,34 +300,60 @@ class ReportServiceEndpointsTest {
         assertThat(trend.getTotals().getTotalInQuantity()).isEqualByComparingTo("4");
         assertThat(trend.getTotals().getTotalOutQuantity()).isEqualByComparingTo("3");
         assertThat(trend.getTotals().getMovementCount()).isEqualTo(3L);
+        verify(kpiPeriodSnapshotRepository).insertIfAbsent(eq(tenantId), eq(warehouseId),
+                eq(YearMonth.now().minusMonths(1).atDay(1)), eq(new BigDecimal("50")), eq(new BigDecimal("10")),
+                any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void kpisShouldReadClosedPreviousMonthFromSnapshot() {
+        LocalDate previousMonthStart = YearMonth.now().minusMonths(1).atDay(1);
+        when(securityUtils.getCurrentWarehouseId()).thenReturn(warehouseId);
+        when(kpiPeriodSnapshotRepository.findById(
+                new KpiPeriodSnapshot.KpiPeriodSnapshotId(tenantId, warehouseId, previousMonthStart)))
+                .thenReturn(Optional.of(KpiPeriodSnapshot.builder()
+                        .tenantId(tenantId)
+                        .warehouseId(warehouseId)
+                        .periodStart(previousMonthStart)
+                        .stockValue(new BigDecimal("80"))
+                        .purchasesValue(new BigDecimal("10"))
+                        .lossesValue(BigDecimal.ZERO)
+                        .damageValue(BigDecimal.ZERO)
+                        .giftValue(BigDecimal.ZERO)
+                        .adjustmentValue(BigDecimal.ZERO)
+                        .transitValue(BigDecimal.ZERO)
+                        .stockTurnoverRate(BigDecimal.ZERO)
+                        .build()));
+        when(batchRepository.sumStockValue(tenantId, warehouseId)).thenReturn(new BigDecimal("100"));
+        when(batchRepository.sumTransitQuantity(tenantId, warehouseId)).thenReturn(BigDecimal.ZERO);
+        when(movementDailyRollupRepository.typeTotals(eq(tenantId), eq(warehouseId), any(), any()))
+                .thenReturn(List.of(movementSum(StockMovementType.PURCHASE_IN, MovementDirection.IN, "20")));
+
+        DashboardKpisResponse kpis = reportService.getKpis();
+
+        assertThat(kpis.getPreviousMonth().getTotalStockValue()).isEqualByComparingTo("80");
+        assertThat(kpis.getVariations().getTotalPurchasesValue()).isEqualByComparingTo("100.00");
+        verify(movementDailyRollupRepository, times(1)).typeTotals(any(), any(), any(), any());
+        verify(kpiPeriodSnapshotRepository, never()).insertIfAbsent(
+                any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any());
     }
 
     @Test
     void alertsShouldIncludeLowStockExpiringLossesPendingTransfersAndTransitValue() {
         Batch lowStock = batch(product, warehouse, "2", 300L, null);
         Batch expiring = batch(product, warehouse, "5", 400L, LocalDate.now().plusDays(2));
-        Batch transit = batch(product, warehouse, "8", 1000L, null);
-        transit.setTransitQuantity(new BigDecimal("6"));
-        UUID lossBatchId = UUID.randomUUID();
-        Batch lossBatch = batch(product, warehouse, "4", 250L, null);
-        lossBatch.setId(lossBatchId);
         when(securityUtils.getCurrentWarehouseId()).thenReturn(warehouseId);
-        when(batchRepository.findLowStock(10, tenantId)).thenReturn(List.of(lowStock));
-        when(batchRepository.findExpiringBatches(any(LocalDate.class), any(LocalDate.class), eq(tenantId)))
+        when(batchRepository.findLowStockByWarehouse(tenantId, warehouseId, BigDecimal.TEN, PageRequest.of(0, 10)))
+                .thenReturn(List.of(lowStock));
+        when(batchRepository.findExpiringBatchesByWarehouse(eq(tenantId), eq(warehouseId), any(LocalDate.class),
+                any(LocalDate.class), eq(PageRequest.of(0, 10))))
                 .thenReturn(List.of(expiring));
-        when(stockMovementRepository.findRecentLosses(eq(tenantId), eq(warehouseId), any(), any()))
-                .thenReturn(List.<Object[]>of(new Object[]{
-                        StockMovementType.LOSS,
-                        product.getName(),
-                        new BigDecimal("3"),
-                        Instant.now(),
-                        lossBatchId
-                }));
-        when(batchRepository.findById(lossBatchId)).thenReturn(java.util.Optional.of(lossBatch));
+        when(stockMovementRepository.findRecentLossesWithValue(
+                eq(tenantId), eq(warehouseId), any(), any(), eq(PageRequest.of(0, 10))))
+                .thenReturn(List.of(loss(product.getName(), "3", "750")));
         when(transferRepository.countPendingTransfers(eq(tenantId), eq(warehouseId), any()))
                 .thenReturn(4L);
-        when(batchRepository.findByWarehouseIdAndTenantId(warehouseId, tenantId))
-                .thenReturn(List.of(transit));
+        when(batchRepository.sumTransitValue(tenantId, warehouseId)).thenReturn(new BigDecimal("6000"));
 
         DashboardAlertsResponse alerts = reportService.getAlerts();
 
@@ -207,6 +364,7 @@ class ReportServiceEndpointsTest {
         assertThat(alerts.getRecentLosses()).singleElement().satisfies(loss -> {
             assertThat(loss.getProductName()).isEqualTo(product.getName());
             assertThat(loss.getValue()).isEqualByComparingTo("750");
+            assertThat(loss.getDate()).isEqualTo(LocalDate.now());
         });
         assertThat(alerts.getPendingTransfers()).isEqualTo(4L);
         assertThat(alerts.getHighTransitValue()).isEqualByComparingTo("6000");
@@ -217,7 +375,6 @@ class ReportServiceEndpointsTest {
         UUID userId = UUID.randomUUID();
         Warehouse accessible = warehouse(warehouseId, "Principal");
         Warehouse inaccessible = warehouse(UUID.randomUUID(), "Restrito");
-        Batch scopedBatch = batch(product, accessible, "12", 100L, null);
         StockMovement movement = movement(StockMovementType.ADJUSTMENT_OUT, MovementDirection.OUT);
         when(warehouseAccessService.hasFullAccess()).thenReturn(false);
         when(securityUtils.getCurrentUserId()).thenReturn(userId);
@@ -226,8 +383,13 @@ class ReportServiceEndpointsTest {
                 .thenReturn(Set.of(PermissionCodes.REPORTS_READ));
         when(permissionResolverService.resolveUserPermissions(userId, inaccessible.getId()))
                 .thenReturn(Set.of());
-        when(batchRepository.findByTenantIdAndWarehouseIdIn(tenantId, List.of(accessible.getId())))
-                .thenReturn(List.of(scopedBatch));
+        DashboardStockTotalsProjection totals = mock(DashboardStockTotalsProjection.class);
+        when(totals.getStockValue()).thenReturn(new BigDecimal("1200.000"));
+        when(batchRepository.findDashboardStockTotals(
+                eq(tenantId), eq(List.of(accessible.getId())), any(), any(), any()))
+                .thenReturn(totals);
+        when(batchRepository.findStockValueByCategory(tenantId, List.of(accessible.getId())))
+                .thenReturn(List.of(uncategorizedStock(new BigDecimal("1200.000"))));
         when(stockMovementRepository.findWithFiltersByWarehouseIds(
                 eq(tenantId),
                 eq(List.of(accessible.getId())),
@@ -236,12 +398,12 @@ class ReportServiceEndpointsTest {
                 eq(null),
                 eq(PageRequest.of(0, 20))
         )).thenReturn(new PageImpl<>(List.of(movement)));
-        when(stockMovementRepository.countMovementsByTypeAndPeriodByWarehouseIds(
+        when(movementDailyRollupRepository.typeTotalsByWarehouseIds(
                 eq(tenantId),
                 eq(List.of(accessible.getId())),
-                any(LocalDateTime.class),
-                any(LocalDateTime.class)
-        )).thenReturn(List.<Object[]>of(new Object[]{StockMovementType.USAGE, 2L}));
+                any(LocalDate.class),
+                any(LocalDate.class)
+        )).thenReturn(List.of(typeTotal(StockMovementType.USAGE, "1", 2L)));
         when(stockMovementRepository.countDistinctTransferReferencesByPeriodByWarehouseIds(
                 eq(tenantId),
                 eq(List.of(accessible.getId())),
@@ -253,9 +415,11 @@ class ReportServiceEndpointsTest {
         DashboardResponse dashboard = reportService.getDashboard();
 
         assertThat(dashboard.getTotalWarehouses()).isEqualTo(1L);
+        assertThat(dashboard.getTotalStockValue()).isEqualByComparingTo("12.00");
         assertThat(dashboard.getStockByCategory()).singleElement().satisfies(category -> {
             assertThat(category.getCategoryId()).isEqualTo("uncategorized");
             assertThat(category.getCategoryName()).isEqualTo("Sem categoria");
+            assertThat(category.getStockValue()).isEqualByComparingTo("12.00");
         });
         assertThat(dashboard.getMovementStats().getToday().getExits()).isEqualTo(2L);
         assertThat(dashboard.getMovementStats().getToday().getTransfers()).isEqualTo(1L);
@@ -266,7 +430,10 @@ class ReportServiceEndpointsTest {
         when(securityUtils.getCurrentWarehouseId()).thenThrow(new UnauthorizedException("no warehouse"));
         when(warehouseAccessService.hasFullAccess()).thenReturn(false);
 
-        assertThatThrownBy(() -> reportService.getStockReport())
+        assertThatThrownBy(() -> reportService.getStockReport(null, null))
+                .isInstanceOf(UnauthorizedException.class)
+                .hasMessageContaining("No active warehouse context");
+        assertThatThrownBy(() -> reportService.streamStockReport())
                 .isInstanceOf(UnauthorizedException.class)
                 .hasMessageContaining("No active warehouse context");
         assertThatThrownBy(() -> reportService.getMovementTrend(null))
@@ -274,12 +441,79 @@ class ReportServiceEndpointsTest {
                 .hasMessageContaining("No active warehouse context");
     }
 
-    private Object[] movementSum(
+    private StockBalanceTotalsProjection stockTotals(long productCount, String quantity) {
+        return new StockBalanceTotalsProjection() {
+            @Override
+            public long getProductCount() {
+                return productCount;
+            }
+
+            @Override
+            public BigDecimal getTotalQuantity() {
+                return new BigDecimal(quantity);
+            }
+        };
+    }
+
+    private MovementTypeTotalProjection movementSum(
             StockMovementType type,
             MovementDirection direction,
             String quantity
     ) {
-        return new Object[]{type, direction, new BigDecimal(quantity)};
+        return typeTotal(type, quantity, 1L);
+    }
+
+    private MovementTypeTotalProjection typeTotal(StockMovementType type, String quantity, long movementCount) {
+        return new MovementTypeTotalProjection() {
+            @Override
+            public StockMovementType getType() {
+                return type;
+            }
+
+            @Override
+            public MovementDirection getDirection() {
+                return type.getDirection();
+            }
+
+            @Override
+            public BigDecimal getItemQuantity() {
+                return new BigDecimal(quantity);
+            }
+
+            @Override
+            public Long getMovementCount() {
+                return movementCount;
+            }
+        };
+    }
+
+    private MovementDailyTotalProjection dailyTotal(
+            LocalDate day,
+            MovementDirection direction,
+            String quantity,
+            long movementCount
+    ) {
+        return new MovementDailyTotalProjection() {
+            @Override
+            public LocalDate getDay() {
+                return day;
+            }
+
+            @Override
+            public MovementDirection getDirection() {
+                return direction;
+            }
+
+            @Override
+            public BigDecimal getItemQuantity() {
+                return new BigDecimal(quantity);
+            }
+
+            @Override
+            public Long getMovementCount() {
+                return movementCount;
+            }
+        };
     }
 
     private StockMovement movement(StockMovementType type, MovementDirection direction) {
@@ -314,6 +548,158 @@ class ReportServiceEndpointsTest {
         return batch;
     }
 
+    private BatchReportRowProjection batchRow(UUID batchId, LocalDate expirationDate) {
+        return new BatchReportRowProjection() {
+            @Override
+            public UUID getBatchId() {
+                return batchId;
+            }
+
+            @Override
+            public UUID getProductId() {
+                return product.getId();
+            }
+
+            @Override
+            public String getProductName() {
+                return product.getName();
+            }
+
+            @Override
+            public UUID getWarehouseId() {
+                return warehouseId;
+            }
+
+            @Override
+            public String getWarehouseName() {
+                return warehouse.getName();
+            }
+
+            @Override
+            public BigDecimal getQuantity() {
+                return BigDecimal.ONE;
+            }
+
+            @Override
+            public BigDecimal getTotalValue() {
+                return BigDecimal.TEN;
+            }
+
+            @Override
+            public LocalDate getExpirationDate() {
+                return expirationDate;
+            }
+        };
+    }
+
+    private StockReportRowProjection stockRow(
+            Product product,
+            Warehouse warehouse,
+            String totalQuantity,
+            String totalValue,
+            LocalDate nearestExpiration
+    ) {
+        return new StockReportRowProjection() {
+            @Override
+            public UUID getProductId() {
+                return product.getId();
+            }
+
+            @Override
+            public String getProductName() {
+                return product.getName();
+            }
+
+            @Override
+            public UUID getWarehouseId() {
+                return warehouse.getId();
+            }
+
+            @Override
+            public String getWarehouseName() {
+                return warehouse.getName();
+            }
+
+            @Override
+            public BigDecimal getTotalQuantity() {
+                return new BigDecimal(totalQuantity);
+            }
+
+            @Override
+            public BigDecimal getTotalValue() {
+                return new BigDecimal(totalValue);
+            }
+
+            @Override
+            public LocalDate getNearestExpiration() {
+                return nearestExpiration;
+            }
+
+            @Override
+            public long getBatchCount() {
+                return 2L;
+            }
+        };
+    }
+
+    private CategoryStockValueProjection uncategorizedStock(BigDecimal stockValue) {
+        return new CategoryStockValueProjection() {
+            @Override
+            public UUID getCategoryId() {
+                return null;
+            }
+
+            @Override
+            public String getCategoryName() {
+                return null;
+            }
+
+            @Override
+            public long getProductCount() {
+                return 1L;
+            }
+
+            @Override
+            public long getBatchCount() {
+                return 1L;
+            }
+
+            @Override
+            public BigDecimal getStockValue() {
+                return stockValue;
+            }
+        };
+    }
+
+    private RecentLossProjection loss(String productName, String quantity, String lossValue) {
+        return new RecentLossProjection() {
+            @Override
+            public StockMovementType getMovementType() {
+                return StockMovementType.LOSS;
+            }
+
+            @Override
+            public String getProductName() {
+                return productName;
+            }
+
+            @Override
+            public BigDecimal getQuantity() {
+                return new BigDecimal(quantity);
+            }
+
+            @Override
+            public LocalDateTime getCreatedAt() {
+                return LocalDateTime.now();
+            }
+
+            @Override
+            public BigDecimal getLossValue() {
+                return new BigDecimal(lossValue);
+            }
+        };
+    }
+
     private Product product(String name) {
         Product product = new Product();
         product.setId(UUID.randomUUID());
@@ -1,15 +1,18 @@
 package br.com.stockshift.service;
 
+import br.com.stockshift.config.ReportQueryProperties;
+import br.com.stockshift.dto.report.CategoryStockValueProjection;
 import br.com.stockshift.dto.report.DashboardResponse;
-import br.com.stockshift.model.entity.Batch;
-import br.com.stockshift.model.entity.Category;
-import br.com.stockshift.model.entity.Product;
+import br.com.stockshift.dto.report.DashboardStockTotalsProjection;
+import br.com.stockshift.dto.report.MovementTypeTotalProjection;
+import br.com.stockshift.dto.report.WarehouseStockValueProjection;
 import br.com.stockshift.model.entity.StockMovement;
 import br.com.stockshift.model.entity.StockMovementItem;
 import br.com.stockshift.model.entity.Warehouse;
 import br.com.stockshift.model.enums.MovementDirection;
 import br.com.stockshift.model.enums.StockMovementType;
 import br.com.stockshift.repository.BatchRepository;
+import br.com.stockshift.repository.MovementDailyRollupRepository;
 import br.com.stockshift.repository.StockMovementRepository;
 import br.com.stockshift.repository.TransferRepository;
 import br.com.stockshift.repository.WarehouseRepository;
@@ -22,10 +25,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Set;
@@ -45,6 +53,9 @@ class ReportServiceTest {
     @Mock
     private StockMovementRepository stockMovementRepository;
 
+    @Mock
+    private MovementDailyRollupRepository movementDailyRollupRepository;
+
     @Mock
     private TransferRepository transferRepository;
 
@@ -60,6 +71,9 @@ class ReportServiceTest {
     @Mock
     private PermissionResolverService permissionResolverService;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private ReportService reportService;
 
@@ -71,6 +85,9 @@ class ReportServiceTest {
         tenantId = UUID.randomUUID();
         warehouseId = UUID.randomUUID();
         TenantContext.setTenantId(tenantId);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ReflectionTestUtils.setField(reportService, "reportQueryExecutor", new ReportQueryExecutor(
+                new TaskExecutorAdapter(Runnable::run), transactionManager, new ReportQueryProperties()));
     }
 
     @AfterEach
@@ -85,34 +102,9 @@ class ReportServiceTest {
         warehouse.setName("Depósito Central");
         warehouse.setIsActive(true);
 
-        Category category = new Category();
-        category.setId(UUID.randomUUID());
-        category.setName("Eletrônicos");
-
-        Product activeProduct = new Product();
-        activeProduct.setId(UUID.randomUUID());
-        activeProduct.setActive(true);
-        activeProduct.setCategory(category);
-
-        Product inactiveProduct = new Product();
-        inactiveProduct.setId(UUID.randomUUID());
-        inactiveProduct.setActive(false);
-        inactiveProduct.setCategory(category);
-
-        Batch firstBatch = new Batch();
-        firstBatch.setId(UUID.randomUUID());
-        firstBatch.setWarehouse(warehouse);
-        firstBatch.setProduct(activeProduct);
-        firstBatch.setQuantity(new BigDecimal("10"));
-        firstBatch.setCostPrice(2500L);
-        firstBatch.setExpirationDate(LocalDateTime.now().toLocalDate().plusDays(5));
-
-        Batch secondBatch = new Batch();
-        secondBatch.setId(UUID.randomUUID());
-        secondBatch.setWarehouse(warehouse);
-        secondBatch.setProduct(inactiveProduct);
-        secondBatch.setQuantity(new BigDecimal("3"));
-        secondBatch.setCostPrice(1000L);
+        UUID categoryId = UUID.randomUUID();
+        UUID activeProductId = UUID.randomUUID();
+        UUID inactiveProductId = UUID.randomUUID();
 
         StockMovement movement = new StockMovement();
         movement.setId(UUID.randomUUID());
@@ -121,12 +113,22 @@ class ReportServiceTest {
         movement.setNotes("Reposição");
         movement.setCreatedAt(LocalDateTime.now().minusHours(2));
         movement.setItems(List.of(
-                StockMovementItem.builder().productId(activeProduct.getId()).productName("A").build(),
-                StockMovementItem.builder().productId(inactiveProduct.getId()).productName("B").build()
+                StockMovementItem.builder().productId(activeProductId).productName("A").build(),
+                StockMovementItem.builder().productId(inactiveProductId).productName("B").build()
         ));
 
         when(warehouseAccessService.hasFullAccess()).thenReturn(true);
-        when(batchRepository.findAllByTenantId(tenantId)).thenReturn(List.of(firstBatch, secondBatch));
+        when(batchRepository.findDashboardStockTotals(
+                eq(tenantId),
+                eq(List.of(warehouseId)),
+                eq(BigDecimal.TEN),
+                eq(LocalDate.now()),
+                eq(LocalDate.now().plusDays(30))
+        )).thenReturn(totals(2L, 1L, 2L, new BigDecimal("28000.000"), 2L, 1L));
+        when(batchRepository.findStockValueByWarehouse(tenantId, List.of(warehouseId)))
+                .thenReturn(List.of(warehouseStock(warehouseId, 2L, 2L, new BigDecimal("28000.000"))));
+        when(batchRepository.findStockValueByCategory(tenantId, List.of(warehouseId)))
+                .thenReturn(List.of(categoryStock(categoryId, "Eletrônicos", 2L, 2L, new BigDecimal("28000.000"))));
         when(warehouseRepository.findAllByTenantId(tenantId)).thenReturn(List.of(warehouse));
         when(stockMovementRepository.findWithFilters(
                 eq(tenantId),
@@ -136,11 +138,11 @@ class ReportServiceTest {
                 eq(null),
                 eq(PageRequest.of(0, 20))
         )).thenReturn(new PageImpl<>(List.of(movement)));
-        when(stockMovementRepository.countMovementsByTypeAndPeriod(eq(tenantId), eq(null), any(LocalDateTime.class), any(LocalDateTime.class)))
+        when(movementDailyRollupRepository.typeTotals(eq(tenantId), eq(null), any(LocalDate.class), any(LocalDate.class)))
                 .thenReturn(
-                        List.<Object[]>of(new Object[]{StockMovementType.PURCHASE_IN, 2L}),
-                        List.<Object[]>of(new Object[]{StockMovementType.TRANSFER_OUT, 1L}),
-                        List.<Object[]>of(new Object[]{StockMovementType.ADJUSTMENT_IN, 4L})
+                        List.of(typeTotal(StockMovementType.PURCHASE_IN, 2L)),
+                        List.of(typeTotal(StockMovementType.TRANSFER_OUT, 1L)),
+                        List.of(typeTotal(StockMovementType.ADJUSTMENT_IN, 4L))
                 );
         when(stockMovementRepository.countDistinctTransferReferencesByPeriod(
                 eq(tenantId),
@@ -167,6 +169,7 @@ class ReportServiceTest {
             assertThat(item.getStockValue()).isEqualByComparingTo("280.00");
         });
         assertThat(response.getStockByCategory()).singleElement().satisfies(item -> {
+            assertThat(item.getCategoryId()).isEqualTo(categoryId.toString());
             assertThat(item.getCategoryName()).isEqualTo("Eletrônicos");
             assertThat(item.getProductCount()).isEqualTo(2L);
         });
@@ -231,7 +234,8 @@ class ReportServiceTest {
         ));
 
         when(warehouseAccessService.hasFullAccess()).thenReturn(true);
-        when(batchRepository.findAllByTenantId(tenantId)).thenReturn(List.of());
+        when(batchRepository.findDashboardStockTotals(any(), any(), any(), any(), any()))
+                .thenReturn(totals(0L, 0L, 0L, BigDecimal.ZERO, 0L, 0L));
         when(warehouseRepository.findAllByTenantId(tenantId)).thenReturn(List.of(sourceWarehouse, destinationWarehouse));
         when(stockMovementRepository.findWithFilters(
                 eq(tenantId),
@@ -241,12 +245,12 @@ class ReportServiceTest {
                 eq(null),
                 eq(PageRequest.of(0, 20))
         )).thenReturn(new PageImpl<>(List.of(purchase, transferIn, transferOut)));
-        when(stockMovementRepository.countMovementsByTypeAndPeriod(
+        when(movementDailyRollupRepository.typeTotals(
                 eq(tenantId),
                 eq(null),
-                any(LocalDateTime.class),
-                any(LocalDateTime.class)
-        )).thenReturn(List.<Object[]>of(new Object[]{StockMovementType.PURCHASE_IN, 1L}));
+                any(LocalDate.class),
+                any(LocalDate.class)
+        )).thenReturn(List.of(typeTotal(StockMovementType.PURCHASE_IN, 1L)));
         when(stockMovementRepository.countDistinctTransferReferencesByPeriod(
                 eq(tenantId),
                 eq(null),
@@ -265,4 +269,119 @@ class ReportServiceTest {
         assertThat(response.getRecentMovements().get(1).getProductCount()).isEqualTo(2);
         assertThat(response.getMovementStats().getToday().getTransfers()).isEqualTo(1L);
     }
+
+    private DashboardStockTotalsProjection totals(long totalProducts, long activeProducts, long totalBatches,
+                                                  BigDecimal stockValue, long lowStockProducts,
+                                                  long expiringProducts) {
+        return new DashboardStockTotalsProjection() {
+            @Override
+            public long getTotalProducts() {
+                return totalProducts;
+            }
+
+            @Override
+            public long getActiveProducts() {
+                return activeProducts;
+            }
+
+            @Override
+            public long getTotalBatches() {
+                return totalBatches;
+            }
+
+            @Override
+            public BigDecimal getStockValue() {
+                return stockValue;
+            }
+
+            @Override
+            public long getLowStockProducts() {
+                return lowStockProducts;
+            }
+
+            @Override
+            public long getExpiringProducts() {
+                return expiringProducts;
+            }
+        };
+    }
+
+    private WarehouseStockValueProjection warehouseStock(UUID warehouseId, long productCount, long batchCount,
+                                                         BigDecimal stockValue) {
+        return new WarehouseStockValueProjection() {
+            @Override
+            public UUID getWarehouseId() {
+                return warehouseId;
+            }
+
+            @Override
+            public long getProductCount() {
+                return productCount;
+            }
+
+            @Override
+            public long getBatchCount() {
+                return batchCount;
+            }
+
+            @Override
+            public BigDecimal getStockValue() {
+                return stockValue;
+            }
+        };
+    }
+
+    private CategoryStockValueProjection categoryStock(UUID categoryId, String categoryName, long productCount,
+                                                       long batchCount, BigDecimal stockValue) {
+        return new CategoryStockValueProjection() {
+            @Override
+            public UUID getCategoryId() {
+                return categoryId;
+            }
+
+            @Override
+            public String getCategoryName() {
+                return categoryName;
+            }
+
+            @Override
+            public long getProductCount() {
+                return productCount;
+            }
+
+            @Override
+            public long getBatchCount() {
+                return batchCount;
+            }
+
+            @Override
+            public BigDecimal getStockValue() {
+                return stockValue;
+            }
+        };
+    }
+
+    private MovementTypeTotalProjection typeTotal(StockMovementType type, long movementCount) {
+        return new MovementTypeTotalProjection() {
+            @Override
+            public StockMovementType getType() {
+                return type;
+            }
+
+            @Override
+            public MovementDirection getDirection() {
+                return type.getDirection();
+            }
+
+            @Override
+            public BigDecimal getItemQuantity() {
+                return BigDecimal.ONE;
+            }
+
+            @Override
+            public Long getMovementCount() {
+                return movementCount;
+            }
+        };
+    }
 }
@@ -0,0 +1,119 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.BaseIntegrationTest;
+import br.com.stockshift.model.entity.Batch;
+import br.com.stockshift.model.entity.Product;
+import br.com.stockshift.model.entity.Tenant;
+import br.com.stockshift.model.entity.Warehouse;
+import br.com.stockshift.repository.BatchRepository;
+import br.com.stockshift.repository.ProductRepository;
+import br.com.stockshift.repository.TenantRepository;
+import br.com.stockshift.repository.WarehouseRepository;
+import br.com.stockshift.util.TestDataFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The stock_balance triggers and fold, exercised through the entity layer inside the test transaction
+class StockBalanceIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private StockBalanceService stockBalanceService;
+    @Autowired
+    private BatchRepository batchRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+    @Autowired
+    private TenantRepository tenantRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Tenant tenant;
+    private Warehouse warehouse;
+    private Product product;
+
+    @BeforeEach
+    void createStock() {
+        tenant = TestDataFactory.createTenant(tenantRepository, "Balance " + UUID.randomUUID(),
+                UUID.randomUUID().toString().replace("-", "").substring(0, 14));
+        warehouse = TestDataFactory.createWarehouse(warehouseRepository, tenant.getId(), "Balance");
+        product = TestDataFactory.createProduct(productRepository, tenant.getId(), null,
+                "Balance", "BAL-" + UUID.randomUUID().toString().substring(0, 8));
+    }
+
+    @Test
+    void balanceShouldFollowBatchInsertsUpdatesAndDeletes() {
+        Batch first = TestDataFactory.createBatch(batchRepository, tenant.getId(), product, warehouse, 10);
+        TestDataFactory.createBatch(batchRepository, tenant.getId(), product, warehouse, 5);
+        batchRepository.flush();
+
+        assertBalance(new BigDecimal("15"), 15_000, 2);
+
+        first.setQuantity(new BigDecimal("4"));
+        batchRepository.flush();
+
+        assertBalance(new BigDecimal("9"), 9_000, 2);
+        assertThat(stockBalanceService.getOnHand(tenant.getId(), warehouse.getId(), product.getId()))
+                .isEqualByComparingTo("9");
+
+        batchRepository.delete(first);
+        batchRepository.flush();
+
+        assertBalance(new BigDecimal("5"), 5_000, 1);
+        assertThat(stockBalanceService.verify(tenant.getId())).isEmpty();
+    }
+
+    @Test
+    void foldShouldMoveDeltasIntoTheBalanceWithoutChangingIt() {
+        Batch first = TestDataFactory.createBatch(batchRepository, tenant.getId(), product, warehouse, 10);
+        TestDataFactory.createBatch(batchRepository, tenant.getId(), product, warehouse, 5);
+        batchRepository.flush();
+
+        assertThat(stockBalanceService.fold()).isPositive();
+        assertBalance(new BigDecimal("15"), 15_000, 2);
+
+        first.setQuantity(new BigDecimal("4"));
+        batchRepository.flush();
+        stockBalanceService.fold();
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM stock_balance_delta WHERE tenant_id = ?", Long.class, tenant.getId()))
+                .isZero();
+        assertBalance(new BigDecimal("9"), 9_000, 2);
+        assertThat(stockBalanceService.verify(tenant.getId())).isEmpty();
+    }
+
+    @Test
+    void rebuildShouldRepairADriftedBalance() {
+        TestDataFactory.createBatch(batchRepository, tenant.getId(), product, warehouse, 10);
+        batchRepository.flush();
+        stockBalanceService.fold();
+        jdbcTemplate.update("UPDATE stock_balance SET on_hand = 99 WHERE tenant_id = ?", tenant.getId());
+
+        assertThat(stockBalanceService.verify(tenant.getId())).hasSize(1);
+
+        assertThat(stockBalanceService.rebuild(tenant.getId())).isEqualTo(1);
+
+        assertThat(stockBalanceService.verify(tenant.getId())).isEmpty();
+        assertBalance(new BigDecimal("10"), 10_000, 1);
+    }
+
+    private void assertBalance(BigDecimal onHand, long valueAtCost, int batchCount) {
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT on_hand, value_at_cost, batch_count FROM stock_balance_current"
+                        + " WHERE tenant_id = ? AND warehouse_id = ? AND product_id = ?",
+                tenant.getId(), warehouse.getId(), product.getId());
+        assertThat((BigDecimal) row.get("on_hand")).isEqualByComparingTo(onHand);
+        assertThat((BigDecimal) row.get("value_at_cost")).isEqualByComparingTo(BigDecimal.valueOf(valueAtCost));
+        assertThat(row.get("batch_count")).isEqualTo(batchCount);
+    }
+}
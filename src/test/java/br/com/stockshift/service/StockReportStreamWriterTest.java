@@ -0,0 +1,39 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.dto.report.StockReportResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockReportStreamWriterTest {
+
+    private final StockReportStreamWriter writer = new StockReportStreamWriter(new ObjectMapper());
+
+    @Test
+    void csvShouldNeutralizeNamesThatSpreadsheetsReadAsFormulas() throws Exception {
+        UUID productId = UUID.randomUUID();
+        UUID warehouseId = UUID.randomUUID();
+        StockReportResponse row = StockReportResponse.builder()
+                .productId(productId)
+                .productName("=HYPERLINK(\"http://x\",\"y\")")
+                .warehouseId(warehouseId)
+                .warehouseName("@Central")
+                .totalQuantity(new BigDecimal("-2"))
+                .batchCount(1)
+                .build();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.writeCsv(List.of(row), output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines[1]).isEqualTo(productId + ",\"'=HYPERLINK(\"\"http://x\"\",\"\"y\"\")\","
+                + warehouseId + ",'@Central,-2,,,1");
+    }
+}
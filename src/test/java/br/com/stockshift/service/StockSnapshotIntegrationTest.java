@@ -0,0 +1,147 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.BaseIntegrationTest;
+import br.com.stockshift.config.ReconciliationProperties;
+import br.com.stockshift.dto.report.StockReportRowProjection;
+import br.com.stockshift.model.entity.Batch;
+import br.com.stockshift.model.entity.InventoryLedger;
+import br.com.stockshift.model.entity.Product;
+import br.com.stockshift.model.entity.Tenant;
+import br.com.stockshift.model.entity.Warehouse;
+import br.com.stockshift.model.enums.LedgerEntryType;
+import br.com.stockshift.repository.BatchRepository;
+import br.com.stockshift.repository.InventoryLedgerRepository;
+import br.com.stockshift.repository.ProductRepository;
+import br.com.stockshift.repository.StockSnapshotRepository;
+import br.com.stockshift.repository.TenantRepository;
+import br.com.stockshift.repository.WarehouseRepository;
+import br.com.stockshift.util.TestDataFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Snapshots chained day by day from ledger entries back-dated into the previous days
+class StockSnapshotIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private StockSnapshotService stockSnapshotService;
+    @Autowired
+    private StockSnapshotRepository snapshotRepository;
+    @Autowired
+    private InventoryLedgerRepository ledgerRepository;
+    @Autowired
+    private BatchRepository batchRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+    @Autowired
+    private TenantRepository tenantRepository;
+    @Autowired
+    private ReconciliationProperties reconciliationProperties;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Tenant tenant;
+    private Warehouse warehouse;
+    private Product product;
+    private LocalDate today;
+
+    @BeforeEach
+    void createStock() {
+        tenant = TestDataFactory.createTenant(tenantRepository, "Snapshot " + UUID.randomUUID(),
+                UUID.randomUUID().toString().replace("-", "").substring(0, 14));
+        warehouse = TestDataFactory.createWarehouse(warehouseRepository, tenant.getId(), "Snapshot");
+        product = TestDataFactory.createProduct(productRepository, tenant.getId(), null,
+                "Snapshot", "SNP-" + UUID.randomUUID().toString().substring(0, 8));
+        today = LocalDate.now();
+        // Yesterday is settled at once
+        reconciliationProperties.setSettleWindow(Duration.ZERO);
+    }
+
+    @AfterEach
+    void restoreSettleWindow() {
+        reconciliationProperties.setSettleWindow(new ReconciliationProperties().getSettleWindow());
+    }
+
+    @Test
+    void stockAsOfShouldCombineTheNearestSnapshotWithTheLedgerAfterIt() {
+        Batch batch = TestDataFactory.createBatch(batchRepository, tenant.getId(), product, warehouse, 60);
+        record(batch, LedgerEntryType.PURCHASE_IN, "100", today.minusDays(3).atTime(12, 0));
+        record(batch, LedgerEntryType.SALE_OUT, "30", today.minusDays(2).atTime(12, 0));
+
+        // An older snapshot the nightly run chains the missing days onto
+        LocalDate oldest = today.minusDays(3);
+        snapshotRepository.insertIfAbsent(tenant.getId(), oldest);
+        snapshotRepository.insertBatchBalances(tenant.getId(), oldest, null, ReconciliationService.LEDGER_START,
+                oldest.plusDays(1).atStartOfDay(), ReconciliationService.DEBIT_ENTRY_TYPES);
+
+        assertThat(stockSnapshotService.snapshotTenant(tenant.getId())).isEqualTo(2);
+        assertThat(snapshotQuantity(today.minusDays(1), batch)).isEqualByComparingTo("70");
+
+        record(batch, LedgerEntryType.ADJUSTMENT_OUT, "10", LocalDateTime.now());
+
+        assertThat(stockSnapshotService.findStockAsOf(tenant.getId(), null, oldest))
+                .singleElement()
+                .satisfies(row -> assertThat(row.getTotalQuantity()).isEqualByComparingTo("100"));
+        assertThat(stockSnapshotService.findStockAsOf(tenant.getId(), warehouse.getId(), today.minusDays(2)))
+                .singleElement()
+                .satisfies(row -> assertThat(row.getTotalQuantity()).isEqualByComparingTo("70"));
+        StockReportRowProjection current = stockSnapshotService.findStockAsOf(tenant.getId(), null, today).get(0);
+        assertThat(current.getTotalQuantity()).isEqualByComparingTo("60");
+        assertThat(current.getTotalValue()).isEqualByComparingTo("60000");
+        assertThat(current.getBatchCount()).isEqualTo(1);
+        assertThat(current.getProductName()).isEqualTo(product.getName());
+
+        // Before the first snapshot the ledger is summed from its start
+        assertThat(stockSnapshotService.findStockAsOf(tenant.getId(), null, today.minusDays(4))).isEmpty();
+    }
+
+    @Test
+    void firstSnapshotShouldSkipBatchesWithoutStock() {
+        Batch emptied = TestDataFactory.createBatch(batchRepository, tenant.getId(), product, warehouse, 0);
+        record(emptied, LedgerEntryType.PURCHASE_IN, "5", today.minusDays(2).atTime(9, 0));
+        record(emptied, LedgerEntryType.SALE_OUT, "5", today.minusDays(2).atTime(10, 0));
+        Batch held = TestDataFactory.createBatch(batchRepository, tenant.getId(), product, warehouse, 8);
+        record(held, LedgerEntryType.PURCHASE_IN, "8", today.minusDays(2).atTime(11, 0));
+
+        assertThat(stockSnapshotService.snapshotTenant(tenant.getId())).isEqualTo(1);
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM stock_snapshot_batch WHERE tenant_id = ? AND snapshot_date = ?",
+                Integer.class, tenant.getId(), today.minusDays(1))).isEqualTo(1);
+        assertThat(snapshotQuantity(today.minusDays(1), held)).isEqualByComparingTo("8");
+        assertThat(stockSnapshotService.snapshotTenant(tenant.getId())).isZero();
+    }
+
+    private BigDecimal snapshotQuantity(LocalDate date, Batch batch) {
+        return jdbcTemplate.queryForObject(
+                "SELECT quantity FROM stock_snapshot_batch WHERE tenant_id = ? AND snapshot_date = ? AND batch_id = ?",
+                BigDecimal.class, tenant.getId(), date, batch.getId());
+    }
+
+    private void record(Batch batch, LedgerEntryType entryType, String quantity, LocalDateTime createdAt) {
+        InventoryLedger entry = ledgerRepository.saveAndFlush(InventoryLedger.builder()
+                .tenantId(tenant.getId())
+                .warehouseId(warehouse.getId())
+                .productId(product.getId())
+                .batchId(batch.getId())
+                .entryType(entryType)
+                .quantity(new BigDecimal(quantity))
+                .referenceType("TEST")
+                .referenceId(UUID.randomUUID())
+                .createdBy(UUID.randomUUID())
+                .build());
+        jdbcTemplate.update("UPDATE inventory_ledger SET created_at = ? WHERE id = ?", createdAt, entry.getId());
+    }
+}
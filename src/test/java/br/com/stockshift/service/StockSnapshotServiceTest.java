@@ -0,0 +1,106 @@
+package br.com.stockshift.service;
+
+import br.com.stockshift.config.ReconciliationProperties;
+import br.com.stockshift.config.StockSnapshotProperties;
+import br.com.stockshift.repository.StockSnapshotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StockSnapshotServiceTest {
+
+    @Mock
+    private StockSnapshotRepository snapshotRepository;
+
+    private StockSnapshotProperties properties;
+    private StockSnapshotService stockSnapshotService;
+    private UUID tenantId;
+    private LocalDate yesterday;
+
+    @BeforeEach
+    void setUp() {
+        properties = new StockSnapshotProperties();
+        ReconciliationProperties reconciliationProperties = new ReconciliationProperties();
+        reconciliationProperties.setSettleWindow(Duration.ZERO);
+        stockSnapshotService = new StockSnapshotService(snapshotRepository, properties, reconciliationProperties);
+        tenantId = UUID.randomUUID();
+        yesterday = LocalDate.now().minusDays(1);
+    }
+
+    @Test
+    void firstSnapshotShouldSumTheWholeLedgerThroughYesterday() {
+        when(snapshotRepository.insertIfAbsent(tenantId, yesterday)).thenReturn(1);
+
+        assertThat(stockSnapshotService.snapshotTenant(tenantId)).isEqualTo(1);
+
+        verify(snapshotRepository).insertBatchBalances(tenantId, yesterday, null,
+                ReconciliationService.LEDGER_START, LocalDate.now().atStartOfDay(),
+                ReconciliationService.DEBIT_ENTRY_TYPES);
+        verify(snapshotRepository).deleteDailyBefore(tenantId, yesterday.minusDays(90));
+    }
+
+    @Test
+    void missedDaysShouldEachBuildOnThePreviousOne() {
+        LocalDate latest = yesterday.minusDays(2);
+        when(snapshotRepository.findLatestDate(tenantId)).thenReturn(latest);
+        when(snapshotRepository.insertIfAbsent(eq(tenantId), any())).thenReturn(1);
+        // Written meanwhile by another node: skipped, and still the base of the next day
+        when(snapshotRepository.insertIfAbsent(tenantId, latest.plusDays(1))).thenReturn(0);
+
+        assertThat(stockSnapshotService.snapshotTenant(tenantId)).isEqualTo(1);
+
+        verify(snapshotRepository, never()).insertBatchBalances(eq(tenantId), eq(latest.plusDays(1)),
+                any(), any(), any(), any());
+        verify(snapshotRepository).insertBatchBalances(tenantId, yesterday, yesterday.minusDays(1),
+                yesterday.atStartOfDay(), LocalDate.now().atStartOfDay(), ReconciliationService.DEBIT_ENTRY_TYPES);
+    }
+
+    @Test
+    void upToDateTenantShouldOnlyBePruned() {
+        properties.setDailyRetentionDays(0);
+        when(snapshotRepository.findLatestDate(tenantId)).thenReturn(yesterday);
+
+        assertThat(stockSnapshotService.snapshotTenant(tenantId)).isZero();
+
+        verify(snapshotRepository, never()).insertIfAbsent(any(), any());
+        verify(snapshotRepository, never()).deleteDailyBefore(any(), any());
+    }
+
+    @Test
+    void asOfShouldAddTheLedgerAfterTheNearestSnapshot() {
+        LocalDate date = LocalDate.of(2026, 3, 10);
+        LocalDate snapshotDate = LocalDate.of(2026, 2, 28);
+        UUID warehouseId = UUID.randomUUID();
+        when(snapshotRepository.findLatestDateOnOrBefore(tenantId, date)).thenReturn(snapshotDate);
+        when(snapshotRepository.findStockAsOf(tenantId, warehouseId, snapshotDate,
+                LocalDate.of(2026, 3, 1).atStartOfDay(), LocalDate.of(2026, 3, 11).atStartOfDay(),
+                ReconciliationService.DEBIT_ENTRY_TYPES)).thenReturn(List.of());
+
+        assertThat(stockSnapshotService.findStockAsOf(tenantId, warehouseId, date)).isEmpty();
+    }
+
+    @Test
+    void asOfBeforeTheFirstSnapshotShouldSumFromTheStartOfTheLedger() {
+        LocalDate date = LocalDate.of(2025, 1, 31);
+        when(snapshotRepository.findStockAsOf(tenantId, null, null, ReconciliationService.LEDGER_START,
+                LocalDate.of(2025, 2, 1).atStartOfDay(), ReconciliationService.DEBIT_ENTRY_TYPES))
+                .thenReturn(List.of());
+
+        assertThat(stockSnapshotService.findStockAsOf(tenantId, null, date)).isEmpty();
+    }
+}
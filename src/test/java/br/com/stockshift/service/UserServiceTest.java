@@ -39,6 +39,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -61,6 +62,8 @@ class UserServiceTest {
     private AuditService auditService;
     @Mock
     private AuditSnapshotService auditSnapshotService;
+    @Mock
+    private ReferenceNameResolver referenceNameResolver;
 
     private UserService service;
     private UUID tenantId;
@@ -75,7 +78,7 @@ class UserServiceTest {
         role = role(tenantId, "ADMIN");
         warehouse = warehouse(tenantId, "Main");
         service = new UserService(userRepository, roleRepository, warehouseRepository,
-                userRoleWarehouseRepository, passwordEncoder, auditService, auditSnapshotService);
+                userRoleWarehouseRepository, passwordEncoder, auditService, auditSnapshotService, referenceNameResolver);
         setPrincipal(currentUserId);
         when(passwordEncoder.encode(any())).thenReturn("encoded");
         when(auditSnapshotService.snapshot(any())).thenReturn(Map.of("id", "value"));
@@ -161,6 +164,7 @@ class UserServiceTest {
         service.deleteUser(user.getId());
 
         verify(userRepository).delete(user);
+        verify(referenceNameResolver, times(2)).evictUser(tenantId, user.getId());
         verify(auditService, atLeastOnce()).record(any());
     }
 
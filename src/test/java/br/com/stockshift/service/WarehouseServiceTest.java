@@ -5,7 +5,7 @@ import br.com.stockshift.dto.warehouse.WarehouseStockSummaryProjection;
 import br.com.stockshift.dto.warehouse.WarehouseStockSummaryResponse;
 import br.com.stockshift.exception.BusinessException;
 import br.com.stockshift.model.entity.Warehouse;
-import br.com.stockshift.repository.BatchRepository;
+import br.com.stockshift.repository.StockBalanceRepository;
 import br.com.stockshift.repository.WarehouseRepository;
 import br.com.stockshift.security.TenantContext;
 import br.com.stockshift.service.audit.AuditService;
@@ -42,7 +42,7 @@ class WarehouseServiceTest {
     private WarehouseRepository warehouseRepository;
 
     @Mock
-    private BatchRepository batchRepository;
+    private StockBalanceRepository stockBalanceRepository;
 
     @Mock
     private WarehouseAccessService warehouseAccessService;
@@ -53,6 +53,9 @@ class WarehouseServiceTest {
     @Mock
     private AuditSnapshotService auditSnapshotService;
 
+    @Mock
+    private ReferenceNameResolver referenceNameResolver;
+
     @InjectMocks
     private WarehouseService warehouseService;
 
@@ -85,7 +88,7 @@ class WarehouseServiceTest {
 
         when(warehouseAccessService.hasFullAccess()).thenReturn(false);
         when(warehouseAccessService.getUserWarehouseIds()).thenReturn(Set.of(firstWarehouseId, secondWarehouseId));
-        when(batchRepository.findStockSummaryByWarehouseIds(tenantId, Set.of(firstWarehouseId, secondWarehouseId)))
+        when(stockBalanceRepository.findStockSummaryByWarehouseIds(tenantId, Set.of(firstWarehouseId, secondWarehouseId)))
                 .thenReturn(List.of(
                         summary(firstWarehouseId, 3L, 5L, new BigDecimal("120.000")),
                         summary(secondWarehouseId, 1L, 2L, new BigDecimal("8.000"))
@@ -122,7 +125,7 @@ class WarehouseServiceTest {
 
         when(warehouseAccessService.hasFullAccess()).thenReturn(true);
         when(warehouseRepository.findAllByTenantId(tenantId)).thenReturn(List.of(firstWarehouse, secondWarehouse));
-        when(batchRepository.findStockSummaryByWarehouseIds(tenantId, Set.of(firstWarehouseId, secondWarehouseId)))
+        when(stockBalanceRepository.findStockSummaryByWarehouseIds(tenantId, Set.of(firstWarehouseId, secondWarehouseId)))
                 .thenReturn(List.of(summary(firstWarehouseId, 2L, 4L, new BigDecimal("44.000"))));
 
         List<WarehouseStockSummaryResponse> response = warehouseService.getStockSummaries();
@@ -143,7 +146,7 @@ class WarehouseServiceTest {
         List<WarehouseStockSummaryResponse> response = warehouseService.getStockSummaries();
 
         assertThat(response).isEmpty();
-        verify(batchRepository, never()).findStockSummaryByWarehouseIds(tenantId, Set.of());
+        verify(stockBalanceRepository, never()).findStockSummaryByWarehouseIds(tenantId, Set.of());
     }
 
     @Test
@@ -174,6 +177,7 @@ class WarehouseServiceTest {
 
         warehouseService.delete(existing.getId());
         verify(warehouseRepository).delete(existing);
+        verify(referenceNameResolver, org.mockito.Mockito.times(2)).evictWarehouse(tenantId, existing.getId());
         verify(auditService, org.mockito.Mockito.atLeastOnce()).record(any());
     }
 
@@ -0,0 +1,184 @@
+package br.com.stockshift.service.sale;
+
+import br.com.stockshift.config.PaymentLinkProperties;
+import br.com.stockshift.model.entity.Sale;
+import br.com.stockshift.model.entity.SaleItem;
+import br.com.stockshift.model.entity.Tenant;
+import br.com.stockshift.model.enums.PaymentLinkStatus;
+import br.com.stockshift.model.enums.PaymentMethod;
+import br.com.stockshift.model.enums.PaymentMode;
+import br.com.stockshift.model.enums.SaleStatus;
+import br.com.stockshift.repository.SaleRepository;
+import br.com.stockshift.repository.TenantRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PaymentLinkServiceTest {
+
+    @Mock
+    private SaleRepository saleRepository;
+    @Mock
+    private TenantRepository tenantRepository;
+    @Mock
+    private InfinitePayCheckoutService infinitePayCheckoutService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PaymentLinkProperties properties;
+    private PaymentLinkService service;
+    private Sale sale;
+    private Instant requestedAt;
+
+    @BeforeEach
+    void setUp() {
+        properties = new PaymentLinkProperties();
+        properties.setRetryBackoff(Duration.ZERO);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        service = new PaymentLinkService(saleRepository, tenantRepository, infinitePayCheckoutService,
+                properties, Runnable::run, transactionManager);
+
+        UUID tenantId = UUID.randomUUID();
+        Tenant tenant = new Tenant();
+        tenant.setId(tenantId);
+        tenant.setInfinitepayHandle("my-store");
+        when(tenantRepository.findById(tenantId)).thenReturn(Optional.of(tenant));
+
+        requestedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        sale = Sale.builder()
+                .code("VND-2026-0001")
+                .warehouseId(UUID.randomUUID())
+                .paymentMethod(PaymentMethod.CREDIT_CARD)
+                .paymentMode(PaymentMode.LINK)
+                .discountPercentage(BigDecimal.ZERO)
+                .subtotal(1500L)
+                .discountAmount(0L)
+                .total(1500L)
+                .status(SaleStatus.PENDING)
+                .paymentLinkStatus(PaymentLinkStatus.PENDING)
+                .paymentLinkRequestedAt(requestedAt)
+                .createdByUserId(UUID.randomUUID())
+                .build();
+        sale.setId(UUID.randomUUID());
+        sale.setTenantId(tenantId);
+        sale.addItem(SaleItem.builder()
+                .productName("Coffee")
+                .quantity(BigDecimal.ONE)
+                .unitPrice(1500L)
+                .totalPrice(1500L)
+                .build());
+        when(saleRepository.findById(sale.getId())).thenReturn(Optional.of(sale));
+        when(saleRepository.save(any(Sale.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void shouldRetryAndStoreLinkWhenProviderRecovers() {
+        InfinitePayCheckoutService.CheckoutLinkResponse link = new InfinitePayCheckoutService.CheckoutLinkResponse();
+        link.setUrl("https://pay.example/link");
+        link.setSlug("slug-123");
+        when(infinitePayCheckoutService.generatePaymentLink(eq("my-store"), anyList(), anyString(), eq("token")))
+                .thenThrow(new RuntimeException("Read timed out"))
+                .thenReturn(link);
+
+        service.generateAfterCommit(sale.getId(), "token", requestedAt);
+
+        assertThat(sale.getPaymentLinkStatus()).isEqualTo(PaymentLinkStatus.READY);
+        assertThat(sale.getPaymentLink()).isEqualTo("https://pay.example/link");
+        assertThat(sale.getInfinitepayInvoiceSlug()).isEqualTo("slug-123");
+        assertThat(sale.getPaymentLinkAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldMarkFailedAfterMaxAttempts() {
+        when(infinitePayCheckoutService.generatePaymentLink(anyString(), anyList(), anyString(), anyString()))
+                .thenThrow(new RuntimeException("Connection refused"));
+
+        service.generateAfterCommit(sale.getId(), "token", requestedAt);
+
+        assertThat(sale.getPaymentLinkStatus()).isEqualTo(PaymentLinkStatus.FAILED);
+        assertThat(sale.getPaymentLinkError()).isEqualTo("Connection refused");
+        assertThat(sale.getPaymentLinkAttempts()).isEqualTo(properties.getMaxAttempts());
+        verify(infinitePayCheckoutService, times(properties.getMaxAttempts()))
+                .generatePaymentLink(anyString(), anyList(), anyString(), anyString());
+    }
+
+    @Test
+    void shouldDiscardResultOfSupersededRequest() {
+        InfinitePayCheckoutService.CheckoutLinkResponse link = new InfinitePayCheckoutService.CheckoutLinkResponse();
+        link.setUrl("https://pay.example/old");
+        when(infinitePayCheckoutService.generatePaymentLink(anyString(), anyList(), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    // A retry rotated the request while this call was in flight
+                    sale.setPaymentLinkRequestedAt(requestedAt.plusSeconds(1));
+                    return link;
+                });
+
+        service.generateAfterCommit(sale.getId(), "token", requestedAt);
+
+        assertThat(sale.getPaymentLinkStatus()).isEqualTo(PaymentLinkStatus.PENDING);
+        assertThat(sale.getPaymentLink()).isNull();
+    }
+
+    @Test
+    void shouldSkipSalesNoLongerPending() {
+        sale.setStatus(SaleStatus.CANCELLED);
+
+        service.generateAfterCommit(sale.getId(), "token", requestedAt);
+
+        verify(infinitePayCheckoutService, never()).generatePaymentLink(anyString(), anyList(), anyString(), anyString());
+    }
+
+    @Test
+    void shouldMarkFailedWhenQueueIsFull() {
+        service = new PaymentLinkService(saleRepository, tenantRepository, infinitePayCheckoutService,
+                properties, task -> {
+                    throw new TaskRejectedException("full");
+                }, transactionManager);
+
+        service.generateAfterCommit(sale.getId(), "token", requestedAt);
+
+        assertThat(sale.getPaymentLinkStatus()).isEqualTo(PaymentLinkStatus.FAILED);
+        assertThat(sale.getPaymentLinkError()).contains("queue is full");
+    }
+
+    @Test
+    void shouldAllowRetryOfFailedOrStaleLinks() {
+        sale.setPaymentLinkStatus(PaymentLinkStatus.FAILED);
+        assertThat(service.isRetryable(sale)).isTrue();
+
+        sale.setPaymentLinkStatus(PaymentLinkStatus.PENDING);
+        assertThat(service.isRetryable(sale)).isFalse();
+
+        sale.setPaymentLinkRequestedAt(Instant.now().minus(properties.getStaleAfter()).minusSeconds(1));
+        assertThat(service.isRetryable(sale)).isTrue();
+
+        sale.setPaymentLinkStatus(PaymentLinkStatus.READY);
+        assertThat(service.isRetryable(sale)).isFalse();
+    }
+}
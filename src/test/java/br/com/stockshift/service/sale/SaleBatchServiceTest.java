@@ -0,0 +1,179 @@
+package br.com.stockshift.service.sale;
+
+import br.com.stockshift.config.SaleBatchProperties;
+import br.com.stockshift.dto.sale.BatchSaleEntryRequest;
+import br.com.stockshift.dto.sale.BatchSaleRequest;
+import br.com.stockshift.dto.sale.BatchSaleResponse;
+import br.com.stockshift.dto.sale.BatchSaleResult;
+import br.com.stockshift.dto.sale.CreateSaleRequest;
+import br.com.stockshift.dto.sale.SaleIdempotencyKeyProjection;
+import br.com.stockshift.dto.sale.SaleResponse;
+import br.com.stockshift.exception.BadRequestException;
+import br.com.stockshift.exception.InsufficientStockException;
+import br.com.stockshift.model.enums.BatchSaleResultStatus;
+import br.com.stockshift.model.enums.PaymentMethod;
+import br.com.stockshift.model.enums.PaymentMode;
+import br.com.stockshift.repository.SaleRepository;
+import br.com.stockshift.security.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SaleBatchServiceTest {
+
+    @Mock
+    private SaleService saleService;
+    @Mock
+    private SaleRepository saleRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SaleBatchProperties properties;
+    private SaleBatchService service;
+    private UUID tenantId;
+
+    @BeforeEach
+    void setUp() {
+        tenantId = UUID.randomUUID();
+        TenantContext.setTenantId(tenantId);
+        properties = new SaleBatchProperties();
+        properties.setChunkSize(2);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(saleService.create(any(), anyString())).thenAnswer(invocation -> SaleResponse.builder()
+                .id(UUID.randomUUID())
+                .code("VND-" + invocation.getArgument(1))
+                .build());
+        service = new SaleBatchService(saleService, saleRepository, properties, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void shouldSkipKeysAlreadyAppliedAndRepeatedInRequest() {
+        UUID existingId = UUID.randomUUID();
+        when(saleRepository.findByTenantIdAndIdempotencyKeyIn(eq(tenantId), any()))
+                .thenReturn(List.of(applied("k1", existingId, "VND-2026-0001")));
+
+        BatchSaleResponse response = service.ingest(request(entry("k1"), entry("k2"), entry("k2"), entry("k3")));
+
+        assertThat(response.getResults()).extracting(BatchSaleResult::getStatus).containsExactly(
+                BatchSaleResultStatus.DUPLICATE, BatchSaleResultStatus.CREATED,
+                BatchSaleResultStatus.DUPLICATE, BatchSaleResultStatus.CREATED);
+        assertThat(response.getResults().get(0).getSaleId()).isEqualTo(existingId);
+        assertThat(response.getResults().get(2).getSaleId()).isEqualTo(response.getResults().get(1).getSaleId());
+        assertThat(response.getCreated()).isEqualTo(2);
+        assertThat(response.getDuplicates()).isEqualTo(2);
+        verify(saleService, never()).create(any(), eq("k1"));
+        verify(saleService, times(1)).create(any(), eq("k2"));
+        // k2 and k3 fit in one chunk
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void shouldReplayFailedChunkOneSalePerTransaction() {
+        when(saleRepository.findByTenantIdAndIdempotencyKeyIn(eq(tenantId), any())).thenReturn(List.of());
+        when(saleService.create(any(), eq("k2"))).thenThrow(new InsufficientStockException("Insufficient stock"));
+
+        BatchSaleResponse response = service.ingest(request(entry("k1"), entry("k2"), entry("k3")));
+
+        assertThat(response.getResults()).extracting(BatchSaleResult::getStatus).containsExactly(
+                BatchSaleResultStatus.CREATED, BatchSaleResultStatus.FAILED, BatchSaleResultStatus.CREATED);
+        assertThat(response.getResults().get(1).getError()).isEqualTo("Insufficient stock");
+        assertThat(response.getFailed()).isEqualTo(1);
+        // chunk [k1, k2] rolled back, k1 replayed on its own
+        verify(saleService, times(2)).create(any(), eq("k1"));
+        verify(transactionManager, times(2)).rollback(any());
+    }
+
+    @Test
+    void shouldReportConcurrentReplayOfSameKeyAsDuplicate() {
+        UUID existingId = UUID.randomUUID();
+        when(saleRepository.findByTenantIdAndIdempotencyKeyIn(eq(tenantId), any()))
+                .thenReturn(List.of())
+                .thenReturn(List.of(applied("k1", existingId, "VND-2026-0001")));
+        when(saleService.create(any(), eq("k1")))
+                .thenThrow(new DataIntegrityViolationException("uk_sales_tenant_idempotency_key"));
+
+        BatchSaleResponse response = service.ingest(request(entry("k1")));
+
+        assertThat(response.getResults().get(0).getStatus()).isEqualTo(BatchSaleResultStatus.DUPLICATE);
+        assertThat(response.getResults().get(0).getSaleId()).isEqualTo(existingId);
+    }
+
+    @Test
+    void shouldRejectPaymentLinksAndOversizedBatches() {
+        when(saleRepository.findByTenantIdAndIdempotencyKeyIn(eq(tenantId), any())).thenReturn(List.of());
+        BatchSaleEntryRequest link = entry("k1");
+        link.getSale().setPaymentMode(PaymentMode.LINK);
+
+        BatchSaleResponse response = service.ingest(request(link));
+
+        assertThat(response.getResults().get(0).getStatus()).isEqualTo(BatchSaleResultStatus.FAILED);
+        verify(saleService, never()).create(any(), anyString());
+
+        properties.setMaxSales(1);
+        assertThatThrownBy(() -> service.ingest(request(entry("k2"), entry("k3"))))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    private BatchSaleRequest request(BatchSaleEntryRequest... entries) {
+        return BatchSaleRequest.builder().sales(new ArrayList<>(List.of(entries))).build();
+    }
+
+    private BatchSaleEntryRequest entry(String key) {
+        return BatchSaleEntryRequest.builder()
+                .idempotencyKey(key)
+                .sale(CreateSaleRequest.builder()
+                        .warehouseId(UUID.randomUUID())
+                        .paymentMethod(PaymentMethod.CASH)
+                        .items(List.of())
+                        .build())
+                .build();
+    }
+
+    private SaleIdempotencyKeyProjection applied(String key, UUID id, String code) {
+        return new SaleIdempotencyKeyProjection() {
+            @Override
+            public String getIdempotencyKey() {
+                return key;
+            }
+
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getCode() {
+                return code;
+            }
+        };
+    }
+}
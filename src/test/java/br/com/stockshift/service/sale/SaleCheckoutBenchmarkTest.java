@@ -0,0 +1,260 @@
+package br.com.stockshift.service.sale;
+
+import br.com.stockshift.BaseIntegrationTest;
+import br.com.stockshift.dto.sale.CreateSaleItemRequest;
+import br.com.stockshift.dto.sale.CreateSaleRequest;
+import br.com.stockshift.model.entity.Batch;
+import br.com.stockshift.model.entity.InventoryLedger;
+import br.com.stockshift.model.entity.Product;
+import br.com.stockshift.model.entity.Sale;
+import br.com.stockshift.model.entity.SaleItem;
+import br.com.stockshift.model.entity.StockMovement;
+import br.com.stockshift.model.entity.StockMovementItem;
+import br.com.stockshift.model.entity.Tenant;
+import br.com.stockshift.model.entity.User;
+import br.com.stockshift.model.entity.Warehouse;
+import br.com.stockshift.model.enums.LedgerEntryType;
+import br.com.stockshift.model.enums.MovementDirection;
+import br.com.stockshift.model.enums.PaymentMethod;
+import br.com.stockshift.model.enums.PaymentMode;
+import br.com.stockshift.model.enums.SaleStatus;
+import br.com.stockshift.model.enums.StockMovementType;
+import br.com.stockshift.repository.BatchRepository;
+import br.com.stockshift.repository.InventoryLedgerRepository;
+import br.com.stockshift.repository.ProductRepository;
+import br.com.stockshift.repository.SaleRepository;
+import br.com.stockshift.repository.StockMovementRepository;
+import br.com.stockshift.repository.TenantRepository;
+import br.com.stockshift.repository.UserRepository;
+import br.com.stockshift.repository.WarehouseRepository;
+import br.com.stockshift.security.TenantContext;
+import br.com.stockshift.service.DocumentCodeSequencer;
+import br.com.stockshift.util.TestDataFactory;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Compares the set-based checkout in SaleService.create with the previous per-line
+// statement pattern (product lookup, FIFO lock query, batch save and ledger save for
+// every basket line). Reports prepared statements per sale and p50/p99 latency for a
+// 40-line basket. Run with ./gradlew benchmark.
+@Tag("benchmark")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class SaleCheckoutBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int BASKET_LINES = 40;
+    private static final int WARMUP_SALES = 20;
+    private static final int MEASURED_SALES = 200;
+
+    @Autowired
+    private SaleService saleService;
+    @Autowired
+    private SaleRepository saleRepository;
+    @Autowired
+    private StockMovementRepository movementRepository;
+    @Autowired
+    private InventoryLedgerRepository ledgerRepository;
+    @Autowired
+    private BatchRepository batchRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+    @Autowired
+    private TenantRepository tenantRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private DocumentCodeSequencer documentCodeSequencer;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private UUID tenantId;
+    private UUID userId;
+    private Warehouse warehouse;
+    private List<Product> basket;
+
+    @BeforeEach
+    void setUpCatalog() {
+        Tenant tenant = TestDataFactory.createTenant(tenantRepository, "Checkout Benchmark",
+                UUID.randomUUID().toString().replace("-", "").substring(0, 14));
+        tenantId = tenant.getId();
+        User user = TestDataFactory.createUser(userRepository, passwordEncoder, tenantId,
+                "checkout-benchmark-" + UUID.randomUUID() + "@test.com");
+        userId = user.getId();
+        warehouse = TestDataFactory.createWarehouse(warehouseRepository, tenantId, "Benchmark");
+
+        basket = new ArrayList<>();
+        for (int line = 0; line < BASKET_LINES; line++) {
+            Product product = TestDataFactory.createProduct(productRepository, tenantId, null,
+                    "Benchmark product " + line, "BENCH-" + UUID.randomUUID().toString().substring(0, 8));
+            TestDataFactory.createBatch(batchRepository, tenantId, product, warehouse, 100_000);
+            TestDataFactory.createBatch(batchRepository, tenantId, product, warehouse, 100_000);
+            basket.add(product);
+        }
+
+        TenantContext.setTenantId(tenantId);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user.getEmail(), null, List.of()));
+    }
+
+    @AfterEach
+    void tearDownContext() {
+        SecurityContextHolder.clearContext();
+        TenantContext.clear();
+    }
+
+    @Test
+    void setBasedCheckoutUsesFewerStatementsThanPerLineCheckout() {
+        Result perLine = measure("per-line", this::perLineCheckout);
+        Result setBased = measure("set-based", () -> saleService.create(saleRequest()));
+
+        assertThat(setBased.statementsPerSale()).isLessThan(perLine.statementsPerSale());
+    }
+
+    private Result measure(String label, Runnable checkout) {
+        for (int i = 0; i < WARMUP_SALES; i++) {
+            checkout.run();
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long[] latencies = new long[MEASURED_SALES];
+        for (int i = 0; i < MEASURED_SALES; i++) {
+            long start = System.nanoTime();
+            checkout.run();
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        Result result = new Result(
+                (double) statistics.getPrepareStatementCount() / MEASURED_SALES,
+                latencies[MEASURED_SALES / 2] / 1_000_000.0,
+                latencies[(int) Math.ceil(MEASURED_SALES * 0.99) - 1] / 1_000_000.0);
+        System.out.printf("[checkout-benchmark] %-9s lines=%d statements/sale=%.1f p50=%.2fms p99=%.2fms%n",
+                label, BASKET_LINES, result.statementsPerSale(), result.p50Millis(), result.p99Millis());
+        return result;
+    }
+
+    private CreateSaleRequest saleRequest() {
+        CreateSaleRequest request = new CreateSaleRequest();
+        request.setWarehouseId(warehouse.getId());
+        request.setPaymentMethod(PaymentMethod.CASH);
+        request.setPaymentMode(PaymentMode.DIRECT);
+        request.setItems(basket.stream()
+                .map(product -> CreateSaleItemRequest.builder()
+                        .productId(product.getId())
+                        .quantity(BigDecimal.ONE)
+                        .build())
+                .toList());
+        return request;
+    }
+
+    // Statement pattern of the previous SaleService.create: every basket line looks up
+    // its product, locks its FIFO batches and saves the batch and its ledger entry.
+    private void perLineCheckout() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Sale sale = Sale.builder()
+                    .code(documentCodeSequencer.nextSaleCode(tenantId))
+                    .warehouseId(warehouse.getId())
+                    .paymentMethod(PaymentMethod.CASH)
+                    .discountPercentage(BigDecimal.ZERO)
+                    .subtotal(0L)
+                    .discountAmount(0L)
+                    .total(0L)
+                    .status(SaleStatus.COMPLETED)
+                    .paymentMode(PaymentMode.DIRECT)
+                    .createdByUserId(userId)
+                    .build();
+            sale.setTenantId(tenantId);
+            Sale savedSale = saleRepository.save(sale);
+
+            StockMovement movement = StockMovement.builder()
+                    .code(documentCodeSequencer.nextMovementCode(tenantId))
+                    .warehouseId(warehouse.getId())
+                    .type(StockMovementType.SALE)
+                    .direction(MovementDirection.OUT)
+                    .referenceType("SALE")
+                    .referenceId(savedSale.getId())
+                    .createdByUserId(userId)
+                    .build();
+            movement.setTenantId(tenantId);
+
+            long subtotal = 0L;
+            for (Product basketProduct : basket) {
+                Product product = productRepository.findByTenantIdAndId(tenantId, basketProduct.getId()).orElseThrow();
+                Batch batch = batchRepository.findByProductAndWarehouseForFifo(
+                        product.getId(), warehouse.getId(), tenantId).get(0);
+
+                batch.setQuantity(batch.getQuantity().subtract(BigDecimal.ONE));
+                batchRepository.save(batch);
+
+                savedSale.addItem(SaleItem.builder()
+                        .productId(product.getId())
+                        .productName(product.getName())
+                        .productSku(product.getSku())
+                        .batchId(batch.getId())
+                        .batchCode(batch.getBatchCode())
+                        .quantity(BigDecimal.ONE)
+                        .unitPrice(batch.getSellingPrice())
+                        .totalPrice(batch.getSellingPrice())
+                        .build());
+                movement.addItem(StockMovementItem.builder()
+                        .productId(product.getId())
+                        .productName(product.getName())
+                        .productSku(product.getSku())
+                        .batchId(batch.getId())
+                        .batchCode(batch.getBatchCode())
+                        .quantity(BigDecimal.ONE)
+                        .build());
+                ledgerRepository.save(InventoryLedger.builder()
+                        .tenantId(tenantId)
+                        .warehouseId(warehouse.getId())
+                        .batchId(batch.getId())
+                        .productId(product.getId())
+                        .entryType(LedgerEntryType.SALE_OUT)
+                        .quantity(BigDecimal.ONE.negate())
+                        .balanceAfter(batch.getQuantity())
+                        .referenceType("SALE")
+                        .referenceId(savedSale.getId())
+                        .notes("Sale: " + savedSale.getCode())
+                        .createdBy(userId)
+                        .build());
+                subtotal += batch.getSellingPrice();
+            }
+
+            savedSale.setSubtotal(subtotal);
+            savedSale.setTotal(subtotal);
+            saleRepository.save(savedSale);
+            movementRepository.save(movement);
+        });
+    }
+
+    private record Result(double statementsPerSale, double p50Millis, double p99Millis) {
+    }
+}
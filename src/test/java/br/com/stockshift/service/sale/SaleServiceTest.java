@@ -1,10 +1,12 @@
 package br.com.stockshift.service.sale;
 
+import br.com.stockshift.config.StockDeductionProperties;
 import br.com.stockshift.dto.sale.CancelSaleRequest;
 import br.com.stockshift.dto.sale.CreateSaleItemRequest;
 import br.com.stockshift.dto.sale.CreateSaleRequest;
 import br.com.stockshift.dto.sale.InfinitePayWebhookRequest;
 import br.com.stockshift.dto.sale.NextSaleCodeResponse;
+import br.com.stockshift.dto.sale.PaymentLinkResponse;
 import br.com.stockshift.dto.sale.SaleResponse;
 import br.com.stockshift.dto.sale.SaleSummaryResponse;
 import br.com.stockshift.exception.BadRequestException;
@@ -17,9 +19,9 @@ import br.com.stockshift.model.entity.Sale;
 import br.com.stockshift.model.entity.SaleItem;
 import br.com.stockshift.model.entity.StockMovement;
 import br.com.stockshift.model.entity.Tenant;
-import br.com.stockshift.model.entity.User;
 import br.com.stockshift.model.entity.Warehouse;
 import br.com.stockshift.model.enums.LedgerEntryType;
+import br.com.stockshift.model.enums.PaymentLinkStatus;
 import br.com.stockshift.model.enums.PaymentMethod;
 import br.com.stockshift.model.enums.PaymentMode;
 import br.com.stockshift.model.enums.SaleStatus;
@@ -29,11 +31,17 @@ import br.com.stockshift.repository.ProductRepository;
 import br.com.stockshift.repository.SaleRepository;
 import br.com.stockshift.repository.StockMovementRepository;
 import br.com.stockshift.repository.TenantRepository;
-import br.com.stockshift.repository.UserRepository;
 import br.com.stockshift.repository.WarehouseRepository;
 import br.com.stockshift.security.SecurityUtils;
 import br.com.stockshift.security.TenantContext;
+import br.com.stockshift.service.BatchLockManager;
+import br.com.stockshift.service.ConditionalStockDeductionService;
+import br.com.stockshift.service.DocumentCodeSequencer;
+import br.com.stockshift.service.ReferenceNameResolver;
+import br.com.stockshift.service.ReportCache;
+import br.com.stockshift.service.StockDeduction;
 import br.com.stockshift.service.audit.AuditService;
+import br.com.stockshift.service.stockmovement.MovementRollupService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -46,6 +54,7 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
@@ -55,14 +64,17 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.never;
@@ -86,17 +98,29 @@ class SaleServiceTest {
     @Mock
     private StockMovementRepository movementRepository;
     @Mock
-    private UserRepository userRepository;
+    private ReferenceNameResolver referenceNameResolver;
+    @Mock
+    private ReportCache reportCache;
     @Mock
     private SaleMapper mapper;
     @Mock
     private SecurityUtils securityUtils;
     @Mock
-    private InfinitePayCheckoutService infinitePayCheckoutService;
+    private PaymentLinkService paymentLinkService;
+    @Mock
+    private SalesRollupService salesRollupService;
+    @Mock
+    private MovementRollupService movementRollupService;
     @Mock
     private TenantRepository tenantRepository;
     @Mock
     private AuditService auditService;
+    @Mock
+    private DocumentCodeSequencer documentCodeSequencer;
+    @Mock
+    private StockDeductionProperties stockDeductionProperties;
+    @Mock
+    private ConditionalStockDeductionService conditionalStockDeductionService;
 
     @InjectMocks
     private SaleService saleService;
@@ -113,14 +137,16 @@ class SaleServiceTest {
         userId = UUID.randomUUID();
         warehouseId = UUID.randomUUID();
         TenantContext.setTenantId(tenantId);
+        ReflectionTestUtils.setField(saleService, "batchLockManager", new BatchLockManager(batchRepository));
         warehouse = warehouse(warehouseId, "Main");
         product = product("Coffee");
 
         when(securityUtils.getCurrentUserId()).thenReturn(userId);
         when(warehouseRepository.findByTenantIdAndId(tenantId, warehouseId)).thenReturn(Optional.of(warehouse));
         when(productRepository.findByTenantIdAndId(tenantId, product.getId())).thenReturn(Optional.of(product));
-        when(saleRepository.findLatestCodeByTenantIdAndCodePrefix(eq(tenantId), anyString())).thenReturn(null);
-        when(movementRepository.findLatestCodeByTenantIdAndCodePrefix(eq(tenantId), anyString())).thenReturn(null);
+        when(productRepository.findByTenantIdAndIdIn(eq(tenantId), anyCollection())).thenReturn(List.of(product));
+        when(documentCodeSequencer.nextSaleCode(tenantId)).thenReturn("VND-2026-0001");
+        when(documentCodeSequencer.nextMovementCode(tenantId)).thenReturn("MOV-2026-0001");
         when(saleRepository.save(any(Sale.class))).thenAnswer(invocation -> {
             Sale sale = invocation.getArgument(0);
             if (sale.getId() == null) {
@@ -164,7 +190,7 @@ class SaleServiceTest {
         CreateSaleRequest request = saleRequest(PaymentMode.DIRECT,
                 List.of(saleItem(product.getId(), batch.getId(), new BigDecimal("2"))));
         request.setDiscountPercentage(new BigDecimal("10"));
-        when(batchRepository.findByIdForUpdate(batch.getId())).thenReturn(Optional.of(batch));
+        stubCheckoutBatches(batch);
 
         SaleResponse response = saleService.create(request);
 
@@ -173,8 +199,9 @@ class SaleServiceTest {
         assertThat(response.getTotal()).isEqualTo(1800L);
         assertThat(response.getStatus()).isEqualTo(SaleStatus.COMPLETED);
         assertThat(batch.getQuantity()).isEqualByComparingTo("3");
-        verify(ledgerRepository).save(any(InventoryLedger.class));
+        verify(ledgerRepository).saveAll(argThat(entries -> ((List<?>) entries).size() == 1));
         verify(movementRepository).save(any(StockMovement.class));
+        verify(salesRollupService).recordCompleted(argThat(sale -> sale.getTotal() == 1800L));
         verify(auditService).record(any());
     }
 
@@ -186,15 +213,62 @@ class SaleServiceTest {
         laterBatch.setExpirationDate(LocalDate.now().plusDays(30));
         CreateSaleRequest request = saleRequest(PaymentMode.DIRECT,
                 List.of(saleItem(product.getId(), null, new BigDecimal("5"))));
-        when(batchRepository.findByProductAndWarehouseForFifo(product.getId(), warehouseId, tenantId))
-                .thenReturn(List.of(laterBatch, olderExpiringBatch));
+        stubCheckoutBatches(laterBatch, olderExpiringBatch);
 
         SaleResponse response = saleService.create(request);
 
         assertThat(response.getSubtotal()).isEqualTo(4100L);
         assertThat(olderExpiringBatch.getQuantity()).isEqualByComparingTo("0");
         assertThat(laterBatch.getQuantity()).isEqualByComparingTo("1");
-        verify(ledgerRepository, atLeastOnce()).save(any(InventoryLedger.class));
+        verify(ledgerRepository).saveAll(argThat(entries -> ((List<?>) entries).size() == 2));
+        verify(batchRepository, never()).save(any(Batch.class));
+    }
+
+    @Test
+    void createShouldResolveWholeBasketWithOneProductQueryAndOneLockQuery() {
+        Batch firstBatch = batch(product, warehouse, new BigDecimal("2"), 500L);
+        firstBatch.setExpirationDate(LocalDate.now().plusDays(1));
+        Batch secondBatch = batch(product, warehouse, new BigDecimal("4"), 500L);
+        secondBatch.setExpirationDate(LocalDate.now().plusDays(10));
+        CreateSaleRequest request = saleRequest(PaymentMode.DIRECT, List.of(
+                saleItem(product.getId(), null, new BigDecimal("1")),
+                saleItem(product.getId(), null, new BigDecimal("3")),
+                saleItem(product.getId(), secondBatch.getId(), new BigDecimal("1"))));
+        stubCheckoutBatches(secondBatch, firstBatch);
+
+        SaleResponse response = saleService.create(request);
+
+        assertThat(response.getSubtotal()).isEqualTo(2500L);
+        assertThat(firstBatch.getQuantity()).isEqualByComparingTo("0");
+        assertThat(secondBatch.getQuantity()).isEqualByComparingTo("1");
+        verify(productRepository).findByTenantIdAndIdIn(eq(tenantId), anyCollection());
+        verify(batchRepository).findForCheckoutForUpdate(eq(tenantId), eq(warehouseId), anyCollection(), anyCollection());
+        verify(batchRepository, never()).findByIdForUpdate(any());
+        verify(ledgerRepository).saveAll(argThat(entries -> ((List<?>) entries).size() == 4));
+    }
+
+    @Test
+    void createShouldUseGuardedDeductionsInConditionalMode() {
+        Batch manualBatch = batch(product, warehouse, new BigDecimal("5"), 1000L);
+        UUID fifoBatchId = UUID.randomUUID();
+        CreateSaleRequest request = saleRequest(PaymentMode.DIRECT, List.of(
+                saleItem(product.getId(), manualBatch.getId(), new BigDecimal("2")),
+                saleItem(product.getId(), null, new BigDecimal("3"))));
+        when(stockDeductionProperties.isConditional()).thenReturn(true);
+        when(batchRepository.findById(manualBatch.getId())).thenReturn(Optional.of(manualBatch));
+        when(conditionalStockDeductionService.deductFromBatch(manualBatch, product, new BigDecimal("2")))
+                .thenReturn(new StockDeduction(manualBatch.getId(), manualBatch.getBatchCode(), 1000L,
+                        new BigDecimal("2"), new BigDecimal("3")));
+        when(conditionalStockDeductionService.deductFifo(product, warehouseId, tenantId, new BigDecimal("3"),
+                ConditionalStockDeductionService.EXPIRATION_ORDER))
+                .thenReturn(List.of(new StockDeduction(fifoBatchId, "BATCH-FIFO", 500L,
+                        new BigDecimal("3"), new BigDecimal("7"))));
+
+        SaleResponse response = saleService.create(request);
+
+        assertThat(response.getSubtotal()).isEqualTo(3500L);
+        verify(batchRepository, never()).findForCheckoutForUpdate(any(), any(), anyCollection(), anyCollection());
+        verify(ledgerRepository).saveAll(argThat(entries -> ((List<?>) entries).size() == 2));
     }
 
     @Test
@@ -203,7 +277,7 @@ class SaleServiceTest {
         Batch batch = batch(product, otherWarehouse, new BigDecimal("5"), 1000L);
         CreateSaleRequest request = saleRequest(PaymentMode.DIRECT,
                 List.of(saleItem(product.getId(), batch.getId(), BigDecimal.ONE)));
-        when(batchRepository.findByIdForUpdate(batch.getId())).thenReturn(Optional.of(batch));
+        stubCheckoutBatches(batch);
 
         assertThatThrownBy(() -> saleService.create(request))
                 .isInstanceOf(BadRequestException.class)
@@ -215,8 +289,7 @@ class SaleServiceTest {
         Batch batch = batch(product, warehouse, BigDecimal.ONE, 1000L);
         CreateSaleRequest request = saleRequest(PaymentMode.DIRECT,
                 List.of(saleItem(product.getId(), null, new BigDecimal("2"))));
-        when(batchRepository.findByProductAndWarehouseForFifo(product.getId(), warehouseId, tenantId))
-                .thenReturn(List.of(batch));
+        stubCheckoutBatches(batch);
 
         assertThatThrownBy(() -> saleService.create(request))
                 .isInstanceOf(InsufficientStockException.class)
@@ -224,26 +297,60 @@ class SaleServiceTest {
     }
 
     @Test
-    void createShouldGeneratePaymentLinkWhenTenantIsConfigured() {
+    void createShouldRequestPaymentLinkAfterCommitWhenTenantIsConfigured() {
         Batch batch = batch(product, warehouse, new BigDecimal("3"), 1500L);
         Tenant tenant = new Tenant();
         tenant.setId(tenantId);
         tenant.setInfinitepayHandle("my-store");
         CreateSaleRequest request = saleRequest(PaymentMode.LINK,
                 List.of(saleItem(product.getId(), batch.getId(), BigDecimal.ONE)));
-        InfinitePayCheckoutService.CheckoutLinkResponse link = new InfinitePayCheckoutService.CheckoutLinkResponse();
-        link.setUrl("https://pay.example/link");
-        link.setSlug("slug-123");
 
-        when(batchRepository.findByIdForUpdate(batch.getId())).thenReturn(Optional.of(batch));
+        stubCheckoutBatches(batch);
         when(tenantRepository.findById(tenantId)).thenReturn(Optional.of(tenant));
-        when(infinitePayCheckoutService.generatePaymentLink(eq("my-store"), anyList(), anyString(), anyString()))
-                .thenReturn(link);
 
         SaleResponse response = saleService.create(request);
 
-        assertThat(response.getPaymentLink()).isEqualTo("https://pay.example/link");
-        verify(infinitePayCheckoutService).generatePaymentLink(eq("my-store"), anyList(), anyString(), anyString());
+        assertThat(response.getPaymentLinkStatus()).isEqualTo(PaymentLinkStatus.PENDING);
+        assertThat(response.getPaymentLink()).isNull();
+        ArgumentCaptor<Sale> saleCaptor = ArgumentCaptor.forClass(Sale.class);
+        verify(saleRepository, atLeastOnce()).save(saleCaptor.capture());
+        Sale saved = saleCaptor.getValue();
+        assertThat(saved.getInfinitepayWebhookTokenHash()).isNotBlank();
+        verify(paymentLinkService).generateAfterCommit(eq(saved.getId()), anyString(),
+                eq(saved.getPaymentLinkRequestedAt()));
+        verify(salesRollupService, never()).recordCompleted(any());
+    }
+
+    @Test
+    void retryPaymentLinkShouldRotateTokenAndRequestNewLink() {
+        Sale sale = sale(PaymentMode.LINK, SaleStatus.PENDING);
+        sale.setPaymentLinkStatus(PaymentLinkStatus.FAILED);
+        sale.setPaymentLinkAttempts(3);
+        sale.setPaymentLinkError("timeout");
+        sale.setInfinitepayWebhookTokenHash("old-hash");
+        when(saleRepository.findByTenantIdAndId(tenantId, sale.getId())).thenReturn(Optional.of(sale));
+        when(paymentLinkService.isRetryable(sale)).thenReturn(true);
+
+        PaymentLinkResponse response = saleService.retryPaymentLink(sale.getId());
+
+        assertThat(response.getStatus()).isEqualTo(PaymentLinkStatus.PENDING);
+        assertThat(response.getError()).isNull();
+        assertThat(sale.getInfinitepayWebhookTokenHash()).isNotEqualTo("old-hash");
+        verify(paymentLinkService).generateAfterCommit(eq(sale.getId()), anyString(),
+                eq(sale.getPaymentLinkRequestedAt()));
+    }
+
+    @Test
+    void retryPaymentLinkShouldRejectLinkStillBeingGenerated() {
+        Sale sale = sale(PaymentMode.LINK, SaleStatus.PENDING);
+        sale.setPaymentLinkStatus(PaymentLinkStatus.PENDING);
+        when(saleRepository.findByTenantIdAndId(tenantId, sale.getId())).thenReturn(Optional.of(sale));
+        when(paymentLinkService.isRetryable(sale)).thenReturn(false);
+
+        assertThatThrownBy(() -> saleService.retryPaymentLink(sale.getId()))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("cannot be requested again");
+        verify(paymentLinkService, never()).generateAfterCommit(any(), any(), any());
     }
 
     @Test
@@ -251,12 +358,12 @@ class SaleServiceTest {
         Batch batch = batch(product, warehouse, new BigDecimal("3"), 50L);
         CreateSaleRequest request = saleRequest(PaymentMode.LINK,
                 List.of(saleItem(product.getId(), batch.getId(), BigDecimal.ONE)));
-        when(batchRepository.findByIdForUpdate(batch.getId())).thenReturn(Optional.of(batch));
+        stubCheckoutBatches(batch);
 
         assertThatThrownBy(() -> saleService.create(request))
                 .isInstanceOf(BadRequestException.class)
                 .hasMessageContaining("mínimo");
-        verify(infinitePayCheckoutService, never()).generatePaymentLink(anyString(), anyList(), anyString(), anyString());
+        verify(paymentLinkService, never()).generateAfterCommit(any(), any(), any());
     }
 
     @Test
@@ -266,7 +373,7 @@ class SaleServiceTest {
         SaleItem item = saleItem(batch, new BigDecimal("2"), 1000L);
         sale.addItem(item);
         when(saleRepository.findByTenantIdAndId(tenantId, sale.getId())).thenReturn(Optional.of(sale));
-        when(batchRepository.findByIdForUpdate(batch.getId())).thenReturn(Optional.of(batch));
+        when(batchRepository.findAllByIdInForUpdate(Set.of(batch.getId()))).thenReturn(List.of(batch));
         when(warehouseRepository.findById(warehouseId)).thenReturn(Optional.of(warehouse));
 
         SaleResponse response = saleService.cancel(sale.getId(),
@@ -277,9 +384,22 @@ class SaleServiceTest {
         ArgumentCaptor<InventoryLedger> ledgerCaptor = ArgumentCaptor.forClass(InventoryLedger.class);
         verify(ledgerRepository).save(ledgerCaptor.capture());
         assertThat(ledgerCaptor.getValue().getEntryType()).isEqualTo(LedgerEntryType.SALE_CANCEL_IN);
+        verify(salesRollupService).recordCancelled(sale);
         verify(auditService).record(any());
     }
 
+    @Test
+    void cancelShouldNotTouchRollupForPendingSale() {
+        Sale sale = sale(PaymentMode.LINK, SaleStatus.PENDING);
+        when(saleRepository.findByTenantIdAndId(tenantId, sale.getId())).thenReturn(Optional.of(sale));
+        when(warehouseRepository.findById(warehouseId)).thenReturn(Optional.of(warehouse));
+
+        saleService.cancel(sale.getId(), CancelSaleRequest.builder().cancellationReason("Abandoned").build());
+
+        assertThat(sale.getStatus()).isEqualTo(SaleStatus.CANCELLED);
+        verify(salesRollupService, never()).recordCancelled(any());
+    }
+
     @Test
     void confirmInfinitePayPaymentShouldUpdateOnlyPendingSales() {
         Sale pending = sale(PaymentMode.TAP, SaleStatus.PENDING);
@@ -297,10 +417,12 @@ class SaleServiceTest {
         saleService.confirmInfinitePayPayment(completed.getId(), "ignored", "ignored", "ignored");
 
         assertThat(completed.getInfinitepayNsu()).isNull();
+        verify(salesRollupService).recordCompleted(pending);
+        verify(salesRollupService, never()).recordCompleted(completed);
     }
 
     @Test
-    void confirmInfinitePayWebhookShouldResolvePaymentMethodAndInstallments() {
+    void applyInfinitePayWebhookShouldResolvePaymentMethodAndInstallments() {
         Sale sale = sale(PaymentMode.LINK, SaleStatus.PENDING);
         sale.setInfinitepayInvoiceSlug("invoice");
         sale.setInfinitepayWebhookTokenHash(hashWebhookToken("secret-token"));
@@ -308,55 +430,70 @@ class SaleServiceTest {
         tenant.setId(tenantId);
         tenant.setIsActive(true);
         tenant.setInfinitepayHandle("my-store");
-        InfinitePayCheckoutService.PaymentCheckResponse paymentCheck = paidPaymentCheck(1000L, "credit_card", 3);
         InfinitePayWebhookRequest request = webhookRequest(sale.getId(), "txn", "invoice");
 
         when(saleRepository.findById(sale.getId())).thenReturn(Optional.of(sale));
+        when(saleRepository.findByIdForUpdate(sale.getId())).thenReturn(Optional.of(sale));
         when(tenantRepository.findById(tenantId)).thenReturn(Optional.of(tenant));
-        when(infinitePayCheckoutService.checkPayment("my-store", sale.getId().toString(), "txn", "invoice"))
-                .thenReturn(paymentCheck);
 
-        saleService.confirmInfinitePayWebhook("secret-token", request);
+        assertThat(saleService.prepareInfinitePayWebhook(hashWebhookToken("secret-token"), request))
+                .contains(new InfinitePayPaymentCheck("my-store", sale.getId().toString(), "txn", "invoice"));
+
+        saleService.applyInfinitePayWebhook(hashWebhookToken("secret-token"), request,
+                paidPaymentCheck(1000L, "credit_card", 3));
 
         assertThat(sale.getStatus()).isEqualTo(SaleStatus.COMPLETED);
         assertThat(sale.getPaymentMethod()).isEqualTo(PaymentMethod.CREDIT_CARD);
         assertThat(sale.getInstallments()).isEqualTo(3);
         assertThat(sale.getInfinitepayInvoiceSlug()).isEqualTo("invoice");
+        verify(salesRollupService).recordCompleted(sale);
     }
 
     @Test
-    void confirmInfinitePayWebhookShouldRejectInvalidTokenBeforePaymentCheck() {
+    void infinitePayWebhookShouldRejectInvalidToken() {
         Sale sale = sale(PaymentMode.LINK, SaleStatus.PENDING);
         sale.setInfinitepayInvoiceSlug("invoice");
         sale.setInfinitepayWebhookTokenHash(hashWebhookToken("secret-token"));
         when(saleRepository.findById(sale.getId())).thenReturn(Optional.of(sale));
 
-        assertThatThrownBy(() -> saleService.confirmInfinitePayWebhook(
-                "wrong-token", webhookRequest(sale.getId(), "txn", "invoice")))
+        assertThatThrownBy(() -> saleService.validateInfinitePayWebhookToken(
+                hashWebhookToken("wrong-token"), sale.getId().toString()))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("webhook token");
+        assertThatThrownBy(() -> saleService.prepareInfinitePayWebhook(
+                hashWebhookToken("wrong-token"), webhookRequest(sale.getId(), "txn", "invoice")))
                 .isInstanceOf(BadRequestException.class)
                 .hasMessageContaining("webhook token");
 
         assertThat(sale.getStatus()).isEqualTo(SaleStatus.PENDING);
-        verify(infinitePayCheckoutService, never()).checkPayment(anyString(), anyString(), anyString(), anyString());
     }
 
     @Test
-    void confirmInfinitePayWebhookShouldRejectPaymentCheckAmountMismatch() {
+    void infinitePayWebhookShouldBeIgnoredForCompletedSale() {
+        Sale sale = sale(PaymentMode.LINK, SaleStatus.COMPLETED);
+        sale.setInfinitepayWebhookTokenHash(hashWebhookToken("secret-token"));
+        InfinitePayWebhookRequest request = webhookRequest(sale.getId(), "txn", "invoice");
+        when(saleRepository.findById(sale.getId())).thenReturn(Optional.of(sale));
+        when(saleRepository.findByIdForUpdate(sale.getId())).thenReturn(Optional.of(sale));
+
+        assertThat(saleService.prepareInfinitePayWebhook(hashWebhookToken("secret-token"), request)).isEmpty();
+        saleService.applyInfinitePayWebhook(hashWebhookToken("secret-token"), request,
+                paidPaymentCheck(1000L, "pix", 1));
+
+        assertThat(sale.getInfinitepayNsu()).isNull();
+        verify(saleRepository, never()).save(any(Sale.class));
+    }
+
+    @Test
+    void applyInfinitePayWebhookShouldRejectPaymentCheckAmountMismatch() {
         Sale sale = sale(PaymentMode.LINK, SaleStatus.PENDING);
         sale.setInfinitepayInvoiceSlug("invoice");
         sale.setInfinitepayWebhookTokenHash(hashWebhookToken("secret-token"));
-        Tenant tenant = new Tenant();
-        tenant.setId(tenantId);
-        tenant.setIsActive(true);
-        tenant.setInfinitepayHandle("my-store");
-
-        when(saleRepository.findById(sale.getId())).thenReturn(Optional.of(sale));
-        when(tenantRepository.findById(tenantId)).thenReturn(Optional.of(tenant));
-        when(infinitePayCheckoutService.checkPayment("my-store", sale.getId().toString(), "txn", "invoice"))
-                .thenReturn(paidPaymentCheck(900L, "pix", 1));
+        when(saleRepository.findByIdForUpdate(sale.getId())).thenReturn(Optional.of(sale));
 
-        assertThatThrownBy(() -> saleService.confirmInfinitePayWebhook(
-                "secret-token", webhookRequest(sale.getId(), "txn", "invoice")))
+        assertThatThrownBy(() -> saleService.applyInfinitePayWebhook(
+                hashWebhookToken("secret-token"), webhookRequest(sale.getId(), "txn", "invoice"),
+                paidPaymentCheck(900L, "pix", 1)))
                 .isInstanceOf(BadRequestException.class)
                 .hasMessageContaining("does not match expected total");
 
@@ -366,14 +503,13 @@ class SaleServiceTest {
     @Test
     void listAndGetNextCodeShouldMapRepositoryResults() {
         Sale sale = sale(PaymentMode.DIRECT, SaleStatus.COMPLETED);
-        User user = new User();
-        user.setId(userId);
-        user.setFullName("Seller");
         when(saleRepository.findWithFilters(eq(tenantId), eq(warehouseId), eq(PaymentMethod.CASH),
                 eq(SaleStatus.COMPLETED), any(), any(), any()))
                 .thenReturn(new PageImpl<>(List.of(sale)));
-        when(warehouseRepository.findById(warehouseId)).thenReturn(Optional.of(warehouse));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(referenceNameResolver.warehouseNames(tenantId, List.of(warehouseId)))
+                .thenReturn(Map.of(warehouseId, "Main"));
+        when(referenceNameResolver.userNames(tenantId, List.of(userId)))
+                .thenReturn(Map.of(userId, "Seller"));
         when(mapper.toSummaryResponse(sale, "Main", "Seller"))
                 .thenReturn(SaleSummaryResponse.builder().id(sale.getId()).createdByUserName("Seller").build());
 
@@ -382,9 +518,7 @@ class SaleServiceTest {
                 .extracting(SaleSummaryResponse::getCreatedByUserName)
                 .containsExactly("Seller");
 
-        when(saleRepository.findLatestCodeByTenantIdAndCodePrefix(eq(tenantId), anyString()))
-                .thenReturn("VND-" + LocalDate.now().getYear() + "-not-number");
-        when(saleRepository.countByTenantIdAndCodePrefix(eq(tenantId), anyString())).thenReturn(8L);
+        when(documentCodeSequencer.peekSaleCode(tenantId)).thenReturn("VND-2026-0009");
 
         NextSaleCodeResponse nextCode = saleService.getNextCode();
 
@@ -477,6 +611,11 @@ class SaleServiceTest {
         return item;
     }
 
+    private void stubCheckoutBatches(Batch... batches) {
+        when(batchRepository.findForCheckoutForUpdate(eq(tenantId), eq(warehouseId), anyCollection(), anyCollection()))
+                .thenReturn(List.of(batches));
+    }
+
     private Batch batch(Product product, Warehouse warehouse, BigDecimal quantity, long sellingPrice) {
         Batch batch = Batch.builder()
                 .product(product)
@@ -1,7 +1,8 @@
 package br.com.stockshift.service.sale;
 
+import br.com.stockshift.dto.sale.SalesDailyTotalProjection;
 import br.com.stockshift.dto.sale.SalesDashboardResponse;
-import br.com.stockshift.repository.SaleRepository;
+import br.com.stockshift.repository.SalesDailyRollupRepository;
 import br.com.stockshift.security.TenantContext;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,7 +11,6 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.sql.Date;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.LocalDate;
@@ -19,20 +19,21 @@ import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class SalesDashboardServiceTest {
 
+    // Wednesday: the week started on April 13, the month on April 1
     private static final LocalDate FIXED_TODAY = LocalDate.of(2026, 4, 15);
     private static final Clock FIXED_CLOCK = Clock.fixed(
             Instant.parse("2026-04-15T12:00:00Z"),
             ZoneOffset.UTC);
 
     @Mock
-    private SaleRepository saleRepository;
+    private SalesDailyRollupRepository rollupRepository;
 
     private SalesDashboardService service;
     private UUID tenantId;
@@ -43,7 +44,7 @@ class SalesDashboardServiceTest {
         tenantId = UUID.randomUUID();
         warehouseId = UUID.randomUUID();
         TenantContext.setTenantId(tenantId);
-        service = new SalesDashboardService(saleRepository, FIXED_CLOCK);
+        service = new SalesDashboardService(rollupRepository, FIXED_CLOCK);
     }
 
     @AfterEach
@@ -54,29 +55,47 @@ class SalesDashboardServiceTest {
     @Test
     void getDashboardShouldBuildKpisAndFillDailyChartGaps() {
         LocalDate today = FIXED_TODAY;
-        when(saleRepository.countAndRevenueByPeriod(eq(tenantId), eq(warehouseId), any(), any()))
-                .thenReturn(List.<Object[]>of(new Object[] { 4L, 2000L }));
-        when(saleRepository.dailySalesInPeriod(eq(tenantId), eq(warehouseId), any(), any()))
+        when(rollupRepository.dailyTotals(tenantId, warehouseId, today.withDayOfMonth(1), today))
                 .thenReturn(List.of(
-                        new Object[] { Date.valueOf(today.withDayOfMonth(1)), 2L, 700L },
-                        new Object[] { today, 1L, 300L }));
+                        dailyTotal(today.withDayOfMonth(1), 2L, 700L),
+                        dailyTotal(LocalDate.of(2026, 4, 13), 3L, 900L),
+                        dailyTotal(today, 1L, 300L)));
 
         SalesDashboardResponse response = service.getDashboard(warehouseId);
 
-        assertThat(response.getKpis().getToday().getCount()).isEqualTo(4);
-        assertThat(response.getKpis().getToday().getRevenue()).isEqualTo(2000L);
-        assertThat(response.getKpis().getToday().getAvgTicket()).isEqualTo(500L);
-        assertThat(response.getDailyChart()).isNotEmpty();
+        assertThat(response.getKpis().getToday().getCount()).isEqualTo(1);
+        assertThat(response.getKpis().getToday().getRevenue()).isEqualTo(300L);
+        assertThat(response.getKpis().getWeek().getCount()).isEqualTo(4);
+        assertThat(response.getKpis().getWeek().getRevenue()).isEqualTo(1200L);
+        assertThat(response.getKpis().getWeek().getAvgTicket()).isEqualTo(300L);
+        assertThat(response.getKpis().getMonth().getCount()).isEqualTo(6);
+        assertThat(response.getKpis().getMonth().getRevenue()).isEqualTo(1900L);
+        assertThat(response.getDailyChart()).hasSize(15);
         assertThat(response.getDailyChart().get(0).getCount()).isEqualTo(2);
+        assertThat(response.getDailyChart().get(1).getCount()).isZero();
         assertThat(response.getDailyChart())
                 .anyMatch(entry -> entry.getDate().equals(today.toString()) && entry.getRevenue() == 300L);
     }
 
     @Test
-    void getDashboardShouldReturnZeroKpisWhenRepositoryHasNoRows() {
-        when(saleRepository.countAndRevenueByPeriod(eq(tenantId), eq(null), any(), any()))
-                .thenReturn(List.<Object[]>of(new Object[] { null, null }));
-        when(saleRepository.dailySalesInPeriod(eq(tenantId), eq(null), any(), any()))
+    void getDashboardShouldReadWeekDaysOfPreviousMonth() {
+        LocalDate today = LocalDate.of(2026, 5, 1); // Friday, week started on April 27
+        service = new SalesDashboardService(rollupRepository,
+                Clock.fixed(Instant.parse("2026-05-01T12:00:00Z"), ZoneOffset.UTC));
+        when(rollupRepository.dailyTotals(tenantId, null, LocalDate.of(2026, 4, 27), today))
+                .thenReturn(List.of(dailyTotal(LocalDate.of(2026, 4, 28), 2L, 400L)));
+
+        SalesDashboardResponse response = service.getDashboard(null);
+
+        verify(rollupRepository).dailyTotals(eq(tenantId), eq(null), eq(LocalDate.of(2026, 4, 27)), eq(today));
+        assertThat(response.getKpis().getWeek().getCount()).isEqualTo(2);
+        assertThat(response.getKpis().getMonth().getCount()).isZero();
+        assertThat(response.getDailyChart()).hasSize(1);
+    }
+
+    @Test
+    void getDashboardShouldReturnZeroKpisWhenRollupHasNoRows() {
+        when(rollupRepository.dailyTotals(tenantId, null, FIXED_TODAY.withDayOfMonth(1), FIXED_TODAY))
                 .thenReturn(List.of());
 
         SalesDashboardResponse response = service.getDashboard(null);
@@ -87,4 +106,23 @@ class SalesDashboardServiceTest {
         assertThat(response.getDailyChart())
                 .allMatch(entry -> entry.getCount() == 0L && entry.getRevenue() == 0L);
     }
+
+    private SalesDailyTotalProjection dailyTotal(LocalDate day, Long saleCount, Long revenue) {
+        return new SalesDailyTotalProjection() {
+            @Override
+            public LocalDate getDay() {
+                return day;
+            }
+
+            @Override
+            public Long getSaleCount() {
+                return saleCount;
+            }
+
+            @Override
+            public Long getRevenue() {
+                return revenue;
+            }
+        };
+    }
 }
@@ -0,0 +1,68 @@
+package br.com.stockshift.service.sale;
+
+import br.com.stockshift.model.entity.Sale;
+import br.com.stockshift.model.enums.PaymentMethod;
+import br.com.stockshift.model.enums.SaleStatus;
+import br.com.stockshift.repository.SalesDailyRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SalesRollupServiceTest {
+
+    @Mock
+    private SalesDailyRollupRepository rollupRepository;
+
+    @InjectMocks
+    private SalesRollupService service;
+
+    @Test
+    void recordCompletedAndCancelledShouldApplyOppositeDeltasToTheSaleDay() {
+        Sale sale = Sale.builder()
+                .warehouseId(UUID.randomUUID())
+                .paymentMethod(PaymentMethod.PIX)
+                .total(2500L)
+                .status(SaleStatus.COMPLETED)
+                .build();
+        sale.setTenantId(UUID.randomUUID());
+        sale.setCreatedAt(LocalDateTime.of(2026, 4, 14, 23, 59));
+
+        service.recordCompleted(sale);
+        service.recordCancelled(sale);
+
+        LocalDate day = LocalDate.of(2026, 4, 14);
+        verify(rollupRepository, times(2)).lockTenantShared(sale.getTenantId());
+        verify(rollupRepository).applyDelta(sale.getTenantId(), sale.getWarehouseId(), day, "PIX", 1L, 2500L);
+        verify(rollupRepository).applyDelta(sale.getTenantId(), sale.getWarehouseId(), day, "PIX", -1L, -2500L);
+    }
+
+    @Test
+    void rebuildShouldReplaceDaysFromSalesTable() {
+        UUID tenantId = UUID.randomUUID();
+        LocalDate from = LocalDate.of(2026, 4, 13);
+        LocalDate to = LocalDate.of(2026, 4, 15);
+        when(rollupRepository.insertFromSales(tenantId, from.atStartOfDay(), LocalDate.of(2026, 4, 16).atStartOfDay()))
+                .thenReturn(4);
+
+        assertThat(service.rebuild(tenantId, from, to)).isEqualTo(4);
+
+        var order = inOrder(rollupRepository);
+        order.verify(rollupRepository).lockTenantExclusive(tenantId);
+        order.verify(rollupRepository).deleteDays(tenantId, from, to);
+        order.verify(rollupRepository).insertFromSales(tenantId, from.atStartOfDay(),
+                LocalDate.of(2026, 4, 16).atStartOfDay());
+    }
+}
@@ -0,0 +1,195 @@
+package br.com.stockshift.service.sale;
+
+import br.com.stockshift.BaseIntegrationTest;
+import br.com.stockshift.config.StockDeductionProperties;
+import br.com.stockshift.dto.sale.CreateSaleItemRequest;
+import br.com.stockshift.dto.sale.CreateSaleRequest;
+import br.com.stockshift.model.entity.Batch;
+import br.com.stockshift.model.entity.Product;
+import br.com.stockshift.model.entity.Tenant;
+import br.com.stockshift.model.entity.User;
+import br.com.stockshift.model.entity.Warehouse;
+import br.com.stockshift.model.enums.PaymentMethod;
+import br.com.stockshift.model.enums.PaymentMode;
+import br.com.stockshift.repository.BatchRepository;
+import br.com.stockshift.repository.ProductRepository;
+import br.com.stockshift.repository.TenantRepository;
+import br.com.stockshift.repository.UserRepository;
+import br.com.stockshift.repository.WarehouseRepository;
+import br.com.stockshift.security.TenantContext;
+import br.com.stockshift.service.StockBalanceService;
+import br.com.stockshift.util.TestDataFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 50 concurrent sellers selling one unit at a time of the same SKU, once per stock
+// deduction mode. Reports completed sales per second and checks, per mode, that every
+// sale went through, that nothing was oversold and that the batches were drawn down
+// oldest first. CONDITIONAL must also outrun PESSIMISTIC: a change that serializes
+// conditional sales again (such as locking the product's balance up front) fails here.
+// Run with ./gradlew benchmark.
+@Tag("benchmark")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "spring.datasource.hikari.maximum-pool-size=60")
+class StockDeductionContentionBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int SELLERS = 50;
+    private static final int SALES_PER_SELLER = 20;
+    private static final int BATCHES = 5;
+    private static final int UNITS_PER_BATCH = 1_000;
+
+    @Autowired
+    private SaleService saleService;
+    @Autowired
+    private StockDeductionProperties stockDeductionProperties;
+    @Autowired
+    private StockBalanceService stockBalanceService;
+    @Autowired
+    private BatchRepository batchRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+    @Autowired
+    private TenantRepository tenantRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private StockDeductionProperties.Mode originalMode;
+
+    @BeforeEach
+    void rememberMode() {
+        originalMode = stockDeductionProperties.getMode();
+    }
+
+    @AfterEach
+    void restoreMode() {
+        stockDeductionProperties.setMode(originalMode);
+    }
+
+    @Test
+    void conditionalDeductionUnderSingleSkuContention() throws Exception {
+        double pessimistic = run(StockDeductionProperties.Mode.PESSIMISTIC);
+        double conditional = run(StockDeductionProperties.Mode.CONDITIONAL);
+
+        System.out.printf("[contention-benchmark] sellers=%d conditional/pessimistic throughput=%.2fx%n",
+                SELLERS, conditional / pessimistic);
+        assertThat(conditional).as("CONDITIONAL throughput vs PESSIMISTIC").isGreaterThan(pessimistic);
+    }
+
+    private double run(StockDeductionProperties.Mode mode) throws Exception {
+        stockDeductionProperties.setMode(mode);
+
+        Tenant tenant = TestDataFactory.createTenant(tenantRepository, "Contention " + mode,
+                UUID.randomUUID().toString().replace("-", "").substring(0, 14));
+        User user = TestDataFactory.createUser(userRepository, passwordEncoder, tenant.getId(),
+                "contention-" + UUID.randomUUID() + "@test.com");
+        Warehouse warehouse = TestDataFactory.createWarehouse(warehouseRepository, tenant.getId(), "Contention");
+        Product product = TestDataFactory.createProduct(productRepository, tenant.getId(), null,
+                "Best seller", "HOT-" + UUID.randomUUID().toString().substring(0, 8));
+        List<UUID> batchIds = new ArrayList<>();
+        for (int i = 0; i < BATCHES; i++) {
+            batchIds.add(TestDataFactory.createBatch(batchRepository, tenant.getId(), product, warehouse,
+                    UNITS_PER_BATCH).getId());
+        }
+
+        CreateSaleRequest request = CreateSaleRequest.builder()
+                .warehouseId(warehouse.getId())
+                .paymentMethod(PaymentMethod.CASH)
+                .paymentMode(PaymentMode.DIRECT)
+                .items(List.of(CreateSaleItemRequest.builder()
+                        .productId(product.getId())
+                        .quantity(BigDecimal.ONE)
+                        .build()))
+                .build();
+
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService sellers = Executors.newFixedThreadPool(SELLERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int seller = 0; seller < SELLERS; seller++) {
+            futures.add(sellers.submit(() -> {
+                TenantContext.setTenantId(tenant.getId());
+                SecurityContextHolder.getContext().setAuthentication(
+                        new UsernamePasswordAuthenticationToken(user.getEmail(), null, List.of()));
+                try {
+                    start.await();
+                    for (int sale = 0; sale < SALES_PER_SELLER; sale++) {
+                        try {
+                            saleService.create(request);
+                            completed.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    SecurityContextHolder.clearContext();
+                    TenantContext.clear();
+                }
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        sellers.shutdown();
+
+        // Stock covers every sale, so a failure means a deadlock or a lost guard race
+        assertThat(failed.get()).as("%s failed sales", mode).isZero();
+
+        Map<UUID, BigDecimal> quantities = batchRepository.findAllById(batchIds).stream()
+                .collect(Collectors.toMap(Batch::getId, Batch::getQuantity));
+        List<BigDecimal> remainingByAge = batchIds.stream().map(quantities::get).toList();
+        BigDecimal remaining = remainingByAge.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertThat(remainingByAge).as("%s batch quantities", mode)
+                .allSatisfy(quantity -> assertThat(quantity).isNotNegative());
+        assertThat(remaining).isEqualByComparingTo(
+                BigDecimal.valueOf((long) BATCHES * UNITS_PER_BATCH - completed.get()));
+        assertThat(stockBalanceService.getOnHand(tenant.getId(), warehouse.getId(), product.getId()))
+                .as("%s stock balance", mode)
+                .isEqualByComparingTo(remaining);
+        // Oldest first: a batch is touched only once every older one is empty
+        for (int i = 1; i < BATCHES; i++) {
+            if (remainingByAge.get(i).compareTo(BigDecimal.valueOf(UNITS_PER_BATCH)) < 0) {
+                assertThat(remainingByAge.get(i - 1)).as("%s batch %d", mode, i - 1).isZero();
+            }
+        }
+
+        double throughput = completed.get() / seconds;
+        System.out.printf("[contention-benchmark] %-11s sellers=%d sales=%d failed=%d elapsed=%.2fs throughput=%.1f sales/s%n",
+                mode, SELLERS, completed.get(), failed.get(), seconds, throughput);
+        return throughput;
+    }
+}
@@ -0,0 +1,206 @@
+package br.com.stockshift.service.sale;
+
+import br.com.stockshift.config.WebhookInboxProperties;
+import br.com.stockshift.dto.sale.InfinitePayWebhookRequest;
+import br.com.stockshift.dto.sale.WebhookInboxStatsProjection;
+import br.com.stockshift.exception.BadRequestException;
+import br.com.stockshift.model.entity.WebhookInboxEntry;
+import br.com.stockshift.model.enums.WebhookInboxStatus;
+import br.com.stockshift.repository.WebhookInboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class WebhookInboxServiceTest {
+
+    @Mock
+    private WebhookInboxRepository webhookInboxRepository;
+    @Mock
+    private SaleService saleService;
+    @Mock
+    private InfinitePayCheckoutService infinitePayCheckoutService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private WebhookInboxProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private WebhookInboxService service;
+    private UUID saleId;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WebhookInboxProperties();
+        properties.setMaxAttempts(3);
+        properties.setRetryBackoff(Duration.ofSeconds(5));
+        meterRegistry = new SimpleMeterRegistry();
+        service = new WebhookInboxService(webhookInboxRepository, saleService, infinitePayCheckoutService,
+                properties, Runnable::run, objectMapper, meterRegistry);
+        saleId = UUID.randomUUID();
+    }
+
+    @Test
+    void enqueueShouldStoreTokenHashAndPayloadAfterValidatingToken() throws Exception {
+        InfinitePayWebhookRequest request = webhookRequest();
+        String tokenHash = SaleService.hashWebhookToken("secret-token");
+        when(webhookInboxRepository.enqueue(anyString(), anyString(), anyString(), anyString(), anyString()))
+                .thenReturn(1);
+
+        service.enqueueInfinitePay("secret-token", request);
+
+        verify(saleService).validateInfinitePayWebhookToken(tokenHash, saleId.toString());
+        verify(webhookInboxRepository).enqueue(WebhookInboxService.SOURCE_INFINITEPAY, tokenHash,
+                saleId.toString(), "txn", objectMapper.writeValueAsString(request));
+    }
+
+    @Test
+    void enqueueShouldRejectForgedTokenWithoutQueueing() {
+        doThrow(new BadRequestException("Invalid InfinitePay webhook token"))
+                .when(saleService).validateInfinitePayWebhookToken(anyString(), anyString());
+
+        assertThatThrownBy(() -> service.enqueueInfinitePay("forged-token", webhookRequest()))
+                .isInstanceOf(BadRequestException.class);
+
+        verify(webhookInboxRepository, never()).enqueue(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void processDueShouldVerifyPaymentApplySaleAndMarkDone() throws Exception {
+        WebhookInboxEntry entry = entry(1);
+        InfinitePayCheckoutService.PaymentCheckResponse paymentCheck =
+                new InfinitePayCheckoutService.PaymentCheckResponse();
+        when(webhookInboxRepository.claimDue(4, 120)).thenReturn(List.of(entry));
+        when(saleService.prepareInfinitePayWebhook(eq(entry.getWebhookTokenHash()), any()))
+                .thenReturn(Optional.of(new InfinitePayPaymentCheck("my-store", saleId.toString(), "txn", "invoice")));
+        when(infinitePayCheckoutService.checkPayment("my-store", saleId.toString(), "txn", "invoice"))
+                .thenReturn(paymentCheck);
+        when(webhookInboxRepository.findQueueStats()).thenReturn(stats(3L, LocalDateTime.now().minusSeconds(30)));
+
+        assertThat(service.processDue()).isEqualTo(1);
+
+        verify(saleService).applyInfinitePayWebhook(eq(entry.getWebhookTokenHash()), any(), eq(paymentCheck));
+        verify(webhookInboxRepository).markDone(entry.getId());
+        assertThat(meterRegistry.get("stockshift.webhook.inbox.depth").gauge().value()).isEqualTo(3.0);
+        assertThat(meterRegistry.get("stockshift.webhook.inbox.lag").gauge().value()).isGreaterThanOrEqualTo(30.0);
+        assertThat(meterRegistry.get("stockshift.webhook.inbox.processed").tag("outcome", "done")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void processShouldSkipPaymentCheckForAlreadyCompletedSale() throws Exception {
+        WebhookInboxEntry entry = entry(1);
+        when(saleService.prepareInfinitePayWebhook(eq(entry.getWebhookTokenHash()), any()))
+                .thenReturn(Optional.empty());
+
+        service.process(entry);
+
+        verify(infinitePayCheckoutService, never()).checkPayment(anyString(), anyString(), anyString(), anyString());
+        verify(saleService, never()).applyInfinitePayWebhook(any(), any(), any());
+        verify(webhookInboxRepository).markDone(entry.getId());
+    }
+
+    @Test
+    void processShouldRescheduleTransientFailureWithBackoff() throws Exception {
+        WebhookInboxEntry entry = entry(2);
+        when(saleService.prepareInfinitePayWebhook(eq(entry.getWebhookTokenHash()), any()))
+                .thenReturn(Optional.of(new InfinitePayPaymentCheck("my-store", saleId.toString(), "txn", "invoice")));
+        when(infinitePayCheckoutService.checkPayment(anyString(), anyString(), anyString(), anyString()))
+                .thenThrow(new RuntimeException("Erro ao consultar status do pagamento"));
+
+        service.process(entry);
+
+        verify(webhookInboxRepository).reschedule(eq(entry.getId()), eq(10L), contains("status do pagamento"));
+        verify(webhookInboxRepository, never()).markFailed(any(), any());
+    }
+
+    @Test
+    void processShouldFailAfterMaxAttempts() throws Exception {
+        WebhookInboxEntry entry = entry(3);
+        when(saleService.prepareInfinitePayWebhook(eq(entry.getWebhookTokenHash()), any()))
+                .thenThrow(new IllegalStateException("connection reset"));
+
+        service.process(entry);
+
+        verify(webhookInboxRepository).markFailed(entry.getId(), "connection reset");
+        verify(webhookInboxRepository, never()).reschedule(any(), anyLong(), any());
+    }
+
+    @Test
+    void processShouldFailInvalidWebhookWithoutRetry() throws Exception {
+        WebhookInboxEntry entry = entry(1);
+        when(saleService.prepareInfinitePayWebhook(eq(entry.getWebhookTokenHash()), any()))
+                .thenThrow(new BadRequestException("Sale has status CANCELLED, expected PENDING"));
+
+        service.process(entry);
+
+        verify(webhookInboxRepository).markFailed(entry.getId(), "Sale has status CANCELLED, expected PENDING");
+        verify(webhookInboxRepository, never()).reschedule(any(), anyLong(), any());
+        assertThat(meterRegistry.get("stockshift.webhook.inbox.processed").tag("outcome", "failed")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    private InfinitePayWebhookRequest webhookRequest() {
+        InfinitePayWebhookRequest request = new InfinitePayWebhookRequest();
+        request.setOrder_nsu(saleId.toString());
+        request.setTransaction_nsu("txn");
+        request.setInvoice_slug("invoice");
+        request.setCapture_method("pix");
+        request.setInstallments(1);
+        request.setAmount(1000L);
+        request.setPaid_amount(1000L);
+        return request;
+    }
+
+    private WebhookInboxEntry entry(int attempts) throws Exception {
+        return WebhookInboxEntry.builder()
+                .id(UUID.randomUUID())
+                .source(WebhookInboxService.SOURCE_INFINITEPAY)
+                .webhookTokenHash(SaleService.hashWebhookToken("secret-token"))
+                .orderNsu(saleId.toString())
+                .transactionNsu("txn")
+                .payload(objectMapper.writeValueAsString(webhookRequest()))
+                .status(WebhookInboxStatus.PROCESSING)
+                .attempts(attempts)
+                .nextAttemptAt(LocalDateTime.now())
+                .receivedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private WebhookInboxStatsProjection stats(Long depth, LocalDateTime oldestReceivedAt) {
+        return new WebhookInboxStatsProjection() {
+            @Override
+            public Long getDepth() {
+                return depth;
+            }
+
+            @Override
+            public LocalDateTime getOldestReceivedAt() {
+                return oldestReceivedAt;
+            }
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package br.com.stockshift.service.stockmovement;
+
+import br.com.stockshift.model.entity.StockMovement;
+import br.com.stockshift.model.entity.StockMovementItem;
+import br.com.stockshift.model.enums.MovementDirection;
+import br.com.stockshift.model.enums.StockMovementType;
+import br.com.stockshift.repository.MovementDailyRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MovementRollupServiceTest {
+
+  @Mock
+  private MovementDailyRollupRepository rollupRepository;
+
+  @InjectMocks
+  private MovementRollupService service;
+
+  @Test
+  void recordCreatedShouldAddItemQuantitiesToTheMovementDay() {
+    StockMovement movement = movement();
+    movement.addItem(item("3"));
+    movement.addItem(item("2.5"));
+    movement.setCreatedAt(LocalDateTime.of(2026, 4, 14, 23, 59));
+
+    service.recordCreated(movement);
+
+    var order = inOrder(rollupRepository);
+    order.verify(rollupRepository).lockTenantShared(movement.getTenantId());
+    order.verify(rollupRepository).applyDelta(movement.getTenantId(), movement.getWarehouseId(),
+        LocalDate.of(2026, 4, 14), "LOSS", "OUT", new BigDecimal("5.5"), 1L);
+  }
+
+  @Test
+  void recordCreatedShouldSkipMovementsWithoutItems() {
+    service.recordCreated(movement());
+
+    verifyNoInteractions(rollupRepository);
+  }
+
+  @Test
+  void rebuildShouldReplaceDaysFromMovementTables() {
+    UUID tenantId = UUID.randomUUID();
+    LocalDate from = LocalDate.of(2026, 4, 13);
+    LocalDate to = LocalDate.of(2026, 4, 15);
+    when(rollupRepository.insertFromMovements(tenantId, from.atStartOfDay(), LocalDate.of(2026, 4, 16).atStartOfDay()))
+        .thenReturn(6);
+
+    assertThat(service.rebuild(tenantId, from, to)).isEqualTo(6);
+
+    var order = inOrder(rollupRepository);
+    order.verify(rollupRepository).lockTenantExclusive(tenantId);
+    order.verify(rollupRepository).deleteDays(tenantId, from, to);
+    order.verify(rollupRepository).insertFromMovements(tenantId, from.atStartOfDay(),
+        LocalDate.of(2026, 4, 16).atStartOfDay());
+  }
+
+  private StockMovement movement() {
+    StockMovement movement = StockMovement.builder()
+        .code("MOV")
+        .warehouseId(UUID.randomUUID())
+        .type(StockMovementType.LOSS)
+        .direction(MovementDirection.OUT)
+        .createdByUserId(UUID.randomUUID())
+        .build();
+    movement.setId(UUID.randomUUID());
+    movement.setTenantId(UUID.randomUUID());
+    return movement;
+  }
+
+  private StockMovementItem item(String quantity) {
+    return StockMovementItem.builder()
+        .productId(UUID.randomUUID())
+        .productName("Produto")
+        .batchId(UUID.randomUUID())
+        .batchCode("B")
+        .quantity(new BigDecimal(quantity))
+        .build();
+  }
+}
@@ -1,6 +1,8 @@
 package br.com.stockshift.service.stockmovement;
 
+import br.com.stockshift.config.StockDeductionProperties;
 import br.com.stockshift.dto.product.ProductRequest;
+import br.com.stockshift.dto.report.WarehouseMovementTypeTotalProjection;
 import br.com.stockshift.dto.stockmovement.CreateStockMovementItemRequest;
 import br.com.stockshift.dto.stockmovement.CreateStockMovementRequest;
 import br.com.stockshift.dto.stockmovement.StockMovementResponse;
@@ -17,6 +19,7 @@ import br.com.stockshift.model.enums.MovementDirection;
 import br.com.stockshift.model.enums.StockMovementType;
 import br.com.stockshift.repository.BatchRepository;
 import br.com.stockshift.repository.InventoryLedgerRepository;
+import br.com.stockshift.repository.MovementDailyRollupRepository;
 import br.com.stockshift.repository.ProductRepository;
 import br.com.stockshift.repository.StockMovementItemRepository;
 import br.com.stockshift.repository.StockMovementRepository;
@@ -24,8 +27,14 @@ import br.com.stockshift.repository.WarehouseRepository;
 import br.com.stockshift.security.SecurityUtils;
 import br.com.stockshift.security.TenantContext;
 import br.com.stockshift.dto.admin.ProductImageProcessingResult;
+import br.com.stockshift.service.BatchLockManager;
+import br.com.stockshift.service.ConditionalStockDeductionService;
+import br.com.stockshift.service.DocumentCodeSequencer;
 import br.com.stockshift.service.ProductImageProcessingService;
 import br.com.stockshift.service.ProductService;
+import br.com.stockshift.service.ReferenceNameResolver;
+import br.com.stockshift.service.ReportCache;
+import br.com.stockshift.service.StockDeduction;
 import br.com.stockshift.service.audit.AuditService;
 import br.com.stockshift.service.upload.ProductImageUploadClaim;
 import br.com.stockshift.service.upload.ProductImageUploadService;
@@ -47,12 +56,15 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
@@ -89,6 +101,20 @@ class StockMovementServiceTest {
   private ProductImageUploadService productImageUploadService;
   @Mock
   private ProductImageProcessingService productImageProcessingService;
+  @Mock
+  private DocumentCodeSequencer documentCodeSequencer;
+  @Mock
+  private StockDeductionProperties stockDeductionProperties;
+  @Mock
+  private ConditionalStockDeductionService conditionalStockDeductionService;
+  @Mock
+  private ReferenceNameResolver referenceNameResolver;
+  @Mock
+  private ReportCache reportCache;
+  @Mock
+  private MovementDailyRollupRepository movementDailyRollupRepository;
+  @Mock
+  private MovementRollupService movementRollupService;
 
   @InjectMocks
   private StockMovementService service;
@@ -105,6 +131,8 @@ class StockMovementServiceTest {
     TenantContext.setTenantId(tenantId);
     ReflectionTestUtils.setField(service, "productImageProcessingService",
         productImageProcessingService);
+    ReflectionTestUtils.setField(service, "batchLockManager", new BatchLockManager(batchRepository));
+    when(documentCodeSequencer.nextMovementCode(tenantId)).thenReturn("MOV-2026-0001");
   }
 
   @AfterEach
@@ -142,8 +170,6 @@ class StockMovementServiceTest {
 
     when(securityUtils.getCurrentWarehouseId()).thenReturn(warehouseId);
     when(securityUtils.getCurrentUserId()).thenReturn(userId);
-    when(movementRepository.findLatestCodeByTenantIdAndCodePrefix(any(), any()))
-        .thenReturn(null);
 
     assertThatThrownBy(() -> service.create(request))
         .isInstanceOf(BadRequestException.class)
@@ -221,7 +247,8 @@ class StockMovementServiceTest {
     CreateStockMovementRequest request = buildExistingProductRequest(StockMovementType.USAGE,
         product.getId(), new BigDecimal("4"));
     stubExistingProductMovement(product);
-    when(batchRepository.findByProductAndWarehouseForFifo(product.getId(), warehouseId, tenantId))
+    when(batchRepository.findForCheckoutForUpdate(eq(tenantId), eq(warehouseId), anyCollection(),
+        eq(Set.of(product.getId()))))
         .thenReturn(List.of(first, second));
     when(mapper.toResponse(any(StockMovement.class), any()))
         .thenReturn(StockMovementResponse.builder().warehouseId(warehouseId).build());
@@ -236,13 +263,37 @@ class StockMovementServiceTest {
             && ledger.getQuantity().compareTo(BigDecimal.ZERO) < 0));
 
     Batch tooSmall = buildBatch(product, BigDecimal.ONE);
-    when(batchRepository.findByProductAndWarehouseForFifo(product.getId(), warehouseId, tenantId))
+    when(batchRepository.findForCheckoutForUpdate(eq(tenantId), eq(warehouseId), anyCollection(),
+        eq(Set.of(product.getId()))))
         .thenReturn(List.of(tooSmall));
     assertThatThrownBy(() -> service.create(request))
         .isInstanceOf(InsufficientStockException.class)
         .hasMessageContaining("Insufficient stock");
   }
 
+  @Test
+  void shouldProcessOutMovementWithConditionalDeductionWithoutLockingBatches() {
+    Product product = buildProduct("Existing");
+    UUID batchId = UUID.randomUUID();
+    CreateStockMovementRequest request = buildExistingProductRequest(StockMovementType.USAGE,
+        product.getId(), new BigDecimal("4"));
+    stubExistingProductMovement(product);
+    when(stockDeductionProperties.isConditional()).thenReturn(true);
+    when(conditionalStockDeductionService.deductFifo(eq(product), eq(warehouseId), eq(tenantId),
+        eq(new BigDecimal("4")), eq(ConditionalStockDeductionService.CREATED_AT_ORDER)))
+        .thenReturn(List.of(new StockDeduction(batchId, "BATCH-1", null, new BigDecimal("4"), BigDecimal.ONE)));
+    when(mapper.toResponse(any(StockMovement.class), any()))
+        .thenReturn(StockMovementResponse.builder().warehouseId(warehouseId).build());
+
+    service.create(request);
+
+    verify(batchRepository, never()).findForCheckoutForUpdate(any(), any(), anyCollection(), anyCollection());
+    verify(ledgerRepository).save(argThat(ledger ->
+        ledger.getBatchId().equals(batchId)
+            && ledger.getQuantity().compareTo(new BigDecimal("-4")) == 0
+            && ledger.getBalanceAfter().compareTo(BigDecimal.ONE) == 0));
+  }
+
   @Test
   void shouldAddInMovementToExistingBatchAndRejectManualTransferType() {
     Product product = buildProduct("Existing");
@@ -331,6 +382,7 @@ class StockMovementServiceTest {
     assertThat(created.getReferenceType()).isEqualTo("TRANSFER");
     assertThat(created.getItems()).hasSize(1);
     verify(auditService).record(any());
+    verify(movementRollupService).recordCreated(created);
 
     when(movementRepository.findByTenantIdAndId(tenantId, created.getId())).thenReturn(Optional.of(created));
     when(mapper.toResponse(created, "Main"))
@@ -340,36 +392,37 @@ class StockMovementServiceTest {
     when(securityUtils.getCurrentWarehouseId()).thenReturn(warehouseId);
     when(movementRepository.findExtract(any(), any(), eq(product.getId()), any(), any(), any(), any()))
         .thenReturn(new PageImpl<>(List.of(created)));
+    when(referenceNameResolver.warehouseNames(tenantId, List.of(warehouseId)))
+        .thenReturn(Map.of(warehouseId, "Main"));
     assertThat(service.list(null, product.getId(), null, null, null, PageRequest.of(0, 10)).getContent())
-        .hasSize(1);
+        .extracting(StockMovementResponse::getWarehouseName)
+        .containsExactly("Main");
   }
 
   @Test
   void shouldSummarizeWarehouseMovementsByTypeAndDirection() {
     Warehouse warehouse = buildWarehouse();
-    Product product = buildProduct("Existing");
-    StockMovement inMovement = movement(StockMovementType.PURCHASE_IN, MovementDirection.IN);
-    inMovement.addItem(item(product, new BigDecimal("5")));
-    StockMovement outMovement = movement(StockMovementType.LOSS, MovementDirection.OUT);
-    outMovement.addItem(item(product, new BigDecimal("2")));
+    LocalDateTime dateTo = LocalDateTime.now();
     when(warehouseRepository.findAllByTenantId(tenantId)).thenReturn(List.of(warehouse));
-    when(movementRepository.findForWarehouseSummary(eq(tenantId), eq(List.of(warehouseId)), any(), any()))
-        .thenReturn(List.of(inMovement, outMovement));
+    when(movementDailyRollupRepository.typeTotalsPerWarehouse(
+        tenantId, List.of(warehouseId), dateTo.minusDays(7).toLocalDate(), dateTo.toLocalDate()))
+        .thenReturn(List.of(
+            typeTotal(StockMovementType.PURCHASE_IN, "5", 1L),
+            typeTotal(StockMovementType.LOSS, "2", 2L)));
 
-    WarehouseMovementSummaryResponse response = service.getWarehouseSummary(
-        LocalDateTime.now().minusDays(7), LocalDateTime.now());
+    WarehouseMovementSummaryResponse response = service.getWarehouseSummary(dateTo.minusDays(7), dateTo);
 
     assertThat(response.getWarehouses()).hasSize(1);
     assertThat(response.getWarehouses().get(0).getTotalIn()).isEqualByComparingTo("5");
     assertThat(response.getWarehouses().get(0).getTotalOut()).isEqualByComparingTo("2");
-    assertThat(response.getWarehouses().get(0).getMovementsByType()).hasSize(2);
+    assertThat(response.getWarehouses().get(0).getMovementsByType())
+        .extracting(WarehouseMovementSummaryResponse.TypeSummary::getCount)
+        .containsExactly(1L, 2L);
   }
 
   private void stubInlineInMovement(Product product, Warehouse warehouse) {
     when(securityUtils.getCurrentWarehouseId()).thenReturn(warehouseId);
     when(securityUtils.getCurrentUserId()).thenReturn(userId);
-    when(movementRepository.findLatestCodeByTenantIdAndCodePrefix(any(), any()))
-        .thenReturn(null);
     when(productService.createEntity(any(ProductRequest.class))).thenReturn(product);
     when(warehouseRepository.findByTenantIdAndId(tenantId, warehouseId))
         .thenReturn(Optional.of(warehouse));
@@ -402,15 +455,11 @@ class StockMovementServiceTest {
   private void stubExistingProductMovement(Product product) {
     when(securityUtils.getCurrentWarehouseId()).thenReturn(warehouseId);
     when(securityUtils.getCurrentUserId()).thenReturn(userId);
-    when(movementRepository.findLatestCodeByTenantIdAndCodePrefix(any(), any()))
-        .thenReturn(null);
     when(productRepository.findByTenantIdAndId(tenantId, product.getId())).thenReturn(Optional.of(product));
     stubBaseMovementPersistence(buildWarehouse());
   }
 
   private void stubBaseMovementPersistence(Warehouse warehouse) {
-    when(movementRepository.findLatestCodeByTenantIdAndCodePrefix(any(), any()))
-        .thenReturn(null);
     when(movementRepository.save(any(StockMovement.class))).thenAnswer(invocation -> {
       StockMovement movement = invocation.getArgument(0);
       if (movement.getId() == null) {
@@ -502,28 +551,33 @@ class StockMovementServiceTest {
     return batch;
   }
 
-  private StockMovement movement(StockMovementType type, MovementDirection direction) {
-    StockMovement movement = StockMovement.builder()
-        .code("MOV")
-        .warehouseId(warehouseId)
-        .type(type)
-        .direction(direction)
-        .createdByUserId(userId)
-        .build();
-    movement.setId(UUID.randomUUID());
-    movement.setTenantId(tenantId);
-    return movement;
-  }
+  private WarehouseMovementTypeTotalProjection typeTotal(StockMovementType type, String quantity, long count) {
+    return new WarehouseMovementTypeTotalProjection() {
+      @Override
+      public UUID getWarehouseId() {
+        return warehouseId;
+      }
 
-  private StockMovementItem item(Product product, BigDecimal quantity) {
-    return StockMovementItem.builder()
-        .productId(product.getId())
-        .productName(product.getName())
-        .productSku(product.getSku())
-        .batchId(UUID.randomUUID())
-        .batchCode("B")
-        .quantity(quantity)
-        .build();
+      @Override
+      public StockMovementType getType() {
+        return type;
+      }
+
+      @Override
+      public MovementDirection getDirection() {
+        return type.getDirection();
+      }
+
+      @Override
+      public BigDecimal getItemQuantity() {
+        return new BigDecimal(quantity);
+      }
+
+      @Override
+      public Long getMovementCount() {
+        return count;
+      }
+    };
   }
 
   private Warehouse buildWarehouse() {
@@ -23,8 +23,13 @@ import br.com.stockshift.repository.TransferValidationLogRepository;
 import br.com.stockshift.repository.WarehouseRepository;
 import br.com.stockshift.security.SecurityUtils;
 import br.com.stockshift.security.TenantContext;
+import br.com.stockshift.service.BatchLockManager;
+import br.com.stockshift.service.DocumentCodeSequencer;
+import br.com.stockshift.service.ReferenceNameResolver;
+import br.com.stockshift.service.ReportCache;
 import br.com.stockshift.service.audit.AuditService;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -35,10 +40,13 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -46,6 +54,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -75,10 +84,22 @@ class TransferServiceTest {
         private br.com.stockshift.service.stockmovement.StockMovementService stockMovementService;
         @Mock
         private AuditService auditService;
+        @Mock
+        private DocumentCodeSequencer documentCodeSequencer;
+        @Mock
+        private ReferenceNameResolver referenceNameResolver;
+        @Mock
+        private ReportCache reportCache;
 
         @InjectMocks
         private TransferService transferService;
 
+        @BeforeEach
+        void setUp() {
+                ReflectionTestUtils.setField(transferService, "batchLockManager",
+                                new BatchLockManager(batchRepository));
+        }
+
         @AfterEach
         void tearDown() {
                 TenantContext.clear();
@@ -113,8 +134,7 @@ class TransferServiceTest {
                 when(warehouseRepository.findByTenantIdAndId(tenantId, sourceWarehouseId))
                                 .thenReturn(Optional.of(sourceWarehouse));
                 when(batchRepository.findByTenantIdAndId(tenantId, sourceBatchId)).thenReturn(Optional.of(batch));
-                when(transferRepository.findLatestCodeByTenantIdAndCodePrefix(eq(tenantId), any()))
-                                .thenReturn(null);
+                when(documentCodeSequencer.nextTransferCode(tenantId)).thenReturn("TRF-2026-0001");
                 when(transferRepository.save(any(Transfer.class))).thenAnswer(invocation -> {
                         Transfer transfer = invocation.getArgument(0);
                         transfer.setId(UUID.randomUUID());
@@ -158,6 +178,8 @@ class TransferServiceTest {
                 when(transferRepository.findByTenantIdAndId(tenantId, transferId)).thenReturn(Optional.of(transfer));
                 when(warehouseRepository.findById(sourceWarehouseId)).thenReturn(Optional.of(source));
                 when(warehouseRepository.findById(destinationWarehouseId)).thenReturn(Optional.of(destination));
+                when(referenceNameResolver.warehouseNames(eq(tenantId), any()))
+                                .thenReturn(Map.of(sourceWarehouseId, "Source", destinationWarehouseId, "Destination"));
                 when(transferMapper.toResponse(any(Transfer.class), any(), any()))
                                 .thenAnswer(invocation -> TransferResponse.builder()
                                                 .id(((Transfer) invocation.getArgument(0)).getId())
@@ -173,7 +195,12 @@ class TransferServiceTest {
 
                 assertThat(transferService.getById(transferId).getSourceWarehouseName()).isEqualTo("Source");
                 assertThat(transferService.list(TransferStatus.DRAFT, null, null, PageRequest.of(0, 10)).getContent())
-                                .hasSize(1);
+                                .singleElement()
+                                .extracting(TransferResponse::getDestinationWarehouseName)
+                                .isEqualTo("Destination");
+                // getById and the one-row page each resolve both names in a single call
+                verify(referenceNameResolver, times(2)).warehouseNames(tenantId,
+                                List.of(sourceWarehouseId, destinationWarehouseId));
                 assertThat(transferService.update(transferId, UpdateTransferRequest.builder()
                                 .notes("updated")
                                 .items(List.of(CreateTransferItemRequest.builder()
@@ -220,7 +247,7 @@ class TransferServiceTest {
                 when(securityUtils.getCurrentWarehouseId()).thenReturn(sourceWarehouseId);
                 when(securityUtils.getCurrentUserId()).thenReturn(userId);
                 when(transferRepository.findByTenantIdAndId(tenantId, transferId)).thenReturn(Optional.of(transfer));
-                when(batchRepository.findByIdForUpdate(sourceBatchId)).thenReturn(Optional.of(batch));
+                when(batchRepository.findAllByIdInForUpdate(Set.of(sourceBatchId))).thenReturn(List.of(batch));
                 when(batchRepository.save(any(Batch.class))).thenAnswer(invocation -> invocation.getArgument(0));
                 when(transferRepository.save(transfer)).thenReturn(transfer);
                 when(warehouseRepository.findById(sourceWarehouseId)).thenReturn(Optional.of(warehouse(sourceWarehouseId, "Source")));
@@ -293,7 +320,7 @@ class TransferServiceTest {
                 when(warehouseRepository.findById(destinationWarehouseId))
                                 .thenReturn(Optional.of(destinationWarehouse));
                 when(warehouseRepository.findById(sourceWarehouseId)).thenReturn(Optional.of(sourceWarehouse));
-                when(batchRepository.findByIdForUpdate(sourceBatchId)).thenReturn(Optional.of(batch));
+                when(batchRepository.findAllByIdInForUpdate(Set.of(sourceBatchId))).thenReturn(List.of(batch));
                 when(batchRepository.save(any(Batch.class))).thenAnswer(invocation -> invocation.getArgument(0));
                 when(transferRepository.save(transfer)).thenReturn(transfer);
                 when(transferMapper.toResponse(eq(transfer), eq("Recife"), eq("Natal")))
@@ -24,6 +24,7 @@ import br.com.stockshift.repository.TransferValidationLogRepository;
 import br.com.stockshift.repository.WarehouseRepository;
 import br.com.stockshift.security.SecurityUtils;
 import br.com.stockshift.security.TenantContext;
+import br.com.stockshift.service.BatchLockManager;
 import br.com.stockshift.service.audit.AuditService;
 import br.com.stockshift.service.stockmovement.StockMovementService;
 import org.junit.jupiter.api.AfterEach;
@@ -36,6 +37,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -43,6 +45,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -99,6 +102,7 @@ class TransferValidationServiceTest {
         sourceWarehouseId = UUID.randomUUID();
         destinationWarehouseId = UUID.randomUUID();
         TenantContext.setTenantId(tenantId);
+        ReflectionTestUtils.setField(service, "batchLockManager", new BatchLockManager(batchRepository));
         sourceWarehouse = warehouse(sourceWarehouseId, "Source");
         destinationWarehouse = warehouse(destinationWarehouseId, "Destination");
         savedBatches = new HashMap<>();
@@ -248,7 +252,7 @@ class TransferValidationServiceTest {
 
     private void stubSourceBatch(TransferItem item, BigDecimal transitQuantity) {
         Batch batch = batch(item.getSourceBatchId(), item.getBatchCode(), item.getProductId(), transitQuantity);
-        when(batchRepository.findByIdForUpdate(item.getSourceBatchId())).thenReturn(Optional.of(batch));
+        when(batchRepository.findAllByIdInForUpdate(Set.of(item.getSourceBatchId()))).thenReturn(List.of(batch));
     }
 
     private Transfer transfer(TransferStatus status) {